@@ -8,8 +8,6 @@ import android.widget.Toast;
 import com.mozz.htmlnative.HNativeEngine;
 import com.mozz.htmlnative.dom.HNHead;
 
-import java.io.IOException;
-
 /**
  * @author Yang Tao, 17/3/13.
  */
@@ -22,36 +20,32 @@ public class AssetsViewLoader {
     }
 
     public void load(final String fileName) {
-        try {
-            HNativeEngine.getInstance().loadView(mActivity, mActivity.getAssets().open(fileName), new
-                    HNativeEngine.OnHNViewLoaded() {
-
-                @Override
-                public void onViewLoaded(View v) {
-                    if (mActivity != null && !mActivity.isDestroyed()) {
-                        mActivity.setContentView(v);
-                    }
-                }
-
-                @Override
-                public void onError(Exception e) {
+        HNativeEngine.getInstance().loadAssetView(mActivity, fileName, new HNativeEngine
+                .OnHNViewLoaded() {
 
+            @Override
+            public void onViewLoaded(View v) {
+                if (mActivity != null && !mActivity.isDestroyed()) {
+                    mActivity.setContentView(v);
                 }
-
-                @Override
-                public void onHead(HNHead head) {
-                    if (mActivity.getActionBar() != null) {
-                        mActivity.getActionBar().setTitle(head.getTitle());
-                    } else if (mActivity instanceof AppCompatActivity) {
-                        if (((AppCompatActivity) mActivity).getSupportActionBar() != null) {
-                            ((AppCompatActivity) mActivity).getSupportActionBar().setTitle(head
-                                    .getTitle());
-                        }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Toast.makeText(mActivity, "load file failed", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onHead(HNHead head) {
+                if (mActivity.getActionBar() != null) {
+                    mActivity.getActionBar().setTitle(head.getTitle());
+                } else if (mActivity instanceof AppCompatActivity) {
+                    if (((AppCompatActivity) mActivity).getSupportActionBar() != null) {
+                        ((AppCompatActivity) mActivity).getSupportActionBar().setTitle(head
+                                .getTitle());
                     }
                 }
-            });
-        } catch (IOException e) {
-            Toast.makeText(mActivity, "load file failed", Toast.LENGTH_SHORT).show();
-        }
+            }
+        });
     }
 }
@@ -29,6 +29,8 @@ public class DemoApplication extends Application {
         super.onCreate();
         HNativeEngine.getInstance().init(this);
         HNativeEngine.getInstance().debugAll();
+        // pages are recycled by MainActivity
+        HNativeEngine.getInstance().setViewPoolSize(16);
 
         HNLog.setDebugLevel(HNLog.LEXER);
         HNLog.setDebugLevel(HNLog.CSS_PARSER);
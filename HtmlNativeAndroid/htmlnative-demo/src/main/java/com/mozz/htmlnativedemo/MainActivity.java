@@ -16,6 +16,7 @@ import android.widget.Toast;
 
 import com.mozz.htmlnative.HNativeEngine;
 import com.mozz.htmlnative.dom.HNHead;
+import com.mozz.htmlnative.view.HNRootView;
 
 import static com.mozz.htmlnativedemo.WebViewActivity.EXTAL_URL;
 
@@ -43,6 +44,26 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         mSearch.clearFocus();
     }
 
+    @Override
+    protected void onDestroy() {
+        // before the pools of this Activity are dropped in super.onDestroy()
+        recyclePage();
+        super.onDestroy();
+    }
+
+    /**
+     * Return the views of the page shown to the pool, so the next page reuses them.
+     */
+    private void recyclePage() {
+        for (int i = 0; i < mContainer.getChildCount(); i++) {
+            View child = mContainer.getChildAt(i);
+            if (child instanceof HNRootView) {
+                ((HNRootView) child).recycle();
+            }
+        }
+        mContainer.removeAllViews();
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         MenuInflater inflater = getMenuInflater();
@@ -85,7 +106,7 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
             mLoader.load(url, new HNativeEngine.OnHNViewLoaded() {
                 @Override
                 public void onViewLoaded(View v) {
-                    mContainer.removeAllViews();
+                    recyclePage();
                     mContainer.addView(v, new ViewGroup.LayoutParams(ViewGroup.LayoutParams
                             .MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
                 }
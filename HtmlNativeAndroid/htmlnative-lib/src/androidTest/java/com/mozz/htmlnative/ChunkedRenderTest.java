@@ -0,0 +1,286 @@
+package com.mozz.htmlnative;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.mozz.htmlnative.dom.DomElement;
+import com.mozz.htmlnative.parser.Parser;
+import com.mozz.htmlnative.reader.StringTextReader;
+import com.mozz.htmlnative.utils.ParametersUtils;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders a page in slices with a frame budget of 0 and 1ns, so that each frame renders one or a
+ * few elements, and checks the views are the same as rendering the page at once, and that a
+ * failure in the middle is reported rather than finishing the page.
+ *
+ * @author Yang Tao, 17/6/22.
+ */
+
+@RunWith(AndroidJUnit4.class)
+public class ChunkedRenderTest {
+
+    private static final int ITEMS = 20;
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        ParametersUtils.init(mContext);
+    }
+
+    private static String page() {
+        return page("");
+    }
+
+    private static String page(String last) {
+        StringBuilder sb = new StringBuilder("<html>\n<head>\n<style>\n" +
+                ".item { padding: 4px }\n" +
+                ".item p { color: #ff0000 }\n" +
+                "</style>\n</head>\n<body>\n");
+        for (int i = 0; i < ITEMS; i++) {
+            sb.append("<div class=\"item\">\n<p>item ").append(i).append("</p>\n");
+            sb.append("<div>Hello <span style=\"color: #00ff00\">green</span><b>bold</b></div>");
+            sb.append("\n</div>\n");
+        }
+        sb.append(last).append("</body>\n</html>");
+        return sb.toString();
+    }
+
+    private static HNSegment parse() throws Exception {
+        return parse(page());
+    }
+
+    private static HNSegment parse(String page) throws Exception {
+        HNSegment segment = new Parser(new StringTextReader(page)).process();
+        segment.bindScreen();
+        segment.resolveStyles();
+        return segment;
+    }
+
+    private static <T> T onMain(Callable<T> callable) throws Exception {
+        FutureTask<T> task = new FutureTask<>(callable);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(task);
+        return task.get();
+    }
+
+    private static void waitFrames(final int frames) throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        onMain(new Callable<Void>() {
+            @Override
+            public Void call() {
+                Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+                    private int mLeft = frames;
+
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        if (--mLeft > 0) {
+                            Choreographer.getInstance().postFrameCallback(this);
+                        } else {
+                            done.countDown();
+                        }
+                    }
+                });
+                return null;
+            }
+        });
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    private static String dump(View view) {
+        StringBuilder sb = new StringBuilder();
+        dump(view, sb);
+        return sb.toString();
+    }
+
+    private static void dump(View view, StringBuilder sb) {
+        sb.append(view.getClass().getSimpleName());
+        if (view.getTag() instanceof DomElement) {
+            sb.append(' ').append(((DomElement) view.getTag()).getType());
+        }
+        sb.append(" padding=").append(view.getPaddingLeft()).append(',').append(view
+                .getPaddingTop());
+        if (view instanceof TextView) {
+            TextView text = (TextView) view;
+            sb.append(" \"").append(text.getText()).append("\" ").append(Integer.toHexString(text
+                    .getCurrentTextColor()));
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            sb.append(" [\n");
+            for (int i = 0; i < group.getChildCount(); i++) {
+                dump(group.getChildAt(i), sb);
+            }
+            sb.append(']');
+        }
+        sb.append('\n');
+    }
+
+    private String renderAtOnce() throws Exception {
+        final HNSegment segment = parse();
+        return onMain(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                View root = HNRenderer.get().render(mContext, segment, new ViewGroup
+                        .LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup
+                        .LayoutParams.WRAP_CONTENT));
+                return dump(root);
+            }
+        });
+    }
+
+    @Test
+    public void sameAsRenderedAtOnce() throws Exception {
+        String expected = renderAtOnce();
+
+        for (final long budget : new long[]{0, 1}) {
+            final HNSegment segment = parse();
+            final CountDownLatch finished = new CountDownLatch(1);
+            final View[] finishedRoot = new View[1];
+
+            final View root = onMain(new Callable<View>() {
+                @Override
+                public View call() throws Exception {
+                    HNRenderer.ChunkedRender chunked = HNRenderer.get().renderChunked(mContext,
+                            segment, budget, new HNRenderer.OnRenderFinished() {
+                                @Override
+                                public void onRenderFinished(View root) {
+                                    finishedRoot[0] = root;
+                                    finished.countDown();
+                                }
+
+                                @Override
+                                public void onRenderFailed(HNRenderer.HNRenderException e) {
+                                    Assert.fail(String.valueOf(e));
+                                }
+                            });
+                    return chunked.getRoot();
+                }
+            });
+
+            Assert.assertNotNull(root);
+            // only the first slice is rendered so far
+            Assert.assertEquals(1, finished.getCount());
+            Assert.assertNotEquals(expected, onMain(new Callable<String>() {
+                @Override
+                public String call() {
+                    return dump(root);
+                }
+            }));
+
+            Assert.assertTrue(finished.await(10, TimeUnit.SECONDS));
+            Assert.assertSame(root, finishedRoot[0]);
+            Assert.assertEquals("budget " + budget, expected, onMain(new Callable<String>() {
+                @Override
+                public String call() {
+                    return dump(root);
+                }
+            }));
+        }
+    }
+
+    @Test
+    public void cancelStopsAtNextFrame() throws Exception {
+        final HNSegment segment = parse();
+        final CountDownLatch finished = new CountDownLatch(1);
+        final HNRenderer.ChunkedRender[] chunked = new HNRenderer.ChunkedRender[1];
+
+        final String firstSlice = onMain(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                chunked[0] = HNRenderer.get().renderChunked(mContext, segment, 0, new HNRenderer
+                        .OnRenderFinished() {
+                    @Override
+                    public void onRenderFinished(View root) {
+                        finished.countDown();
+                    }
+
+                    @Override
+                    public void onRenderFailed(HNRenderer.HNRenderException e) {
+                        finished.countDown();
+                    }
+                });
+                // before the next frame, so that no other slice is rendered
+                chunked[0].cancel();
+                return dump(chunked[0].getRoot());
+            }
+        });
+
+        waitFrames(10);
+
+        Assert.assertEquals(1, finished.getCount());
+        Assert.assertEquals(firstSlice, onMain(new Callable<String>() {
+            @Override
+            public String call() {
+                return dump(chunked[0].getRoot());
+            }
+        }));
+    }
+
+    /**
+     * Fails to be created, as a view of a custom tag whose constructor throws does.
+     */
+    public static class FailingView extends View {
+        public FailingView(Context context) {
+            super(context);
+            throw new IllegalStateException("failing view");
+        }
+    }
+
+    @Test
+    public void failureReported() throws Exception {
+        ViewTypeRelations.registerExtraView("failing", new HNViewItem() {
+            @NonNull
+            @Override
+            public Class<? extends View> onGetViewClassName() {
+                return FailingView.class;
+            }
+        });
+
+        final HNSegment segment = parse(page("<failing/>\n"));
+        final CountDownLatch failed = new CountDownLatch(1);
+        final HNRenderer.HNRenderException[] failure = new HNRenderer.HNRenderException[1];
+        final boolean[] finished = new boolean[1];
+
+        final View root = onMain(new Callable<View>() {
+            @Override
+            public View call() throws Exception {
+                return HNRenderer.get().renderChunked(mContext, segment, 0, new HNRenderer
+                        .OnRenderFinished() {
+                    @Override
+                    public void onRenderFinished(View root) {
+                        finished[0] = true;
+                    }
+
+                    @Override
+                    public void onRenderFailed(HNRenderer.HNRenderException e) {
+                        failure[0] = e;
+                        failed.countDown();
+                    }
+                }).getRoot();
+            }
+        });
+
+        // the first slice is fine, the failing view is the last element
+        Assert.assertNotNull(root);
+        Assert.assertTrue(failed.await(10, TimeUnit.SECONDS));
+        Assert.assertNotNull(failure[0]);
+        Assert.assertFalse(finished[0]);
+    }
+}
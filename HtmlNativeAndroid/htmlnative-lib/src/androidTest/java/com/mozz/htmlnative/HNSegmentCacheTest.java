@@ -0,0 +1,146 @@
+package com.mozz.htmlnative;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * @author Yang Tao, 17/6/14.
+ */
+
+@RunWith(AndroidJUnit4.class)
+public class HNSegmentCacheTest {
+
+    private File mDir;
+
+    @Before
+    public void setUp() throws IOException {
+        mDir = File.createTempFile("segments", "");
+        mDir.delete();
+        mDir.mkdirs();
+    }
+
+    private static byte[] page(String text) throws IOException {
+        return ("<body><p>" + text + "</p><div class=\"a\">hello</div></body>").getBytes("UTF-8");
+    }
+
+    @Test
+    public void sameContentParsedOnce() throws Exception {
+        HNSegmentCache cache = new HNSegmentCache(HNSegmentCache.DEFAULT_MEMORY_SIZE);
+
+        HNSegment first = cache.load(page("1"));
+        HNSegment second = cache.load(page("1"));
+        HNSegment other = cache.load(page("2"));
+
+        Assert.assertSame(first, second);
+        Assert.assertNotSame(first, other);
+        Assert.assertEquals(2, cache.parseCount());
+    }
+
+    @Test
+    public void missFallsBackToDisk() throws Exception {
+        HNSegmentCache cache = new HNSegmentCache(HNSegmentCache.DEFAULT_MEMORY_SIZE);
+        cache.setDiskCache(mDir, HNSegmentCache.DEFAULT_DISK_SIZE);
+        HNSegment parsed = cache.load(page("1"));
+
+        HNSegmentCache restarted = new HNSegmentCache(HNSegmentCache.DEFAULT_MEMORY_SIZE);
+        restarted.setDiskCache(mDir, HNSegmentCache.DEFAULT_DISK_SIZE);
+        HNSegment loaded = restarted.load(page("1"));
+
+        Assert.assertEquals(0, restarted.parseCount());
+        Assert.assertEquals(1, restarted.diskHitCount());
+        Assert.assertEquals(parsed.getDom().wholeTreeToString(), loaded.getDom()
+                .wholeTreeToString());
+    }
+
+    @Test
+    public void truncatedDiskFileIsParsedAgain() throws Exception {
+        HNSegmentCache cache = new HNSegmentCache(HNSegmentCache.DEFAULT_MEMORY_SIZE);
+        cache.setDiskCache(mDir, HNSegmentCache.DEFAULT_DISK_SIZE);
+        HNSegment parsed = cache.load(page("1"));
+
+        File[] files = mDir.listFiles();
+        Assert.assertEquals(1, files.length);
+        RandomAccessFile file = new RandomAccessFile(files[0], "rw");
+        file.setLength(file.length() / 2);
+        file.close();
+
+        HNSegmentCache restarted = new HNSegmentCache(HNSegmentCache.DEFAULT_MEMORY_SIZE);
+        restarted.setDiskCache(mDir, HNSegmentCache.DEFAULT_DISK_SIZE);
+        HNSegment loaded = restarted.load(page("1"));
+
+        Assert.assertEquals(1, restarted.parseCount());
+        Assert.assertEquals(parsed.getDom().wholeTreeToString(), loaded.getDom()
+                .wholeTreeToString());
+
+        // the rewritten file is read next time
+        HNSegmentCache again = new HNSegmentCache(HNSegmentCache.DEFAULT_MEMORY_SIZE);
+        again.setDiskCache(mDir, HNSegmentCache.DEFAULT_DISK_SIZE);
+        again.load(page("1"));
+        Assert.assertEquals(1, again.diskHitCount());
+    }
+
+    @Test
+    public void memoryIsBounded() throws Exception {
+        HNSegmentCache cache = new HNSegmentCache(HNSegmentCache.DEFAULT_MEMORY_SIZE);
+        cache.load(page("0"));
+        // room for about three pages
+        int budget = cache.memorySize() * 3;
+        cache.setMemorySize(budget);
+
+        for (int i = 1; i < 10; i++) {
+            cache.load(page(String.valueOf(i)));
+        }
+
+        Assert.assertTrue(cache.memorySize() <= budget);
+
+        // the recent one is kept, the oldest is evicted and parsed again.
+        cache.load(page("9"));
+        Assert.assertEquals(10, cache.parseCount());
+        cache.load(page("0"));
+        Assert.assertEquals(11, cache.parseCount());
+    }
+
+    @Test
+    public void concurrentLoadsCoalesce() throws Exception {
+        final HNSegmentCache cache = new HNSegmentCache(HNSegmentCache.DEFAULT_MEMORY_SIZE);
+        final byte[] source = page("concurrent");
+        final int threadCount = 8;
+        final HNSegment[] results = new HNSegment[threadCount];
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            final int index = i;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        results[index] = cache.load(source);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        start.countDown();
+        done.await();
+
+        Assert.assertEquals(1, cache.parseCount());
+        for (HNSegment segment : results) {
+            Assert.assertSame(results[0], segment);
+        }
+    }
+}
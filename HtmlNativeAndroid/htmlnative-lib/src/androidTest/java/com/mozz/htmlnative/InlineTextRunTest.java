@@ -0,0 +1,103 @@
+package com.mozz.htmlnative;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.text.SpannableStringBuilder;
+import android.text.style.ClickableSpan;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.StyleSpan;
+import android.text.style.UnderlineSpan;
+
+import com.mozz.htmlnative.css.ResolvedStyles;
+import com.mozz.htmlnative.dom.HNDomTree;
+import com.mozz.htmlnative.parser.Parser;
+import com.mozz.htmlnative.reader.StringTextReader;
+import com.mozz.htmlnative.utils.ParametersUtils;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+/**
+ * @author Yang Tao, 17/6/21.
+ */
+
+@RunWith(AndroidJUnit4.class)
+public class InlineTextRunTest {
+
+    private static final String PAGE = "<html>\n<head>\n<style>\n" +
+            ".wide { width: 10px }\n" +
+            "</style>\n</head>\n<body>\n" +
+            "<div>Hello <span style=\"color: #ff0000\">red</span><a href=\"http://a.b\">link" +
+            "</a><span class=\"wide\">wide</span><span>and </span><b>bold</b>" +
+            "<span id=\"own\">own</span></div>\n</body>\n</html>";
+
+    @Before
+    public void setUp() {
+        ParametersUtils.init(InstrumentationRegistry.getTargetContext());
+    }
+
+    private List<HNDomTree> mChildren;
+    private ResolvedStyles mStyles;
+
+    @Before
+    public void parse() throws Exception {
+        HNSegment segment = new Parser(new StringTextReader(PAGE)).process();
+        segment.resolveStyles();
+        mChildren = segment.getDom().children().get(0).children();
+        mStyles = segment.getResolvedStyles();
+    }
+
+    @Test
+    public void runs() throws Exception {
+        Assert.assertEquals(7, mChildren.size());
+
+        // ends at the span having width
+        Assert.assertEquals(3, InlineTextRun.end(mChildren, 0, mStyles));
+        Assert.assertEquals(3, InlineTextRun.end(mChildren, 3, mStyles));
+
+        // ends at the span having id
+        Assert.assertEquals(6, InlineTextRun.end(mChildren, 4, mStyles));
+    }
+
+    @Test
+    public void spans() throws Exception {
+        SpannableStringBuilder text = new SpannableStringBuilder();
+        Assert.assertTrue(InlineTextRun.build(InstrumentationRegistry.getTargetContext(),
+                mChildren.subList(0, 3), mStyles, text));
+        Assert.assertEquals("Hello redlink", text.toString());
+
+        ForegroundColorSpan[] colors = text.getSpans(0, text.length(), ForegroundColorSpan
+                .class);
+        Assert.assertEquals(1, colors.length);
+        Assert.assertEquals(0xFFFF0000, colors[0].getForegroundColor());
+        Assert.assertEquals(6, text.getSpanStart(colors[0]));
+        Assert.assertEquals(9, text.getSpanEnd(colors[0]));
+
+        ClickableSpan[] links = text.getSpans(0, text.length(), ClickableSpan.class);
+        Assert.assertEquals(1, links.length);
+        Assert.assertEquals(9, text.getSpanStart(links[0]));
+
+        text = new SpannableStringBuilder();
+        Assert.assertFalse(InlineTextRun.build(InstrumentationRegistry.getTargetContext(),
+                mChildren.subList(4, 6), mStyles, text));
+        Assert.assertEquals("and bold", text.toString());
+        Assert.assertEquals(1, text.getSpans(0, text.length(), StyleSpan.class).length);
+    }
+
+    @Test
+    public void unresolved() throws Exception {
+        // none is resolved, so elements are set none of their own styles
+        SpannableStringBuilder text = new SpannableStringBuilder();
+        Assert.assertFalse(InlineTextRun.build(InstrumentationRegistry.getTargetContext(),
+                mChildren.subList(0, 3), new ResolvedStyles(), text));
+        Assert.assertEquals("Hello redlink", text.toString());
+        Assert.assertEquals(0, text.getSpans(0, text.length(), ForegroundColorSpan.class)
+                .length);
+        Assert.assertEquals(0, text.getSpans(0, text.length(), ClickableSpan.class).length);
+        Assert.assertEquals(1, text.getSpans(0, text.length(), UnderlineSpan.class).length);
+    }
+}
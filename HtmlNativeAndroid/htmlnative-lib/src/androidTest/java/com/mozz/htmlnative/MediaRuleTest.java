@@ -0,0 +1,119 @@
+package com.mozz.htmlnative;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.mozz.htmlnative.common.Symbols;
+import com.mozz.htmlnative.css.ComputedStyle;
+import com.mozz.htmlnative.css.ResolvedStyles;
+import com.mozz.htmlnative.css.StyleSheet;
+import com.mozz.htmlnative.css.selector.CssSelector;
+import com.mozz.htmlnative.dom.HNDomTree;
+import com.mozz.htmlnative.exception.HNSyntaxError;
+import com.mozz.htmlnative.parser.Parser;
+import com.mozz.htmlnative.parser.SegmentReader;
+import com.mozz.htmlnative.parser.SegmentWriter;
+import com.mozz.htmlnative.reader.StringTextReader;
+import com.mozz.htmlnative.utils.ParametersUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * @author Yang Tao, 17/6/21.
+ */
+
+@RunWith(AndroidJUnit4.class)
+public class MediaRuleTest {
+
+    private static final String PAGE = "<html>\n<head>\n<style>\n" +
+            "p { color: #ff0000 }\n" +
+            "@media screen and (min-width: 1000px) {\n" +
+            "  p, .title { color: #00ff00 }\n" +
+            "  .side { width: 100px }\n" +
+            "}\n" +
+            "@media (orientation: portrait) { .side { width: 10px } }\n" +
+            ".title { height: 20px }\n" +
+            "</style>\n</head>\n<body>\n" +
+            "<p class=\"title side\">hello</p>\n</body>\n</html>";
+
+    private static HNSegment parse(String page) throws Exception {
+        return new Parser(new StringTextReader(page)).process();
+    }
+
+    private static CssSelector[] matched(HNSegment segment) {
+        HNDomTree p = segment.getDom().children().get(0);
+        return segment.getStyleSheet().matchedSelector(p.getType(), p.getId(), p.getClazz());
+    }
+
+    @Test
+    public void prunedUntilBound() throws Exception {
+        HNSegment segment = parse(PAGE);
+        StyleSheet styleSheet = segment.getStyleSheet();
+
+        Assert.assertTrue(styleSheet.hasMediaRules());
+        Assert.assertEquals(6, styleSheet.selectorCount());
+        Assert.assertEquals(2, matched(segment).length);
+    }
+
+    @Test
+    public void boundToScreen() throws Exception {
+        HNSegment segment = parse(PAGE);
+        StyleSheet styleSheet = segment.getStyleSheet();
+
+        // tablet in landscape
+        styleSheet.bindScreen(2048, 1536, 2.f);
+        CssSelector[] matched = matched(segment);
+        Assert.assertEquals(5, matched.length);
+        Assert.assertEquals(0xFF00FF00, styleSheet.getStyle(matched[2], Symbols.COLOR));
+        Assert.assertNotNull(styleSheet.getStyle(matched[4], Symbols.HEIGHT));
+
+        // phone in portrait
+        styleSheet.bindScreen(720, 1280, 2.f);
+        matched = matched(segment);
+        Assert.assertEquals(3, matched.length);
+        Assert.assertNotNull(styleSheet.getStyle(matched[1], Symbols.WIDTH));
+    }
+
+    @Test
+    public void resolvedPerScreen() throws Exception {
+        ParametersUtils.init(InstrumentationRegistry.getTargetContext());
+        HNSegment segment = parse(PAGE);
+        HNDomTree p = segment.getDom().children().get(0);
+
+        segment.bindScreen(2048, 1536, 2.f);
+        segment.resolveStyles();
+        ResolvedStyles landscape = segment.getResolvedStyles();
+        ComputedStyle style = landscape.get(p);
+        Assert.assertEquals(0xFF00FF00, style.getStyle(Symbols.COLOR));
+
+        // a render holding the styles of landscape is not affected
+        segment.bindScreen(720, 1280, 2.f);
+        segment.resolveStyles();
+        ResolvedStyles portrait = segment.getResolvedStyles();
+        Assert.assertNotSame(landscape, portrait);
+        Assert.assertSame(style, landscape.get(p));
+        Assert.assertTrue(landscape.isComplete());
+        Assert.assertEquals(0xFFFF0000, portrait.get(p).getStyle(Symbols.COLOR));
+
+        // rotated back, not resolved again
+        segment.bindScreen(2048, 1536, 2.f);
+        Assert.assertSame(landscape, segment.getResolvedStyles());
+    }
+
+    @Test
+    public void keptWhenCompiled() throws Exception {
+        HNSegment read = SegmentReader.read(SegmentWriter.write(parse(PAGE)));
+        Assert.assertEquals(2, matched(read).length);
+
+        read.getStyleSheet().bindScreen(2048, 1536, 2.f);
+        Assert.assertEquals(5, matched(read).length);
+    }
+
+    @Test(expected = HNSyntaxError.class)
+    public void unsupportedAtRule() throws Exception {
+        parse("<html>\n<head>\n<style>\n@font-face { p { color: #ff0000 } }\n</style>\n" +
+                "</head>\n<body>\n</body>\n</html>");
+    }
+}
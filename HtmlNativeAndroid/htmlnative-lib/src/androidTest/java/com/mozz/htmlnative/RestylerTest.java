@@ -0,0 +1,98 @@
+package com.mozz.htmlnative;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import com.mozz.htmlnative.common.Symbols;
+import com.mozz.htmlnative.css.StyleSheet;
+import com.mozz.htmlnative.dom.AttachedElement;
+import com.mozz.htmlnative.dom.HNDomTree;
+import com.mozz.htmlnative.parser.Parser;
+import com.mozz.htmlnative.reader.StringTextReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+/**
+ * @author Yang Tao, 17/6/21.
+ */
+
+@RunWith(AndroidJUnit4.class)
+public class RestylerTest {
+
+    private static final String DOCUMENT = "<html>\n<head>\n<style>\n" +
+            ".dark p { color: #ffffff }\n" +
+            ".title { height: 20px }\n" +
+            "#main .item { width: 10px }\n" +
+            "</style>\n</head>\n<body>\n" +
+            "<div id=\"main\"><p style=\"color: #000000\">hello</p></div>\n" +
+            "</body>\n</html>";
+
+    private static HNSegment parse() throws Exception {
+        return new Parser(new StringTextReader(DOCUMENT)).process();
+    }
+
+    private static int[] ids(String... clazz) {
+        return Symbols.internAll(clazz);
+    }
+
+    @Test
+    public void invalidationOfRules() throws Exception {
+        StyleSheet styleSheet = parse().getStyleSheet();
+
+        Assert.assertEquals(StyleSheet.INVALIDATE_DESCENDANTS, styleSheet.classInvalidation
+                (Symbols.intern("dark")));
+        Assert.assertEquals(StyleSheet.INVALIDATE_SELF, styleSheet.classInvalidation(Symbols
+                .intern("title")));
+        Assert.assertEquals(StyleSheet.INVALIDATE_SELF, styleSheet.classInvalidation(Symbols
+                .intern("item")));
+        Assert.assertEquals(StyleSheet.INVALIDATE_DESCENDANTS, styleSheet.idInvalidation
+                ("main"));
+        Assert.assertEquals(0, styleSheet.classInvalidation(Symbols.intern("unused")));
+
+        // only classes added or removed count
+        Assert.assertEquals(0, Restyler.invalidation(styleSheet, ids("title", "unused"), ids
+                ("unused", "title")));
+        Assert.assertEquals(StyleSheet.INVALIDATE_SELF | StyleSheet.INVALIDATE_DESCENDANTS,
+                Restyler.invalidation(styleSheet, ids("title"), ids("dark")));
+    }
+
+    @Test
+    public void linkedIncluded() throws Exception {
+        StyleSheet page = new StyleSheet();
+        page.link(parse().getStyleSheet());
+
+        Assert.assertEquals(StyleSheet.INVALIDATE_DESCENDANTS, page.classInvalidation(Symbols
+                .intern("dark")));
+    }
+
+    @Test
+    public void declaredInRenderOrder() throws Exception {
+        HNSegment segment = parse();
+        HNDomTree div = segment.getDom().children().get(0);
+        HNDomTree p = div.children().get(0);
+
+        AttachedElement divElement = AttachedElement.cloneFrom(div);
+        AttachedElement pElement = AttachedElement.cloneFrom(p);
+        pElement.setParent(divElement);
+        pElement.setOwner(p);
+
+        Restyler.Declared declared = Restyler.instance().declared(pElement, segment
+                .getInlineStyles(), segment.getStyleSheet());
+        Assert.assertEquals(0xFF000000, declared.mValues[declared.indexOf(Symbols.COLOR)]);
+
+        divElement.setClazz(Restyler.changeClass(divElement.getClazz(), Restyler.ADD_CLASS,
+                new String[]{"dark"}));
+        declared = Restyler.instance().declared(pElement, segment.getInlineStyles(), segment
+                .getStyleSheet());
+        Assert.assertEquals(0xFFFFFFFF, declared.mValues[declared.indexOf(Symbols.COLOR)]);
+
+        pElement.putScriptStyles(Collections.<String, Object>singletonMap("color", "red"));
+        declared = Restyler.instance().declared(pElement, segment.getInlineStyles(), segment
+                .getStyleSheet());
+        Assert.assertEquals("red", declared.mValues[declared.indexOf(Symbols.COLOR)]);
+        Assert.assertEquals(declared.mCount - 1, declared.indexOf(Symbols.COLOR));
+    }
+}
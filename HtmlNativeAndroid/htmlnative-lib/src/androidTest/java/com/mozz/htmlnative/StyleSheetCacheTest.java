@@ -0,0 +1,114 @@
+package com.mozz.htmlnative;
+
+import android.support.annotation.NonNull;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.mozz.htmlnative.common.Symbols;
+import com.mozz.htmlnative.css.StyleSheet;
+import com.mozz.htmlnative.css.selector.CssSelector;
+import com.mozz.htmlnative.dom.HNDomTree;
+import com.mozz.htmlnative.parser.Parser;
+import com.mozz.htmlnative.parser.SegmentReader;
+import com.mozz.htmlnative.parser.SegmentWriter;
+import com.mozz.htmlnative.reader.StringTextReader;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * @author Yang Tao, 17/6/21.
+ */
+
+@RunWith(AndroidJUnit4.class)
+public class StyleSheetCacheTest {
+
+    private static final String BASE_CSS = "p { color: #ff0000; width: 10px }\n.title { " +
+            "height: 20px }";
+
+    private static final String PAGE = "<html>\n<head>\n<style>\np { color: #0000ff }\n" +
+            "</style>\n<link rel=\"stylesheet\" href=\"base.css\"/>\n</head>\n<body>\n" +
+            "<p class=\"title\">hello</p>\n</body>\n</html>";
+
+    private int mOpenCount;
+
+    @Before
+    public void setUp() {
+        StyleSheetCache.clear();
+        StyleSheetCache.setLoader(new StyleSheetLoader() {
+            @NonNull
+            @Override
+            public InputStream open(@NonNull String href) throws IOException {
+                mOpenCount++;
+                return new ByteArrayInputStream(BASE_CSS.getBytes("UTF-8"));
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        StyleSheetCache.setLoader(null);
+        StyleSheetCache.clear();
+    }
+
+    private static HNSegment parse() throws Exception {
+        return new Parser(new StringTextReader(PAGE)).process();
+    }
+
+    private static HNDomTree p(HNSegment segment) {
+        return segment.getDom().children().get(0);
+    }
+
+    @Test
+    public void sharedByPages() throws Exception {
+        HNSegment first = parse();
+        HNSegment second = parse();
+
+        StyleSheet linked = first.getStyleSheet().linkedStyleSheets().get(0);
+        Assert.assertSame(linked, second.getStyleSheet().linkedStyleSheets().get(0));
+        Assert.assertEquals("base.css", linked.getHref());
+        Assert.assertTrue(linked.isSealed());
+        Assert.assertEquals(1, mOpenCount);
+    }
+
+    @Test
+    public void localAfterLinked() throws Exception {
+        HNSegment segment = parse();
+        StyleSheet styleSheet = segment.getStyleSheet();
+        HNDomTree p = p(segment);
+
+        CssSelector[] matched = styleSheet.matchedSelector(p.getType(), p.getId(), p
+                .getClazz());
+        Assert.assertEquals(3, matched.length);
+
+        // rules of the page win over the linked ones, wherever <link> is
+        Assert.assertEquals(0xFF0000FF, styleSheet.getStyle(matched[2], Symbols.COLOR));
+        Assert.assertEquals(0xFFFF0000, styleSheet.getStyle(matched[0], Symbols.COLOR));
+        Assert.assertNotNull(styleSheet.getStyle(matched[1], Symbols.HEIGHT));
+        Assert.assertEquals(3, styleSheet.selectorCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void sealedNotChanged() throws Exception {
+        StyleSheet linked = parse().getStyleSheet().linkedStyleSheets().get(0);
+        linked.putSelector(linked.selectorsInOrder()[0]);
+    }
+
+    @Test
+    public void linkedAgainWhenRead() throws Exception {
+        HNSegment segment = parse();
+        StyleSheet linked = segment.getStyleSheet().linkedStyleSheets().get(0);
+
+        HNSegment read = SegmentReader.read(SegmentWriter.write(segment));
+
+        Assert.assertEquals(1, read.getStyleSheet().linkedStyleSheets().size());
+        Assert.assertSame(linked, read.getStyleSheet().linkedStyleSheets().get(0));
+        Assert.assertEquals(1, mOpenCount);
+    }
+}
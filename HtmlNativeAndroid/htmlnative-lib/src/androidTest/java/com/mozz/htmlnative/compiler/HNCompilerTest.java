@@ -0,0 +1,58 @@
+package com.mozz.htmlnative.compiler;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import com.mozz.htmlnative.HNSegment;
+import com.mozz.htmlnative.exception.HNSyntaxError;
+import com.mozz.htmlnative.script.ScriptInfo;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.lib.jse.JsePlatform;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * @author Yang Tao, 17/6/13.
+ */
+
+@RunWith(AndroidJUnit4.class)
+public class HNCompilerTest {
+
+    private static final String CODE = "<html>\n" +
+            "<head><title>compiled</title></head>\n" +
+            "<body><p>hello</p></body>\n" +
+            "<script type=\"text/lua\">\n" +
+            "result = 1 + 2\n" +
+            "</script>\n" +
+            "</html>";
+
+    @Test
+    public void compileLuaIntoBytecode() throws Exception {
+        byte[] compiled = HNCompiler.compile(new ByteArrayInputStream(CODE.getBytes("UTF-8")));
+        HNSegment segment = HNSegment.loadCompiled(compiled);
+
+        ScriptInfo scriptInfo = segment.getScriptInfo();
+        Assert.assertNotNull(scriptInfo.bytecode());
+
+        Globals globals = JsePlatform.standardGlobals();
+        globals.load(new ByteArrayInputStream(scriptInfo.bytecode()), "script", "b", globals)
+                .call();
+        Assert.assertEquals(3, globals.get("result").toint());
+    }
+
+    @Test(expected = HNSyntaxError.class)
+    public void htmlSyntaxErrorFails() throws Exception {
+        String code = "<html><body><p>hello</div></body></html>";
+        HNCompiler.compile(new ByteArrayInputStream(code.getBytes("UTF-8")));
+    }
+
+    @Test(expected = LuaError.class)
+    public void luaSyntaxErrorFails() throws Exception {
+        String code = CODE.replace("1 + 2", "1 +");
+        HNCompiler.compile(new ByteArrayInputStream(code.getBytes("UTF-8")));
+    }
+}
@@ -0,0 +1,128 @@
+package com.mozz.htmlnative.css;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.mozz.htmlnative.HNSegment;
+import com.mozz.htmlnative.common.Symbols;
+import com.mozz.htmlnative.dom.HNDomTree;
+import com.mozz.htmlnative.parser.Parser;
+import com.mozz.htmlnative.reader.StringTextReader;
+import com.mozz.htmlnative.utils.ParametersUtils;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * @author Yang Tao, 17/6/20.
+ */
+
+@RunWith(AndroidJUnit4.class)
+public class StyleResolverTest {
+
+    private static final String DOCUMENT = "<html>\n<head>\n<style>\n" +
+            "p { color: #00ff00 }\n" +
+            ".list p { font-size: 12px }\n" +
+            "</style>\n</head>\n<body>\n" +
+            "<div class=\"list\" style=\"color: #ff0000; width: 10px\">\n" +
+            "<p style=\"color: #0000ff\">first</p>\n" +
+            "<p>second</p>\n" +
+            "</div>\n" +
+            "<div><p>third</p></div>\n" +
+            "</body>\n</html>";
+
+    @Before
+    public void setUp() {
+        // the built-in StyleHandlers loaded by StyleResolver need screen density
+        ParametersUtils.init(InstrumentationRegistry.getTargetContext());
+    }
+
+    private static HNSegment parse() throws Exception {
+        return new Parser(new StringTextReader(DOCUMENT)).process();
+    }
+
+    private static StyleResolver resolver(HNSegment segment, ResolvedStyles out) {
+        return new StyleResolver(segment.getInlineStyles(), segment.getStyleSheet(), out);
+    }
+
+    @Test
+    public void inheritedFromParent() throws Exception {
+        HNSegment segment = parse();
+        ResolvedStyles styles = new ResolvedStyles();
+        resolver(segment, styles).resolve(segment.getDom());
+
+        HNDomTree list = segment.getDom().children().get(0);
+        HNDomTree first = list.children().get(0);
+        HNDomTree second = list.children().get(1);
+
+        ComputedStyle style = styles.get(second);
+        Assert.assertNotNull(style);
+
+        // color of div is inherited, but not width
+        Assert.assertEquals(1, style.inheritedCount());
+        Assert.assertEquals(Symbols.COLOR, style.mInheritedNames[0]);
+        Assert.assertEquals(0xFFFF0000, style.mInheritedValues[0]);
+
+        // shared by siblings
+        Assert.assertSame(style.mInheritedNames, styles.get(first).mInheritedNames);
+        Assert.assertSame(style.mInheritedValues, styles.get(first).mInheritedValues);
+    }
+
+    @Test
+    public void inlineBeforeSelectors() throws Exception {
+        HNSegment segment = parse();
+        ResolvedStyles styles = new ResolvedStyles();
+        resolver(segment, styles).resolve(segment.getDom());
+
+        HNDomTree first = segment.getDom().children().get(0).children().get(0);
+        ComputedStyle style = styles.get(first);
+
+        // same order as applied on main thread, so the selector wins over inline style
+        Assert.assertEquals(Symbols.COLOR, style.mNames[0]);
+        Assert.assertEquals(0xFF0000FF, style.mValues[0]);
+        Assert.assertEquals(0xFF00FF00, style.getStyle(Symbols.COLOR));
+        Assert.assertNotNull(style.getStyle(Symbols.intern("font-size")));
+
+        HNDomTree third = segment.getDom().children().get(1).children().get(0);
+        Assert.assertNull(styles.get(third).getStyle(Symbols.intern("font-size")));
+        Assert.assertEquals(0, styles.get(third).inheritedCount());
+    }
+
+    @Test
+    public void subtreeBeforeWholeTree() throws Exception {
+        HNSegment segment = parse();
+        HNDomTree dom = segment.getDom();
+        HNDomTree list = dom.children().get(0);
+        HNDomTree other = dom.children().get(1);
+
+        ResolvedStyles styles = new ResolvedStyles();
+        resolver(segment, styles).resolve(list);
+        Assert.assertNotNull(styles.get(dom));
+        Assert.assertNotNull(styles.get(list.children().get(1)));
+        Assert.assertNull(styles.get(other));
+
+        ComputedStyle listStyle = styles.get(list);
+        resolver(segment, styles).resolve(dom);
+        Assert.assertSame(listStyle, styles.get(list));
+        Assert.assertNotNull(styles.get(other.children().get(0)));
+    }
+
+    @Test
+    public void keptApartFromDom() throws Exception {
+        HNSegment segment = parse();
+        HNDomTree first = segment.getDom().children().get(0).children().get(0);
+
+        ResolvedStyles styles = new ResolvedStyles();
+        resolver(segment, styles).resolve(segment.getDom());
+        ComputedStyle style = styles.get(first);
+
+        // resolved again for another render, the styles held by the first one are kept
+        ResolvedStyles other = new ResolvedStyles();
+        resolver(segment, other).resolve(segment.getDom());
+        Assert.assertSame(style, styles.get(first));
+        Assert.assertNotSame(style, other.get(first));
+        Assert.assertEquals(styles.size(), other.size());
+    }
+}
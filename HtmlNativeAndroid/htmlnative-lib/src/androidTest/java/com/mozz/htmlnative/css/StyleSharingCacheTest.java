@@ -0,0 +1,93 @@
+package com.mozz.htmlnative.css;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import com.mozz.htmlnative.HNSegment;
+import com.mozz.htmlnative.css.selector.AncestorFilter;
+import com.mozz.htmlnative.css.selector.AnySelector;
+import com.mozz.htmlnative.css.selector.CssSelector;
+import com.mozz.htmlnative.dom.HNDomTree;
+import com.mozz.htmlnative.parser.Parser;
+import com.mozz.htmlnative.reader.StringTextReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Walks a list page the way HNRenderer does, and checks the selectors shared are the same as
+ * those matched for each element.
+ *
+ * @author Yang Tao, 17/6/20.
+ */
+
+@RunWith(AndroidJUnit4.class)
+public class StyleSharingCacheTest {
+
+    private static final int ITEMS = 50;
+
+    private static String document() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<html>\n<head>\n<style>\n");
+        sb.append(".list .item p { color: #333333 }\n");
+        sb.append(".item > .title { font-size: 16px }\n");
+        sb.append(".odd .title { color: #ff0000 }\n");
+        sb.append("#first span { padding: 2px }\n");
+        sb.append("div p { line-height: 150% }\n");
+        sb.append("</style>\n</head>\n<body>\n<div class=\"list\">\n");
+        for (int i = 0; i < ITEMS; i++) {
+            sb.append("<div class=\"item").append(i % 2 == 1 ? " odd" : "").append("\"");
+            if (i == 0) {
+                sb.append(" id=\"first\"");
+            }
+            sb.append(">\n<p class=\"title\">title ").append(i).append("</p>\n");
+            sb.append("<p>text</p><span>").append(i).append("</span>\n</div>\n");
+        }
+        sb.append("</div>\n</body>\n</html>");
+        return sb.toString();
+    }
+
+    private void walk(HNDomTree tree, StyleSheet styleSheet, StyleSharingCache cache,
+                      AncestorFilter filter) {
+        CssSelector[] shared = cache.resolve(styleSheet, tree, filter);
+        CssSelector[] matched = StyleSharingCache.match(styleSheet, tree, null, new
+                MatchedSelectors());
+        Assert.assertArrayEquals(tree.getType(), matched, shared);
+
+        if (!tree.isLeaf()) {
+            cache.push(tree);
+            filter.push(tree);
+            for (HNDomTree child : tree.children()) {
+                walk(child, styleSheet, cache, filter);
+            }
+            filter.pop();
+            cache.pop();
+        }
+    }
+
+    @Test
+    public void sharedSameAsMatched() throws Exception {
+        HNSegment segment = new Parser(new StringTextReader(document())).process();
+        StyleSharingCache cache = new StyleSharingCache();
+
+        walk(segment.getDom(), segment.getStyleSheet(), cache, new AncestorFilter());
+
+        // items differ only in odd and even, besides the first one
+        Assert.assertTrue(cache.toString(), cache.hits() > ITEMS * 3);
+        Assert.assertTrue(cache.toString(), cache.misses() < 20);
+    }
+
+    @Test
+    public void matchAgainWhenStyleSheetChanged() throws Exception {
+        HNSegment segment = new Parser(new StringTextReader(document())).process();
+        StyleSheet styleSheet = segment.getStyleSheet();
+        StyleSharingCache cache = new StyleSharingCache();
+
+        HNDomTree dom = segment.getDom();
+        CssSelector[] before = cache.resolve(styleSheet, dom, null);
+        Assert.assertSame(before, cache.resolve(styleSheet, dom, null));
+
+        styleSheet.putSelector(new AnySelector());
+        Assert.assertEquals(before.length + 1, cache.resolve(styleSheet, dom, null).length);
+    }
+}
@@ -0,0 +1,64 @@
+package com.mozz.htmlnative.css;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import com.mozz.htmlnative.common.Symbols;
+import com.mozz.htmlnative.css.selector.AnySelector;
+import com.mozz.htmlnative.css.selector.ClassSelector;
+import com.mozz.htmlnative.css.selector.CssSelector;
+import com.mozz.htmlnative.css.selector.IdSelector;
+import com.mozz.htmlnative.css.selector.TypeSelector;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * @author Yang Tao, 17/6/20.
+ */
+
+@RunWith(AndroidJUnit4.class)
+public class StyleSheetMatchTest {
+
+    @Test
+    public void hitsInOrderOnce() {
+        CssSelector p = new TypeSelector("p");
+        CssSelector a = new ClassSelector("a");
+        CssSelector div = new TypeSelector("div");
+        CssSelector title = new IdSelector("title");
+        CssSelector any = new AnySelector();
+        CssSelector b = new ClassSelector("b");
+
+        StyleSheet styleSheet = new StyleSheet();
+        for (CssSelector selector : new CssSelector[]{p, a, div, title, any, b}) {
+            styleSheet.putSelector(selector);
+        }
+
+        MatchedSelectors matched = new MatchedSelectors(1);
+        styleSheet.matchedSelector(Symbols.intern("p"), "title", Symbols.internAll(new
+                String[]{"b", "a", "a"}), matched);
+        Assert.assertArrayEquals(new CssSelector[]{p, a, title, any, b}, matched.toArray());
+
+        // reused, nothing from last element is left
+        styleSheet.matchedSelector(Symbols.intern("div"), null, null, matched);
+        Assert.assertArrayEquals(new CssSelector[]{div, any}, matched.toArray());
+
+        Assert.assertArrayEquals(new CssSelector[]{p, any, b}, styleSheet.matchedSelector("p",
+                null, new String[]{"b", "unknown"}));
+    }
+
+    @Test
+    public void putAgainMovedToEnd() {
+        CssSelector p = new TypeSelector("p");
+        CssSelector a = new ClassSelector("a");
+        CssSelector any = new AnySelector();
+
+        StyleSheet styleSheet = new StyleSheet();
+        for (CssSelector selector : new CssSelector[]{p, any, a, p, any}) {
+            styleSheet.putSelector(selector);
+        }
+
+        Assert.assertArrayEquals(new CssSelector[]{a, p, any}, styleSheet.matchedSelector("p",
+                null, new String[]{"a"}));
+    }
+}
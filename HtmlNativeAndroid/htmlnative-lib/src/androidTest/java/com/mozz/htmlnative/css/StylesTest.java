@@ -0,0 +1,64 @@
+package com.mozz.htmlnative.css;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import com.mozz.htmlnative.common.Symbols;
+import com.mozz.htmlnative.parser.StyleItemParser;
+import com.mozz.htmlnative.utils.ParametersUtils;
+import com.mozz.htmlnative.view.LayoutParamsLazyCreator;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * @author Yang Tao, 17/6/22.
+ */
+
+@RunWith(AndroidJUnit4.class)
+public class StylesTest {
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        ParametersUtils.init(mContext);
+    }
+
+    private View apply(String name, String value) throws Exception {
+        View v = new View(mContext);
+        Object style = StyleItemParser.parseStyleSingle(name, value, null).obj;
+        Styles.applyStyle(mContext, null, v, null, new LayoutParamsLazyCreator(), new
+                FrameLayout(mContext), null, null, null, Symbols.intern(name), style, false,
+                null);
+        return v;
+    }
+
+    @Test
+    public void paddingShorthandSameAsEdges() throws Exception {
+        for (String value : new String[]{"10dp", "10px", "10", "2em"}) {
+            View shorthand = apply("padding", value);
+            Assert.assertEquals(value, apply("padding-left", value).getPaddingLeft(), shorthand
+                    .getPaddingLeft());
+            Assert.assertEquals(value, apply("padding-top", value).getPaddingTop(), shorthand
+                    .getPaddingTop());
+            Assert.assertEquals(value, apply("padding-right", value).getPaddingRight(),
+                    shorthand.getPaddingRight());
+            Assert.assertEquals(value, apply("padding-bottom", value).getPaddingBottom(),
+                    shorthand.getPaddingBottom());
+        }
+    }
+
+    @Test
+    public void paddingShorthandUnset() throws Exception {
+        View v = apply("padding", "-1 2px");
+        Assert.assertEquals(0, v.getPaddingLeft());
+        Assert.assertEquals(0, v.getPaddingTop());
+    }
+}
@@ -0,0 +1,111 @@
+package com.mozz.htmlnative.parser;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import com.mozz.htmlnative.HNSegment;
+import com.mozz.htmlnative.css.StyleSheet;
+import com.mozz.htmlnative.css.selector.CssSelector;
+import com.mozz.htmlnative.reader.StringTextReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parses hundreds of documents at the same time on a thread pool, and checks every result is
+ * the same as parsing it alone.
+ *
+ * @author Yang Tao, 17/6/19.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ConcurrentParseTest {
+
+    private static final int DOCUMENTS = 300;
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 3;
+
+    private static String document(int n) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<html>\n<head>\n<title>doc ").append(n).append("</title>\n<style>\n");
+        sb.append(".title").append(n % 7).append(" { font-size: ").append(12 + n % 9).append
+                ("px; color: #33333").append(n % 10).append(" }\n");
+        sb.append("#main").append(n).append(" p { padding: 1.5em; line-height: ").append(100 +
+                n).append("% }\n");
+        sb.append("div > span { word-spacing: ").append(n % 5).append("px }\n");
+        sb.append("</style>\n</head>\n<body id=\"main").append(n).append("\">\n");
+        for (int i = 0; i < 5 + n % 11; i++) {
+            sb.append("<div class=\"item title").append((n + i) % 7).append("\" id=\"item").append
+                    (i).append("\" style=\"width: ").append(i * 10).append("px; height: ")
+                    .append(n % 13).append(".5px\">\n");
+            sb.append("    <p>text ").append(n).append(" of item ").append(i).append("<br/>" +
+                    "next line</p>\n");
+            sb.append("    <span order=").append(i).append(">").append(i).append("</span>\n");
+            sb.append("    <img src=\"http://a.com/").append(n).append('/').append(i).append("" +
+                    ".png\" height=20 width=-1.5e2></img>\n");
+            sb.append("</div>\n");
+        }
+        sb.append("<Custom").append(n % 3).append(" extra").append(n).append("=\"x\"/>\n");
+        sb.append("</body>\n<script type=\"lua\">\nprint(").append(n).append(")\n</script>\n");
+        sb.append("</html>");
+        return sb.toString();
+    }
+
+    private static String parse(String document) throws Exception {
+        HNSegment segment = new Parser(new StringTextReader(document)).process();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(segment.getHead().getTitle()).append('\n');
+        sb.append(segment.getDom().wholeTreeToString());
+
+        StyleSheet styleSheet = segment.getStyleSheet();
+        for (CssSelector selector : styleSheet.selectorsInOrder()) {
+            sb.append(selector).append(styleSheet.toString(selector)).append('\n');
+        }
+        sb.append(segment.getScriptInfo());
+        return sb.toString();
+    }
+
+    @Test
+    public void parseConcurrently() throws Exception {
+        final String[] documents = new String[DOCUMENTS];
+        String[] expected = new String[DOCUMENTS];
+        for (int i = 0; i < DOCUMENTS; i++) {
+            documents[i] = document(i);
+            expected[i] = parse(documents[i]);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (int r = 0; r < ROUNDS; r++) {
+                for (int i = 0; i < DOCUMENTS; i++) {
+                    final String document = documents[i];
+                    results.add(executor.submit(new Callable<String>() {
+                        @Override
+                        public String call() throws Exception {
+                            start.await();
+                            return parse(document);
+                        }
+                    }));
+                }
+            }
+
+            start.countDown();
+            for (int i = 0; i < results.size(); i++) {
+                Assert.assertEquals("document " + i % DOCUMENTS, expected[i % DOCUMENTS], results
+                        .get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.mozz.htmlnative.parser;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import com.mozz.htmlnative.HNSegment;
+import com.mozz.htmlnative.dom.HNDomTree;
+import com.mozz.htmlnative.reader.StringTextReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Yang Tao, 17/6/16.
+ */
+
+@RunWith(AndroidJUnit4.class)
+public class SegmentCallbackTest {
+
+    private static final String CODE = "<html>\n" +
+            "<head>\n" +
+            "    <style>\n" +
+            "    .header { padding: 2em }\n" +
+            "    </style>\n" +
+            "    <title>progressive</title>\n" +
+            "</head>\n" +
+            "<body>\n" +
+            "<div style=\"order: 1\">last</div>\n" +
+            "<div class=\"header\"><p>hello</p></div>\n" +
+            "<p>first</p><br/>\n" +
+            "</body>\n" +
+            "<script type=\"text/lua\">\n" +
+            "local a = 1\n" +
+            "</script>\n" +
+            "</html>";
+
+    @Test
+    public void eventsInOrder() throws Exception {
+        final List<String> events = new ArrayList<>();
+        final List<HNDomTree> subtrees = new ArrayList<>();
+
+        Parser parser = new Parser(new StringTextReader(CODE));
+        parser.setSegmentCallback(new ParseCallback.SegmentCallback() {
+            @Override
+            public void onHeadParsed(HNSegment segment) {
+                events.add("head:" + segment.getHead().getTitle());
+            }
+
+            @Override
+            public void onStyleSheetParsed(HNSegment segment) {
+                events.add("style");
+            }
+
+            @Override
+            public void onSubtreeParsed(HNSegment segment, HNDomTree subtree) {
+                // the subtree is complete when reported
+                events.add("subtree:" + subtree.getType() + ":" + subtree.childrenCount() + ":"
+                        + subtree.wholeTreeToString());
+                subtrees.add(subtree);
+            }
+        });
+
+        HNSegment segment = parser.process();
+
+        Assert.assertEquals("style", events.get(0));
+        Assert.assertEquals("head:progressive", events.get(1));
+
+        List<HNDomTree> children = new ArrayList<>(segment.getDom().children());
+        Assert.assertEquals(children.size(), subtrees.size());
+        Assert.assertEquals(children.size() + 2, events.size());
+
+        // nothing changes after reported
+        for (int i = 0; i < subtrees.size(); i++) {
+            HNDomTree subtree = subtrees.get(i);
+            Assert.assertTrue(children.contains(subtree));
+            Assert.assertEquals("subtree:" + subtree.getType() + ":" + subtree.childrenCount() +
+                    ":" + subtree.wholeTreeToString(), events.get(i + 2));
+        }
+
+        // reported in source order rather than the order of children
+        Assert.assertEquals("div", subtrees.get(0).getType());
+        Assert.assertSame(subtrees.get(0), children.get(children.size() - 1));
+    }
+
+    @Test
+    public void noEventsWithoutCallback() throws Exception {
+        HNSegment segment = new Parser(new StringTextReader(CODE)).process();
+        Assert.assertEquals("progressive", segment.getHead().getTitle());
+    }
+}
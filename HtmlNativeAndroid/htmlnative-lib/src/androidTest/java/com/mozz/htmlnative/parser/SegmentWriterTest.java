@@ -0,0 +1,88 @@
+package com.mozz.htmlnative.parser;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import com.mozz.htmlnative.HNSegment;
+import com.mozz.htmlnative.css.selector.CssSelector;
+import com.mozz.htmlnative.exception.HNFormatError;
+import com.mozz.htmlnative.reader.StringTextReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * @author Yang Tao, 17/6/12.
+ */
+
+@RunWith(AndroidJUnit4.class)
+public class SegmentWriterTest {
+
+    private static final String CODE = "<html>\n" +
+            "<head>\n" +
+            "    <meta name=\"viewport\" content=\"width=device-width\"/>\n" +
+            "    <style>\n" +
+            "    body { color: #3f484f; background: #db3541 url(http://a.com/b.png) no-repeat }\n" +
+            "    .header, #caption > p { padding: 2em; font-size: 12px }\n" +
+            "    div p .inner { margin: 0 }\n" +
+            "    * { line-height: 120% }\n" +
+            "    </style>\n" +
+            "    <title>compiled</title>\n" +
+            "</head>\n" +
+            "<body>\n" +
+            "<div class=\"header main\" id=\"caption\" style=\"color:#fff; order: 1\">\n" +
+            "    <p>hello<br/>world</p>\n" +
+            "    <img src=\"http://a.com/c.png\" height=20.5 width=100></img>\n" +
+            "</div>\n" +
+            "<div class=\"footer\">text<a href=\"http://a.com\">link</a></div>\n" +
+            "</body>\n" +
+            "<script type=\"text/lua\">\n" +
+            "local a = 1\n" +
+            "</script>\n" +
+            "</html>";
+
+    @Test
+    public void roundTrip() throws Exception {
+        HNSegment segment = new Parser(new StringTextReader(CODE)).process();
+        byte[] compiled = SegmentWriter.write(segment);
+
+        HNSegment loaded = HNSegment.loadCompiled(compiled);
+
+        Assert.assertEquals(segment.getDom().wholeTreeToString(), loaded.getDom()
+                .wholeTreeToString());
+        Assert.assertEquals(segment.getHead().toString(), loaded.getHead().toString());
+        Assert.assertEquals(segment.getScriptInfo().toString(), loaded.getScriptInfo().toString());
+        Assert.assertEquals(selectorsToString(segment), selectorsToString(loaded));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        loaded.writeCompiled(out);
+        Assert.assertTrue(Arrays.equals(compiled, out.toByteArray()));
+    }
+
+    @Test
+    public void rejectStaleVersion() throws Exception {
+        HNSegment segment = new Parser(new StringTextReader(CODE)).process();
+        byte[] compiled = SegmentWriter.write(segment);
+
+        // version is the short right after the magic number
+        compiled[5]++;
+
+        try {
+            HNSegment.loadCompiled(compiled);
+            Assert.fail("stale segment should be rejected");
+        } catch (HNFormatError ignored) {
+        }
+    }
+
+    private static String selectorsToString(HNSegment segment) {
+        StringBuilder sb = new StringBuilder();
+        for (CssSelector selector : segment.getStyleSheet().selectorsInOrder()) {
+            sb.append(selector).append('=').append(segment.getStyleSheet().toString(selector))
+                    .append('\n');
+        }
+        return sb.toString();
+    }
+}
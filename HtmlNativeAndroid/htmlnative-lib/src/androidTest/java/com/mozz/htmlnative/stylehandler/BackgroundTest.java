@@ -39,4 +39,18 @@ public class BackgroundTest {
         Assert.assertTrue(r5.getUrl().equals("http://www.baidu.com"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shared() throws Exception {
+        String s = "#ffffff url(a.png) no-repeat";
+        Background background = Background.createOrChange("background", s, null);
+        Assert.assertSame(background, Background.createOrChange("background", s, null));
+
+        // changed by the styles after, a copy is made
+        Background changed = Background.createOrChange("background-repeat", "repeat-x",
+                background);
+        Assert.assertNotSame(background, changed);
+        Assert.assertEquals(Background.NO_REPEAT, background.getRepeat());
+        Assert.assertEquals(Background.REPEAT_X, changed.getRepeat());
+        Assert.assertEquals("a.png", changed.getUrl());
+    }
+}
@@ -59,13 +59,28 @@ public class TokenTest {
 
     @Test
     public void recycle() throws Exception {
-        Token.recycleAll();
+        TokenPool pool = new TokenPool();
 
+        Token t1 = pool.obtainToken(TokenType.Id, "Lala", 0, 0);
+        t1.recycle();
+
+        Token t2 = pool.obtainToken(TokenType.Id, 123, 1, 2);
+        assertTrue(t2 == t1);
+        assertTrue(t2.intValue() == 123);
+
+        // the free list belongs to pool only
+        Token t3 = new TokenPool().obtainToken(TokenType.Id, 123, 1, 2);
+        t3.recycle();
+        assertTrue(pool.obtainToken(TokenType.Id, 0, 0) != t3);
+    }
+
+    @Test
+    public void recycleUnpooled() throws Exception {
         Token t1 = Token.obtainToken(TokenType.Id, "Lala", 0, 0);
         t1.recycle();
 
         Token t2 = Token.obtainToken(TokenType.Id, 123, 1, 2);
-        assertTrue(t2 == t1);
+        assertTrue(t2 != t1);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,193 @@
+package com.mozz.htmlnative.view;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.Intent;
+import android.content.res.Configuration;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import com.mozz.htmlnative.TestActivity;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * @author Yang Tao, 17/6/22.
+ */
+
+@RunWith(AndroidJUnit4.class)
+public class ViewPoolTest {
+
+    private static final String IMAGE = ImageView.class.getName();
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        ViewPool.clear();
+        ViewPool.setMaxSize(4);
+    }
+
+    @After
+    public void tearDown() {
+        ViewPool.setMaxSize(0);
+        ViewPool.clear();
+    }
+
+    private static void onMain(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+
+    private void recycleImages(Context context, final int count) {
+        final FrameLayout parent = new FrameLayout(context);
+        for (int i = 0; i < count; i++) {
+            parent.addView(new ImageView(context));
+        }
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                ViewPool.recycle(parent);
+            }
+        });
+    }
+
+    @Test
+    public void obtainReset() {
+        final FrameLayout parent = new FrameLayout(mContext);
+        final ImageView image = new ImageView(mContext);
+        image.setTag("tag");
+        image.setPadding(1, 2, 3, 4);
+        image.setAlpha(.5f);
+        image.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+            }
+        });
+        parent.addView(image);
+
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                ViewPool.recycle(image);
+            }
+        });
+
+        Assert.assertEquals(0, parent.getChildCount());
+        Assert.assertSame(image, ViewPool.obtain(mContext, IMAGE));
+        Assert.assertNull(image.getParent());
+        Assert.assertNull(image.getTag());
+        Assert.assertEquals(0, image.getPaddingLeft());
+        Assert.assertEquals(0, image.getPaddingBottom());
+        Assert.assertEquals(1.f, image.getAlpha(), 0);
+        Assert.assertFalse(image.isClickable());
+
+        Assert.assertNull(ViewPool.obtain(mContext, IMAGE));
+    }
+
+    @Test
+    public void keptPerContext() {
+        recycleImages(mContext, 1);
+
+        Assert.assertNull(ViewPool.obtain(new ContextWrapper(mContext), IMAGE));
+        Assert.assertNotNull(ViewPool.obtain(mContext, IMAGE));
+    }
+
+    @Test
+    public void disabled() {
+        ViewPool.setMaxSize(0);
+        recycleImages(mContext, 1);
+
+        Assert.assertEquals(0, ViewPool.size(mContext, IMAGE));
+        Assert.assertNull(ViewPool.obtain(mContext, IMAGE));
+    }
+
+    @Test
+    public void notPoolable() {
+        final TextView text = new TextView(mContext);
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                ViewPool.recycle(text);
+            }
+        });
+
+        Assert.assertNull(ViewPool.obtain(mContext, TextView.class.getName()));
+    }
+
+    @Test
+    public void cappedPerClass() {
+        recycleImages(mContext, 6);
+        Assert.assertEquals(4, ViewPool.size(mContext, IMAGE));
+
+        ViewPool.setMaxSize(2);
+        Assert.assertEquals(2, ViewPool.size(mContext, IMAGE));
+    }
+
+    @Test
+    public void trim() {
+        recycleImages(mContext, 4);
+
+        ViewPool.trim(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        Assert.assertEquals(2, ViewPool.size(mContext, IMAGE));
+
+        ViewPool.trim(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        Assert.assertEquals(0, ViewPool.size(mContext, IMAGE));
+    }
+
+    @Test
+    public void clearContext() {
+        Context wrapper = new ContextWrapper(mContext);
+        Context other = mContext.createConfigurationContext(new Configuration(mContext
+                .getResources().getConfiguration()));
+        recycleImages(mContext, 1);
+        recycleImages(wrapper, 1);
+        recycleImages(other, 1);
+
+        ViewPool.clear(mContext);
+
+        Assert.assertEquals(0, ViewPool.size(mContext, IMAGE));
+        Assert.assertEquals(0, ViewPool.size(wrapper, IMAGE));
+        Assert.assertEquals(1, ViewPool.size(other, IMAGE));
+    }
+
+    @Test
+    public void notPooledAfterDestroyed() throws Exception {
+        Intent intent = new Intent(mContext, TestActivity.class).addFlags(Intent
+                .FLAG_ACTIVITY_NEW_TASK);
+        final Activity activity = InstrumentationRegistry.getInstrumentation().startActivitySync
+                (intent);
+
+        // destroyed but not finishing, as on a configuration change
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                activity.recreate();
+            }
+        });
+        long deadline = SystemClock.uptimeMillis() + 5000;
+        while (!activity.isDestroyed() && SystemClock.uptimeMillis() < deadline) {
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        }
+        Assert.assertTrue(activity.isDestroyed());
+        Assert.assertFalse(activity.isFinishing());
+
+        Context wrapper = new ContextWrapper(activity);
+        recycleImages(activity, 1);
+        recycleImages(wrapper, 1);
+
+        Assert.assertEquals(0, ViewPool.size(activity, IMAGE));
+        Assert.assertEquals(0, ViewPool.size(wrapper, IMAGE));
+    }
+}
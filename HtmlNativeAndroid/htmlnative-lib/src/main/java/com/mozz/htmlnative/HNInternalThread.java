@@ -1,30 +1,232 @@
 package com.mozz.htmlnative;
 
-import android.os.Handler;
-import android.os.HandlerThread;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Workers for RenderTasks and other background work. Pages are parsed in parallel, by default
+ * on a pool of as many threads as available cores, see {@link #setExecutor(Executor)}.
+ * <p>
+ * Queued tasks of the default pool run in order of priority, such as
+ * {@link HNativeEngine#PRIORITY_HIGH}, then in order of submission.
+ *
  * @author Yang Tao, 17/5/3.
  */
 
 public final class HNInternalThread {
 
-    // for running render task
-    @NonNull
-    private static HandlerThread mRenderThread = new HandlerThread("HNProcessThread");
-    private static Handler mRenderHandler;
+    private static final String THREAD_NAME = "HNProcessThread-";
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final Object sLock = new Object();
+
+    @Nullable
+    private static Executor sExecutor;
+
+    /**
+     * Whether sExecutor is created here, and so should be shut down by {@link #quit()}
+     */
+    private static boolean sIsDefaultExecutor;
+
+    private HNInternalThread() {
+    }
 
     static void init() {
-        mRenderThread.start();
-        mRenderHandler = new Handler(mRenderThread.getLooper());
+        executor();
+    }
+
+    /**
+     * Use executor to run tasks instead of the default pool. Priorities take effect only if
+     * executor queues tasks by their natural order, such as a {@link ThreadPoolExecutor} with a
+     * {@link PriorityBlockingQueue}.
+     */
+    static void setExecutor(@NonNull Executor executor) {
+        Executor old;
+        synchronized (sLock) {
+            old = sIsDefaultExecutor ? sExecutor : null;
+            sExecutor = executor;
+            sIsDefaultExecutor = false;
+        }
+
+        if (old != null) {
+            // tasks already queued still run
+            ((ThreadPoolExecutor) old).shutdown();
+        }
+    }
+
+    @NonNull
+    private static Executor executor() {
+        synchronized (sLock) {
+            if (sExecutor == null) {
+                sExecutor = newDefaultExecutor(Runtime.getRuntime().availableProcessors());
+                sIsDefaultExecutor = true;
+            }
+            return sExecutor;
+        }
+    }
+
+    @NonNull
+    static ThreadPoolExecutor newDefaultExecutor(int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable r) {
+                return new Thread(r, THREAD_NAME + count.incrementAndGet());
+            }
+        };
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(),
+                factory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     public static void run(Runnable r) {
-        mRenderHandler.post(r);
+        run(r, HNativeEngine.PRIORITY_NORMAL);
+    }
+
+    /**
+     * @return the task queued, for {@link #setPriority(Task, int)} and {@link #remove(Task)}
+     * @throws RejectedExecutionException if the executor set by {@link #setExecutor(Executor)}
+     *                                    does not accept it
+     */
+    @NonNull
+    static Task run(Runnable r, int priority) {
+        Task task = new Task(r, priority);
+        executor().execute(task);
+        return task;
+    }
+
+    /**
+     * Move task to its place of the new priority, if it is still queued in a
+     * {@link ThreadPoolExecutor}. Tasks of the same priority keep the order of submission.
+     *
+     * @return whether task is moved
+     */
+    static boolean setPriority(@NonNull Task task, int priority) {
+        Executor executor = currentExecutor();
+        if (executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            // the queue is ordered when tasks are added, so it must be taken out to change
+            if (pool.remove(task)) {
+                boolean queued = false;
+                try {
+                    task.mPriority = priority;
+                    pool.execute(task);
+                    queued = true;
+                } catch (RejectedExecutionException e) {
+                    // quit in the meantime
+                } finally {
+                    if (!queued) {
+                        task.discard();
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove task before it runs, and then it is discarded, see {@link Discardable}.
+     *
+     * @return whether task is removed, false if it is running, done or not queued in a
+     * {@link ThreadPoolExecutor}
+     */
+    static boolean remove(@NonNull Task task) {
+        Executor executor = currentExecutor();
+        if (executor instanceof ThreadPoolExecutor && ((ThreadPoolExecutor) executor).remove
+                (task)) {
+            task.discard();
+            return true;
+        }
+        return false;
+    }
+
+    @Nullable
+    private static Executor currentExecutor() {
+        synchronized (sLock) {
+            return sExecutor;
+        }
     }
 
     static void quit() {
-        mRenderThread.quit();
+        Executor executor;
+        synchronized (sLock) {
+            executor = sIsDefaultExecutor ? sExecutor : null;
+            sExecutor = null;
+            sIsDefaultExecutor = false;
+        }
+
+        if (executor != null) {
+            List<Runnable> queued = ((ThreadPoolExecutor) executor).shutdownNow();
+            for (int i = 0; i < queued.size(); i++) {
+                try {
+                    ((Task) queued.get(i)).discard();
+                } catch (RuntimeException e) {
+                    // the rest must still be discarded
+                    HNLog.e(HNLog.PROCESS_THREAD, "can't discard task, " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Runnable which needs to know that it will never run, because it is removed from queue
+     * when workers quit.
+     */
+    interface Discardable extends Runnable {
+        void discard();
+    }
+
+    /**
+     * Runnable ordered by priority, then by the order it is created.
+     */
+    static final class Task implements Runnable, Comparable<Task> {
+
+        private static final AtomicLong sSequence = new AtomicLong();
+
+        private final Runnable mRunnable;
+        /**
+         * Only changed while the task is not queued
+         */
+        private int mPriority;
+        private final long mSequence;
+
+        Task(@NonNull Runnable runnable, int priority) {
+            mRunnable = runnable;
+            mPriority = priority;
+            mSequence = sSequence.getAndIncrement();
+        }
+
+        @Override
+        public void run() {
+            mRunnable.run();
+        }
+
+        void discard() {
+            if (mRunnable instanceof Discardable) {
+                ((Discardable) mRunnable).discard();
+            }
+        }
+
+        @Override
+        public int compareTo(@NonNull Task o) {
+            if (mPriority != o.mPriority) {
+                return mPriority > o.mPriority ? -1 : 1;
+            }
+            return mSequence < o.mSequence ? -1 : (mSequence == o.mSequence ? 0 : 1);
+        }
     }
 }
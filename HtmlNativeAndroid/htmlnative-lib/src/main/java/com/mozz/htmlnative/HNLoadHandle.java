@@ -0,0 +1,47 @@
+package com.mozz.htmlnative;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Handle of a page being loaded by {@link HNativeEngine#loadView}.
+ * <p>
+ * Cancellation is checked before parsing, after parsing, and on main thread before rendering
+ * and before each callback, so a page which is no longer needed, e.g. its Activity is
+ * destroyed, stops taking CPU at the next of them. A page cancelled gets no callback at all.
+ *
+ * @author Yang Tao, 17/6/20.
+ */
+
+public final class HNLoadHandle {
+
+    @NonNull
+    private final HNProcessThread.RenderTask mTask;
+
+    HNLoadHandle(@NonNull HNProcessThread.RenderTask task) {
+        mTask = task;
+    }
+
+    public void cancel() {
+        mTask.cancel();
+    }
+
+    public boolean isCancelled() {
+        return mTask.isCancelled();
+    }
+
+    /**
+     * Change the priority, so that a page which is queued can overtake, or give way to, the
+     * others, e.g. raise the page scrolled into screen over the prefetched ones. No effect once
+     * the page has started parsing.
+     *
+     * @param priority {@link HNativeEngine#PRIORITY_HIGH}, {@link HNativeEngine#PRIORITY_NORMAL}
+     *                 or {@link HNativeEngine#PRIORITY_LOW}
+     */
+    public void setPriority(int priority) {
+        mTask.setPriority(priority);
+    }
+
+    public int getPriority() {
+        return mTask.getPriority();
+    }
+}
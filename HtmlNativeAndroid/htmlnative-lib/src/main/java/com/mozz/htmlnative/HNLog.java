@@ -38,11 +38,19 @@ public final class HNLog {
     }
 
     public static void d(@EventType int tag, String msg) {
-        if (((1 << tag) & sDebugLevel) != 0) {
+        if (isLoggable(tag)) {
             Log.d(TAG_NAME[tag], msg);
         }
     }
 
+    /**
+     * Check it before building a debug message in hot path, so that the message is not built
+     * when it won't be logged.
+     */
+    public static boolean isLoggable(@EventType int tag) {
+        return ((1 << tag) & sDebugLevel) != 0;
+    }
+
     public static void e(@EventType int tag, String msg) {
         Log.e(TAG_NAME[tag], msg);
     }
@@ -8,10 +8,16 @@ import android.view.ViewGroup;
 import android.widget.FrameLayout;
 
 import com.mozz.htmlnative.common.WefRunnable;
+import com.mozz.htmlnative.dom.HNDomTree;
 import com.mozz.htmlnative.exception.HNSyntaxError;
+import com.mozz.htmlnative.parser.ParseCallback;
 import com.mozz.htmlnative.utils.MainHandlerUtils;
+import com.mozz.htmlnative.utils.ParametersUtils;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * @author Yang Tao, 17/3/10.
@@ -21,33 +27,208 @@ final class HNProcessThread {
 
     private static final String TAG = HNProcessThread.class.getSimpleName();
 
+    /**
+     * Results of RenderTasks are delivered to main thread as soon as they are ready, or in the
+     * order tasks are submitted if {@link #setOrderedDelivery(boolean)} true.
+     */
+    private static final OrderedDelivery sDelivery = new OrderedDelivery(new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            MainHandlerUtils.instance().post(command);
+        }
+    });
+
     private HNProcessThread() {
 
     }
 
-    static void runRenderTask(@NonNull RenderTask r) {
-        HNInternalThread.run(r);
+    /**
+     * Whether views are created and styled on {@link HNRenderThread}, see
+     * {@link HNRenderer#renderDetached(Context, HNSegment)}
+     */
+    private static volatile boolean sRenderDetached = false;
+
+    /**
+     * Time in nanoseconds each frame may take to render, 0 to render in one go, see
+     * {@link HNRenderer.ChunkedRender}
+     */
+    private static volatile long sFrameBudgetNanos = 0;
+
+    static void setOrderedDelivery(boolean ordered) {
+        sDelivery.setOrdered(ordered);
+    }
+
+    static void setRenderDetached(boolean detached) {
+        sRenderDetached = detached;
     }
 
-    static final class RenderTask extends WefRunnable<Context> {
+    static void setFrameBudget(long nanos) {
+        sFrameBudgetNanos = nanos;
+    }
+
+    @NonNull
+    static HNLoadHandle runRenderTask(@NonNull RenderTask r) {
+        r.mDelivery = sDelivery.open();
+        boolean submitted = false;
+        try {
+            r.mQueued = HNInternalThread.run(r, r.mPriority);
+            submitted = true;
+        } catch (RejectedExecutionException e) {
+            HNLog.e(HNLog.PROCESS_THREAD, "render task is rejected, " + e.getMessage());
+        } finally {
+            if (!submitted) {
+                r.discard();
+            }
+        }
+        return new HNLoadHandle(r);
+    }
+
+    static final class RenderTask extends WefRunnable<Context> implements HNInternalThread
+            .Discardable {
 
         private InputStream mFileSource;
+        private String mAssetName;
+        private boolean mProgressive;
         private final HNativeEngine.OnHNViewLoaded mCallback;
+        private volatile int mPriority = HNativeEngine.PRIORITY_NORMAL;
+
+        private volatile boolean mCancelled;
+
+        /**
+         * Set on main thread if the page is being rendered in slices
+         */
+        @Nullable
+        private volatile HNRenderer.ChunkedRender mChunked;
+
+        /**
+         * Set once the task is submitted, null if it is rejected
+         */
+        @Nullable
+        private volatile HNInternalThread.Task mQueued;
+
+        /**
+         * Opened when the task is submitted, see {@link #runRenderTask(RenderTask)}, and
+         * finished once it is done, failed, cancelled or discarded.
+         */
+        private volatile OrderedDelivery.Channel mDelivery;
 
         RenderTask(Context context, InputStream fileSource, HNativeEngine.OnHNViewLoaded callback) {
+            this(context, fileSource, callback, false);
+        }
+
+        /**
+         * @param progressive whether to render parts of the page while it is still being parsed,
+         *                    see {@link ProgressiveRender}
+         */
+        RenderTask(Context context, InputStream fileSource, HNativeEngine.OnHNViewLoaded
+                callback, boolean progressive) {
             super(context);
             mFileSource = fileSource;
             mCallback = callback;
+            mProgressive = progressive;
+        }
+
+        RenderTask(Context context, String assetName, HNativeEngine.OnHNViewLoaded callback) {
+            super(context);
+            mAssetName = assetName;
+            mCallback = callback;
+        }
+
+        /**
+         * If the task is still queued, it is moved to its place of the new priority.
+         */
+        RenderTask setPriority(int priority) {
+            mPriority = priority;
+
+            HNInternalThread.Task queued = mQueued;
+            if (queued != null) {
+                HNInternalThread.setPriority(queued, priority);
+            }
+            return this;
+        }
+
+        int getPriority() {
+            return mPriority;
+        }
+
+        /**
+         * Removed at once if still queued, otherwise the task stops at the next phase, and
+         * nothing is delivered to callback since then.
+         */
+        void cancel() {
+            mCancelled = true;
+
+            HNRenderer.ChunkedRender chunked = mChunked;
+            if (chunked != null) {
+                chunked.cancel();
+            }
+
+            HNInternalThread.Task queued = mQueued;
+            if (queued != null) {
+                // discarded if still queued, otherwise run() finishes the delivery
+                HNInternalThread.remove(queued);
+            }
+        }
+
+        boolean isCancelled() {
+            return mCancelled;
+        }
+
+        @Override
+        public void discard() {
+            mCancelled = true;
+            mDelivery.finish();
         }
 
         @Override
         protected void run(@Nullable final Context context) {
+            boolean handedOff = false;
             try {
-                if (context == null || mCallback == null) {
-                    return;
+                handedOff = render(context);
+            } finally {
+                if (!handedOff) {
+                    mDelivery.finish();
+                }
+            }
+        }
+
+        /**
+         * Post r to main thread, where it is skipped if the task is cancelled by then.
+         */
+        private void deliver(@NonNull final Runnable r) {
+            mDelivery.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!mCancelled) {
+                        r.run();
+                    }
                 }
+            });
+        }
 
-                final HNSegment segment = HNSegment.load(mFileSource);
+        /**
+         * @return true if views are rendered on {@link HNRenderThread}, which finishes the
+         * delivery then
+         */
+        private boolean render(@Nullable final Context context) {
+            try {
+                if (context == null || mCallback == null || mCancelled) {
+                    return false;
+                }
+
+                // screen may have rotated since engine init
+                ParametersUtils.init(context);
+
+                ProgressiveRender progressive = null;
+                final HNSegment segment;
+                if (mAssetName != null) {
+                    segment = HNSegment.loadAsset(context.getAssets(), mAssetName);
+                } else if (mProgressive) {
+                    progressive = new ProgressiveRender(context);
+                    segment = HNSegment.loadCached(mFileSource, progressive);
+                } else {
+                    segment = HNSegment.loadCached(mFileSource);
+                }
 
                 HNLog.d(HNLog.PROCESS_THREAD, "DOM: " + segment.getDom().wholeTreeToString());
                 HNLog.d(HNLog.PROCESS_THREAD, "HEAD: " + segment.getHead().toString());
@@ -56,16 +237,61 @@ final class HNProcessThread {
                     HNLog.d(HNLog.PROCESS_THREAD, "SCRIPT " + segment.getScriptInfo().toString());
                 }
 
-                MainHandlerUtils.instance().post(new Runnable() {
-                    @Override
-                    public void run() {
-                        mCallback.onHead(segment.getHead());
+                if (mCancelled) {
+                    HNLog.d(HNLog.PROCESS_THREAD, "cancelled after parsing");
+                    return false;
+                }
+
+                // segment is found in cache, or nothing is rendered while parsing, render as usual
+                if (progressive != null && progressive.hasStarted()) {
+                    progressive.finish();
+                    return false;
+                }
+
+                // resolve styles here rather than on main thread while rendering
+                segment.bindScreen();
+                segment.resolveStyles();
+
+                if (progressive == null || !progressive.hasPostedHead()) {
+                    deliver(new Runnable() {
+                        @Override
+                        public void run() {
+                            mCallback.onHead(segment.getHead());
+                        }
+                    });
+                }
+
+                if (sRenderDetached && HNRenderer.canRenderDetached(segment.getDom())) {
+                    boolean posted = HNRenderThread.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                renderDetached(context, segment);
+                            } finally {
+                                mDelivery.finish();
+                            }
+                        }
+                    });
+                    if (posted) {
+                        return true;
                     }
-                });
+                    HNLog.w(HNLog.PROCESS_THREAD, "render thread has quit, render on main thread");
+                }
+
+                final long frameBudget = sFrameBudgetNanos;
+                if (frameBudget > 0) {
+                    deliver(new Runnable() {
+                        @Override
+                        public void run() {
+                            renderChunked(context, segment, frameBudget);
+                        }
+                    });
+                    return false;
+                }
 
                 final ViewGroup.LayoutParams layoutParams = new FrameLayout.LayoutParams
                         (ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
-                MainHandlerUtils.instance().post(new Runnable() {
+                deliver(new Runnable() {
                     @Override
                     public void run() {
                         View v = null;
@@ -76,12 +302,13 @@ final class HNProcessThread {
                         }
 
                         mCallback.onViewLoaded(v);
+                        notifyRendered(v);
                     }
                 });
-            } catch (@NonNull final HNSyntaxError e) {
+            } catch (@NonNull final HNSyntaxError | IOException e) {
                 e.printStackTrace();
                 if (mCallback != null) {
-                    MainHandlerUtils.instance().post(new Runnable() {
+                    deliver(new Runnable() {
                         @Override
                         public void run() {
                             if (mCallback != null) {
@@ -91,6 +318,177 @@ final class HNProcessThread {
                     });
                 }
             }
+            return false;
+        }
+
+        /**
+         * Runs on {@link HNRenderThread}, only attaching and the calls which must be made on
+         * main thread are left to main thread.
+         */
+        private void renderDetached(@NonNull Context context, @NonNull HNSegment segment) {
+            if (mCancelled) {
+                return;
+            }
+
+            final HNRenderer renderer = HNRenderer.get();
+            HNRenderer.DetachedViews detached = null;
+            try {
+                detached = renderer.renderDetached(context, segment);
+            } catch (HNRenderer.HNRenderException e) {
+                e.printStackTrace();
+            }
+
+            final HNRenderer.DetachedViews views = detached;
+            deliver(new Runnable() {
+                @Override
+                public void run() {
+                    View v = views == null ? null : renderer.attach(views);
+                    mCallback.onViewLoaded(v);
+                    notifyRendered(v);
+                }
+            });
+        }
+
+        /**
+         * Runs on main thread. Root is delivered with the first slice, and
+         * {@link HNativeEngine.OnHNViewRendered} is called once the rest is rendered.
+         */
+        private void renderChunked(@NonNull Context context, @NonNull HNSegment segment, long
+                frameBudgetNanos) {
+            HNRenderer.ChunkedRender chunked = null;
+            try {
+                chunked = HNRenderer.get().renderChunked(context, segment, frameBudgetNanos, new
+                        HNRenderer.OnRenderFinished() {
+                    @Override
+                    public void onRenderFinished(View root) {
+                        mChunked = null;
+                        if (!mCancelled) {
+                            notifyRendered(root);
+                        }
+                    }
+
+                    @Override
+                    public void onRenderFailed(@Nullable HNRenderer.HNRenderException e) {
+                        mChunked = null;
+                        // root is delivered already, null if nothing is rendered
+                        if (e != null && !mCancelled) {
+                            mCallback.onError(e);
+                        }
+                    }
+                });
+            } catch (HNRenderer.HNRenderException e) {
+                e.printStackTrace();
+            }
+
+            View root = chunked == null ? null : chunked.getRoot();
+            if (root != null) {
+                mChunked = chunked;
+                // may be cancelled while the first slice is rendered
+                if (mCancelled) {
+                    chunked.cancel();
+                }
+            }
+            mCallback.onViewLoaded(root);
+        }
+
+        private void notifyRendered(@Nullable View v) {
+            if (v != null && mCallback instanceof HNativeEngine.OnHNViewRendered) {
+                ((HNativeEngine.OnHNViewRendered) mCallback).onViewRendered(v);
+            }
+        }
+
+        /**
+         * Renders the page while it is being parsed. Each direct child of root is rendered and
+         * attached on main thread once it is parsed, and the root view is delivered to
+         * {@link HNativeEngine.OnHNViewLoaded#onViewLoaded(View)} with the first of them, so
+         * that the beginning of a long page is shown earlier. The script is run after the whole
+         * page is parsed. If parsing fails in the middle, the view delivered keeps what has been
+         * rendered and onError is called.
+         */
+        private final class ProgressiveRender implements ParseCallback.SegmentCallback {
+
+            private final Context mContext;
+
+            /**
+             * Only used on main thread
+             */
+            private final HNRenderer mRenderer = HNRenderer.get();
+
+            /**
+             * Only used on the parsing thread
+             */
+            private boolean mHeadPosted;
+            private boolean mStarted;
+
+            ProgressiveRender(Context context) {
+                mContext = context;
+            }
+
+            boolean hasPostedHead() {
+                return mHeadPosted;
+            }
+
+            boolean hasStarted() {
+                return mStarted;
+            }
+
+            @Override
+            public void onHeadParsed(final HNSegment segment) {
+                mHeadPosted = true;
+                deliver(new Runnable() {
+                    @Override
+                    public void run() {
+                        mCallback.onHead(segment.getHead());
+                    }
+                });
+            }
+
+            @Override
+            public void onStyleSheetParsed(HNSegment segment) {
+                // style sheet is in head, so it is complete before any subtree is reported
+            }
+
+            @Override
+            public void onSubtreeParsed(final HNSegment segment, final HNDomTree subtree) {
+                final boolean first = !mStarted;
+                mStarted = true;
+                // style sheet is complete before body, bound once for the first subtree
+                segment.bindScreen();
+                segment.resolveStyles(subtree);
+
+                deliver(new Runnable() {
+                    @Override
+                    public void run() {
+                        View root = null;
+                        if (first) {
+                            root = mRenderer.startProgressive(mContext, segment);
+                        }
+
+                        try {
+                            mRenderer.renderSubtree(subtree);
+                        } catch (HNRenderer.HNRenderException e) {
+                            e.printStackTrace();
+                        }
+
+                        if (root != null) {
+                            mCallback.onViewLoaded(root);
+                        }
+                    }
+                });
+            }
+
+            void finish() {
+                deliver(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            notifyRendered(mRenderer.finishProgressive());
+                        } catch (HNRenderer.HNRenderException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                });
+            }
         }
     }
 }
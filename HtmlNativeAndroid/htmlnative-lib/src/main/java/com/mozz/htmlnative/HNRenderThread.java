@@ -0,0 +1,45 @@
+package com.mozz.htmlnative;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.support.annotation.NonNull;
+
+/**
+ * Looper thread on which views are rendered detached, see
+ * {@link HNRenderer#renderDetached(android.content.Context, HNSegment)}. A looper, rather than
+ * the pool parsing pages, as some views create Handler when constructed. Started when first
+ * used.
+ *
+ * @author Yang Tao, 17/6/21.
+ */
+final class HNRenderThread {
+
+    private static HandlerThread sRenderThread;
+    private static Handler sHandler;
+
+    private HNRenderThread() {
+    }
+
+    /**
+     * @return false if r is not queued, because the thread is quitting
+     */
+    static synchronized boolean post(@NonNull Runnable r) {
+        if (sHandler == null) {
+            sRenderThread = new HandlerThread("HNRender");
+            sRenderThread.start();
+            sHandler = new Handler(sRenderThread.getLooper());
+        }
+        return sHandler.post(r);
+    }
+
+    /**
+     * Runnables already posted still run, so that their tasks finish delivery.
+     */
+    static synchronized void quit() {
+        if (sRenderThread != null) {
+            sRenderThread.quitSafely();
+            sRenderThread = null;
+            sHandler = null;
+        }
+    }
+}
@@ -5,17 +5,28 @@ import android.os.SystemClock;
 import android.support.annotation.MainThread;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.text.SpannableStringBuilder;
+import android.text.method.LinkMovementMethod;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.View;
 import android.view.ViewGroup;
+import android.webkit.WebView;
+import android.widget.TextView;
 
 import com.mozz.htmlnative.stylehandler.StyleHandler;
 import com.mozz.htmlnative.stylehandler.StyleHandlerFactory;
 import com.mozz.htmlnative.stylehandler.LayoutStyleHandler;
+import com.mozz.htmlnative.common.Symbols;
 import com.mozz.htmlnative.css.AttrsSet;
+import com.mozz.htmlnative.css.ComputedStyle;
 import com.mozz.htmlnative.css.InheritStylesRegistry;
+import com.mozz.htmlnative.css.MatchedSelectors;
+import com.mozz.htmlnative.css.ResolvedStyles;
+import com.mozz.htmlnative.css.StyleSharingCache;
 import com.mozz.htmlnative.css.StyleSheet;
 import com.mozz.htmlnative.css.Styles;
+import com.mozz.htmlnative.css.selector.AncestorFilter;
 import com.mozz.htmlnative.css.selector.CssSelector;
 import com.mozz.htmlnative.dom.AttachedElement;
 import com.mozz.htmlnative.dom.DomElement;
@@ -23,13 +34,15 @@ import com.mozz.htmlnative.dom.HNDomTree;
 import com.mozz.htmlnative.exception.AttrApplyException;
 import com.mozz.htmlnative.view.HNRootView;
 import com.mozz.htmlnative.view.LayoutParamsLazyCreator;
+import com.mozz.htmlnative.view.ViewPool;
 
-import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.mozz.htmlnative.HNEnvironment.PERFORMANCE_TAG;
 
@@ -38,22 +51,41 @@ import static com.mozz.htmlnative.HNEnvironment.PERFORMANCE_TAG;
  */
 public final class HNRenderer {
 
+    private static final Map<String, ViewFactory> sViewFactory = new ConcurrentHashMap<>();
+
     /**
-     * cache the constructor for later use
+     * Whether runs of inline text elements are rendered as one TextView, see
+     * {@link InlineTextRun}
      */
-    private static final HashMap<String, Constructor<? extends View>> sConstructorMap = new
-            HashMap<>();
-
-    private static final Map<String, ViewFactory> sViewFactory = new HashMap<>();
+    private static volatile boolean sMergeInlineText = false;
 
-    private static final Object[] sConstructorArgs = new Object[1];
+    private InheritStyleStack mInheritStyleStack;
 
-    private static final Class<?>[] sConstructorSignature = new Class[]{Context.class};
+    /**
+     * Ancestors of the element being rendered, pushed and popped together with
+     * mInheritStyleStack for elements which have children.
+     */
+    private final AncestorFilter mAncestorFilter = new AncestorFilter();
 
-    private InheritStyleStack mInheritStyleStack;
+    /**
+     * Selectors resolved for the elements rendered, pushed and popped together with
+     * mAncestorFilter.
+     */
+    private final StyleSharingCache mStyleSharingCache = new StyleSharingCache();
 
     private Tracker mTracker;
 
+    /**
+     * State of progressive rendering, see {@link #startProgressive(Context, HNSegment)}
+     */
+    private Context mContext;
+    private HNSegment mSegment;
+    private ResolvedStyles mResolvedStyles;
+    private HNRootView mRootView;
+    private HNSandBoxContext mSandBoxContext;
+    private ViewGroup mBodyView;
+    private final Map<HNDomTree, View> mSubtreeViews = new IdentityHashMap<>();
+
     private HNRenderer() {
         mInheritStyleStack = new InheritStyleStack();
         mTracker = new Tracker();
@@ -64,6 +96,10 @@ public final class HNRenderer {
         return new HNRenderer();
     }
 
+    static void setMergeInlineText(boolean merge) {
+        sMergeInlineText = merge;
+    }
+
     public static InheritStyleStack computeInheritStyle(View view) {
 
         StyleHandler viewStyleHandler = StyleHandlerFactory.get(view);
@@ -95,10 +131,28 @@ public final class HNRenderer {
     @MainThread
     final View render(@NonNull Context context, @NonNull HNSegment segment, @NonNull ViewGroup
             .LayoutParams params) throws HNRenderException {
+        return attach(renderDetached(context, segment));
+    }
+
+    /**
+     * Create and style the views of segment without attaching them, which can be done on a
+     * background looper thread, see {@link HNRenderThread}, as the views are not attached to
+     * window yet. What must be done on main thread is left to {@link #attach(DetachedViews)}:
+     * adding the views to the root, the calls held by {@link MainThreadCalls}, and running the
+     * script.
+     * <p>
+     * Pages having WebView can't be rendered off main thread, see
+     * {@link #canRenderDetached(HNDomTree)}.
+     */
+    @NonNull
+    final DetachedViews renderDetached(@NonNull Context context, @NonNull HNSegment segment)
+            throws HNRenderException {
 
         mTracker.reset();
 
-        HNLog.d(HNLog.RENDER, "start to render " + segment.toString());
+        if (HNLog.isLoggable(HNLog.RENDER)) {
+            HNLog.d(HNLog.RENDER, "start to render " + segment.toString());
+        }
         HNRootView rootViewGroup = new HNRootView(context);
 
         HNSandBoxContext sandBoxContext = HNSandBoxContextImpl.createContext(rootViewGroup,
@@ -106,100 +160,648 @@ public final class HNRenderer {
 
 
         mInheritStyleStack.reset();
+        mAncestorFilter.clear();
+        mStyleSharingCache.clear();
 
         LayoutParamsLazyCreator rootCreator = new LayoutParamsLazyCreator();
 
         long renderStartTime = SystemClock.currentThreadTimeMillis();
-        View v = renderInternal(context, sandBoxContext, segment.getDom(), segment,
-                rootViewGroup, rootCreator, rootViewGroup, segment.getStyleSheet());
+        View v;
+        List<Runnable> mainThreadCalls;
+        MainThreadCalls.beginDeferring();
+        try {
+            v = renderInternal(context, sandBoxContext, segment.getDom(), segment,
+                    segment.getResolvedStyles(), rootViewGroup, rootCreator, rootViewGroup,
+                    segment.getStyleSheet());
+        } finally {
+            mainThreadCalls = MainThreadCalls.endDeferring();
+        }
+        mTracker.record("Render View", SystemClock.currentThreadTimeMillis() - renderStartTime);
 
+        return new DetachedViews(rootViewGroup, sandBoxContext, v, v == null ? null :
+                LayoutParamsLazyCreator.createLayoutParams(rootViewGroup, rootCreator),
+                mainThreadCalls);
+    }
 
-        if (v != null) {
-            rootViewGroup.addContent(v, LayoutParamsLazyCreator.createLayoutParams(rootViewGroup,
-                    rootCreator));
-            mTracker.record("Render View", SystemClock.currentThreadTimeMillis() - renderStartTime);
+    /**
+     * Attach the views rendered by {@link #renderDetached(Context, HNSegment)} and run the
+     * script.
+     *
+     * @return root view, or null if nothing is rendered
+     */
+    @MainThread
+    final View attach(@NonNull DetachedViews detached) {
+        if (detached.mContent == null) {
+            return null;
+        }
+
+        long attachTime = SystemClock.currentThreadTimeMillis();
+        HNRootView rootViewGroup = detached.mRoot;
+        rootViewGroup.addContent(detached.mContent, detached.mParams);
+        for (Runnable call : detached.mMainThreadCalls) {
+            call.run();
+        }
+        mTracker.record("Attach View", SystemClock.currentThreadTimeMillis() - attachTime);
 
-            long createTime = SystemClock.currentThreadTimeMillis();
-            this.performCreate(sandBoxContext);
-            mTracker.record("Create View", SystemClock.currentThreadTimeMillis() - createTime);
+        runScript(detached.mSandBoxContext);
+        return rootViewGroup;
+    }
 
-            long afterCreate = SystemClock.currentThreadTimeMillis();
-            this.performCreated(sandBoxContext);
-            mTracker.record("After View Created", SystemClock.currentThreadTimeMillis() -
-                    afterCreate);
+    private void runScript(@NonNull HNSandBoxContext sandBoxContext) {
+        long createTime = SystemClock.currentThreadTimeMillis();
+        this.performCreate(sandBoxContext);
+        mTracker.record("Create View", SystemClock.currentThreadTimeMillis() - createTime);
 
-            Log.i(PERFORMANCE_TAG, mTracker.dump());
+        long afterCreate = SystemClock.currentThreadTimeMillis();
+        this.performCreated(sandBoxContext);
+        mTracker.record("After View Created", SystemClock.currentThreadTimeMillis() -
+                afterCreate);
 
+        if (HNLog.isLoggable(HNLog.RENDER)) {
+            Log.i(PERFORMANCE_TAG, mTracker.dump() + mStyleSharingCache);
             HNLog.d(HNLog.RENDER, sandBoxContext.allIdTag());
-            return rootViewGroup;
         }
+    }
 
-        return null;
+    /**
+     * WebView must be created and used on main thread, so a page having one is rendered on main
+     * thread as a whole.
+     */
+    static boolean canRenderDetached(@NonNull HNDomTree tree) {
+        String viewClassName = ViewTypeRelations.findClassByType(tree.getTypeId());
+        if (viewClassName != null && (viewClassName.equals(WebView.class.getName()) ||
+                sViewFactory.get(viewClassName) instanceof WebViewFactory)) {
+            return false;
+        }
+
+        for (HNDomTree child : tree.children()) {
+            if (!canRenderDetached(child)) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    private View renderInternal(@NonNull Context context, @NonNull HNSandBoxContext
-            sandBoxContext, HNDomTree tree, HNSegment segment, @NonNull ViewGroup parent,
-                                @NonNull LayoutParamsLazyCreator paramsCreator, @NonNull
-                                        HNRootView root, StyleSheet styleSheet) throws
-            HNRenderException {
+    /**
+     * Views rendered but not attached yet, see {@link #renderDetached(Context, HNSegment)}
+     */
+    static final class DetachedViews {
+        final HNRootView mRoot;
+        final HNSandBoxContext mSandBoxContext;
+
+        /**
+         * null if failed to render
+         */
+        @Nullable
+        final View mContent;
+        final ViewGroup.LayoutParams mParams;
+        final List<Runnable> mMainThreadCalls;
+
+        DetachedViews(HNRootView root, HNSandBoxContext sandBoxContext, @Nullable View content,
+                      ViewGroup.LayoutParams params, List<Runnable> mainThreadCalls) {
+            mRoot = root;
+            mSandBoxContext = sandBoxContext;
+            mContent = content;
+            mParams = params;
+            mMainThreadCalls = mainThreadCalls;
+        }
+    }
 
-        AttrsSet attrsSet = segment.getInlineStyles();
+    /**
+     * Start to render segment on main thread in slices over successive frames, see
+     * {@link ChunkedRender}. The first slice is rendered at once, so the root returned by
+     * {@link ChunkedRender#getRoot()} already shows the top of the page, the rest is rendered
+     * in the following frames.
+     *
+     * @param frameBudgetNanos time the slice of a frame may take
+     * @param listener         called once all views are rendered and the script is run, or once
+     *                         rendering fails after the first slice or renders nothing
+     * @throws HNRenderException if the first slice fails, the listener is not called then
+     */
+    @MainThread
+    @NonNull
+    final ChunkedRender renderChunked(@NonNull Context context, @NonNull HNSegment segment,
+                                      long frameBudgetNanos, @Nullable OnRenderFinished
+                                              listener) throws HNRenderException {
+        mTracker.reset();
 
-        if (tree.isLeaf()) {
-            View v = createView(tree, tree, sandBoxContext, parent, context, attrsSet,
-                    paramsCreator, styleSheet, mInheritStyleStack);
-            mInheritStyleStack.pop();
-            return v;
+        if (HNLog.isLoggable(HNLog.RENDER)) {
+            HNLog.d(HNLog.RENDER, "start to render in slices " + segment.toString());
+        }
+        HNRootView rootViewGroup = new HNRootView(context);
+        HNSandBoxContext sandBoxContext = HNSandBoxContextImpl.createContext(rootViewGroup,
+                segment, context);
+
+        mInheritStyleStack.reset();
+        mAncestorFilter.clear();
+        mStyleSharingCache.clear();
+
+        ChunkedRender chunked = new ChunkedRender(context, segment, rootViewGroup,
+                sandBoxContext, frameBudgetNanos, listener);
+        chunked.start();
+        return chunked;
+    }
+
+    interface OnRenderFinished {
+        @MainThread
+        void onRenderFinished(View root);
+
+        /**
+         * The script is not run then, root keeps what has been rendered.
+         *
+         * @param e null if nothing is rendered, the same as {@link #render} returning null
+         */
+        @MainThread
+        void onRenderFailed(@Nullable HNRenderException e);
+    }
+
+    /**
+     * Rendering a long page in one go holds main thread for one long frame. Instead, each frame
+     * renders elements in document order with {@link RenderCursor} until the frame budget is
+     * used up, and the rest is left to the next frame posted to {@link Choreographer}. Content
+     * is attached to root in the first slice, so the top of the page is shown while the rest is
+     * being rendered, and the script is run once all views are rendered. If rendering fails in
+     * the middle, root keeps what has been rendered, but the script is not run, the same as
+     * rendering at once, and the failure is reported to the listener.
+     */
+    final class ChunkedRender implements Choreographer.FrameCallback {
+
+        private final HNRootView mRoot;
+        private final HNSandBoxContext mSandBoxContext;
+        private final LayoutParamsLazyCreator mRootCreator = new LayoutParamsLazyCreator();
+        private final RenderCursor mCursor;
+        private final long mFrameBudgetNanos;
+
+        @Nullable
+        private final OnRenderFinished mListener;
+
+        private boolean mAttached;
+        private int mFrames;
+        private long mRenderTime;
+        private volatile boolean mCancelled;
+
+        private ChunkedRender(Context context, HNSegment segment, HNRootView root,
+                              HNSandBoxContext sandBoxContext, long frameBudgetNanos,
+                              @Nullable OnRenderFinished listener) {
+            mRoot = root;
+            mSandBoxContext = sandBoxContext;
+            mCursor = new RenderCursor(context, sandBoxContext, segment.getDom(), segment,
+                    segment.getResolvedStyles(), root, mRootCreator, segment.getStyleSheet());
+            mFrameBudgetNanos = frameBudgetNanos;
+            mListener = listener;
+        }
+
+        /**
+         * @return root view, or null if nothing is rendered
+         */
+        @Nullable
+        View getRoot() {
+            return mAttached ? mRoot : null;
+        }
+
+        /**
+         * Stop at the next frame, the script is not run then. Can be called on any thread.
+         */
+        void cancel() {
+            mCancelled = true;
+        }
+
+        /**
+         * Even if the first slice renders all, the script is run in the next frame, after root
+         * is delivered.
+         */
+        private void start() throws HNRenderException {
+            renderSlice();
+            if (mAttached) {
+                Choreographer.getInstance().postFrameCallback(this);
+            } else {
+                fail(null);
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (mCancelled) {
+                return;
+            }
+
+            boolean more;
+            try {
+                more = renderSlice();
+            } catch (HNRenderException e) {
+                e.printStackTrace();
+                fail(e);
+                return;
+            }
+
+            if (more) {
+                Choreographer.getInstance().postFrameCallback(this);
+            } else {
+                finish();
+            }
+        }
+
+        /**
+         * Render at least one element, then until the budget is used up.
+         *
+         * @return whether there is more to render
+         */
+        private boolean renderSlice() throws HNRenderException {
+            long deadline = System.nanoTime() + mFrameBudgetNanos;
+            long sliceStartTime = SystemClock.currentThreadTimeMillis();
+            mFrames++;
+
+            boolean more;
+            try {
+                do {
+                    more = mCursor.step();
+                } while (more && System.nanoTime() < deadline);
+            } finally {
+                mRenderTime += SystemClock.currentThreadTimeMillis() - sliceStartTime;
+            }
+
+            if (!mAttached) {
+                View content = mCursor.result();
+                if (content == null) {
+                    return false;
+                }
+
+                mRoot.addContent(content, LayoutParamsLazyCreator.createLayoutParams(mRoot,
+                        mRootCreator));
+                mAttached = true;
+            }
+            return more;
+        }
+
+        private void finish() {
+            mTracker.record("Render View", mRenderTime);
+            HNLog.d(HNLog.RENDER, "rendered in " + mFrames + " frames");
+            runScript(mSandBoxContext);
+
+            if (mListener != null) {
+                mListener.onRenderFinished(mRoot);
+            }
+        }
+
+        private void fail(@Nullable HNRenderException e) {
+            mTracker.record("Render View", mRenderTime);
+            HNLog.e(HNLog.RENDER, "render failed after " + mFrames + " frames");
+
+            if (mListener != null) {
+                mListener.onRenderFailed(e);
+            }
+        }
+    }
+
+    /**
+     * Start to render a segment which is still being parsed. The root view returned is empty,
+     * subtrees are attached to it by {@link #renderSubtree(HNDomTree)} as soon as they are
+     * parsed, and the script is run in {@link #finishProgressive()}.
+     */
+    @MainThread
+    final HNRootView startProgressive(@NonNull Context context, @NonNull HNSegment segment) {
+        mTracker.reset();
+
+        if (HNLog.isLoggable(HNLog.RENDER)) {
+            HNLog.d(HNLog.RENDER, "start to render progressively " + segment.toString());
+        }
+        mContext = context;
+        mSegment = segment;
+        mResolvedStyles = segment.getResolvedStyles();
+        mRootView = new HNRootView(context);
+        mSandBoxContext = HNSandBoxContextImpl.createContext(mRootView, segment, context);
+        mBodyView = null;
+        mSubtreeViews.clear();
+
+        mInheritStyleStack.reset();
+        mAncestorFilter.clear();
+        mStyleSharingCache.clear();
+        return mRootView;
+    }
+
+    /**
+     * Render a direct child of root, which has been parsed completely, and attach it.
+     */
+    @MainThread
+    final void renderSubtree(@NonNull HNDomTree subtree) throws HNRenderException {
+        long renderStartTime = SystemClock.currentThreadTimeMillis();
+
+        ViewGroup body = ensureBodyView(subtree.getParent());
+
+        LayoutParamsLazyCreator childCreator = new LayoutParamsLazyCreator();
+        View v = renderInternal(mContext, mSandBoxContext, subtree, mSegment, mResolvedStyles,
+                body, childCreator, mRootView, mSegment.getStyleSheet());
+
+        // null is kept as well, so that a failed subtree is not rendered again
+        mSubtreeViews.put(subtree, v);
+        if (v != null) {
+            body.addView(v, LayoutParamsLazyCreator.createLayoutParams(mRootView, childCreator));
         } else {
-            View view = createView(tree, tree, sandBoxContext, parent, context, attrsSet,
-                    paramsCreator, styleSheet, mInheritStyleStack);
+            HNLog.e(HNLog.RENDER, "error when inflating " + subtree.getType());
+        }
 
-            if (view == null) {
-                return null;
+        mTracker.record("Render Subtree", SystemClock.currentThreadTimeMillis() -
+                renderStartTime);
+    }
+
+    /**
+     * Called when the segment is parsed completely. Renders what has not been reported, puts
+     * views into the final order if some subtree is ordered, then runs the script.
+     */
+    @MainThread
+    final View finishProgressive() throws HNRenderException {
+        HNDomTree dom = mSegment.getDom();
+        ViewGroup body = ensureBodyView(dom);
+
+        List<HNDomTree> children = dom.children();
+        for (HNDomTree child : children) {
+            if (!mSubtreeViews.containsKey(child)) {
+                renderSubtree(child);
             }
+        }
 
+        boolean inOrder = true;
+        int i = 0;
+        for (HNDomTree child : children) {
+            View v = mSubtreeViews.get(child);
+            if (v != null && body.getChildAt(i++) != v) {
+                inOrder = false;
+                break;
+            }
+        }
 
-            if (view instanceof ViewGroup) {
+        if (!inOrder) {
+            body.removeAllViews();
+            for (HNDomTree child : children) {
+                View v = mSubtreeViews.get(child);
+                if (v != null) {
+                    // layout params are kept by view after removed
+                    body.addView(v);
+                }
+            }
+        }
 
-                final ViewGroup viewGroup = (ViewGroup) view;
+        // pop the body
+        mInheritStyleStack.pop();
+        mAncestorFilter.pop();
+        mStyleSharingCache.pop();
+
+        runScript(mSandBoxContext);
+
+        View root = mRootView;
+        mContext = null;
+        mSegment = null;
+        mResolvedStyles = null;
+        mRootView = null;
+        mSandBoxContext = null;
+        mBodyView = null;
+        mSubtreeViews.clear();
+        return root;
+    }
 
-                List<HNDomTree> children = tree.children();
-                for (HNDomTree child : children) {
+    private ViewGroup ensureBodyView(HNDomTree dom) throws HNRenderException {
+        if (mBodyView != null) {
+            return mBodyView;
+        }
 
-                    LayoutParamsLazyCreator childCreator = new LayoutParamsLazyCreator();
+        LayoutParamsLazyCreator bodyCreator = new LayoutParamsLazyCreator();
 
-                    // Recursively render child.
-                    final View v = renderInternal(context, sandBoxContext, child, segment,
-                            viewGroup, childCreator, root, styleSheet);
+        // the style pushed for body is popped in finishProgressive
+        View v = createView(dom, dom, mSandBoxContext, mRootView, mContext, mSegment
+                .getInlineStyles(), bodyCreator, mSegment.getStyleSheet(), mInheritStyleStack,
+                mAncestorFilter, mStyleSharingCache, mResolvedStyles == null ? null :
+                        mResolvedStyles.get(dom));
 
-                    if (v != null) {
+        if (!(v instanceof ViewGroup)) {
+            throw new HNRenderException("can't render progressively, root of " + mSegment
+                    .toString() + " is not a ViewGroup");
+        }
+
+        mBodyView = (ViewGroup) v;
+        mAncestorFilter.push(dom);
+        mStyleSharingCache.push(dom);
+        mRootView.addContent(v, LayoutParamsLazyCreator.createLayoutParams(mRootView,
+                bodyCreator));
+        return mBodyView;
+    }
+
+    private View renderInternal(@NonNull Context context, @NonNull HNSandBoxContext
+            sandBoxContext, HNDomTree tree, HNSegment segment, @Nullable ResolvedStyles styles,
+                                @NonNull ViewGroup parent, @NonNull LayoutParamsLazyCreator
+                                        paramsCreator, @NonNull HNRootView root, StyleSheet
+                                        styleSheet) throws HNRenderException {
+
+        RenderCursor cursor = new RenderCursor(context, sandBoxContext, tree, segment, styles,
+                parent, paramsCreator, styleSheet);
+        while (cursor.step()) {
+            // render all at once
+        }
+        return cursor.result();
+    }
+
+    /**
+     * Walks a dom tree with a stack of the elements whose children are being rendered, rather
+     * than by recursion, so that it can be paused after any element and resumed later, see
+     * {@link ChunkedRender}. mInheritStyleStack, mAncestorFilter and mStyleSharingCache are
+     * pushed and popped in the same order as walking recursively, so only one cursor of a
+     * renderer can be walking at a time. Styles resolved before rendering are read from the
+     * ResolvedStyles given when the render starts, elements not found there are resolved while
+     * rendering.
+     */
+    private final class RenderCursor {
+
+        private final Context mContext;
+        private final HNSandBoxContext mSandBoxContext;
+        private final AttrsSet mAttrsSet;
+        private final StyleSheet mStyleSheet;
+
+        @Nullable
+        private final ResolvedStyles mStyles;
+
+        private final HNDomTree mTree;
+        private final ViewGroup mParent;
+        private final LayoutParamsLazyCreator mParamsCreator;
+
+        private final ArrayDeque<Opened> mOpened = new ArrayDeque<>();
+        private boolean mStarted;
+        private View mResult;
+
+        RenderCursor(@NonNull Context context, @NonNull HNSandBoxContext sandBoxContext,
+                     HNDomTree tree, HNSegment segment, @Nullable ResolvedStyles styles, @NonNull
+                             ViewGroup parent, @NonNull LayoutParamsLazyCreator paramsCreator,
+                     StyleSheet styleSheet) {
+            mContext = context;
+            mSandBoxContext = sandBoxContext;
+            mAttrsSet = segment.getInlineStyles();
+            mStyleSheet = styleSheet;
+            mStyles = styles;
+            mTree = tree;
+            mParent = parent;
+            mParamsCreator = paramsCreator;
+        }
+
+        /**
+         * Render the next element and add it to its parent, or close the element whose
+         * children are all rendered.
+         *
+         * @return whether there is more to do
+         */
+        boolean step() throws HNRenderException {
+            if (!mStarted) {
+                mStarted = true;
+                mResult = open(mTree, mParent, mParamsCreator);
+                return !mOpened.isEmpty();
+            }
+
+            Opened opened = mOpened.peek();
+            if (opened == null) {
+                return false;
+            }
 
-                        viewGroup.addView(v, LayoutParamsLazyCreator.createLayoutParams(parent,
-                                childCreator));
-                    } else {
-                        HNLog.e(HNLog.RENDER, "error when inflating " + child.getType());
+            List<HNDomTree> children = opened.mTree.children();
+            if (opened.mNext < children.size()) {
+                LayoutParamsLazyCreator childCreator = new LayoutParamsLazyCreator();
+
+                int runEnd = sMergeInlineText && mStyles != null ? InlineTextRun.end(children,
+                        opened.mNext, mStyles) : opened.mNext;
+                if (runEnd - opened.mNext >= InlineTextRun.MIN_LENGTH) {
+                    List<HNDomTree> run = children.subList(opened.mNext, runEnd);
+                    opened.mNext = runEnd;
+                    View v = renderInlineRun(run, opened.mViewGroup, childCreator);
+                    if (v != null) {
+                        opened.mViewGroup.addView(v, LayoutParamsLazyCreator.createLayoutParams
+                                (opened.mParent, childCreator));
                     }
+                    return true;
+                }
+
+                HNDomTree child = children.get(opened.mNext++);
+                View v = open(child, opened.mViewGroup, childCreator);
+                if (v != null) {
+                    opened.mViewGroup.addView(v, LayoutParamsLazyCreator.createLayoutParams
+                            (opened.mParent, childCreator));
+                } else {
+                    HNLog.e(HNLog.RENDER, "error when inflating " + child.getType());
                 }
             } else {
-                HNLog.e(HNLog.RENDER, "View render from HNRenderer is not " +
-                        "an " +
-                        "viewGroup" +
-                        view.getClass().getSimpleName() +
-                        ", but related HNDomTree has children. Will ignore its children!");
+                mOpened.pop();
+                mAncestorFilter.pop();
+                mStyleSharingCache.pop();
+                mInheritStyleStack.pop();
             }
+            return !mOpened.isEmpty();
+        }
+
+        /**
+         * @return view of the tree walked, null if it's not rendered yet or failed to render
+         */
+        @Nullable
+        View result() {
+            return mResult;
+        }
 
+        /**
+         * Render run as one view of text, styled as an element having the same parent as run,
+         * but none of its own styles, which are set as spans.
+         */
+        private View renderInlineRun(List<HNDomTree> run, ViewGroup parent,
+                                     LayoutParamsLazyCreator paramsCreator) throws
+                HNRenderException {
+            HNDomTree first = run.get(0);
+            HNDomTree text = new HNDomTree(first.getParent(), Symbols.TEXT, first.getIndex());
+
+            // styles inherited are computed from the stack if first is not resolved
+            ComputedStyle firstStyle = mStyles.get(first);
+            View view = createView(text, text, mSandBoxContext, parent, mContext, mAttrsSet,
+                    paramsCreator, mStyleSheet, mInheritStyleStack, mAncestorFilter,
+                    mStyleSharingCache, firstStyle == null ? null : firstStyle.inheritedOnly());
+            mInheritStyleStack.pop();
+
+            if (!(view instanceof TextView)) {
+                HNLog.e(HNLog.RENDER, "error when inflating inline text of " + run.size() +
+                        " elements");
+                return null;
+            }
+
+            TextView textView = (TextView) view;
+            SpannableStringBuilder spanned = new SpannableStringBuilder();
+            if (InlineTextRun.build(mContext, run, mStyles, spanned)) {
+                textView.setMovementMethod(LinkMovementMethod.getInstance());
+            }
+            textView.setText(spanned);
+            return textView;
+        }
+
+        private View open(HNDomTree tree, ViewGroup parent, LayoutParamsLazyCreator
+                paramsCreator) throws HNRenderException {
+            View view = createView(tree, tree, mSandBoxContext, parent, mContext, mAttrsSet,
+                    paramsCreator, mStyleSheet, mInheritStyleStack, mAncestorFilter,
+                    mStyleSharingCache, mStyles == null ? null : mStyles.get(tree));
+
+            if (!tree.isLeaf() && view instanceof ViewGroup) {
+                // closed once its children are rendered
+                mAncestorFilter.push(tree);
+                mStyleSharingCache.push(tree);
+                mOpened.push(new Opened(tree, (ViewGroup) view, parent));
+                return view;
+            }
+
+            if (!tree.isLeaf() && view != null) {
+                HNLog.e(HNLog.RENDER, "View render from HNRenderer is not an viewGroup" + view
+                        .getClass().getSimpleName() + ", but related HNDomTree has children. " +
+                        "Will ignore its children!");
+            }
             mInheritStyleStack.pop();
             return view;
         }
     }
 
+    /**
+     * Element whose children are being rendered by {@link RenderCursor}
+     */
+    private static final class Opened {
+        final HNDomTree mTree;
+        final ViewGroup mViewGroup;
+
+        /**
+         * where mViewGroup is added, layout params of the children are created with it
+         */
+        final ViewGroup mParent;
+        int mNext;
+
+        Opened(HNDomTree tree, ViewGroup viewGroup, ViewGroup parent) {
+            mTree = tree;
+            mViewGroup = viewGroup;
+            mParent = parent;
+        }
+    }
+
 
     public static View createView(AttrsSet.AttrsOwner owner, @NonNull DomElement tree, @NonNull
             HNSandBoxContext sandBoxContext, ViewGroup parent, @NonNull Context context, AttrsSet
             attrsSet, @NonNull LayoutParamsLazyCreator layoutCreator, StyleSheet styleSheet,
                                   InheritStyleStack stack) throws HNRenderException {
+        return createView(owner, tree, sandBoxContext, parent, context, attrsSet, layoutCreator,
+                styleSheet, stack, null, null, null);
+    }
+
+    /**
+     * @param ancestorFilter holding the ancestors of tree, to skip the selectors which can not
+     *                       match quickly, or null
+     * @param styleCache     sharing the selectors resolved with the elements rendered before,
+     *                       or null to match styleSheet for tree only
+     * @param computedStyle  styles of tree resolved before rendering, or null to resolve them
+     *                       from stack, attrsSet and styleSheet
+     */
+    static View createView(AttrsSet.AttrsOwner owner, @NonNull DomElement tree, @NonNull
+            HNSandBoxContext sandBoxContext, ViewGroup parent, @NonNull Context context, AttrsSet
+            attrsSet, @NonNull LayoutParamsLazyCreator layoutCreator, StyleSheet styleSheet,
+                           InheritStyleStack stack, @Nullable AncestorFilter ancestorFilter,
+                           @Nullable StyleSharingCache styleCache, @Nullable ComputedStyle
+                                   computedStyle) throws HNRenderException {
 
         String type = tree.getType();
+        int typeId = tree.getTypeId();
 
         if (stack != null) {
             stack.push();
@@ -207,10 +809,10 @@ public final class HNRenderer {
 
         try {
             View v;
-            if (HtmlTag.isGroupingElement(type)) {
-                v = createAndroidViewGroup(context, type, owner, attrsSet, layoutCreator);
+            if (HtmlTag.isGroupingElement(typeId)) {
+                v = createAndroidViewGroup(context, owner, attrsSet, layoutCreator);
             } else {
-                v = createAndroidView(context, type);
+                v = createAndroidView(context, typeId);
             }
 
             if (v == null) {
@@ -218,10 +820,12 @@ public final class HNRenderer {
                 return null;
             }
 
-            //attach the dom element to view
-            DomElement domElement = AttachedElement.cloneIfNecessary(tree);
+            //attach the dom element to view, keeping its parent and inline styles so that it
+            // can be restyled by Restyler
+            AttachedElement domElement = AttachedElement.cloneIfNecessary(tree);
             domElement.setParent((DomElement) parent.getTag());
-            v.setTag(AttachedElement.cloneIfNecessary(tree));
+            domElement.setOwner(owner);
+            v.setTag(domElement);
 
 
             // save the id if element has one
@@ -243,6 +847,13 @@ public final class HNRenderer {
                 parentLayoutAttr = (LayoutStyleHandler) parentStyleHandler;
             }
 
+            if (computedStyle != null) {
+                Styles.applyComputed(context, sandBoxContext, computedStyle, v, tree, parent,
+                        layoutCreator, viewStyleHandler, extraStyleHandler, parentLayoutAttr,
+                        stack);
+                return v;
+            }
+
             try {
                 /**
                  * First apply the parent styleSheet style to it.
@@ -273,33 +884,23 @@ public final class HNRenderer {
 
             // core part to handle the styleSheet selectors
             if (styleSheet != null) {
-                CssSelector[] matchedSelectors = styleSheet.matchedSelector(type, tree.getId(),
-                        tree.getClazz());
-
-                for (CssSelector selector : matchedSelectors) {
-                    if (selector != null) {
-                        if (selector.matchWhole(tree)) {
-
-                            try {
-                                Styles.apply(context, sandBoxContext, styleSheet, v, selector,
-                                        tree, parent, layoutCreator, false, false,
-                                        viewStyleHandler, extraStyleHandler, parentLayoutAttr, stack);
-
-                            } catch (AttrApplyException e) {
-                                e.printStackTrace();
-                            }
-                        }
+                CssSelector[] resolved = styleCache != null ? styleCache.resolve(styleSheet,
+                        tree, ancestorFilter) : StyleSharingCache.match(styleSheet, tree,
+                        ancestorFilter, new MatchedSelectors());
+
+                for (CssSelector selector : resolved) {
+                    try {
+                        Styles.apply(context, sandBoxContext, styleSheet, v, selector, tree,
+                                parent, layoutCreator, false, false, viewStyleHandler,
+                                extraStyleHandler, parentLayoutAttr, stack);
+
+                    } catch (AttrApplyException e) {
+                        e.printStackTrace();
                     }
                 }
             }
             return v;
 
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
-            throw new HNRenderException("class not found " + type);
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
-            throw new HNRenderException("class's constructor is missing " + type);
         } catch (IllegalAccessException e) {
             e.printStackTrace();
             throw new HNRenderException("class's constructor can not be accessed " + type);
@@ -313,65 +914,63 @@ public final class HNRenderer {
     }
 
     @Nullable
-    static View createAndroidView(@NonNull Context context, @Nullable String typeName) throws
-            ClassNotFoundException, NoSuchMethodException, IllegalAccessException,
-            InvocationTargetException, InstantiationException {
+    static View createAndroidView(@NonNull Context context, int typeName) throws
+            IllegalAccessException, InvocationTargetException, InstantiationException {
 
         String viewClassName = ViewTypeRelations.findClassByType(typeName);
         if (viewClassName == null) {
             return null;
         }
 
-        HNLog.d(HNLog.RENDER, "createContext view" + viewClassName + " with type" +
-                typeName);
+        if (HNLog.isLoggable(HNLog.RENDER)) {
+            HNLog.d(HNLog.RENDER, "createContext view" + viewClassName + " with type" + Symbols
+                    .name(typeName));
+        }
 
-        // first let viewFactory to hook the create process
+        // let viewFactory to hook the create process first, views it creates are never pooled
         View view = createViewByViewFactory(context, viewClassName);
         if (view != null) {
             return view;
         }
 
-        Constructor<? extends View> constructor = sConstructorMap.get(viewClassName);
-        Class<? extends View> clazz;
-        if (constructor == null) {
-            // Class not found in the cache, see if it's real, and try to add it
-            clazz = context.getClassLoader().loadClass(viewClassName).asSubclass(View.class);
-            constructor = clazz.getConstructor(sConstructorSignature);
-            constructor.setAccessible(true);
-            sConstructorMap.put(viewClassName, constructor);
+        // then views of pages closed before are reused
+        view = ViewPool.obtain(context, viewClassName);
+        if (view != null) {
+            return view;
+        }
+
+        ViewFactory factory = ViewTypeRelations.findFactoryByType(typeName);
+        if (factory instanceof ViewTypeRelations.ConstructorFactory) {
+            // extra tag registered without a factory
+            return ((ViewTypeRelations.ConstructorFactory) factory).newInstance(context);
         }
 
-        sConstructorArgs[0] = context;
-        view = constructor.newInstance(sConstructorArgs);
-        // release the context
-        sConstructorArgs[0] = null;
-        return view;
+        // reserved tags and the other extra ones are created without reflection
+        return factory == null ? null : factory.create(context);
     }
 
-    static View createAndroidViewGroup(@NonNull Context context, @Nullable String typeName,
-                                       AttrsSet.AttrsOwner owner, AttrsSet attrsSet,
+    static View createAndroidViewGroup(@NonNull Context context, AttrsSet.AttrsOwner owner,
+                                       AttrsSet attrsSet,
                                        LayoutParamsLazyCreator layoutParamsCreator) throws
-            ClassNotFoundException, NoSuchMethodException, InvocationTargetException,
-            InstantiationException, IllegalAccessException {
+            InvocationTargetException, InstantiationException, IllegalAccessException {
         View v;
-        Object displayObj = attrsSet.getStyle(owner, "display");
-        if (displayObj != null && displayObj instanceof String) {
-            String display = (String) displayObj;
+        Styles.Display display = Styles.Display.of(attrsSet.getStyle(owner, Symbols.DISPLAY));
+        if (display != null) {
             switch (display) {
-                case Styles.VAL_DISPLAY_FLEX:
-                    v = createAndroidView(context, "flexbox");
+                case FLEX:
+                    v = createAndroidView(context, Symbols.FLEXBOX);
                     break;
-                case Styles.VAL_DISPLAY_ABSOLUTE:
-                    v = createAndroidView(context, "box");
+                case ABSOLUTE:
+                    v = createAndroidView(context, Symbols.BOX);
                     break;
 
-                case Styles.VAL_DISPLAY_BOX:
+                case BOX:
                 default:
-                    v = createAndroidView(context, "linearbox");
+                    v = createAndroidView(context, Symbols.LINEARBOX);
                     break;
             }
         } else {
-            v = createAndroidView(context, "linearbox");
+            v = createAndroidView(context, Symbols.LINEARBOX);
         }
 
         // set the <body> width to 100%
@@ -91,8 +91,8 @@ final class HNSandBoxContextImpl implements HNSandBoxContext {
     }
 
     private void callCreate() {
-        if (mSegment.hasSetScript()) {
-            execute(mSegment.getScriptInfo().code());
+        if (mSegment.hasSetScript() && mRunner != null) {
+            HNScriptRunnerThread.runScript(this, mRunner, mSegment.getScriptInfo());
         }
     }
 
@@ -4,6 +4,7 @@ import android.os.Handler;
 import android.os.HandlerThread;
 import android.support.annotation.NonNull;
 
+import com.mozz.htmlnative.script.ScriptInfo;
 import com.mozz.htmlnative.script.ScriptRunner;
 
 import java.lang.ref.WeakReference;
@@ -30,11 +31,17 @@ final class HNScriptRunnerThread {
         mHandler.post(new ScriptRunTask(context, runner, script));
     }
 
+    public static void runScript(HNSandBoxContext context, ScriptRunner runner, ScriptInfo
+            scriptInfo) {
+        mHandler.post(new ScriptRunTask(context, runner, scriptInfo));
+    }
+
     private static class ScriptRunTask implements Runnable {
 
         WeakReference<HNSandBoxContext> mContextRef;
         WeakReference<ScriptRunner> mRunnerRef;
         String script;
+        ScriptInfo scriptInfo;
 
         ScriptRunTask(HNSandBoxContext context, ScriptRunner runner, String script) {
 
@@ -43,13 +50,22 @@ final class HNScriptRunnerThread {
             this.script = script;
         }
 
+        ScriptRunTask(HNSandBoxContext context, ScriptRunner runner, ScriptInfo scriptInfo) {
+            this(context, runner, (String) null);
+            this.scriptInfo = scriptInfo;
+        }
+
         @Override
         public void run() {
             ScriptRunner runner = mRunnerRef.get();
             HNSandBoxContext context = mContextRef.get();
 
-            if (runner != null && context != null && script != null) {
-                runner.run(this.script);
+            if (runner != null && context != null) {
+                if (scriptInfo != null) {
+                    runner.run(this.scriptInfo);
+                } else if (script != null) {
+                    runner.run(this.script);
+                }
             }
         }
     }
@@ -1,22 +1,41 @@
 package com.mozz.htmlnative;
 
+import android.content.res.AssetManager;
 import android.support.annotation.NonNull;
-import android.util.ArrayMap;
+import android.support.annotation.Nullable;
 
 import com.mozz.htmlnative.css.AttrsSet;
+import com.mozz.htmlnative.css.ResolvedStyles;
+import com.mozz.htmlnative.css.StyleResolver;
 import com.mozz.htmlnative.css.StyleSheet;
 import com.mozz.htmlnative.dom.HNDomTree;
 import com.mozz.htmlnative.dom.HNHead;
+import com.mozz.htmlnative.exception.HNFormatError;
 import com.mozz.htmlnative.exception.HNSyntaxError;
+import com.mozz.htmlnative.parser.ParseCallback;
 import com.mozz.htmlnative.parser.Parser;
+import com.mozz.htmlnative.parser.SegmentReader;
+import com.mozz.htmlnative.parser.SegmentWriter;
 import com.mozz.htmlnative.reader.FileTextReader;
 import com.mozz.htmlnative.script.ScriptInfo;
+import com.mozz.htmlnative.utils.IOUtils;
+import com.mozz.htmlnative.utils.ParametersUtils;
 
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.Map;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 public final class HNSegment {
 
+    /**
+     * Suffix of the segments precompiled by HNCompiler, which are put beside the source file in
+     * assets, e.g. article.html -> article.html.hnc
+     */
+    public static final String COMPILED_SUFFIX = ".hnc";
+
     private HNDomTree mDom;
     private boolean mHasScriptEmbed;
     private ScriptInfo mScriptInfo;
@@ -25,9 +44,29 @@ public final class HNSegment {
     private AttrsSet mInlineStyles;
     private StyleSheet mStyleSheet;
 
-    @NonNull
-    private static Map<String, HNSegment> sCache = new ArrayMap<>();
-    private static final Object sCacheLock = new Object();
+    /**
+     * styles resolved for the screen bound, null if not resolved yet. Replaced rather than
+     * cleared, so that renders holding the old one are not affected, see {@link #bindScreen()}
+     */
+    @Nullable
+    private volatile ResolvedStyles mResolvedStyles;
+
+    /**
+     * styles resolved for the screens bound recently, the oldest first, so that rotating back
+     * doesn't resolve again. Only used if the style sheet has &#64;media rules.
+     */
+    private final List<ResolvedStyles> mResolvedByScreen = new ArrayList<>(MAX_SCREENS);
+    private static final int MAX_SCREENS = 2;
+
+    /**
+     * screen the segment is bound to, width is -1 if not bound yet, see {@link #bindScreen()}
+     */
+    private int mScreenWidth = -1;
+    private int mScreenHeight;
+    private float mScreenDensity;
+
+    private static final HNSegmentCache sCache = new HNSegmentCache(HNSegmentCache
+            .DEFAULT_MEMORY_SIZE);
 
     public HNSegment() {
         mInlineStyles = new AttrsSet("Inline-Style");
@@ -42,26 +81,165 @@ public final class HNSegment {
         return parser.process();
     }
 
-    //TODO finish the cache of HNSegment
-    public static HNSegment load(@NonNull InputStream stream, String type) throws HNSyntaxError {
-        synchronized (sCacheLock) {
-            HNSegment module = sCache.get(type);
-            if (module != null) {
-                return module;
-            } else {
-                module = load(stream);
-                sCache.put(type, module);
-                return module;
-            }
+    /**
+     * Same as {@link #load(InputStream)}, but the segment is cached by the content of stream, see
+     * {@link HNSegmentCache}. Segments returned may be shared, so they must not be modified.
+     */
+    @NonNull
+    public static HNSegment loadCached(@NonNull InputStream stream) throws HNSyntaxError,
+            IOException {
+        return sCache.load(stream);
+    }
+
+    /**
+     * Same as {@link #loadCached(InputStream)}, and callback receives the parts of segment while
+     * parsing if the segment is not cached.
+     */
+    @NonNull
+    public static HNSegment loadCached(@NonNull InputStream stream, @Nullable ParseCallback
+            .SegmentCallback callback) throws HNSyntaxError, IOException {
+        return sCache.load(stream, callback);
+    }
+
+    static HNSegmentCache cache() {
+        return sCache;
+    }
+
+    /**
+     * Load a segment precompiled by {@link #writeCompiled(OutputStream)}, without parsing.
+     *
+     * @throws com.mozz.htmlnative.exception.HNFormatError if stream is not a precompiled segment
+     *                                                     or is written by another version.
+     */
+    @NonNull
+    public static HNSegment loadCompiled(@NonNull InputStream stream) throws IOException {
+        return SegmentReader.read(stream);
+    }
+
+    @NonNull
+    public static HNSegment loadCompiled(@NonNull byte[] compiled) throws IOException {
+        return SegmentReader.read(compiled);
+    }
+
+    /**
+     * Load a layout in assets, use the precompiled one if it exists and can be read, otherwise
+     * fall back to parse the source file.
+     */
+    @NonNull
+    public static HNSegment loadAsset(@NonNull AssetManager assets, @NonNull String fileName)
+            throws HNSyntaxError, IOException {
+        InputStream compiled = null;
+        try {
+            compiled = assets.open(fileName + COMPILED_SUFFIX);
+            return loadCompiled(compiled);
+        } catch (FileNotFoundException ignored) {
+            // not precompiled
+        } catch (HNFormatError e) {
+            HNLog.e(HNLog.PROCESS_THREAD, "skip precompiled " + fileName + ", " + e.getMessage());
+        } finally {
+            IOUtils.closeQuietly(compiled);
         }
+
+        return loadCached(assets.open(fileName));
+    }
+
+    public void writeCompiled(@NonNull OutputStream stream) throws IOException {
+        SegmentWriter.write(this, stream);
     }
 
+    /**
+     * Clear the segments cached in memory, the disk tier is kept.
+     */
     public static void clearCache() {
-        synchronized (sCacheLock) {
-            sCache.clear();
+        sCache.clear();
+    }
+
+
+    /**
+     * Bind to the screen in {@link ParametersUtils}, so that the &#64;media rules matching it
+     * take effect, see {@link StyleSheet#bindScreen(int, int, float)}. If the style sheet has
+     * &#64;media rules, each screen has its own {@link ResolvedStyles}, so renders holding the
+     * styles of another screen are not affected.
+     */
+    void bindScreen() {
+        bindScreen(ParametersUtils.getScreenWidth(), ParametersUtils.getScreenHeight(),
+                ParametersUtils.getScreenDensity());
+    }
+
+    synchronized void bindScreen(int width, int height, float density) {
+        if (width == mScreenWidth && height == mScreenHeight && density == mScreenDensity) {
+            return;
+        }
+
+        mStyleSheet.bindScreen(width, height, density);
+        if (mStyleSheet.hasMediaRules()) {
+            mResolvedStyles = resolvedFor(width, height, density);
+        }
+
+        mScreenWidth = width;
+        mScreenHeight = height;
+        mScreenDensity = density;
+    }
+
+    /**
+     * Resolve the styles of the whole dom before rendering, see {@link StyleResolver}. Only
+     * resolved once for a screen, as the segment may be cached and rendered again.
+     */
+    synchronized void resolveStyles() {
+        ResolvedStyles styles = ensureResolvedStyles();
+        if (styles.isComplete() || mDom == null) {
+            return;
+        }
+        new StyleResolver(mInlineStyles, mStyleSheet, styles).resolve(mDom);
+        styles.setComplete();
+    }
+
+    /**
+     * Resolve the styles of a subtree parsed, and its ancestors, while the rest of dom is still
+     * being parsed.
+     */
+    synchronized void resolveStyles(@NonNull HNDomTree subtree) {
+        ResolvedStyles styles = ensureResolvedStyles();
+        if (styles.isComplete()) {
+            return;
+        }
+        new StyleResolver(mInlineStyles, mStyleSheet, styles).resolve(subtree);
+    }
+
+    private ResolvedStyles ensureResolvedStyles() {
+        ResolvedStyles styles = mResolvedStyles;
+        if (styles == null) {
+            styles = new ResolvedStyles();
+            mResolvedStyles = styles;
+        }
+        return styles;
+    }
+
+    private ResolvedStyles resolvedFor(int width, int height, float density) {
+        for (ResolvedStyles styles : mResolvedByScreen) {
+            if (styles.isFor(width, height, density)) {
+                return styles;
+            }
         }
+
+        if (mResolvedByScreen.size() == MAX_SCREENS) {
+            mResolvedByScreen.remove(0);
+        }
+        ResolvedStyles styles = new ResolvedStyles(width, height, density);
+        mResolvedByScreen.add(styles);
+        return styles;
     }
 
+    /**
+     * Styles resolved by {@link #resolveStyles()}, which a render reads once when it starts and
+     * keeps to the end.
+     *
+     * @return null if not resolved for the screen bound
+     */
+    @Nullable
+    public ResolvedStyles getResolvedStyles() {
+        return mResolvedStyles;
+    }
 
     @Override
     public String toString() {
@@ -0,0 +1,358 @@
+package com.mozz.htmlnative;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import com.mozz.htmlnative.exception.HNSyntaxError;
+import com.mozz.htmlnative.parser.ParseCallback;
+import com.mozz.htmlnative.parser.Parser;
+import com.mozz.htmlnative.parser.SegmentReader;
+import com.mozz.htmlnative.parser.SegmentWriter;
+import com.mozz.htmlnative.reader.ByteBufferTextReader;
+import com.mozz.htmlnative.utils.IOUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cache of {@link HNSegment} keyed by the content hash of the source, so that pages which are
+ * opened again will not be parsed again.
+ * <p>
+ * Segments are kept in memory within a budget and evicted in LRU order by their estimated size,
+ * which is the size of their source, or of their precompiled form when read from disk. A miss
+ * in memory falls back to a disk tier of precompiled segments (see {@link SegmentWriter}), and
+ * parse only happens when both miss.
+ * Concurrent loads of the same source are coalesced into one parse.
+ *
+ * @author Yang Tao, 17/6/14.
+ */
+
+final class HNSegmentCache {
+
+    static final int DEFAULT_MEMORY_SIZE = 512 * 1024;
+    static final long DEFAULT_DISK_SIZE = 4 * 1024 * 1024;
+
+    private static final String DISK_SUFFIX = HNSegment.COMPILED_SUFFIX;
+
+    private final LruCache<String, Entry> mMemory;
+
+    private final Object mLock = new Object();
+
+    /**
+     * Loads in progress, guarded by mLock
+     */
+    private final Map<String, PendingLoad> mLoading = new HashMap<>();
+
+    @Nullable
+    private File mDiskDir;
+    private long mMaxDiskSize;
+
+    private final AtomicInteger mDiskHitCount = new AtomicInteger();
+    private final AtomicInteger mParseCount = new AtomicInteger();
+
+    HNSegmentCache(int maxMemorySize) {
+        mMemory = new LruCache<String, Entry>(maxMemorySize) {
+            @Override
+            protected int sizeOf(String key, Entry value) {
+                return value.size;
+            }
+        };
+    }
+
+    void setMemorySize(int maxMemorySize) {
+        mMemory.resize(maxMemorySize);
+    }
+
+    void setDiskCache(@Nullable File dir, long maxDiskSize) {
+        synchronized (mLock) {
+            mDiskDir = dir;
+            mMaxDiskSize = maxDiskSize;
+        }
+    }
+
+    @NonNull
+    HNSegment load(@NonNull InputStream stream) throws HNSyntaxError, IOException {
+        return load(readAll(stream), null);
+    }
+
+    @NonNull
+    HNSegment load(@NonNull byte[] source) throws HNSyntaxError, IOException {
+        return load(source, null);
+    }
+
+    /**
+     * @param callback receives the parts of segment only if this call parses the source, it is
+     *                 not called if the segment is found in cache or is parsed by another thread.
+     */
+    @NonNull
+    HNSegment load(@NonNull InputStream stream, @Nullable ParseCallback.SegmentCallback
+            callback) throws HNSyntaxError, IOException {
+        return load(readAll(stream), callback);
+    }
+
+    @NonNull
+    HNSegment load(@NonNull byte[] source, @Nullable ParseCallback.SegmentCallback callback)
+            throws HNSyntaxError, IOException {
+        String key = hash(source);
+
+        Entry entry = mMemory.get(key);
+        if (entry != null) {
+            return entry.segment;
+        }
+
+        PendingLoad pending;
+        boolean isOwner = false;
+        synchronized (mLock) {
+            pending = mLoading.get(key);
+            if (pending == null) {
+                // check again, the segment may have been put just before we got the lock
+                entry = mMemory.get(key);
+                if (entry != null) {
+                    return entry.segment;
+                }
+
+                pending = new PendingLoad();
+                mLoading.put(key, pending);
+                isOwner = true;
+            }
+        }
+
+        if (!isOwner) {
+            return pending.await();
+        }
+
+        try {
+            Entry loaded = loadFromDiskOrParse(key, source, callback);
+            mMemory.put(key, loaded);
+            pending.finish(loaded.segment, null);
+            return loaded.segment;
+        } catch (HNSyntaxError | IOException | RuntimeException e) {
+            pending.finish(null, e);
+            throw e;
+        } finally {
+            synchronized (mLock) {
+                mLoading.remove(key);
+            }
+        }
+    }
+
+    void clear() {
+        mMemory.evictAll();
+    }
+
+    int memoryHitCount() {
+        return mMemory.hitCount();
+    }
+
+    int diskHitCount() {
+        return mDiskHitCount.get();
+    }
+
+    int parseCount() {
+        return mParseCount.get();
+    }
+
+    int memorySize() {
+        return mMemory.size();
+    }
+
+    private Entry loadFromDiskOrParse(String key, byte[] source, @Nullable ParseCallback
+            .SegmentCallback callback) throws HNSyntaxError, IOException {
+        File file = diskFile(key);
+
+        if (file != null && file.exists()) {
+            InputStream in = null;
+            try {
+                in = new FileInputStream(file);
+                HNSegment segment = SegmentReader.read(in);
+                // mark as recently used for disk trimming
+                file.setLastModified(System.currentTimeMillis());
+                mDiskHitCount.incrementAndGet();
+                return new Entry(segment, (int) file.length());
+            } catch (IOException | RuntimeException e) {
+                // stale, truncated or unreadable, treat as a miss so that it is parsed and
+                // written again, instead of failing every load of this page.
+                HNLog.e(HNLog.PROCESS_THREAD, "drop cached segment " + file.getName() + ", " + e
+                        .getMessage());
+                file.delete();
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+        }
+
+        Parser parser = new Parser(new ByteBufferTextReader(source));
+        parser.setSegmentCallback(callback);
+        HNSegment segment = parser.process();
+        mParseCount.incrementAndGet();
+
+        if (file != null) {
+            try {
+                writeToDisk(file, SegmentWriter.write(segment));
+            } catch (IllegalArgumentException e) {
+                // the segment holds something the precompiled format can't keep, it is still
+                // fine to use, only not cached on disk.
+                HNLog.e(HNLog.PROCESS_THREAD, "can't write cached segment, " + e.getMessage());
+            }
+        }
+        return new Entry(segment, source.length);
+    }
+
+    @Nullable
+    private File diskFile(String key) {
+        synchronized (mLock) {
+            return mDiskDir == null ? null : new File(mDiskDir, key + DISK_SUFFIX);
+        }
+    }
+
+    private void writeToDisk(File file, byte[] compiled) {
+        File dir = file.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            return;
+        }
+
+        // write into a temp file first, so that a partly written segment is never read
+        File temp = new File(dir, file.getName() + ".tmp" + Thread.currentThread().getId());
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(temp);
+            out.write(compiled);
+            out.close();
+            out = null;
+            if (!temp.renameTo(file)) {
+                temp.delete();
+            }
+        } catch (IOException e) {
+            HNLog.e(HNLog.PROCESS_THREAD, "can't write cached segment, " + e.getMessage());
+            temp.delete();
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+
+        trimDisk(dir);
+    }
+
+    private void trimDisk(File dir) {
+        long maxSize;
+        synchronized (mLock) {
+            maxSize = mMaxDiskSize;
+        }
+
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long total = 0;
+        for (File f : files) {
+            total += f.length();
+        }
+
+        if (total <= maxSize) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                long l1 = o1.lastModified();
+                long l2 = o2.lastModified();
+                return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+            }
+        });
+
+        for (File f : files) {
+            if (total <= maxSize) {
+                break;
+            }
+            long length = f.length();
+            if (f.getName().endsWith(DISK_SUFFIX) && f.delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    private static byte[] readAll(InputStream stream) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    private static String hash(byte[] source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(source);
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        final HNSegment segment;
+        final int size;
+
+        Entry(HNSegment segment, int size) {
+            this.segment = segment;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Result of a load in progress, shared with the threads loading the same source.
+     */
+    private static final class PendingLoad {
+        private final CountDownLatch mDone = new CountDownLatch(1);
+        private HNSegment mSegment;
+        private Exception mError;
+
+        void finish(HNSegment segment, Exception error) {
+            mSegment = segment;
+            mError = error;
+            mDone.countDown();
+        }
+
+        HNSegment await() throws HNSyntaxError, IOException {
+            try {
+                mDone.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while waiting for segment");
+            }
+
+            if (mError instanceof HNSyntaxError) {
+                throw (HNSyntaxError) mError;
+            } else if (mError instanceof IOException) {
+                throw (IOException) mError;
+            } else if (mError instanceof RuntimeException) {
+                throw (RuntimeException) mError;
+            }
+            return mSegment;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.mozz.htmlnative;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.view.View;
 
 import com.mozz.htmlnative.stylehandler.StyleHandler;
@@ -13,6 +14,16 @@ public abstract class HNViewItem {
     @NonNull
     public abstract Class<? extends View> onGetViewClassName();
 
+    /**
+     * @return factory creating the view without reflection, or null to create it by the
+     * constructor taking a Context of {@link #onGetViewClassName()}, which is looked up once
+     * when registered
+     */
+    @Nullable
+    public ViewFactory<? extends View> getViewFactory() {
+        return null;
+    }
+
     public StyleHandler getHandler() {
         return null;
     }
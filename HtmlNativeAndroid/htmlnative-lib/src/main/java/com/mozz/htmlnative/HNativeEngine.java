@@ -1,9 +1,14 @@
 package com.mozz.htmlnative;
 
 import android.app.Activity;
+import android.app.Application;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.Intent;
+import android.content.res.AssetManager;
+import android.content.res.Configuration;
 import android.net.Uri;
+import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.view.View;
@@ -14,9 +19,15 @@ import com.mozz.htmlnative.stylehandler.StyleHandlerFactory;
 import com.mozz.htmlnative.dom.HNHead;
 import com.mozz.htmlnative.utils.ParametersUtils;
 import com.mozz.htmlnative.view.BackgroundViewDelegate;
+import com.mozz.htmlnative.view.HNRootView;
+import com.mozz.htmlnative.view.ViewPool;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.ref.WeakReference;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import static com.mozz.htmlnative.HNLog.STYLE;
 
@@ -30,6 +41,15 @@ public final class HNativeEngine {
         HNRenderer.registerViewFactory(WebView.class.getName(), DefaultWebViewFactory.sInstance);
     }
 
+    /**
+     * Priorities of loading, a queued page of higher priority is parsed before the lower ones.
+     */
+    public static final int PRIORITY_LOW = -1;
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_HIGH = 1;
+
+    private static final String SEGMENT_CACHE_DIR = "htmlnative_segments";
+
     private static ImageViewAdapter sImageViewAdapter = DefaultImageAdapter.sInstance;
     private static HrefLinkHandler sHrefLinkHandler = DefaultHrefLinkHandler.sInstance;
 
@@ -54,8 +74,122 @@ public final class HNativeEngine {
         return sInstance;
     }
 
+    private File mSegmentCacheDir;
+    private boolean mMemoryCallbackRegistered;
+
     public void init(@NonNull Context context) {
         initScreenMetrics(context);
+
+        if (StyleSheetCache.getLoader() == null) {
+            StyleSheetCache.setLoader(new AssetStyleSheetLoader(context.getApplicationContext()
+                    .getAssets()));
+        }
+
+        mSegmentCacheDir = new File(context.getCacheDir(), SEGMENT_CACHE_DIR);
+        HNSegment.cache().setDiskCache(mSegmentCacheDir, HNSegmentCache.DEFAULT_DISK_SIZE);
+
+        if (!mMemoryCallbackRegistered) {
+            mMemoryCallbackRegistered = true;
+            context.getApplicationContext().registerComponentCallbacks(new ComponentCallbacks2() {
+                @Override
+                public void onTrimMemory(int level) {
+                    ViewPool.trim(level);
+                }
+
+                @Override
+                public void onConfigurationChanged(Configuration newConfig) {
+                    // views created with the resources of old configuration
+                    ViewPool.clear();
+                }
+
+                @Override
+                public void onLowMemory() {
+                    ViewPool.clear();
+                }
+            });
+
+            Context app = context.getApplicationContext();
+            if (app instanceof Application) {
+                ((Application) app).registerActivityLifecycleCallbacks(new ViewPoolPurger());
+            }
+        }
+    }
+
+    /**
+     * Set how many views of each class are kept to be reused after
+     * {@link HNRootView#recycle()}, 0 by default, which disables reusing.
+     *
+     * @see ViewPool
+     */
+    public void setViewPoolSize(int maxPerClass) {
+        ViewPool.setMaxSize(maxPerClass);
+    }
+
+    /**
+     * Set the budget of segment cache. In memory, a segment is measured by the size of its
+     * source, or of its precompiled form if it is read from disk. On disk, only the precompiled
+     * form is kept.
+     *
+     * @param memorySize max size in bytes of segments kept in memory
+     * @param diskSize   max size in bytes of precompiled segments kept in disk, 0 to disable
+     *                   the disk tier
+     */
+    public void setSegmentCacheSize(int memorySize, long diskSize) {
+        HNSegment.cache().setMemorySize(memorySize);
+        HNSegment.cache().setDiskCache(diskSize > 0 ? mSegmentCacheDir : null, diskSize);
+    }
+
+    /**
+     * Set the executor which parses pages. By default pages are parsed on a pool of as many
+     * threads as available cores. Call it before loading any view.
+     *
+     * @see HNInternalThread#setExecutor(Executor)
+     */
+    public void setExecutor(@NonNull Executor executor) {
+        HNInternalThread.setExecutor(executor);
+    }
+
+    /**
+     * Whether views are delivered to {@link OnHNViewLoaded} in the order they are loaded, false
+     * by default, so each view is delivered as soon as it is ready, and a page of high priority
+     * is not kept waiting by those loaded before it.
+     */
+    public void setOrderedDelivery(boolean ordered) {
+        HNProcessThread.setOrderedDelivery(ordered);
+    }
+
+    /**
+     * Whether views are created and styled on a background thread before they are attached,
+     * false by default. If true, main thread only attaches the views, makes the calls which
+     * must be made there, e.g. {@link ImageViewAdapter#setImage}, and runs the script. Views
+     * created by {@link ViewFactory} registered must be fine to be created off main thread.
+     * Pages having WebView and those rendered progressively are still rendered on main thread.
+     */
+    public void setRenderDetached(boolean detached) {
+        HNProcessThread.setRenderDetached(detached);
+    }
+
+    /**
+     * If positive, pages are rendered on main thread in slices over successive frames, each
+     * taking about this time at most, rather than in one go, so that a long page doesn't hold
+     * main thread for one long frame. {@link OnHNViewLoaded#onViewLoaded(View)} is called with
+     * the top of the page rendered, and {@link OnHNViewRendered#onViewRendered(View)} once the
+     * rest is rendered and the script is run. 0 by default. Pages rendered detached or
+     * progressively are not sliced.
+     */
+    public void setRenderFrameBudget(long budgetMillis) {
+        HNProcessThread.setFrameBudget(TimeUnit.MILLISECONDS.toNanos(Math.max(0, budgetMillis)));
+    }
+
+    /**
+     * Whether consecutive inline text elements, i.e. plain text, &lt;span&gt;, &lt;a&gt; and
+     * &lt;b&gt;, are rendered as one TextView with spans, rather than a view each, false by
+     * default. Their color, font-size, font-weight, font-style and href become spans, elements
+     * having an id or other styles still get their own views. Elements merged can't be
+     * restyled by script one by one.
+     */
+    public void setMergeInlineText(boolean merge) {
+        HNRenderer.setMergeInlineText(merge);
     }
 
     public void debugAll() {
@@ -68,14 +202,54 @@ public final class HNativeEngine {
         ParametersUtils.init(context);
     }
 
-    public final void loadView(final Context context, final InputStream inputStream, final
+    /**
+     * @return handle to cancel the loading or change its priority
+     */
+    @NonNull
+    public final HNLoadHandle loadView(final Context context, final InputStream inputStream,
+                                       final OnHNViewLoaded onHNViewLoaded) {
+        return loadView(context, inputStream, onHNViewLoaded, PRIORITY_NORMAL);
+    }
+
+    /**
+     * @param priority {@link #PRIORITY_HIGH}, {@link #PRIORITY_NORMAL} or {@link #PRIORITY_LOW},
+     *                 e.g. low for pages which are prefetched and not shown yet
+     */
+    @NonNull
+    public final HNLoadHandle loadView(final Context context, final InputStream inputStream,
+                                       final OnHNViewLoaded onHNViewLoaded, int priority) {
+        return HNProcessThread.runRenderTask(new HNProcessThread.RenderTask(context, inputStream,
+                onHNViewLoaded).setPriority(priority));
+    }
+
+    /**
+     * Same as {@link #loadView(Context, InputStream, OnHNViewLoaded)}, but the page is rendered
+     * while it is being parsed: {@link OnHNViewLoaded#onViewLoaded(View)} is called as soon as
+     * the first element in body is rendered, and the rest are attached to that view later.
+     * Script of the page is run after all elements are attached.
+     */
+    @NonNull
+    public final HNLoadHandle loadViewProgressive(final Context context, final InputStream
+            inputStream, final OnHNViewLoaded onHNViewLoaded) {
+        return HNProcessThread.runRenderTask(new HNProcessThread.RenderTask(context, inputStream,
+                onHNViewLoaded, true));
+    }
+
+    /**
+     * Load a layout in assets. The segment precompiled at build time will be used if there is
+     * one, see {@link HNSegment#loadAsset(android.content.res.AssetManager, String)}.
+     */
+    @NonNull
+    public final HNLoadHandle loadAssetView(final Context context, final String fileName, final
     OnHNViewLoaded onHNViewLoaded) {
-        HNProcessThread.runRenderTask(new HNProcessThread.RenderTask(context, inputStream,
+        return HNProcessThread.runRenderTask(new HNProcessThread.RenderTask(context, fileName,
                 onHNViewLoaded));
     }
 
-    public void loadView(Context context, InputStream inputStream, final Activity activity) {
-        loadView(context, inputStream, new OnHNViewLoadedWeak<Activity>(activity) {
+    @NonNull
+    public HNLoadHandle loadView(Context context, InputStream inputStream, final Activity
+            activity) {
+        return loadView(context, inputStream, new OnHNViewLoadedWeak<Activity>(activity) {
             @Override
             public void onViewLoaded(@Nullable View v) {
                 Activity act = mWeakRef.get();
@@ -95,12 +269,16 @@ public final class HNativeEngine {
         });
     }
 
-    public void loadView(Context context, InputStream inputStream, final ViewGroup viewGroup) {
-        loadView(context, inputStream, new OnHNViewLoadedWeak<ViewGroup>(viewGroup) {
+    @NonNull
+    public HNLoadHandle loadView(Context context, InputStream inputStream, final ViewGroup
+            viewGroup) {
+        return loadView(context, inputStream, new OnHNViewLoadedWeak<ViewGroup>(viewGroup) {
             @Override
             public void onViewLoaded(View v) {
                 ViewGroup vv = mWeakRef.get();
-                vv.addView(v);
+                if (vv != null && v != null) {
+                    vv.addView(v);
+                }
             }
 
             @Override
@@ -133,9 +311,12 @@ public final class HNativeEngine {
 
     public void destroy() {
         HNSegment.clearCache();
+        StyleSheetCache.clear();
         HNInternalThread.quit();
         HNScriptRunnerThread.quit();
+        HNRenderThread.quit();
         StyleHandlerFactory.clear();
+        ViewPool.clear();
     }
 
     public void setImageViewAdapter(@NonNull ImageViewAdapter adapter) {
@@ -158,6 +339,14 @@ public final class HNativeEngine {
         return sHrefLinkHandler;
     }
 
+    /**
+     * Set where the css files of &lt;link&gt; are loaded from, files in assets by default. The
+     * StyleSheets loaded already are kept.
+     */
+    public void setStyleSheetLoader(@NonNull StyleSheetLoader loader) {
+        StyleSheetCache.setLoader(loader);
+    }
+
     public interface OnHNViewLoaded {
         void onViewLoaded(View v);
 
@@ -166,6 +355,16 @@ public final class HNativeEngine {
         void onHead(HNHead head);
     }
 
+    /**
+     * Implemented by {@link OnHNViewLoaded} which needs to know when the whole page is rendered
+     * and the script is run, as the view delivered to {@link OnHNViewLoaded#onViewLoaded(View)}
+     * may be rendered partly, see {@link #setRenderFrameBudget(long)} and
+     * {@link #loadViewProgressive(Context, InputStream, OnHNViewLoaded)}.
+     */
+    public interface OnHNViewRendered {
+        void onViewRendered(View v);
+    }
+
     private abstract class OnHNViewLoadedWeak<T> implements OnHNViewLoaded {
         protected WeakReference<T> mWeakRef;
 
@@ -218,6 +417,57 @@ public final class HNativeEngine {
         }
     }
 
+    private static final class AssetStyleSheetLoader implements StyleSheetLoader {
+
+        private final AssetManager mAssets;
+
+        AssetStyleSheetLoader(AssetManager assets) {
+            mAssets = assets;
+        }
+
+        @NonNull
+        @Override
+        public InputStream open(@NonNull String href) throws IOException {
+            return mAssets.open(href);
+        }
+    }
+
+    /**
+     * Drops the pooled views of an Activity once it is destroyed, which would otherwise be kept
+     * by the pool with the Activity they hold.
+     */
+    private static final class ViewPoolPurger implements Application.ActivityLifecycleCallbacks {
+
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+        }
+
+        @Override
+        public void onActivityResumed(Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+            ViewPool.clear(activity);
+        }
+    }
+
     /**
      * @author Yang Tao, 17/3/8.
      */
@@ -2,11 +2,9 @@ package com.mozz.htmlnative;
 
 import android.support.annotation.NonNull;
 
+import com.mozz.htmlnative.common.Symbols;
 import com.mozz.htmlnative.token.TokenType;
 
-import java.util.HashSet;
-import java.util.Set;
-
 /**
  * @author Yang Tao, 17/3/6.
  */
@@ -55,28 +53,32 @@ public final class HtmlTag {
      * If parser met with swallowInnerTag, the inner element of token will become the
      * attribute of the element instead of creating a new child tree.
      */
-    private static final Set<String> sSwallowInnerTag = new HashSet<>(7);
-
-    static {
-        sSwallowInnerTag.add(HtmlTag.A);
-        sSwallowInnerTag.add(HtmlTag.B);
-        sSwallowInnerTag.add(HtmlTag.H1);
-        sSwallowInnerTag.add(HtmlTag.H2);
-        sSwallowInnerTag.add(HtmlTag.H3);
-        sSwallowInnerTag.add(HtmlTag.H4);
-        sSwallowInnerTag.add(HtmlTag.H5);
-        sSwallowInnerTag.add(HtmlTag.H6);
-        sSwallowInnerTag.add(HtmlTag.INPUT);
-        sSwallowInnerTag.add(HtmlTag.P);
-        sSwallowInnerTag.add(HtmlTag.TEXT);
-        sSwallowInnerTag.add(HtmlTag.BUTTON);
-        sSwallowInnerTag.add(HtmlTag.SPAN);
+    public static boolean isSwallowInnerTag(@NonNull String type) {
+        return isSwallowInnerTag(Symbols.lookupIgnoreCase(type));
     }
 
-    ;
-
-    public static boolean isSwallowInnerTag(@NonNull String type) {
-        return sSwallowInnerTag.contains(type.toLowerCase());
+    /**
+     * @param type symbol id of tag, see {@link Symbols}
+     */
+    public static boolean isSwallowInnerTag(int type) {
+        switch (Symbols.lowerCase(type)) {
+            case Symbols.A:
+            case Symbols.B:
+            case Symbols.H1:
+            case Symbols.H2:
+            case Symbols.H3:
+            case Symbols.H4:
+            case Symbols.H5:
+            case Symbols.H6:
+            case Symbols.INPUT:
+            case Symbols.P:
+            case Symbols.TEXT:
+            case Symbols.BUTTON:
+            case Symbols.SPAN:
+                return true;
+            default:
+                return false;
+        }
     }
 
     /**
@@ -86,7 +88,15 @@ public final class HtmlTag {
      * @return true if type belongs to the grouping element.
      */
     public static boolean isGroupingElement(@NonNull String type) {
-        return type.equalsIgnoreCase(HtmlTag.DIV) || type.equalsIgnoreCase(HtmlTag.TEMPLATE);
+        return isGroupingElement(Symbols.lookupIgnoreCase(type));
+    }
+
+    /**
+     * @param type symbol id of tag, see {@link Symbols}
+     */
+    public static boolean isGroupingElement(int type) {
+        int lowerCase = Symbols.lowerCase(type);
+        return lowerCase == Symbols.DIV || lowerCase == Symbols.TEMPLATE;
     }
 
 }
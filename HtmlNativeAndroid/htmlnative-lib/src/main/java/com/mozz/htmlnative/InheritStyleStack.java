@@ -1,5 +1,6 @@
 package com.mozz.htmlnative;
 
+import com.mozz.htmlnative.common.Symbols;
 import com.mozz.htmlnative.css.Styles;
 
 import java.util.Arrays;
@@ -14,13 +15,13 @@ public final class InheritStyleStack implements Iterable<Styles.StyleEntry> {
     private int index = 0;
     private int[] cssCount;
     private Object[] values;
-    private String[] params;
+    private int[] params;
     private static final int MAX_DEPTH = 20;
 
     InheritStyleStack() {
         cssCount = new int[MAX_DEPTH];
         values = new Object[MAX_DEPTH * 4];
-        params = new String[MAX_DEPTH * 4];
+        params = new int[MAX_DEPTH * 4];
         reset();
     }
 
@@ -29,6 +30,13 @@ public final class InheritStyleStack implements Iterable<Styles.StyleEntry> {
     }
 
     public void newStyle(String param, Object value) {
+        newStyle(Symbols.intern(param), value);
+    }
+
+    /**
+     * @param param symbol id of style name, see {@link Symbols}
+     */
+    public void newStyle(int param, Object value) {
         values[index] = value;
         params[index] = param;
         index++;
@@ -45,7 +53,7 @@ public final class InheritStyleStack implements Iterable<Styles.StyleEntry> {
         level = -1;
         index = 0;
         Arrays.fill(values, null);
-        Arrays.fill(params, null);
+        Arrays.fill(params, Symbols.NONE);
     }
 
     public int size() {
@@ -56,7 +64,7 @@ public final class InheritStyleStack implements Iterable<Styles.StyleEntry> {
     public String toString() {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < index; i++) {
-            sb.append(params[i]).append("=").append(values[i]);
+            sb.append(Symbols.name(params[i])).append("=").append(values[i]);
             sb.append(",");
         }
 
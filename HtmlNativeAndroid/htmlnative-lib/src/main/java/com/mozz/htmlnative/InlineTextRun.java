@@ -0,0 +1,197 @@
+package com.mozz.htmlnative;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.support.annotation.NonNull;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.TextPaint;
+import android.text.style.AbsoluteSizeSpan;
+import android.text.style.ClickableSpan;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.RelativeSizeSpan;
+import android.text.style.StyleSpan;
+import android.text.style.UnderlineSpan;
+import android.util.TypedValue;
+import android.view.View;
+
+import com.mozz.htmlnative.common.PixelValue;
+import com.mozz.htmlnative.common.Symbols;
+import com.mozz.htmlnative.css.ComputedStyle;
+import com.mozz.htmlnative.css.ResolvedStyles;
+import com.mozz.htmlnative.dom.HNDomTree;
+import com.mozz.htmlnative.utils.ParametersUtils;
+
+import java.util.List;
+
+/**
+ * Consecutive inline text elements, which are plain text, &lt;span&gt;, &lt;a&gt; and
+ * &lt;b&gt;, rendered as one TextView with spans rather than a view each, see
+ * {@link HNRenderer#setMergeInlineText(boolean)}. An element is merged only if each of its own
+ * styles can be a span: color, font-size, font-weight, font-style, and href of &lt;a&gt;. Those
+ * with id are not merged, so that script can find their views.
+ *
+ * @author Yang Tao, 17/6/21.
+ */
+
+final class InlineTextRun {
+
+    /**
+     * A single element is rendered as before
+     */
+    static final int MIN_LENGTH = 2;
+
+    private InlineTextRun() {
+    }
+
+    /**
+     * @return index after the last element which can be merged from start, start if none
+     */
+    static int end(@NonNull List<HNDomTree> siblings, int start, @NonNull ResolvedStyles
+            styles) {
+        int end = start;
+        while (end < siblings.size() && canMerge(siblings.get(end), styles)) {
+            end++;
+        }
+        return end;
+    }
+
+    static boolean canMerge(@NonNull HNDomTree tree, @NonNull ResolvedStyles styles) {
+        int type = Symbols.lowerCase(tree.getTypeId());
+        if (type != Symbols.INNER && type != Symbols.SPAN && type != Symbols.A && type !=
+                Symbols.B) {
+            return false;
+        }
+
+        ComputedStyle style = styles.get(tree);
+        if (!tree.isLeaf() || tree.getId() != null || style == null) {
+            return false;
+        }
+
+        for (int i = 0; i < style.count(); i++) {
+            switch (style.getName(i)) {
+                // inner text of swallowing tags, see HtmlTag#isSwallowInnerTag
+                case Symbols.TEXT:
+                case Symbols.COLOR:
+                case Symbols.FONT_SIZE:
+                case Symbols.FONT_WEIGHT:
+                case Symbols.FONT_STYLE:
+                    break;
+                case Symbols.HREF:
+                    if (type != Symbols.A) {
+                        return false;
+                    }
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether there is a link in the text built
+     */
+    static boolean build(@NonNull Context context, @NonNull List<HNDomTree> run, @NonNull
+            ResolvedStyles styles, @NonNull SpannableStringBuilder out) {
+        boolean hasLink = false;
+        for (HNDomTree tree : run) {
+            String text = tree.getInner();
+            if (text == null || text.isEmpty()) {
+                continue;
+            }
+
+            int start = out.length();
+            out.append(text);
+            int end = out.length();
+
+            // null if not resolved, then the element is set none of its own styles
+            ComputedStyle style = styles.get(tree);
+
+            int type = Symbols.lowerCase(tree.getTypeId());
+            if (type == Symbols.B) {
+                setSpan(out, new StyleSpan(Typeface.BOLD), start, end);
+            } else if (type == Symbols.A) {
+                Object href = style == null ? null : style.getStyle(Symbols.HREF);
+                if (href != null) {
+                    setSpan(out, new HrefSpan(href.toString()), start, end);
+                    hasLink = true;
+                } else {
+                    setSpan(out, new UnderlineSpan(), start, end);
+                }
+            }
+
+            if (style == null) {
+                HNLog.e(HNLog.STYLE, "styles of " + tree.getType() + " not resolved");
+                continue;
+            }
+
+            for (int i = 0; i < style.count(); i++) {
+                try {
+                    Object span = toSpan(context, style.getName(i), style.getValue(i));
+                    if (span != null) {
+                        setSpan(out, span, start, end);
+                    }
+                } catch (IllegalArgumentException e) {
+                    HNLog.e(HNLog.STYLE, "wrong when apply \"" + Symbols.name(style.getName(i)) +
+                            ": " + style.getValue(i) + "\" to " + tree.getType());
+                }
+            }
+        }
+        return hasLink;
+    }
+
+    private static Object toSpan(Context context, int styleName, Object value) {
+        switch (styleName) {
+            case Symbols.COLOR:
+                return new ForegroundColorSpan(ParametersUtils.toColor(value));
+
+            case Symbols.FONT_SIZE:
+                PixelValue size = ParametersUtils.toPixel(value);
+                if (size.getUnit() == PixelValue.EM) {
+                    return new RelativeSizeSpan((float) size.getValue());
+                }
+                int unit = size.getUnit() == PixelValue.UNSET ? TypedValue.COMPLEX_UNIT_SP :
+                        size.getUnit();
+                return new AbsoluteSizeSpan((int) TypedValue.applyDimension(unit, (float) size
+                        .getValue(), context.getResources().getDisplayMetrics()));
+
+            case Symbols.FONT_WEIGHT:
+                return "bold".equals(value.toString()) ? new StyleSpan(Typeface.BOLD) : null;
+
+            case Symbols.FONT_STYLE:
+                return "italic".equals(value.toString()) ? new StyleSpan(Typeface.ITALIC) : null;
+
+            default:
+                return null;
+        }
+    }
+
+    private static void setSpan(SpannableStringBuilder out, Object span, int start, int end) {
+        out.setSpan(span, start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    }
+
+    /**
+     * Same as &lt;a&gt; rendered as a view, the link keeps the color of text and is underlined.
+     */
+    private static final class HrefSpan extends ClickableSpan {
+
+        private final String mUrl;
+
+        HrefSpan(String url) {
+            mUrl = url;
+        }
+
+        @Override
+        public void onClick(View widget) {
+            if (HNativeEngine.getHrefLinkHandler() != null) {
+                HNativeEngine.getHrefLinkHandler().onHref(mUrl, widget);
+            }
+        }
+
+        @Override
+        public void updateDrawState(TextPaint ds) {
+            ds.setUnderlineText(true);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.mozz.htmlnative;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Calls made while applying styles which must happen on main thread, such as
+ * {@link ImageViewAdapter#setImage(String, com.mozz.htmlnative.view.BackgroundViewDelegate)},
+ * as image loaders usually bind requests to the views there. When views are rendered detached
+ * on the render thread, see {@link HNRenderer#renderDetached(android.content.Context,
+ * HNSegment)}, these calls are held and made on main thread right after the views are attached.
+ * Otherwise they are made at once.
+ *
+ * @author Yang Tao, 17/6/21.
+ */
+
+public final class MainThreadCalls {
+
+    private static final ThreadLocal<List<Runnable>> sDeferred = new ThreadLocal<>();
+
+    private MainThreadCalls() {
+    }
+
+    /**
+     * Make the call now, or after the views being rendered on this thread are attached.
+     */
+    public static void run(@NonNull Runnable call) {
+        List<Runnable> deferred = sDeferred.get();
+        if (deferred != null) {
+            deferred.add(call);
+        } else {
+            call.run();
+        }
+    }
+
+    /**
+     * Hold the calls made on current thread since now, until {@link #endDeferring()}.
+     */
+    static void beginDeferring() {
+        sDeferred.set(new ArrayList<Runnable>());
+    }
+
+    /**
+     * @return calls held since {@link #beginDeferring()}, in the order they are made
+     */
+    @NonNull
+    static List<Runnable> endDeferring() {
+        List<Runnable> deferred = sDeferred.get();
+        sDeferred.remove();
+        return deferred != null ? deferred : new ArrayList<Runnable>(0);
+    }
+}
@@ -0,0 +1,132 @@
+package com.mozz.htmlnative;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Delivers results of RenderTasks, which run in parallel, to main thread. Each task posts
+ * through its own {@link Channel}, which posts at once by default, so a small page of high
+ * priority is not kept waiting by a large one submitted before it.
+ * <p>
+ * If ordered, see {@link #setOrdered(boolean)}, results are delivered in the order the tasks
+ * are submitted: what a task posts is held until all the tasks submitted before it are
+ * finished, and then run in the order posted.
+ *
+ * @author Yang Tao, 17/6/20.
+ */
+
+final class OrderedDelivery {
+
+    private final Executor mMainThread;
+
+    private final Object mLock = new Object();
+
+    /**
+     * Channels not finished, in order of {@link #open()}. The first one is delivering.
+     */
+    private final ArrayDeque<Channel> mChannels = new ArrayDeque<>();
+
+    private volatile boolean mOrdered = false;
+
+    OrderedDelivery(@NonNull Executor mainThread) {
+        mMainThread = mainThread;
+    }
+
+    void setOrdered(boolean ordered) {
+        mOrdered = ordered;
+    }
+
+    /**
+     * Must be called in the order that tasks are submitted, and the channel must be finished
+     * whatever happens to the task.
+     */
+    @NonNull
+    Channel open() {
+        Channel channel = new Channel(mOrdered);
+        if (channel.mOrdered) {
+            synchronized (mLock) {
+                mChannels.addLast(channel);
+            }
+        }
+        return channel;
+    }
+
+    final class Channel {
+
+        private final boolean mOrdered;
+
+        /**
+         * Posted before this channel becomes the first one, guarded by mLock
+         */
+        private List<Runnable> mPending;
+
+        private boolean mFinished;
+
+        private Channel(boolean ordered) {
+            mOrdered = ordered;
+        }
+
+        void post(@NonNull Runnable r) {
+            if (!mOrdered) {
+                mMainThread.execute(r);
+                return;
+            }
+
+            synchronized (mLock) {
+                if (mChannels.peekFirst() == this) {
+                    mMainThread.execute(r);
+                } else {
+                    if (mPending == null) {
+                        mPending = new ArrayList<>();
+                    }
+                    mPending.add(r);
+                }
+            }
+        }
+
+        /**
+         * Nothing will be posted any more. Must be called once the task is done, cancelled or
+         * failed, otherwise the tasks after it are never delivered.
+         */
+        void finish() {
+            if (!mOrdered) {
+                return;
+            }
+
+            synchronized (mLock) {
+                if (mFinished) {
+                    return;
+                }
+                mFinished = true;
+
+                if (mChannels.peekFirst() != this) {
+                    // delivered when the channels before it are finished
+                    return;
+                }
+
+                mChannels.pollFirst();
+                Channel next;
+                while ((next = mChannels.peekFirst()) != null) {
+                    next.flushLocked();
+                    if (!next.mFinished) {
+                        break;
+                    }
+                    mChannels.pollFirst();
+                }
+            }
+        }
+
+        private void flushLocked() {
+            if (mPending != null) {
+                for (Runnable r : mPending) {
+                    mMainThread.execute(r);
+                }
+                mPending = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,517 @@
+package com.mozz.htmlnative;
+
+import android.os.SystemClock;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.mozz.htmlnative.common.Symbols;
+import com.mozz.htmlnative.css.AttrsSet;
+import com.mozz.htmlnative.css.InheritStylesRegistry;
+import com.mozz.htmlnative.css.MatchedSelectors;
+import com.mozz.htmlnative.css.StyleSharingCache;
+import com.mozz.htmlnative.css.StyleSheet;
+import com.mozz.htmlnative.css.Styles;
+import com.mozz.htmlnative.css.selector.CssSelector;
+import com.mozz.htmlnative.dom.AttachedElement;
+import com.mozz.htmlnative.dom.DomElement;
+import com.mozz.htmlnative.exception.AttrApplyException;
+import com.mozz.htmlnative.stylehandler.LayoutStyleHandler;
+import com.mozz.htmlnative.stylehandler.StyleHandler;
+import com.mozz.htmlnative.stylehandler.StyleHandlerFactory;
+import com.mozz.htmlnative.utils.MainHandlerUtils;
+import com.mozz.htmlnative.view.LayoutParamsLazyCreator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Restyles the views rendered when script changes the class or the style of an element, without
+ * rendering the segment again.
+ * <p>
+ * Changes are queued by the script thread and applied together in one message on main thread,
+ * so that they are laid out and drawn in one frame. Only what may be affected is matched again:
+ * the element if some selector looks at the class changed on the element matched, and its
+ * descendants if some selector looks at it on an ancestor, see
+ * {@link StyleSheet#classInvalidation(int)}. Of the styles declared, only those changed are
+ * applied, and inherited ones changed are passed down to the descendants not declaring them.
+ *
+ * @author Yang Tao, 17/6/21.
+ */
+
+public final class Restyler {
+
+    static final int SET_CLASS = 0;
+    static final int ADD_CLASS = 1;
+    static final int REMOVE_CLASS = 2;
+    static final int SET_STYLE = 3;
+
+    private static final Restyler sInstance = new Restyler();
+
+    private final List<Change> mPending = new ArrayList<>();
+    private boolean mScheduled;
+
+    private final Runnable mFlush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * Used on main thread only
+     */
+    private final MatchedSelectors mMatched = new MatchedSelectors();
+    private final AttrsSet.Cursor mCursor = new AttrsSet.Cursor();
+
+    private Restyler() {
+    }
+
+    @NonNull
+    public static Restyler instance() {
+        return sInstance;
+    }
+
+    public void setClass(@NonNull View v, @NonNull HNSandBoxContext context, @NonNull String[]
+            clazz) {
+        post(new Change(v, context, SET_CLASS, clazz, null));
+    }
+
+    public void addClass(@NonNull View v, @NonNull HNSandBoxContext context, @NonNull String[]
+            clazz) {
+        post(new Change(v, context, ADD_CLASS, clazz, null));
+    }
+
+    public void removeClass(@NonNull View v, @NonNull HNSandBoxContext context, @NonNull
+            String[] clazz) {
+        post(new Change(v, context, REMOVE_CLASS, clazz, null));
+    }
+
+    /**
+     * @param styles applied after the inline styles and selectors of the element, and kept for
+     *               later restyles
+     */
+    public void setStyle(@NonNull View v, @NonNull HNSandBoxContext context, @NonNull
+            Map<String, Object> styles) {
+        post(new Change(v, context, SET_STYLE, null, styles));
+    }
+
+    private void post(Change change) {
+        synchronized (mPending) {
+            mPending.add(change);
+            if (!mScheduled) {
+                mScheduled = true;
+                MainHandlerUtils.instance().post(mFlush);
+            }
+        }
+    }
+
+    @MainThread
+    private void flush() {
+        Change[] changes;
+        synchronized (mPending) {
+            changes = mPending.toArray(new Change[mPending.size()]);
+            mPending.clear();
+            mScheduled = false;
+        }
+
+        long start = SystemClock.currentThreadTimeMillis();
+        int restyled = 0;
+        for (Change change : changes) {
+            restyled += restyle(change);
+        }
+
+        HNLog.d(HNLog.RENDER, changes.length + " changes restyled " + restyled + " views in " +
+                (SystemClock.currentThreadTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * @return count of views whose styles are applied
+     */
+    private int restyle(Change change) {
+        View v = change.mView;
+        if (!(v.getTag() instanceof AttachedElement)) {
+            HNLog.e(HNLog.RENDER, "can't restyle " + v + ", which is not rendered from html");
+            return 0;
+        }
+
+        AttachedElement element = (AttachedElement) v.getTag();
+        HNSegment segment = change.mContext.getSegment();
+        StyleSheet styleSheet = segment.getStyleSheet();
+        AttrsSet inlineStyles = segment.getInlineStyles();
+
+        String[] newClazz = null;
+        int flags;
+        if (change.mType == SET_STYLE) {
+            flags = StyleSheet.INVALIDATE_SELF;
+        } else {
+            newClazz = changeClass(element.getClazz(), change.mType, change.mClazz);
+            flags = invalidation(styleSheet, element.getClazzIds(), Symbols
+                    .internAllClasses(newClazz));
+        }
+
+        // styles declared before the change, of all which may be affected
+        List<Target> targets = new ArrayList<>();
+        if ((flags & StyleSheet.INVALIDATE_SELF) != 0) {
+            targets.add(new Target(v, element, declared(element, inlineStyles, styleSheet)));
+        }
+        if ((flags & StyleSheet.INVALIDATE_DESCENDANTS) != 0) {
+            collectDescendants(v, inlineStyles, styleSheet, targets);
+        }
+
+        if (newClazz != null) {
+            element.setClazz(newClazz);
+        } else {
+            element.putScriptStyles(change.mStyles);
+        }
+
+        for (Target target : targets) {
+            Declared now = declared(target.mElement, inlineStyles, styleSheet);
+            applyChanged(change.mContext, target, now, inlineStyles, styleSheet);
+        }
+        return targets.size();
+    }
+
+    private void collectDescendants(View v, AttrsSet inlineStyles, StyleSheet styleSheet,
+                                    List<Target> outTargets) {
+        if (!(v instanceof ViewGroup)) {
+            return;
+        }
+
+        ViewGroup group = (ViewGroup) v;
+        for (int i = 0, count = group.getChildCount(); i < count; i++) {
+            View child = group.getChildAt(i);
+            if (child.getTag() instanceof AttachedElement) {
+                AttachedElement element = (AttachedElement) child.getTag();
+                outTargets.add(new Target(child, element, declared(element, inlineStyles,
+                        styleSheet)));
+                collectDescendants(child, inlineStyles, styleSheet, outTargets);
+            }
+        }
+    }
+
+    /**
+     * Apply the styles changed. If some style is no longer declared, there is no telling what
+     * the view should go back to, so the view is reset by the default styles and gets all
+     * styles again.
+     */
+    private void applyChanged(HNSandBoxContext context, Target target, Declared now, AttrsSet
+            inlineStyles, StyleSheet styleSheet) {
+        Declared before = target.mDeclared;
+        View v = target.mView;
+        ViewGroup parent = v.getParent() instanceof ViewGroup ? (ViewGroup) v.getParent() : null;
+
+        boolean removed = false;
+        for (int i = 0; i < before.mCount; i++) {
+            if (now.indexOf(before.mNames[i]) < 0) {
+                removed = true;
+                break;
+            }
+        }
+
+        // inherited styles changed, to pass down
+        List<Integer> inherited = new ArrayList<>();
+
+        StyleHandler viewStyleHandler = StyleHandlerFactory.get(v);
+        StyleHandler extraStyleHandler = StyleHandlerFactory.extraGet(v);
+        LayoutStyleHandler parentAttr = StyleHandlerFactory.parentGet(v);
+
+        LayoutParamsLazyCreator creator;
+        if (removed) {
+            creator = new LayoutParamsLazyCreator();
+            if (parent != null && parent.getTag() instanceof DomElement) {
+                for (Styles.StyleEntry entry : HNRenderer.computeInheritStyle(parent)) {
+                    apply(context, v, target.mElement, creator, parent, viewStyleHandler,
+                            extraStyleHandler, parentAttr, entry.getStyleId(), entry.getStyle());
+                }
+            }
+
+            try {
+                Styles.applyDefaultStyle(v.getContext(), context, v, target.mElement, parent,
+                        viewStyleHandler, extraStyleHandler, parentAttr, creator);
+            } catch (AttrApplyException e) {
+                HNLog.e(HNLog.STYLE, "wrong when apply default style to " + target.mElement
+                        .getType());
+            }
+
+            for (int i = 0; i < now.mCount; i++) {
+                apply(context, v, target.mElement, creator, parent, viewStyleHandler,
+                        extraStyleHandler, parentAttr, now.mNames[i], now.mValues[i]);
+            }
+
+            for (int i = 0; i < before.mCount; i++) {
+                addInherited(before.mNames[i], before.mValues[i], now, inherited);
+            }
+            for (int i = 0; i < now.mCount; i++) {
+                addInherited(now.mNames[i], now.mValues[i], before, inherited);
+            }
+        } else {
+            creator = LayoutParamsLazyCreator.from(v.getLayoutParams());
+            for (int i = 0; i < now.mCount; i++) {
+                int name = now.mNames[i];
+                int index = before.indexOf(name);
+                if (index >= 0 && same(before.mValues[index], now.mValues[i])) {
+                    continue;
+                }
+
+                apply(context, v, target.mElement, creator, parent, viewStyleHandler,
+                        extraStyleHandler, parentAttr, name, now.mValues[i]);
+                if (InheritStylesRegistry.isInherit(name)) {
+                    inherited.add(name);
+                }
+            }
+        }
+
+        if (v.getLayoutParams() != null) {
+            LayoutParamsLazyCreator.createLayoutParams(creator, v.getLayoutParams());
+        }
+        v.requestLayout();
+
+        if (!inherited.isEmpty() && v instanceof ViewGroup) {
+            passDown(context, (ViewGroup) v, inherited, inlineStyles, styleSheet);
+        }
+    }
+
+    private static void addInherited(int name, Object value, Declared other, List<Integer>
+            outInherited) {
+        if (!InheritStylesRegistry.isInherit(name) || outInherited.contains(name)) {
+            return;
+        }
+        int index = other.indexOf(name);
+        if (index < 0 || !same(other.mValues[index], value)) {
+            outInherited.add(name);
+        }
+    }
+
+    /**
+     * Apply the inherited styles of group, which are changed, to its descendants down to those
+     * declaring the styles themselves.
+     */
+    private void passDown(HNSandBoxContext context, ViewGroup group, List<Integer> names,
+                          AttrsSet inlineStyles, StyleSheet styleSheet) {
+        List<Styles.StyleEntry> changed = new ArrayList<>();
+        for (Styles.StyleEntry entry : HNRenderer.computeInheritStyle(group)) {
+            if (names.contains(entry.getStyleId())) {
+                changed.add(entry);
+            }
+        }
+        if (!changed.isEmpty()) {
+            passDownEntries(context, group, changed, inlineStyles, styleSheet);
+        }
+    }
+
+    private void passDownEntries(HNSandBoxContext context, ViewGroup group, List<Styles
+            .StyleEntry> changed, AttrsSet inlineStyles, StyleSheet styleSheet) {
+        for (int i = 0, count = group.getChildCount(); i < count; i++) {
+            View child = group.getChildAt(i);
+            if (!(child.getTag() instanceof AttachedElement)) {
+                continue;
+            }
+
+            AttachedElement element = (AttachedElement) child.getTag();
+            Declared declared = declared(element, inlineStyles, styleSheet);
+            List<Styles.StyleEntry> notDeclared = new ArrayList<>(changed.size());
+            for (Styles.StyleEntry entry : changed) {
+                if (declared.indexOf(entry.getStyleId()) < 0) {
+                    notDeclared.add(entry);
+                }
+            }
+            if (notDeclared.isEmpty()) {
+                continue;
+            }
+
+            LayoutParamsLazyCreator creator = LayoutParamsLazyCreator.from(child
+                    .getLayoutParams());
+            StyleHandler viewStyleHandler = StyleHandlerFactory.get(child);
+            StyleHandler extraStyleHandler = StyleHandlerFactory.extraGet(child);
+            LayoutStyleHandler parentAttr = StyleHandlerFactory.parentGet(child);
+            for (Styles.StyleEntry entry : notDeclared) {
+                apply(context, child, element, creator, group, viewStyleHandler,
+                        extraStyleHandler, parentAttr, entry.getStyleId(), entry.getStyle());
+            }
+            child.requestLayout();
+
+            if (child instanceof ViewGroup) {
+                passDownEntries(context, (ViewGroup) child, notDeclared, inlineStyles,
+                        styleSheet);
+            }
+        }
+    }
+
+    private static void apply(HNSandBoxContext context, View v, DomElement element,
+                              LayoutParamsLazyCreator creator, ViewGroup parent, StyleHandler
+                                      viewStyleHandler, StyleHandler extraStyleHandler,
+                              LayoutStyleHandler parentAttr, int name, Object value) {
+        try {
+            Styles.applyStyle(v.getContext(), context, v, element, creator, parent,
+                    viewStyleHandler, extraStyleHandler, parentAttr, name, value, false, null);
+        } catch (AttrApplyException e) {
+            HNLog.e(HNLog.STYLE, "wrong when apply \"" + Symbols.name(name) + ": " + value +
+                    "\" to " + element.getType());
+        }
+    }
+
+    private static boolean same(Object a, Object b) {
+        return a == b || (a != null && a.equals(b));
+    }
+
+    /**
+     * What must be matched again if the classes of an element change from before to after.
+     *
+     * @return flags of {@link StyleSheet#classInvalidation(int)}
+     */
+    static int invalidation(@Nullable StyleSheet styleSheet, @Nullable int[] before, @Nullable
+            int[] after) {
+        if (styleSheet == null) {
+            return 0;
+        }
+
+        int flags = 0;
+        if (before != null) {
+            for (int c : before) {
+                if (!contains(after, c)) {
+                    flags |= styleSheet.classInvalidation(c);
+                }
+            }
+        }
+        if (after != null) {
+            for (int c : after) {
+                if (!contains(before, c)) {
+                    flags |= styleSheet.classInvalidation(c);
+                }
+            }
+        }
+        return flags;
+    }
+
+    private static boolean contains(int[] array, int value) {
+        if (array != null) {
+            for (int v : array) {
+                // a hashed class id may stand for another name, so it is taken as changed
+                if (v == value && !Symbols.isHashedClass(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @NonNull
+    static String[] changeClass(@Nullable String[] clazz, int type, @NonNull String[] changed) {
+        List<String> result = new ArrayList<>();
+        if (type != SET_CLASS && clazz != null) {
+            result.addAll(Arrays.asList(clazz));
+        }
+
+        for (String c : changed) {
+            if (c.isEmpty()) {
+                continue;
+            }
+            if (type == REMOVE_CLASS) {
+                result.remove(c);
+            } else if (!result.contains(c)) {
+                result.add(c);
+            }
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    /**
+     * Styles declared for element, in the order applied when it is rendered: inline styles,
+     * styles of the selectors matched, then those set by script. A style declared again is
+     * moved to the end.
+     */
+    @NonNull
+    Declared declared(@NonNull AttachedElement element, @NonNull AttrsSet inlineStyles,
+                      @Nullable StyleSheet styleSheet) {
+        Declared declared = new Declared();
+
+        if (element.getOwner() != null) {
+            declared.putAll(inlineStyles.cursor(element.getOwner(), mCursor));
+        }
+
+        if (styleSheet != null) {
+            for (CssSelector selector : StyleSharingCache.match(styleSheet, element, null,
+                    mMatched)) {
+                declared.putAll(styleSheet.cursor(selector, mCursor));
+            }
+        }
+
+        Map<String, Object> scriptStyles = element.getScriptStyles();
+        if (scriptStyles != null) {
+            for (Map.Entry<String, Object> entry : scriptStyles.entrySet()) {
+                declared.put(Symbols.intern(entry.getKey()), entry.getValue());
+            }
+        }
+        return declared;
+    }
+
+    static final class Declared {
+        int[] mNames = new int[8];
+        Object[] mValues = new Object[8];
+        int mCount;
+
+        void putAll(AttrsSet.Cursor cursor) {
+            while (cursor.moveToNext()) {
+                put(cursor.getStyleId(), cursor.getStyle());
+            }
+        }
+
+        void put(int name, Object value) {
+            int index = indexOf(name);
+            if (index >= 0) {
+                System.arraycopy(mNames, index + 1, mNames, index, mCount - index - 1);
+                System.arraycopy(mValues, index + 1, mValues, index, mCount - index - 1);
+                mCount--;
+            } else if (mCount == mNames.length) {
+                mNames = Arrays.copyOf(mNames, mCount << 1);
+                mValues = Arrays.copyOf(mValues, mCount << 1);
+            }
+            mNames[mCount] = name;
+            mValues[mCount] = value;
+            mCount++;
+        }
+
+        int indexOf(int name) {
+            for (int i = 0; i < mCount; i++) {
+                if (mNames[i] == name) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class Target {
+        final View mView;
+        final AttachedElement mElement;
+        final Declared mDeclared;
+
+        Target(View view, AttachedElement element, Declared declared) {
+            mView = view;
+            mElement = element;
+            mDeclared = declared;
+        }
+    }
+
+    private static final class Change {
+        final View mView;
+        final HNSandBoxContext mContext;
+        final int mType;
+        final String[] mClazz;
+        final Map<String, Object> mStyles;
+
+        Change(View view, HNSandBoxContext context, int type, String[] clazz, Map<String,
+                Object> styles) {
+            mView = view;
+            mContext = context;
+            mType = type;
+            mClazz = clazz;
+            mStyles = styles;
+        }
+    }
+}
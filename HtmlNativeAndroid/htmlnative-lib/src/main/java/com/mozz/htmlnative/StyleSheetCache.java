@@ -0,0 +1,100 @@
+package com.mozz.htmlnative;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mozz.htmlnative.css.StyleSheet;
+import com.mozz.htmlnative.exception.HNSyntaxError;
+import com.mozz.htmlnative.parser.CssParser;
+import com.mozz.htmlnative.reader.FileTextReader;
+import com.mozz.htmlnative.utils.IOUtils;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * StyleSheets of &lt;link&gt; shared by all pages, keyed by href. Each one is parsed once, by
+ * the first page linking it, and {@link StyleSheet#seal() sealed}, so pages link it without
+ * copying. Concurrent loads of the same href are coalesced into one parse.
+ *
+ * @author Yang Tao, 17/6/21.
+ */
+
+public final class StyleSheetCache {
+
+    private static final Map<String, Entry> sStyleSheets = new HashMap<>();
+
+    @Nullable
+    private static volatile StyleSheetLoader sLoader;
+
+    private StyleSheetCache() {
+    }
+
+    static void setLoader(@Nullable StyleSheetLoader loader) {
+        sLoader = loader;
+    }
+
+    @Nullable
+    static StyleSheetLoader getLoader() {
+        return sLoader;
+    }
+
+    /**
+     * @return StyleSheet sealed, which must not be changed
+     * @throws IOException   if the css file can't be opened by {@link StyleSheetLoader}
+     * @throws HNSyntaxError if the css file is wrong, it will be loaded again next time
+     */
+    @NonNull
+    public static StyleSheet get(@NonNull String href) throws IOException, HNSyntaxError {
+        Entry entry;
+        synchronized (sStyleSheets) {
+            entry = sStyleSheets.get(href);
+            if (entry == null) {
+                entry = new Entry();
+                sStyleSheets.put(href, entry);
+            }
+        }
+
+        synchronized (entry) {
+            if (entry.styleSheet == null) {
+                entry.styleSheet = load(href);
+            }
+            return entry.styleSheet;
+        }
+    }
+
+    private static StyleSheet load(String href) throws IOException, HNSyntaxError {
+        StyleSheetLoader loader = sLoader;
+        if (loader == null) {
+            throw new FileNotFoundException("no StyleSheetLoader to open " + href + ", call " +
+                    "HNativeEngine.init first");
+        }
+
+        long start = System.currentTimeMillis();
+        InputStream stream = loader.open(href);
+        try {
+            StyleSheet styleSheet = CssParser.parseStyleSheet(new FileTextReader(stream), href);
+            HNLog.d(HNLog.PROCESS_THREAD, "style sheet " + href + " loaded in " + (System
+                    .currentTimeMillis() - start) + "ms");
+            return styleSheet;
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    /**
+     * Pages cached keep linking the StyleSheets they have got.
+     */
+    public static void clear() {
+        synchronized (sStyleSheets) {
+            sStyleSheets.clear();
+        }
+    }
+
+    private static final class Entry {
+        StyleSheet styleSheet;
+    }
+}
@@ -0,0 +1,19 @@
+package com.mozz.htmlnative;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Opens the css file of &lt;link rel="stylesheet" href="..."&gt;, called on the thread parsing
+ * the page. By default href is a file in assets. You should set this via
+ * {@link HNativeEngine#setStyleSheetLoader(StyleSheetLoader)}
+ *
+ * @author Yang Tao, 17/6/21.
+ */
+
+public interface StyleSheetLoader {
+    @NonNull
+    InputStream open(@NonNull String href) throws IOException;
+}
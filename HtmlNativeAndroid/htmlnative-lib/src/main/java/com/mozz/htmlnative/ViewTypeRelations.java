@@ -1,8 +1,10 @@
 package com.mozz.htmlnative;
 
+import android.content.Context;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.util.ArrayMap;
+import android.util.SparseArray;
+import android.view.View;
 import android.webkit.WebView;
 import android.widget.AbsoluteLayout;
 import android.widget.Button;
@@ -12,11 +14,13 @@ import android.widget.ScrollView;
 import android.widget.TextView;
 
 import com.google.android.flexbox.FlexboxLayout;
+import com.mozz.htmlnative.common.Symbols;
 import com.mozz.htmlnative.stylehandler.StyleHandlerFactory;
 import com.mozz.htmlnative.view.HNText;
 import com.mozz.htmlnative.view.HNDiv;
 
-import java.util.Map;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 
 /**
  * @author Yang Tao, 17/3/3.
@@ -25,65 +29,163 @@ import java.util.Map;
 public final class ViewTypeRelations {
 
     /**
-     * Relate the tag and class.
+     * Relate the tag and class, keyed by symbol id of lower case tag, see {@link Symbols}.
      */
-    private static final Map<String, String> sReservedTagClassTable = new ArrayMap<>();
+    private static final SparseArray<String> sReservedTagClassTable = new SparseArray<>();
 
     /**
-     * For extra tag, lazy initialize later.
+     * Creates the views of reserved tags without reflection, keyed the same as
+     * sReservedTagClassTable.
      */
-    private static Map<String, HNViewItem> sExtraTagClassTable;
+    private static final SparseArray<ViewFactory> sReservedTagFactoryTable = new SparseArray<>();
+
+    /**
+     * For extra tag, lazy initialize later. Keyed by symbol id of tag. Read on main thread and
+     * render threads, so never changed once published, {@link #registerExtraView} publishes a
+     * new copy.
+     */
+    private static volatile SparseArray<HNViewItem> sExtraTagClassTable;
+
+    /**
+     * Factories of extra tags, keyed the same as sExtraTagClassTable and published the same way.
+     * Those registered without {@link HNViewItem#getViewFactory()} are created by
+     * {@link ConstructorFactory}.
+     */
+    private static volatile SparseArray<ViewFactory> sExtraTagFactoryTable;
+
+    private static final ViewFactory<AbsoluteLayout> BOX_FACTORY = new
+            ViewFactory<AbsoluteLayout>() {
+        @Override
+        public AbsoluteLayout create(Context context) {
+            return new AbsoluteLayout(context);
+        }
+    };
+
+    private static final ViewFactory<HNDiv> DIV_FACTORY = new ViewFactory<HNDiv>() {
+        @Override
+        public HNDiv create(Context context) {
+            return new HNDiv(context);
+        }
+    };
+
+    private static final ViewFactory<FlexboxLayout> FLEXBOX_FACTORY = new
+            ViewFactory<FlexboxLayout>() {
+        @Override
+        public FlexboxLayout create(Context context) {
+            return new FlexboxLayout(context);
+        }
+    };
+
+    private static final ViewFactory<HNText> TEXT_FACTORY = new ViewFactory<HNText>() {
+        @Override
+        public HNText create(Context context) {
+            return new HNText(context);
+        }
+    };
+
+    private static final ViewFactory<ImageView> IMAGE_FACTORY = new ViewFactory<ImageView>() {
+        @Override
+        public ImageView create(Context context) {
+            return new ImageView(context);
+        }
+    };
+
+    private static final ViewFactory<EditText> INPUT_FACTORY = new ViewFactory<EditText>() {
+        @Override
+        public EditText create(Context context) {
+            return new EditText(context);
+        }
+    };
+
+    private static final ViewFactory<Button> BUTTON_FACTORY = new ViewFactory<Button>() {
+        @Override
+        public Button create(Context context) {
+            return new Button(context);
+        }
+    };
+
+    private static final ViewFactory<ScrollView> SCROLLER_FACTORY = new ViewFactory<ScrollView>() {
+        @Override
+        public ScrollView create(Context context) {
+            return new ScrollView(context);
+        }
+    };
+
+    private static final ViewFactory<WebView> WEB_FACTORY = new ViewFactory<WebView>() {
+        @Override
+        public WebView create(Context context) {
+            return new WebView(context);
+        }
+    };
+
+    private static final ViewFactory<TextView> INNER_FACTORY = new ViewFactory<TextView>() {
+        @Override
+        public TextView create(Context context) {
+            return new TextView(context);
+        }
+    };
 
     static {
-        sReservedTagClassTable.put("box", AbsoluteLayout.class.getName());
-        sReservedTagClassTable.put("linearbox", HNDiv.class.getName());
-        sReservedTagClassTable.put("flexbox", FlexboxLayout.class.getName());
-
-        sReservedTagClassTable.put(HtmlTag.BODY, HNDiv.class.getName());
-        sReservedTagClassTable.put(HtmlTag.TEMPLATE, HNDiv.class.getName());
-
-        sReservedTagClassTable.put(HtmlTag.P, HNText.class.getName());
-        sReservedTagClassTable.put(HtmlTag.TEXT, HNText.class.getName());
-        sReservedTagClassTable.put(HtmlTag.IMG, ImageView.class.getName());
-        sReservedTagClassTable.put(HtmlTag.INPUT, EditText.class.getName());
-        sReservedTagClassTable.put(HtmlTag.BUTTON, Button.class.getName());
-        sReservedTagClassTable.put(HtmlTag.SCROLLER, ScrollView.class.getName());
-        sReservedTagClassTable.put(HtmlTag.IFRAME, WebView.class.getName());
-        sReservedTagClassTable.put(HtmlTag.WEB, WebView.class.getName());
-        sReservedTagClassTable.put(HtmlTag.A, HNText.class.getName());
-        sReservedTagClassTable.put(HtmlTag.SPAN, HNText.class.getName());
-        sReservedTagClassTable.put(HtmlTag.H1, HNText.class.getName());
-        sReservedTagClassTable.put(HtmlTag.H2, HNText.class.getName());
-        sReservedTagClassTable.put(HtmlTag.H3, HNText.class.getName());
-        sReservedTagClassTable.put(HtmlTag.H4, HNText.class.getName());
-        sReservedTagClassTable.put(HtmlTag.H5, HNText.class.getName());
-        sReservedTagClassTable.put(HtmlTag.H6, HNText.class.getName());
+        putReserved(Symbols.BOX, AbsoluteLayout.class, BOX_FACTORY);
+        putReserved(Symbols.LINEARBOX, HNDiv.class, DIV_FACTORY);
+        putReserved(Symbols.FLEXBOX, FlexboxLayout.class, FLEXBOX_FACTORY);
+
+        putReserved(Symbols.BODY, HNDiv.class, DIV_FACTORY);
+        putReserved(Symbols.TEMPLATE, HNDiv.class, DIV_FACTORY);
+
+        putReserved(Symbols.P, HNText.class, TEXT_FACTORY);
+        putReserved(Symbols.TEXT, HNText.class, TEXT_FACTORY);
+        putReserved(Symbols.IMG, ImageView.class, IMAGE_FACTORY);
+        putReserved(Symbols.INPUT, EditText.class, INPUT_FACTORY);
+        putReserved(Symbols.BUTTON, Button.class, BUTTON_FACTORY);
+        putReserved(Symbols.SCROLLER, ScrollView.class, SCROLLER_FACTORY);
+        putReserved(Symbols.IFRAME, WebView.class, WEB_FACTORY);
+        putReserved(Symbols.WEB, WebView.class, WEB_FACTORY);
+        putReserved(Symbols.A, HNText.class, TEXT_FACTORY);
+        putReserved(Symbols.SPAN, HNText.class, TEXT_FACTORY);
+        putReserved(Symbols.H1, HNText.class, TEXT_FACTORY);
+        putReserved(Symbols.H2, HNText.class, TEXT_FACTORY);
+        putReserved(Symbols.H3, HNText.class, TEXT_FACTORY);
+        putReserved(Symbols.H4, HNText.class, TEXT_FACTORY);
+        putReserved(Symbols.H5, HNText.class, TEXT_FACTORY);
+        putReserved(Symbols.H6, HNText.class, TEXT_FACTORY);
 
         // for inner element only
-        sReservedTagClassTable.put(HtmlTag.INNER_TREE_TAG, TextView.class.getName());
+        putReserved(Symbols.INNER, TextView.class, INNER_FACTORY);
+    }
+
+    private static void putReserved(int tag, Class<? extends View> clazz, ViewFactory factory) {
+        sReservedTagClassTable.put(tag, clazz.getName());
+        sReservedTagFactoryTable.put(tag, factory);
+    }
+
+    @Nullable
+    public static String findClassByType(@NonNull String type) {
+        return findClassByType(Symbols.intern(type));
     }
 
     /**
      * Looking for related class name via tag. ViewTypeRelations will first look in
-     * {@link ViewTypeRelations#sReservedTagClassTable}, if not found, will continuously look in
-     * {@link ViewTypeRelations#sExtraTagClassTable}
+     * {@link ViewTypeRelations#sReservedTagClassTable} ignoring case, if not found, will
+     * continuously look in {@link ViewTypeRelations#sExtraTagClassTable}
      *
-     * @param type tag name found in .layout file
+     * @param type symbol id of tag name found in .layout file
      * @return corresponding class name, or null if not found
      */
     @Nullable
-    public static String findClassByType(@NonNull String type) {
-        String viewClassName = sReservedTagClassTable.get(type.toLowerCase());
+    public static String findClassByType(int type) {
+        String viewClassName = sReservedTagClassTable.get(Symbols.lowerCase(type));
 
         if (viewClassName != null) {
             return viewClassName;
         }
 
-        if (sExtraTagClassTable == null) {
+        SparseArray<HNViewItem> extraTable = sExtraTagClassTable;
+        if (extraTable == null) {
             return null;
         }
 
-        HNViewItem HNViewItem = sExtraTagClassTable.get(type);
+        HNViewItem HNViewItem = extraTable.get(type);
         if (HNViewItem != null) {
             return HNViewItem.onGetViewClassName().getName();
         }
@@ -91,12 +193,91 @@ public final class ViewTypeRelations {
         return null;
     }
 
-    public static void registerExtraView(String tag, @NonNull HNViewItem HNViewItem) {
-        if (sExtraTagClassTable == null) {
-            sExtraTagClassTable = new ArrayMap<>();
+    /**
+     * Looking for the factory creating the view of tag, in the same order as
+     * {@link #findClassByType(int)}.
+     *
+     * @param type symbol id of tag name found in .layout file
+     * @return null if not found
+     */
+    @Nullable
+    public static ViewFactory findFactoryByType(int type) {
+        ViewFactory factory = sReservedTagFactoryTable.get(Symbols.lowerCase(type));
+
+        if (factory != null) {
+            return factory;
         }
 
-        sExtraTagClassTable.put(tag, HNViewItem);
+        SparseArray<ViewFactory> extraTable = sExtraTagFactoryTable;
+        if (extraTable == null) {
+            return null;
+        }
+
+        return extraTable.get(type);
+    }
+
+    /**
+     * @throws IllegalArgumentException if HNViewItem gives no factory, and its view has no
+     *                                  public constructor taking a Context
+     */
+    public static synchronized void registerExtraView(String tag, @NonNull HNViewItem
+            HNViewItem) {
+        ViewFactory factory = HNViewItem.getViewFactory();
+        if (factory == null) {
+            factory = new ConstructorFactory(HNViewItem.onGetViewClassName());
+        }
+
+        SparseArray<HNViewItem> classTable = sExtraTagClassTable == null ? new
+                SparseArray<HNViewItem>() : sExtraTagClassTable.clone();
+        SparseArray<ViewFactory> factoryTable = sExtraTagFactoryTable == null ? new
+                SparseArray<ViewFactory>() : sExtraTagFactoryTable.clone();
+
+        int type = Symbols.intern(tag);
+        classTable.put(type, HNViewItem);
+        factoryTable.put(type, factory);
+
+        // factory first, so a tag found is always created by its factory
+        sExtraTagFactoryTable = factoryTable;
+        sExtraTagClassTable = classTable;
+
         StyleHandlerFactory.registerExtraAttrHandler(HNViewItem.getViewClass(), HNViewItem.getHandler());
     }
+
+    /**
+     * Creates the view of an extra tag by its constructor taking a Context, which is looked up
+     * once when the tag is registered.
+     */
+    static final class ConstructorFactory implements ViewFactory<View> {
+
+        private final Constructor<? extends View> mConstructor;
+
+        ConstructorFactory(@NonNull Class<? extends View> clazz) {
+            try {
+                mConstructor = clazz.getConstructor(Context.class);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException("class's constructor is missing " + clazz
+                        .getName(), e);
+            }
+        }
+
+        /**
+         * Same as {@link #create(Context)}, but failures are thrown as they are, so that the
+         * renderer can report them.
+         */
+        View newInstance(Context context) throws IllegalAccessException, InstantiationException,
+                InvocationTargetException {
+            return mConstructor.newInstance(context);
+        }
+
+        @Override
+        public View create(Context context) {
+            try {
+                return newInstance(context);
+            } catch (IllegalAccessException | InstantiationException |
+                    InvocationTargetException e) {
+                throw new IllegalStateException("can not create " + mConstructor
+                        .getDeclaringClass().getName(), e);
+            }
+        }
+    }
 }
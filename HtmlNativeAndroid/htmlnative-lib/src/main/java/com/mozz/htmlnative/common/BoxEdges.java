@@ -0,0 +1,89 @@
+package com.mozz.htmlnative.common;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Four edges of margin or padding, expanded from the shorthand such as 'margin: 1px 2px'.
+ *
+ * @author Yang Tao, 17/6/20.
+ */
+
+public final class BoxEdges {
+
+    private final PixelValue mTop;
+    private final PixelValue mRight;
+    private final PixelValue mBottom;
+    private final PixelValue mLeft;
+
+    public BoxEdges(@NonNull PixelValue top, @NonNull PixelValue right, @NonNull PixelValue
+            bottom, @NonNull PixelValue left) {
+        mTop = top;
+        mRight = right;
+        mBottom = bottom;
+        mLeft = left;
+    }
+
+    /**
+     * @param values one value for all edges, two for top and bottom then left and right, or
+     *               four for top, right, bottom and left
+     * @return null if count of values is none of above
+     */
+    @Nullable
+    public static BoxEdges expand(@NonNull PixelValue[] values) {
+        switch (values.length) {
+            case 1:
+                return new BoxEdges(values[0], values[0], values[0], values[0]);
+            case 2:
+                return new BoxEdges(values[0], values[1], values[0], values[1]);
+            case 4:
+                return new BoxEdges(values[0], values[1], values[2], values[3]);
+            default:
+                return null;
+        }
+    }
+
+    @NonNull
+    public PixelValue getTop() {
+        return mTop;
+    }
+
+    @NonNull
+    public PixelValue getRight() {
+        return mRight;
+    }
+
+    @NonNull
+    public PixelValue getBottom() {
+        return mBottom;
+    }
+
+    @NonNull
+    public PixelValue getLeft() {
+        return mLeft;
+    }
+
+    @Override
+    public String toString() {
+        return mTop + ", " + mRight + ", " + mBottom + ", " + mLeft;
+    }
+
+    /**
+     * Write the four edges, used by precompiled segment.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        mTop.writeTo(out);
+        mRight.writeTo(out);
+        mBottom.writeTo(out);
+        mLeft.writeTo(out);
+    }
+
+    public static BoxEdges readFrom(DataInput in) throws IOException {
+        return new BoxEdges(PixelValue.readFrom(in), PixelValue.readFrom(in), PixelValue
+                .readFrom(in), PixelValue.readFrom(in));
+    }
+}
@@ -0,0 +1,94 @@
+package com.mozz.htmlnative.common;
+
+import android.support.annotation.NonNull;
+
+/**
+ * A CharSequence view over part of a char array, which is owned and reused by someone else.
+ * The content changes when the array is reused, so a String must be made by {@link #toString()}
+ * if it needs to be kept.
+ *
+ * @author Yang Tao, 17/6/18.
+ */
+
+public final class CharSlice implements CharSequence {
+
+    private char[] mChars;
+    private int mStart;
+    private int mLength;
+
+    public void set(char[] chars, int start, int length) {
+        mChars = chars;
+        mStart = start;
+        mLength = length;
+    }
+
+    public void clear() {
+        mChars = null;
+        mStart = 0;
+        mLength = 0;
+    }
+
+    @Override
+    public int length() {
+        return mLength;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= mLength) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + mLength);
+        }
+        return mChars[mStart + index];
+    }
+
+    @NonNull
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > mLength || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " +
+                    "" + mLength);
+        }
+        return new String(mChars, mStart + start, end - start);
+    }
+
+    public boolean contentEquals(@NonNull String str) {
+        if (str.length() != mLength) {
+            return false;
+        }
+
+        for (int i = 0; i < mLength; i++) {
+            if (mChars[mStart + i] != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@link String#equalsIgnoreCase(String)} for ASCII letters.
+     */
+    public boolean contentEqualsIgnoreCase(@NonNull String str) {
+        if (str.length() != mLength) {
+            return false;
+        }
+
+        for (int i = 0; i < mLength; i++) {
+            char c1 = mChars[mStart + i];
+            char c2 = str.charAt(i);
+            if (c1 != c2 && toLowerCase(c1) != toLowerCase(c2)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char toLowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return mLength == 0 ? "" : new String(mChars, mStart, mLength);
+    }
+}
@@ -5,11 +5,17 @@ import android.util.TypedValue;
 
 import com.mozz.htmlnative.utils.ParametersUtils;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 
 /**
  * @author Yang Tao, 17/3/30.
+ *         <p>
+ *         Immutable, so that the one parsed from a string is shared, see
+ *         {@link ParametersUtils#toPixel(Object)}.
  */
 
 public class PixelValue {
@@ -24,8 +30,15 @@ public class PixelValue {
     public @interface PixelUnit {
     }
 
-    private double value;
-    private int unit = UNSET;
+    private final double value;
+    private final int unit;
+
+    /**
+     * {@link #getPxValue()} of dp, computed with the screen density of
+     * {@link ParametersUtils#densityGeneration()} in the high 32 bits, and the float bits of
+     * pixels in the low 32 bits, so that it is read and written at once by any thread.
+     */
+    private volatile long mDensityPx = -1L << 32;
 
 
     public PixelValue(int value, @PixelUnit int unit) {
@@ -48,6 +61,11 @@ public class PixelValue {
         }
     }
 
+    private PixelValue(double value, @PixelUnit int unit) {
+        this.value = value;
+        this.unit = unit;
+    }
+
     public double getValue() {
         return value;
     }
@@ -83,9 +101,33 @@ public class PixelValue {
             case TypedValue.COMPLEX_UNIT_PX:
                 return this.value;
             case TypedValue.COMPLEX_UNIT_DIP:
-                return ParametersUtils.pxToDp((float) this.value);
+                return densityPx();
             default:
                 return value;
         }
     }
+
+    private float densityPx() {
+        long densityPx = mDensityPx;
+        int generation = ParametersUtils.densityGeneration();
+        if ((int) (densityPx >>> 32) == generation) {
+            return Float.intBitsToFloat((int) densityPx);
+        }
+
+        float px = ParametersUtils.pxToDp((float) this.value);
+        mDensityPx = ((long) generation << 32) | (Float.floatToIntBits(px) & 0xFFFFFFFFL);
+        return px;
+    }
+
+    /**
+     * Write value and unit, used by precompiled segment.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeDouble(value);
+        out.writeInt(unit);
+    }
+
+    public static PixelValue readFrom(DataInput in) throws IOException {
+        return new PixelValue(in.readDouble(), in.readInt());
+    }
 }
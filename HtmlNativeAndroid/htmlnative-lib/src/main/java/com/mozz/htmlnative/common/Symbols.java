@@ -0,0 +1,426 @@
+package com.mozz.htmlnative.common;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Symbol table shared by all parsers and renderers. Each name (tag, attribute, css property,
+ * class) gets a small int id, so that DOM, {@link com.mozz.htmlnative.css.AttrsSet},
+ * {@link com.mozz.htmlnative.css.StyleSheet} and StyleHandlers compare and switch on ints
+ * instead of hashing Strings.
+ * <p>
+ * Known tags and properties have constant ids below. Other names are added by
+ * {@link #intern(CharSequence)} when the parser meets them, and are never removed. Only names
+ * are interned, never values.
+ * <p>
+ * Class names are invented by every page, so they are interned by
+ * {@link #internClass(CharSequence)}, which adds at most {@link #MAX_CLASSES} of them. Once
+ * that is reached, a new class name gets a hashed id instead, which is the same for the same
+ * name but may be shared by other names, see {@link #isHashedClass(int)}.
+ * <p>
+ * Ids are case sensitive, the same as the Strings they replace. {@link #lowerCase(int)} gives
+ * the id of the lower case name, for lookups that ignore case, such as tags.
+ * <p>
+ * Lookup is lock free, intern takes a lock only when the name is new.
+ *
+ * @author Yang Tao, 17/6/19.
+ */
+
+public final class Symbols {
+
+    private Symbols() {
+    }
+
+    public static final int NONE = -1;
+
+    // tags
+    public static final int INNER = 0;
+    public static final int A = 1;
+    public static final int P = 2;
+    public static final int H1 = 3;
+    public static final int H2 = 4;
+    public static final int H3 = 5;
+    public static final int H4 = 6;
+    public static final int H5 = 7;
+    public static final int H6 = 8;
+    public static final int B = 9;
+    public static final int INPUT = 10;
+    public static final int IMG = 11;
+    public static final int DIV = 12;
+    public static final int BUTTON = 13;
+    public static final int SCROLLER = 14;
+    public static final int IFRAME = 15;
+    public static final int WEB = 16;
+    public static final int BR = 17;
+    public static final int SPAN = 18;
+    public static final int BODY = 19;
+    public static final int TEMPLATE = 20;
+    public static final int TEXT = 21;
+    public static final int HEAD = 22;
+    public static final int META = 23;
+    public static final int LINK = 24;
+    public static final int HTML = 25;
+    public static final int SCRIPT = 26;
+    public static final int TITLE = 27;
+    public static final int STYLE = 28;
+    public static final int BOX = 29;
+    public static final int LINEARBOX = 30;
+    public static final int FLEXBOX = 31;
+
+    // attributes and css properties
+    public static final int ID = 32;
+    public static final int CLASS = 33;
+    public static final int ORDER = 34;
+    public static final int SRC = 35;
+    public static final int HREF = 36;
+    public static final int WIDTH = 37;
+    public static final int HEIGHT = 38;
+    public static final int BACKGROUND = 39;
+    public static final int PADDING = 40;
+    public static final int PADDING_LEFT = 41;
+    public static final int PADDING_RIGHT = 42;
+    public static final int PADDING_TOP = 43;
+    public static final int PADDING_BOTTOM = 44;
+    public static final int MARGIN = 45;
+    public static final int MARGIN_LEFT = 46;
+    public static final int MARGIN_RIGHT = 47;
+    public static final int MARGIN_TOP = 48;
+    public static final int MARGIN_BOTTOM = 49;
+    public static final int LEFT = 50;
+    public static final int TOP = 51;
+    public static final int ALPHA = 52;
+    public static final int ONCLICK = 53;
+    public static final int VISIBILITY = 54;
+    public static final int DISPLAY = 55;
+    public static final int DIRECTION = 56;
+    public static final int HN_BACKGROUND = 57;
+    public static final int FONT_SIZE = 58;
+    public static final int COLOR = 59;
+    public static final int LINE_HEIGHT = 60;
+    public static final int FONT_STYLE = 61;
+    public static final int FONT_WEIGHT = 62;
+    public static final int TEXT_ALIGN = 63;
+    public static final int WORD_SPACING = 64;
+    public static final int TEXT_OVERFLOW = 65;
+    public static final int TEXT_TRANSFORM = 66;
+    public static final int FLEX_DIRECTION = 67;
+    public static final int FLEX_WRAP = 68;
+    public static final int JUSTIFY_CONTENT = 69;
+
+    private static final String[] PREDEFINED = {"inner", "a", "p", "h1", "h2", "h3", "h4",
+            "h5", "h6", "b", "input", "img", "div", "button", "scroller", "iframe", "web", "br",
+            "span", "body", "template", "text", "head", "meta", "link", "html", "script",
+            "title", "style", "box", "linearbox", "flexbox", "id", "class", "order", "src",
+            "href", "width", "height", "background", "padding", "padding-left",
+            "padding-right", "padding-top", "padding-bottom", "margin", "margin-left",
+            "margin-right", "margin-top", "margin-bottom", "left", "top", "alpha", "onclick",
+            "visibility", "display", "direction", "-hn-background", "font-size", "color",
+            "line-height", "font-style", "font-weight", "text-align", "word-spacing",
+            "text-overflow", "text-transform", "flex-direction", "flex-wrap",
+            "justify-content"};
+
+    /**
+     * Most class names added to the table, see {@link #internClass(CharSequence)}
+     */
+    public static final int MAX_CLASSES = 4096;
+
+    private static final int HASHED_CLASS_BASE = 1 << 24;
+    private static final int HASHED_CLASS_MASK = HASHED_CLASS_BASE - 1;
+
+    private static final Object sLock = new Object();
+
+    /**
+     * Class names added to the table, guarded by sLock
+     */
+    private static int sClassCount;
+
+    /**
+     * Count of the table when {@link #MAX_CLASSES} was reached. Names added after it, by
+     * {@link #intern(CharSequence)}, are still hashed ids as classes, the same as before they
+     * were added.
+     */
+    private static volatile int sClassCutoff = Integer.MAX_VALUE;
+
+    /**
+     * Replaced as a whole when it grows, see {@link Table}
+     */
+    private static volatile Table sTable = new Table(256);
+
+    static {
+        for (String name : PREDEFINED) {
+            intern(name);
+        }
+    }
+
+    /**
+     * Names and lower case ids are written before the id is published to slots, and slots are
+     * read and written atomically, so a reader which finds an id sees its name.
+     */
+    private static final class Table {
+        final String[] names;
+        final int[] lowerIds;
+        /**
+         * Open addressing by {@link #hashIgnoreCase(CharSequence)}, holding id + 1, 0 if empty.
+         * All the case variants of a name are in one probe sequence.
+         */
+        final AtomicIntegerArray slots;
+        final int mask;
+        int count;
+
+        Table(int capacity) {
+            names = new String[capacity >> 1];
+            lowerIds = new int[capacity >> 1];
+            slots = new AtomicIntegerArray(capacity);
+            mask = capacity - 1;
+        }
+    }
+
+    /**
+     * @return id of name, or {@link #NONE} if it has not been interned.
+     */
+    public static int lookup(@Nullable CharSequence name) {
+        return name == null ? NONE : find(sTable, name, false);
+    }
+
+    /**
+     * @return id of the lower case form of name, or {@link #NONE} if it has not been interned.
+     */
+    public static int lookupIgnoreCase(@Nullable CharSequence name) {
+        return name == null ? NONE : find(sTable, name, true);
+    }
+
+    /**
+     * @return id of name, which is added if not present. {@link #NONE} if name is null.
+     */
+    public static int intern(@Nullable CharSequence name) {
+        if (name == null) {
+            return NONE;
+        }
+
+        int id = find(sTable, name, false);
+        if (id != NONE) {
+            return id;
+        }
+
+        synchronized (sLock) {
+            return internLocked(name.toString());
+        }
+    }
+
+    /**
+     * Same as {@link #intern(CharSequence)} for a class name, but once {@link #MAX_CLASSES} have
+     * been added, a new one gets a hashed id, see {@link #isHashedClass(int)}.
+     */
+    public static int internClass(@Nullable CharSequence name) {
+        if (name == null) {
+            return NONE;
+        }
+
+        int id = find(sTable, name, false);
+        int cutoff = sClassCutoff;
+        if (id != NONE && id < cutoff) {
+            return id;
+        }
+
+        if (id == NONE && cutoff == Integer.MAX_VALUE) {
+            synchronized (sLock) {
+                id = find(sTable, name, false);
+                cutoff = sClassCutoff;
+                if (id != NONE) {
+                    if (id < cutoff) {
+                        return id;
+                    }
+                } else if (cutoff == Integer.MAX_VALUE) {
+                    if (sClassCount < MAX_CLASSES) {
+                        sClassCount++;
+                        return internLocked(name.toString());
+                    }
+                    sClassCutoff = sTable.count;
+                }
+            }
+        }
+        return hashedClass(name);
+    }
+
+    /**
+     * Same as {@link #lookup(CharSequence)} for a class name.
+     */
+    public static int lookupClass(@Nullable CharSequence name) {
+        if (name == null) {
+            return NONE;
+        }
+
+        int cutoff = sClassCutoff;
+        int id = find(sTable, name, false);
+        if (id != NONE && id < cutoff) {
+            return id;
+        }
+        return cutoff == Integer.MAX_VALUE ? NONE : hashedClass(name);
+    }
+
+    @Nullable
+    public static int[] internAllClasses(@Nullable String[] names) {
+        if (names == null) {
+            return null;
+        }
+        int[] ids = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            ids[i] = internClass(names[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * Whether id is a hashed class id, which is not in the table and may be shared by several
+     * class names, so the names must be compared when it matches.
+     */
+    public static boolean isHashedClass(int id) {
+        return id >= HASHED_CLASS_BASE;
+    }
+
+    /**
+     * @return the name of id, or null if id is {@link #NONE} or a hashed class id
+     */
+    @Nullable
+    public static String name(int id) {
+        return id == NONE || isHashedClass(id) ? null : sTable.names[id];
+    }
+
+    public static int lowerCase(int id) {
+        return id == NONE || isHashedClass(id) ? id : sTable.lowerIds[id];
+    }
+
+    @Nullable
+    public static int[] internAll(@Nullable String[] names) {
+        if (names == null) {
+            return null;
+        }
+        int[] ids = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            ids[i] = intern(names[i]);
+        }
+        return ids;
+    }
+
+    private static int internLocked(@NonNull String name) {
+        Table table = sTable;
+        int id = find(table, name, false);
+        if (id != NONE) {
+            return id;
+        }
+
+        String lower = toLowerCase(name);
+        int lowerId = lower == name ? NONE : internLocked(lower);
+
+        // the table may have been replaced by interning lower
+        table = sTable;
+        if (table.count == table.names.length) {
+            table = grow(table);
+        }
+
+        id = table.count++;
+        table.names[id] = name;
+        table.lowerIds[id] = lowerId == NONE ? id : lowerId;
+        insertSlot(table, hashIgnoreCase(name), id);
+        return id;
+    }
+
+    private static Table grow(Table old) {
+        Table table = new Table((old.mask + 1) << 1);
+        System.arraycopy(old.names, 0, table.names, 0, old.count);
+        System.arraycopy(old.lowerIds, 0, table.lowerIds, 0, old.count);
+        table.count = old.count;
+        for (int i = 0; i < old.count; i++) {
+            insertSlot(table, hashIgnoreCase(old.names[i]), i);
+        }
+        sTable = table;
+        return table;
+    }
+
+    private static void insertSlot(Table table, int hash, int id) {
+        int index = hash & table.mask;
+        while (table.slots.get(index) != 0) {
+            index = (index + 1) & table.mask;
+        }
+        table.slots.set(index, id + 1);
+    }
+
+    private static int find(Table table, CharSequence name, boolean ignoreCase) {
+        int index = hashIgnoreCase(name) & table.mask;
+        while (true) {
+            int slot = table.slots.get(index);
+            if (slot == 0) {
+                return NONE;
+            }
+
+            int id = slot - 1;
+            if (ignoreCase) {
+                if (table.lowerIds[id] == id && equals(table.names[id], name, true)) {
+                    return id;
+                }
+            } else if (equals(table.names[id], name, false)) {
+                return id;
+            }
+            index = (index + 1) & table.mask;
+        }
+    }
+
+    private static boolean equals(String str, CharSequence name, boolean ignoreCase) {
+        int length = name.length();
+        if (str.length() != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            char c1 = str.charAt(i);
+            char c2 = name.charAt(i);
+            if (c1 != c2 && (!ignoreCase || toLowerCase(c1) != toLowerCase(c2))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Case sensitive, the same as the ids in the table.
+     */
+    private static int hashedClass(CharSequence name) {
+        int h = 0;
+        for (int i = 0, length = name.length(); i < length; i++) {
+            h = 31 * h + name.charAt(i);
+        }
+        return HASHED_CLASS_BASE | ((h ^ (h >>> 16)) & HASHED_CLASS_MASK);
+    }
+
+    /**
+     * Same as {@link String#hashCode()} of the ASCII lower case string, mixed for open
+     * addressing.
+     */
+    private static int hashIgnoreCase(CharSequence name) {
+        int h = 0;
+        for (int i = 0, length = name.length(); i < length; i++) {
+            h = 31 * h + toLowerCase(name.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static String toLowerCase(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c != toLowerCase(c)) {
+                char[] chars = name.toCharArray();
+                for (int j = i; j < chars.length; j++) {
+                    chars[j] = toLowerCase(chars[j]);
+                }
+                return new String(chars);
+            }
+        }
+        return name;
+    }
+
+    private static char toLowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+}
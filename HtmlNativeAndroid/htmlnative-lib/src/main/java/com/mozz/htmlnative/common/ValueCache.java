@@ -0,0 +1,45 @@
+package com.mozz.htmlnative.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of immutable values parsed from strings, shared by all threads, so that the
+ * same string, e.g. "#ffffff" or "12dp", is parsed once and gives the same object. The least
+ * recently used one is evicted when full.
+ * <p>
+ * Plain java instead of {@link android.util.LruCache}, so that it also works when layouts are
+ * parsed by HNCompiler on JVM.
+ *
+ * @author Yang Tao, 17/6/21.
+ */
+
+public final class ValueCache<K, V> {
+
+    private final LinkedHashMap<K, V> mValues;
+
+    public ValueCache(final int maxSize) {
+        mValues = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        return mValues.get(key);
+    }
+
+    public synchronized void put(K key, V value) {
+        mValues.put(key, value);
+    }
+
+    public synchronized void clear() {
+        mValues.clear();
+    }
+
+    public synchronized int size() {
+        return mValues.size();
+    }
+}
@@ -0,0 +1,147 @@
+package com.mozz.htmlnative.compiler;
+
+import android.support.annotation.NonNull;
+
+import com.mozz.htmlnative.HNSegment;
+import com.mozz.htmlnative.exception.HNSyntaxError;
+import com.mozz.htmlnative.parser.Parser;
+import com.mozz.htmlnative.parser.SegmentWriter;
+import com.mozz.htmlnative.reader.FileTextReader;
+import com.mozz.htmlnative.reader.MappedTextReader;
+import com.mozz.htmlnative.reader.TextReader;
+import com.mozz.htmlnative.script.ScriptInfo;
+import com.mozz.htmlnative.utils.IOUtils;
+
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.Prototype;
+import org.luaj.vm2.compiler.DumpState;
+import org.luaj.vm2.compiler.LuaC;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compile layouts ahead of time, used by htmlnative-compiler.gradle. For every *.html under the
+ * source directory, the {@link Parser} and {@link LuaC} are run and a segment with Lua bytecode
+ * is written to the output directory as *.html{@value HNSegment#COMPILED_SUFFIX}, which is then
+ * used by {@link HNSegment#loadAsset(android.content.res.AssetManager, String)}.
+ * <p>
+ * Usage: HNCompiler &lt;source dir&gt; &lt;output dir&gt;. Exits with 1 if any layout has syntax
+ * error or can't be compiled without a device, so that the build fails.
+ *
+ * @author Yang Tao, 17/6/13.
+ */
+
+public final class HNCompiler {
+
+    private static final String SOURCE_SUFFIX = ".html";
+
+    private int mFailed;
+    private int mCompiled;
+
+    private HNCompiler() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: HNCompiler <source dir>... <output dir>");
+            System.exit(2);
+        }
+
+        HNCompiler compiler = new HNCompiler();
+        File outDir = new File(args[args.length - 1]);
+        for (int i = 0; i < args.length - 1; i++) {
+            File srcDir = new File(args[i]);
+            compiler.compileDir(srcDir, srcDir, outDir);
+        }
+
+        System.out.println("HNCompiler: " + compiler.mCompiled + " layout(s) compiled, " +
+                compiler.mFailed + " failed.");
+        if (compiler.mFailed > 0) {
+            System.exit(1);
+        }
+    }
+
+    private void compileDir(File root, File dir, File outDir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            if (file.isDirectory()) {
+                compileDir(root, file, outDir);
+            } else if (file.getName().endsWith(SOURCE_SUFFIX)) {
+                String relative = root.toURI().relativize(file.toURI()).getPath();
+                compileFile(file, new File(outDir, relative + HNSegment.COMPILED_SUFFIX));
+            }
+        }
+    }
+
+    private void compileFile(File source, File target) {
+        OutputStream out = null;
+        try {
+            byte[] compiled = compile(new MappedTextReader(source));
+
+            File parent = target.getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("can't create " + parent);
+            }
+            out = new FileOutputStream(target);
+            out.write(compiled);
+            mCompiled++;
+        } catch (HNSyntaxError e) {
+            System.err.println(source.getPath() + ": " + e.getMessage());
+            mFailed++;
+        } catch (LuaError e) {
+            System.err.println(source.getPath() + ": <script> " + e.getMessage());
+            mFailed++;
+        } catch (IllegalStateException e) {
+            // e.g. a dp length in background is converted to pixels while parsing, and needs the
+            // screen density, which is unknown at build time. Such layout must not silently fall
+            // back to parsing on device, so it fails the build like any other broken layout.
+            System.err.println(source.getPath() + ": can't be precompiled, " + e.getMessage());
+            mFailed++;
+        } catch (IOException e) {
+            System.err.println(source.getPath() + ": " + e.getMessage());
+            mFailed++;
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    /**
+     * Parse the layout and compile its Lua script into bytecode.
+     *
+     * @return segment in precompiled format
+     * @throws LuaError if Lua script has syntax error
+     */
+    @NonNull
+    public static byte[] compile(@NonNull InputStream source) throws HNSyntaxError,
+            IOException {
+        return compile(new FileTextReader(source));
+    }
+
+    private static byte[] compile(@NonNull TextReader source) throws HNSyntaxError,
+            IOException {
+        HNSegment segment = new Parser(source).process();
+
+        ScriptInfo scriptInfo = segment.getScriptInfo();
+        if (scriptInfo != null && scriptInfo.type() == ScriptInfo.SCRIPT_LUA) {
+            Prototype prototype = LuaC.instance.compile(new ByteArrayInputStream(scriptInfo
+                    .code().getBytes("UTF-8")), "script");
+
+            ByteArrayOutputStream bytecode = new ByteArrayOutputStream();
+            DumpState.dump(prototype, bytecode, false);
+            segment.setScriptInfo(new ScriptInfo(scriptInfo.code(), scriptInfo.type(), bytecode
+                    .toByteArray()));
+        }
+
+        return SegmentWriter.write(segment);
+    }
+}
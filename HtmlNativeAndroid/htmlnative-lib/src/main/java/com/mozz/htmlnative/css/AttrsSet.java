@@ -2,24 +2,48 @@ package com.mozz.htmlnative.css;
 
 import android.support.annotation.NonNull;
 
+import com.mozz.htmlnative.common.Symbols;
+
 import java.util.Arrays;
 import java.util.Iterator;
 
 /**
  * @author YangTao7
- *         NOT THREAD SAFE
+ *         NOT THREAD SAFE, except that attrs of an owner can be read by another thread once the
+ *         owner has been put completely and handed over, while later owners are still being put
+ *         by the parsing thread. This is what progressive rendering relies on.
+ *         <p>
+ *         Attrs of all owners are kept in two parallel arrays, style names and values, and each
+ *         owner has a header telling where its attrs are, see {@link #header(int, int, int)}.
  */
 
 public class AttrsSet {
 
     private static final String TAG = AttrsSet.class.getSimpleName();
 
+    private static final int MAX_COUNT = 0xFFFF;
+
+    /**
+     * volatile, so that the arrays replaced in {@link #grow(int)} are seen with their content by
+     * the reading thread.
+     * <p>
+     * Style names are kept as symbol ids, see {@link Symbols}
+     */
+    private volatile int[] mKeys;
+    private volatile Object[] mValues;
+    private volatile long[] mOwners;
+
+    /**
+     * count of slots used
+     */
+    private int mSize;
+    private int mOwnerSize;
+
+    /**
+     * the owner whose attrs are at the end of arrays, which can be put without moving
+     */
+    private int mLastOwner = -1;
 
-    private Object[] mAttrs;
-    private int[] mLength;
-    private int mGrowLength;
-    private int mLastGrowLength = -1;
-    private int mCompacity;
     private String mName;
 
     public AttrsSet(String name) {
@@ -27,116 +51,222 @@ public class AttrsSet {
     }
 
     public AttrsSet(String name, int initCompacity) {
-        mAttrs = new Object[initCompacity << 1];
-        mLength = new int[initCompacity];
-        mGrowLength = 0;
-        mCompacity = initCompacity;
+        mKeys = new int[initCompacity];
+        mValues = new Object[initCompacity];
+        mOwners = new long[initCompacity];
         mName = name;
     }
 
-    public void put(@NonNull AttrsOwner tree, String paramsKey, @NonNull Object value) {
-        int startPosition = tree.attrIndex();
+    /**
+     * Header of an owner: start position of its attrs in the high 32 bits, count of them in the
+     * next 16 bits, and in the low 16 bits a filter with a bit set for each style name, so that
+     * looking up a style an owner has not got needs no scan.
+     */
+    private static long header(int start, int count, int filter) {
+        return ((long) start << 32) | ((long) count << 16) | filter;
+    }
 
-        putInternal(startPosition + mLength[startPosition], paramsKey, value);
-        mLength[startPosition]++;
+    private static int start(long header) {
+        return (int) (header >>> 32);
     }
 
-    private void putInternal(int position, String paramsKey, Object value) {
-        if (position >= mCompacity) {
-            grow(mCompacity);
-        }
+    private static int count(long header) {
+        return (int) (header >>> 16) & MAX_COUNT;
+    }
 
-        mAttrs[position << 1] = paramsKey;
-        mAttrs[(position << 1) + 1] = value;
-        mGrowLength++;
+    private static int filterBit(int styleId) {
+        return 1 << (styleId & 15);
     }
 
-    private void grow(int growSize) {
-        if (growSize > 0) {
-            Object[] temp = mAttrs;
-            int[] tempL = mLength;
+    public void put(@NonNull AttrsOwner tree, String paramsKey, @NonNull Object value) {
+        put(tree, Symbols.intern(paramsKey), value);
+    }
+
+    /**
+     * @param paramsKey symbol id of style name
+     */
+    public void put(@NonNull AttrsOwner tree, int paramsKey, @NonNull Object value) {
+        int owner = tree.attrIndex();
+        long header = mOwners[owner];
+        int start = start(header);
+        int count = count(header);
+
+        if (count == MAX_COUNT) {
+            throw new IllegalStateException("too many attrs of " + tree + " in " + mName);
+        }
 
-            mAttrs = new Object[(mCompacity + growSize) << 1];
-            mLength = new int[mCompacity + growSize];
+        if (owner != mLastOwner) {
+            // attrs of later owners are behind, move the attrs of this owner to the end, e.g.
+            // text put to a tree after its children
+            int newStart = mSize;
+            ensureCapacity(mSize + count + 1);
+            System.arraycopy(mKeys, start, mKeys, newStart, count);
+            System.arraycopy(mValues, start, mValues, newStart, count);
+            Arrays.fill(mValues, start, start + count, null);
+            start = newStart;
+            mSize += count;
+            mLastOwner = owner;
+        } else {
+            ensureCapacity(mSize + 1);
+        }
 
-            System.arraycopy(temp, 0, mAttrs, 0, mCompacity << 1);
-            System.arraycopy(tempL, 0, mLength, 0, mCompacity);
+        mKeys[mSize] = paramsKey;
+        mValues[mSize] = value;
+        mSize++;
+        int filter = ((int) header & MAX_COUNT) | filterBit(paramsKey);
+        mOwners[owner] = header(start, count + 1, filter);
+    }
 
-            mCompacity += growSize;
+    private void ensureCapacity(int capacity) {
+        if (capacity > mKeys.length) {
+            grow(Math.max(capacity, mKeys.length << 1));
         }
     }
 
+    private void grow(int newLength) {
+        // copy before publishing the new arrays
+        int[] keys = Arrays.copyOf(mKeys, newLength);
+        Object[] values = Arrays.copyOf(mValues, newLength);
+
+        mKeys = keys;
+        mValues = values;
+    }
+
     public void register(@NonNull AttrsOwner tree) {
-        if (mLastGrowLength == mGrowLength) {
-            mGrowLength++;
+        if (mOwnerSize == mOwners.length) {
+            mOwners = Arrays.copyOf(mOwners, Math.max(mOwnerSize << 1, 1));
         }
 
-        if (mGrowLength >= mCompacity) {
-            grow(mCompacity);
+        mOwners[mOwnerSize] = header(mSize, 0, 0);
+        tree.setAttrIndex(mOwnerSize);
+        mLastOwner = mOwnerSize;
+        mOwnerSize++;
+    }
+
+    /**
+     * Release the room reserved for attrs to come, called once all attrs are put.
+     */
+    public void trimToSize() {
+        if (mKeys.length > mSize) {
+            grow(mSize);
         }
+        if (mOwners.length > mOwnerSize) {
+            mOwners = Arrays.copyOf(mOwners, mOwnerSize);
+        }
+    }
 
-        tree.setAttrIndex(mGrowLength);
-        mLastGrowLength = mGrowLength;
+    /**
+     * @return count of slots used, including those left by attrs moved
+     */
+    int size() {
+        return mSize;
+    }
+
+    int ownerSize() {
+        return mOwnerSize;
+    }
+
+    /**
+     * @return bytes taken by arrays of this, not counting the values
+     */
+    int footprint() {
+        // int and compressed reference take 4 bytes, long takes 8
+        return mKeys.length * 8 + mOwners.length * 8;
     }
 
     @Override
     public String toString() {
-        return Arrays.toString(mAttrs);
+        return toString(0, mSize);
     }
 
     public String toString(@NonNull AttrsOwner tree) {
-        int startPos = tree.attrIndex();
-        int length = mLength[startPos];
+        long header = mOwners[tree.attrIndex()];
+        return toString(start(header), count(header));
+    }
 
+    private String toString(int startPos, int length) {
         Object[] objects = new Object[length << 1];
-        System.arraycopy(mAttrs, startPos << 1, objects, 0, length << 1);
+        for (int i = 0; i < length; i++) {
+            Object value = getStyle(startPos + i);
+            // slots left by attrs moved are null
+            objects[i << 1] = value == null ? null : getStyleName(startPos + i);
+            objects[(i << 1) + 1] = value;
+        }
 
         return Arrays.toString(objects);
     }
 
+    /**
+     * Move cursor to before the first attr of owner.
+     *
+     * @param cursor reused to walk attrs without allocation
+     * @return cursor
+     */
+    @NonNull
+    public Cursor cursor(@NonNull AttrsOwner owner, @NonNull Cursor cursor) {
+        long header = mOwners[owner.attrIndex()];
+        cursor.mKeys = mKeys;
+        cursor.mValues = mValues;
+        cursor.mPosition = start(header) - 1;
+        cursor.mEnd = start(header) + count(header);
+        return cursor;
+    }
 
     public final Iterator<Styles.StyleEntry> iterator(AttrsOwner owner) {
-        final int startPosition = owner.attrIndex();
-        final int length = mLength[startPosition];
+        final Cursor cursor = cursor(owner, new Cursor());
 
         return new Iterator<Styles.StyleEntry>() {
 
-            private int index = startPosition;
-            private int size = length + startPosition;
+            private boolean mMoved;
+            private boolean mHasNext;
 
             @Override
             public boolean hasNext() {
-                return index < size;
+                if (!mMoved) {
+                    mHasNext = cursor.moveToNext();
+                    mMoved = true;
+                }
+                return mHasNext;
             }
 
             @Override
             public Styles.StyleEntry next() {
-                if (index > size) {
+                if (!hasNext()) {
                     return null;
                 }
 
-                Styles.StyleEntry styleEntry = new Styles.StyleEntry(getStyleName(index),
-                        getStyle(index));
-                index++;
-                return styleEntry;
+                mMoved = false;
+                return new Styles.StyleEntry(cursor.getStyleId(), cursor.getStyle());
             }
         };
     }
 
 
     public final Object getStyle(AttrsOwner owner, String styleName) {
+        int styleId = Symbols.lookup(styleName);
+        return styleId == Symbols.NONE ? null : getStyle(owner, styleId);
+    }
+
+    /**
+     * @param styleId symbol id of style name
+     */
+    public Object getStyle(AttrsOwner owner, int styleId) {
         if (owner == null) {
             return null;
         }
-        int startPosition = owner.attrIndex();
-        int treeAttrLength = mLength[startPosition];
+        long header = mOwners[owner.attrIndex()];
+        if ((header & filterBit(styleId)) == 0) {
+            return null;
+        }
 
-        for (int i = startPosition; i < startPosition + treeAttrLength; i++) {
-            String params = (String) mAttrs[i << 1];
-            final Object value = mAttrs[(i << 1) + 1];
+        int start = start(header);
+        int end = start + count(header);
+        final int[] keys = mKeys;
+        final Object[] values = mValues;
 
-            if (params.equals(styleName)) {
-                return value;
+        for (int i = start; i < end; i++) {
+            if (keys[i] == styleId) {
+                return values[i];
             }
         }
 
@@ -144,17 +274,51 @@ public class AttrsSet {
     }
 
     protected final String getStyleName(int pos) {
-        return (String) mAttrs[pos << 1];
+        return Symbols.name(mKeys[pos]);
+    }
+
+    protected final int getStyleId(int pos) {
+        return mKeys[pos];
     }
 
     protected final Object getStyle(int pos) {
-        return mAttrs[(pos << 1) + 1];
+        return mValues[pos];
     }
 
     public String getName() {
         return mName;
     }
 
+    /**
+     * Walks the attrs of an owner, in the order they are put. Reuse it, see {@link
+     * #cursor(AttrsOwner, Cursor)}.
+     */
+    public static final class Cursor {
+        private int[] mKeys;
+        private Object[] mValues;
+        private int mPosition;
+        private int mEnd;
+
+        public boolean moveToNext() {
+            if (mPosition + 1 >= mEnd) {
+                return false;
+            }
+            mPosition++;
+            return true;
+        }
+
+        /**
+         * @return symbol id of style name
+         */
+        public int getStyleId() {
+            return mKeys[mPosition];
+        }
+
+        public Object getStyle() {
+            return mValues[mPosition];
+        }
+    }
+
 
     /**
      * @author Yang Tao, 17/3/27.
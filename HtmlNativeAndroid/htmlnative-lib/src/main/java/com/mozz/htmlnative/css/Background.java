@@ -4,12 +4,20 @@ import android.graphics.Color;
 import android.graphics.Matrix;
 import android.util.Log;
 
+import com.mozz.htmlnative.common.ValueCache;
 import com.mozz.htmlnative.utils.ParametersUtils;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import static com.mozz.htmlnative.utils.ParametersUtils.splitByEmpty;
 
 /**
  * @author Yang Tao, 17/3/24.
+ *         <p>
+ *         Backgrounds created from nothing by {@link #createOrChange(String, String, Object)} are
+ *         shared by all the styles of the same string, so don't change them.
  */
 
 public class Background {
@@ -50,6 +58,35 @@ public class Background {
     private int widthMode = AUTO;
     private int heightMode = AUTO;
 
+    /**
+     * Backgrounds parsed, keyed by style name and value. Lengths are turned into pixels by
+     * screen density, so they are dropped once the density changes.
+     */
+    private static final ValueCache<String, Background> sCache = new ValueCache<>(64);
+    private static int sCacheGeneration = ParametersUtils.densityGeneration();
+
+    public Background() {
+    }
+
+    private Background(Background other) {
+        url = other.url;
+        color = other.color;
+        colorSet = other.colorSet;
+        repeat = other.repeat;
+        x = other.x;
+        y = other.y;
+        width = other.width;
+        height = other.height;
+        colorWidth = other.colorWidth;
+        colorHeight = other.colorHeight;
+        colorWidthMode = other.colorWidthMode;
+        colorHeightMode = other.colorHeightMode;
+        xMode = other.xMode;
+        yMode = other.yMode;
+        widthMode = other.widthMode;
+        heightMode = other.heightMode;
+    }
+
 
     @Override
     public String toString() {
@@ -137,14 +174,35 @@ public class Background {
         return heightMode;
     }
 
+    /**
+     * @param oldOne background of the styles before, e.g. "background" followed by
+     *               "background-repeat", which is copied instead of changed, as it may be shared
+     */
     public static Background createOrChange(String param, String val, Object oldOne) {
-        Background style;
-        if (oldOne == null) {
-            style = new Background();
-        } else {
-            style = (Background) oldOne;
+        if (oldOne != null) {
+            return change(param, val, new Background((Background) oldOne));
         }
 
+        String key = param + ':' + val;
+        synchronized (sCache) {
+            if (sCacheGeneration != ParametersUtils.densityGeneration()) {
+                sCache.clear();
+                sCacheGeneration = ParametersUtils.densityGeneration();
+            }
+        }
+
+        Background cached = sCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Background style = change(param, val, new Background());
+        sCache.put(key, style);
+        return style;
+    }
+
+    private static Background change(String param, String val, Background style) {
+
         String[] subStrings = splitByEmpty(val);
 
         switch (param) {
@@ -406,6 +464,49 @@ public class Background {
         return style;
     }
 
+    /**
+     * Write all the fields of this background, used by precompiled segment.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeUTF(url);
+        out.writeInt(color);
+        out.writeBoolean(colorSet);
+        out.writeInt(repeat);
+        out.writeFloat(x);
+        out.writeFloat(y);
+        out.writeFloat(width);
+        out.writeFloat(height);
+        out.writeFloat(colorWidth);
+        out.writeFloat(colorHeight);
+        out.writeByte(colorWidthMode);
+        out.writeByte(colorHeightMode);
+        out.writeByte(xMode);
+        out.writeByte(yMode);
+        out.writeByte(widthMode);
+        out.writeByte(heightMode);
+    }
+
+    public static Background readFrom(DataInput in) throws IOException {
+        Background background = new Background();
+        background.url = in.readUTF();
+        background.color = in.readInt();
+        background.colorSet = in.readBoolean();
+        background.repeat = in.readInt();
+        background.x = in.readFloat();
+        background.y = in.readFloat();
+        background.width = in.readFloat();
+        background.height = in.readFloat();
+        background.colorWidth = in.readFloat();
+        background.colorHeight = in.readFloat();
+        background.colorWidthMode = in.readByte();
+        background.colorHeightMode = in.readByte();
+        background.xMode = in.readByte();
+        background.yMode = in.readByte();
+        background.widthMode = in.readByte();
+        background.heightMode = in.readByte();
+        return background;
+    }
+
     public static Matrix createBitmapMatrix(Background background) {
         Matrix matrix = new Matrix();
         matrix.setTranslate(background.getX(), background.getY());
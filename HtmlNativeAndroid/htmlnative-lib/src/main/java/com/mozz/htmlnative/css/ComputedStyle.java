@@ -0,0 +1,111 @@
+package com.mozz.htmlnative.css;
+
+import android.support.annotation.NonNull;
+
+import com.mozz.htmlnative.common.Symbols;
+
+/**
+ * Styles of an element resolved by {@link StyleResolver}, in the order to apply: the inherited
+ * ones first, then its own, which are the inline styles followed by those of matched selectors
+ * in cascade order. Applied by {@link Styles#applyComputed}.
+ * <p>
+ * Inherited styles are shared by the children of an element, so each element only holds its
+ * own ones. Immutable once created.
+ *
+ * @author Yang Tao, 17/6/20.
+ */
+
+public final class ComputedStyle {
+
+    static final int[] EMPTY_NAMES = new int[0];
+    static final Object[] EMPTY_VALUES = new Object[0];
+
+    /**
+     * Style names are kept as symbol ids, see {@link Symbols}
+     */
+    final int[] mInheritedNames;
+    final Object[] mInheritedValues;
+
+    final int[] mNames;
+    final Object[] mValues;
+
+    /**
+     * inherited styles of the children, which are {@link #mInheritedNames} followed by own
+     * styles registered in {@link InheritStylesRegistry}
+     */
+    final int[] mChildInheritedNames;
+    final Object[] mChildInheritedValues;
+
+    ComputedStyle(@NonNull int[] inheritedNames, @NonNull Object[] inheritedValues, @NonNull
+            int[] names, @NonNull Object[] values, @NonNull int[] childInheritedNames, @NonNull
+            Object[] childInheritedValues) {
+        mInheritedNames = inheritedNames;
+        mInheritedValues = inheritedValues;
+        mNames = names;
+        mValues = values;
+        mChildInheritedNames = childInheritedNames;
+        mChildInheritedValues = childInheritedValues;
+    }
+
+    public int inheritedCount() {
+        return mInheritedNames.length;
+    }
+
+    public int count() {
+        return mNames.length;
+    }
+
+    /**
+     * @return symbol id of the own style at index, which is less than {@link #count()}
+     */
+    public int getName(int index) {
+        return mNames[index];
+    }
+
+    public Object getValue(int index) {
+        return mValues[index];
+    }
+
+    /**
+     * @return own style with the name, the last one if more than one, or null
+     */
+    public Object getStyle(int styleName) {
+        for (int i = mNames.length - 1; i >= 0; i--) {
+            if (mNames[i] == styleName) {
+                return mValues[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return styles of an element which inherits the same styles as this one, but has none of
+     * its own
+     */
+    @NonNull
+    public ComputedStyle inheritedOnly() {
+        if (mNames.length == 0) {
+            return this;
+        }
+        return new ComputedStyle(mInheritedNames, mInheritedValues, EMPTY_NAMES, EMPTY_VALUES,
+                mInheritedNames, mInheritedValues);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("inherited[");
+        append(sb, mInheritedNames, mInheritedValues);
+        sb.append("], own[");
+        append(sb, mNames, mValues);
+        return sb.append(']').toString();
+    }
+
+    private static void append(StringBuilder sb, int[] names, Object[] values) {
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(Symbols.name(names[i])).append('=').append(values[i]);
+        }
+    }
+}
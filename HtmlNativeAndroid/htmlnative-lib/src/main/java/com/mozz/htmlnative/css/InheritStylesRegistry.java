@@ -1,10 +1,17 @@
 package com.mozz.htmlnative.css;
 
-import java.util.HashSet;
+import com.mozz.htmlnative.common.Symbols;
+
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 /**
+ * Registered by the static initializers of Styles and StyleHandlers, which may run on main
+ * thread and on the threads resolving styles at the same time, so registering is locked and
+ * readers see a copy published after each change.
+ *
  * @author Yang Tao, 17/4/1.
  */
 
@@ -14,14 +21,34 @@ public final class InheritStylesRegistry {
 
     }
 
-    private static final Set<String> sInheritAttrs = new HashSet<>();
+    private static final Set<String> sInheritAttrs = new CopyOnWriteArraySet<>();
+
+    /**
+     * Symbol ids of {@link #sInheritAttrs}, see {@link Symbols}. Replaced instead of changed in
+     * place.
+     */
+    private static volatile BitSet sInheritIds = new BitSet();
 
     public static void register(String attr) {
-        sInheritAttrs.add(attr);
+        register(Symbols.intern(attr));
+    }
+
+    public static synchronized void register(int attr) {
+        if (sInheritIds.get(attr)) {
+            return;
+        }
+        BitSet ids = (BitSet) sInheritIds.clone();
+        ids.set(attr);
+        sInheritAttrs.add(Symbols.name(attr));
+        sInheritIds = ids;
     }
 
     public static boolean isInherit(String attr) {
-        return sInheritAttrs.contains(attr);
+        return isInherit(Symbols.lookup(attr));
+    }
+
+    public static boolean isInherit(int attr) {
+        return attr != Symbols.NONE && sInheritIds.get(attr);
     }
 
     public static Iterator<String> iterator() {
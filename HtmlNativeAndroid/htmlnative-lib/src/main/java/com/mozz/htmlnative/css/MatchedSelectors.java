@@ -0,0 +1,95 @@
+package com.mozz.htmlnative.css;
+
+import android.support.annotation.NonNull;
+
+import com.mozz.htmlnative.css.selector.CssSelector;
+
+import java.util.Arrays;
+
+/**
+ * Selectors found by {@link StyleSheet#matchedSelector(int, String, int[], MatchedSelectors)},
+ * only those found and each once, sorted by {@link CssSelector#order()}. Meant to be reused for
+ * every element rendered, so it takes no allocation once grown to fit.
+ *
+ * @author Yang Tao, 17/6/20.
+ */
+
+public final class MatchedSelectors {
+
+    private CssSelector[] mSelectors;
+    private int mSize;
+
+    public MatchedSelectors() {
+        this(16);
+    }
+
+    public MatchedSelectors(int capacity) {
+        mSelectors = new CssSelector[Math.max(capacity, 1)];
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    @NonNull
+    public CssSelector get(int index) {
+        if (index >= mSize) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + mSize);
+        }
+        return mSelectors[index];
+    }
+
+    public CssSelector[] toArray() {
+        return Arrays.copyOf(mSelectors, mSize);
+    }
+
+    void clear() {
+        Arrays.fill(mSelectors, 0, mSize, null);
+        mSize = 0;
+    }
+
+    void add(@NonNull CssSelector selector) {
+        if (mSize == mSelectors.length) {
+            mSelectors = Arrays.copyOf(mSelectors, mSize << 1);
+        }
+        mSelectors[mSize++] = selector;
+    }
+
+    void sort() {
+        sort(0);
+    }
+
+    /**
+     * Sort the selectors from index from by order and drop the ones found more than once, e.g.
+     * element with class="a a". Selectors from each holder are already in order, so insertion
+     * sort is nearly linear. Those before from are kept, as they come from another StyleSheet,
+     * whose orders can not be compared.
+     */
+    void sort(int from) {
+        CssSelector[] selectors = mSelectors;
+        for (int i = from + 1; i < mSize; i++) {
+            CssSelector selector = selectors[i];
+            int order = selector.order();
+            int j = i - 1;
+            while (j >= from && selectors[j].order() > order) {
+                selectors[j + 1] = selectors[j];
+                j--;
+            }
+            selectors[j + 1] = selector;
+        }
+
+        int size = from;
+        for (int i = from; i < mSize; i++) {
+            if (size == from || selectors[size - 1] != selectors[i]) {
+                selectors[size++] = selectors[i];
+            }
+        }
+        Arrays.fill(selectors, size, mSize, null);
+        mSize = size;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,316 @@
+package com.mozz.htmlnative.css;
+
+import android.support.annotation.NonNull;
+import android.util.TypedValue;
+
+import com.mozz.htmlnative.common.PixelValue;
+import com.mozz.htmlnative.utils.ParametersUtils;
+
+import java.util.Arrays;
+
+/**
+ * Condition of a &#64;media rule, such as <code>screen and (min-width: 600dp), (orientation:
+ * landscape)</code>, which matches if any query separated by comma matches.
+ * <p>
+ * Supported media features are width, height, resolution, device-pixel-ratio and orientation,
+ * with min- and max- prefix except orientation. Lengths follow the units of styles, px is pixel
+ * of screen and dp is density independent. Resolution in dppx or x is the density of
+ * {@link ParametersUtils#getScreenDensity()}, and in dpi is 160 times of it. A query with unknown
+ * media type or feature never matches, as browser does.
+ *
+ * @author Yang Tao, 17/6/21.
+ */
+
+public final class MediaQuery {
+
+    private static final int FEATURE_WIDTH = 1;
+    private static final int FEATURE_HEIGHT = 2;
+    private static final int FEATURE_RESOLUTION = 3;
+    private static final int FEATURE_ORIENTATION = 4;
+
+    private static final int RANGE_EXACT = 0;
+    private static final int RANGE_MIN = 1;
+    private static final int RANGE_MAX = 2;
+
+    private static final int ORIENTATION_PORTRAIT = 0;
+    private static final int ORIENTATION_LANDSCAPE = 1;
+
+    private static final float EPSILON = 0.001f;
+
+    private final String mText;
+    private final Query[] mQueries;
+
+    private MediaQuery(String text, Query[] queries) {
+        mText = text;
+        mQueries = queries;
+    }
+
+    /**
+     * @param text condition between &#64;media and {, empty one matches all
+     * @throws IllegalArgumentException if text is malformed
+     */
+    @NonNull
+    public static MediaQuery parse(@NonNull String text) throws IllegalArgumentException {
+        String normalized = text.trim().replaceAll("\\s+", " ");
+        if (normalized.isEmpty()) {
+            return new MediaQuery(normalized, new Query[0]);
+        }
+
+        String[] parts = normalized.split(",");
+        Query[] queries = new Query[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            queries[i] = parseQuery(parts[i]);
+        }
+        return new MediaQuery(normalized, queries);
+    }
+
+    /**
+     * @param width   width of screen in pixel
+     * @param height  height of screen in pixel
+     * @param density density of screen, see {@link ParametersUtils#getScreenDensity()}
+     */
+    public boolean matches(int width, int height, float density) {
+        if (mQueries.length == 0) {
+            return true;
+        }
+
+        for (Query query : mQueries) {
+            if (query.matches(width, height, density)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the condition parsed, with white spaces collapsed, which can be parsed again
+     */
+    @Override
+    public String toString() {
+        return mText;
+    }
+
+    private static Query parseQuery(String text) throws IllegalArgumentException {
+        Query query = new Query();
+        boolean hasType = false;
+        boolean expectAnd = false;
+
+        int i = 0;
+        int length = text.length();
+        while (true) {
+            while (i < length && text.charAt(i) == ' ') {
+                i++;
+            }
+            if (i >= length) {
+                break;
+            }
+
+            if (text.charAt(i) == '(') {
+                int end = text.indexOf(')', i);
+                if (expectAnd || end < 0) {
+                    throw new IllegalArgumentException("wrong media query " + text);
+                }
+                query.addFeature(text.substring(i + 1, end));
+                i = end + 1;
+                expectAnd = true;
+                continue;
+            }
+
+            int end = i;
+            while (end < length && text.charAt(end) != ' ' && text.charAt(end) != '(') {
+                end++;
+            }
+            String word = text.substring(i, end).toLowerCase();
+            i = end;
+
+            if (expectAnd) {
+                if (!word.equals("and")) {
+                    throw new IllegalArgumentException("wrong media query " + text);
+                }
+                expectAnd = false;
+            } else if (hasType || query.mFeatureCount > 0) {
+                throw new IllegalArgumentException("wrong media query " + text);
+            } else if (word.equals("not")) {
+                query.mNot = true;
+            } else if (word.equals("only")) {
+                // only hides the query from old browsers, means nothing here
+            } else {
+                query.mTypeMatches = word.equals("all") || word.equals("screen");
+                hasType = true;
+                expectAnd = true;
+            }
+        }
+
+        // empty, or ends with and, not
+        if (!expectAnd) {
+            throw new IllegalArgumentException("wrong media query " + text);
+        }
+        return query;
+    }
+
+    private static final class Query {
+        boolean mNot;
+        boolean mTypeMatches = true;
+        boolean mUnknown;
+
+        int mFeatureCount;
+        int[] mFeatures = new int[2];
+        int[] mRanges = new int[2];
+        float[] mValues = new float[2];
+        int[] mUnits = new int[2];
+
+        void addFeature(String expression) throws IllegalArgumentException {
+            int colon = expression.indexOf(':');
+            String name = (colon < 0 ? expression : expression.substring(0, colon)).trim()
+                    .toLowerCase();
+            String value = colon < 0 ? null : expression.substring(colon + 1).trim()
+                    .toLowerCase();
+
+            if (name.startsWith("-webkit-")) {
+                name = name.substring("-webkit-".length());
+            }
+
+            int range = RANGE_EXACT;
+            if (name.startsWith("min-")) {
+                range = RANGE_MIN;
+                name = name.substring(4);
+            } else if (name.startsWith("max-")) {
+                range = RANGE_MAX;
+                name = name.substring(4);
+            }
+
+            int feature;
+            switch (name) {
+                case "width":
+                case "device-width":
+                    feature = FEATURE_WIDTH;
+                    break;
+                case "height":
+                case "device-height":
+                    feature = FEATURE_HEIGHT;
+                    break;
+                case "resolution":
+                case "device-pixel-ratio":
+                    feature = FEATURE_RESOLUTION;
+                    break;
+                case "orientation":
+                    feature = FEATURE_ORIENTATION;
+                    break;
+                default:
+                    mUnknown = true;
+                    return;
+            }
+
+            if (value == null) {
+                // such as (orientation), true for any screen
+                if (range != RANGE_EXACT) {
+                    throw new IllegalArgumentException("missing value of media feature " +
+                            expression);
+                }
+                return;
+            }
+
+            float v;
+            int unit = PixelValue.UNSET;
+            switch (feature) {
+                case FEATURE_WIDTH:
+                case FEATURE_HEIGHT:
+                    PixelValue pixel = ParametersUtils.toPixel(value);
+                    v = (float) pixel.getValue();
+                    unit = pixel.getUnit();
+                    break;
+                case FEATURE_RESOLUTION:
+                    v = toDensity(value);
+                    break;
+                default:
+                    if (range != RANGE_EXACT) {
+                        throw new IllegalArgumentException("orientation has no range " +
+                                expression);
+                    }
+                    if (value.equals("portrait")) {
+                        v = ORIENTATION_PORTRAIT;
+                    } else if (value.equals("landscape")) {
+                        v = ORIENTATION_LANDSCAPE;
+                    } else {
+                        throw new IllegalArgumentException("wrong orientation " + value);
+                    }
+                    break;
+            }
+
+            if (mFeatureCount == mFeatures.length) {
+                int size = mFeatureCount << 1;
+                mFeatures = Arrays.copyOf(mFeatures, size);
+                mRanges = Arrays.copyOf(mRanges, size);
+                mUnits = Arrays.copyOf(mUnits, size);
+                mValues = Arrays.copyOf(mValues, size);
+            }
+            mFeatures[mFeatureCount] = feature;
+            mRanges[mFeatureCount] = range;
+            mValues[mFeatureCount] = v;
+            mUnits[mFeatureCount] = unit;
+            mFeatureCount++;
+        }
+
+        boolean matches(int width, int height, float density) {
+            boolean matches = mTypeMatches && !mUnknown;
+            for (int i = 0; matches && i < mFeatureCount; i++) {
+                float actual;
+                float expected = mValues[i];
+                switch (mFeatures[i]) {
+                    case FEATURE_WIDTH:
+                        actual = width;
+                        expected = toScreenPixel(expected, mUnits[i], density);
+                        break;
+                    case FEATURE_HEIGHT:
+                        actual = height;
+                        expected = toScreenPixel(expected, mUnits[i], density);
+                        break;
+                    case FEATURE_RESOLUTION:
+                        actual = density;
+                        break;
+                    default:
+                        actual = height >= width ? ORIENTATION_PORTRAIT : ORIENTATION_LANDSCAPE;
+                        break;
+                }
+
+                switch (mRanges[i]) {
+                    case RANGE_MIN:
+                        matches = actual > expected - EPSILON;
+                        break;
+                    case RANGE_MAX:
+                        matches = actual < expected + EPSILON;
+                        break;
+                    default:
+                        matches = Math.abs(actual - expected) < EPSILON;
+                        break;
+                }
+            }
+            return mNot != matches;
+        }
+    }
+
+    private static float toScreenPixel(float value, int unit, float density) {
+        switch (unit) {
+            case TypedValue.COMPLEX_UNIT_DIP:
+            case TypedValue.COMPLEX_UNIT_SP:
+                return value * density;
+            case PixelValue.EM:
+                return ParametersUtils.emToPx(value);
+            default:
+                return value;
+        }
+    }
+
+    private static float toDensity(String value) throws IllegalArgumentException {
+        if (value.endsWith("dppx")) {
+            return ParametersUtils.toFloat(value.substring(0, value.length() - 4));
+        } else if (value.endsWith("dpi")) {
+            return ParametersUtils.toFloat(value.substring(0, value.length() - 3)) / 160.f;
+        } else if (value.endsWith("x")) {
+            return ParametersUtils.toFloat(value.substring(0, value.length() - 1));
+        } else {
+            // device-pixel-ratio is a number
+            return ParametersUtils.toFloat(value);
+        }
+    }
+}
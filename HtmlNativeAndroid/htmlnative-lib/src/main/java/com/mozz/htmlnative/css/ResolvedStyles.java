@@ -0,0 +1,77 @@
+package com.mozz.htmlnative.css;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mozz.htmlnative.dom.HNDomTree;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link ComputedStyle}s of the elements of a dom tree, filled by {@link StyleResolver} and read
+ * by renderers. Kept apart from the dom, which is shared by every page of a cached segment, so
+ * that a render holding one is never affected by styles resolved again for another render.
+ * <p>
+ * Styles are added while the tree is resolved subtree by subtree, and read on other threads at
+ * the same time, but never removed or replaced. If the style sheet has &#64;media rules, each
+ * screen the segment is bound to has its own ResolvedStyles.
+ *
+ * @author Yang Tao, 17/6/22.
+ */
+
+public final class ResolvedStyles {
+
+    private final Map<HNDomTree, ComputedStyle> mStyles = new ConcurrentHashMap<>();
+
+    private volatile boolean mComplete;
+
+    /**
+     * screen resolved for, width is -1 if styles don't depend on screen
+     */
+    private final int mScreenWidth;
+    private final int mScreenHeight;
+    private final float mScreenDensity;
+
+    public ResolvedStyles() {
+        this(-1, 0, 0);
+    }
+
+    public ResolvedStyles(int screenWidth, int screenHeight, float screenDensity) {
+        mScreenWidth = screenWidth;
+        mScreenHeight = screenHeight;
+        mScreenDensity = screenDensity;
+    }
+
+    public boolean isFor(int screenWidth, int screenHeight, float screenDensity) {
+        return mScreenWidth == screenWidth && mScreenHeight == screenHeight && mScreenDensity
+                == screenDensity;
+    }
+
+    /**
+     * @return style of element, or null if it is not resolved
+     */
+    @Nullable
+    public ComputedStyle get(@NonNull HNDomTree element) {
+        return mStyles.get(element);
+    }
+
+    void put(@NonNull HNDomTree element, @NonNull ComputedStyle style) {
+        mStyles.put(element, style);
+    }
+
+    /**
+     * Whether the whole dom is resolved, rather than some subtrees of it.
+     */
+    public boolean isComplete() {
+        return mComplete;
+    }
+
+    public void setComplete() {
+        mComplete = true;
+    }
+
+    public int size() {
+        return mStyles.size();
+    }
+}
@@ -0,0 +1,168 @@
+package com.mozz.htmlnative.css;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mozz.htmlnative.css.selector.AncestorFilter;
+import com.mozz.htmlnative.css.selector.CssSelector;
+import com.mozz.htmlnative.dom.HNDomTree;
+import com.mozz.htmlnative.stylehandler.StyleHandlerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Resolves the {@link ComputedStyle} of each element of a dom tree into {@link ResolvedStyles},
+ * on the thread which parses it, so that main thread only creates views and applies the
+ * styles.
+ * <p>
+ * The result is the same as what HNRenderer resolves while rendering: styles inherited from
+ * ancestors through {@link InheritStylesRegistry}, then inline styles, then the styles of
+ * selectors matched in cascade order.
+ *
+ * @author Yang Tao, 17/6/20.
+ */
+
+public final class StyleResolver {
+
+    static {
+        // otherwise registered when Styles and the built-in StyleHandlers are loaded by the
+        // first view rendered, which may be after styles are resolved
+        Styles.registerInheritStyles();
+        StyleHandlerFactory.registerInheritStyles();
+    }
+
+    private final AttrsSet mInlineStyles;
+    private final StyleSheet mStyleSheet;
+    private final ResolvedStyles mOut;
+
+    private final AncestorFilter mAncestorFilter = new AncestorFilter();
+    private final StyleSharingCache mStyleCache = new StyleSharingCache();
+
+    /**
+     * Styles of the element being resolved
+     */
+    private int[] mNames = new int[16];
+    private Object[] mValues = new Object[16];
+    private int mCount;
+
+    private final AttrsSet.Cursor mCursor = new AttrsSet.Cursor();
+
+    public StyleResolver(@NonNull AttrsSet inlineStyles, @Nullable StyleSheet styleSheet,
+                         @NonNull ResolvedStyles out) {
+        mInlineStyles = inlineStyles;
+        mStyleSheet = styleSheet;
+        mOut = out;
+    }
+
+    /**
+     * Resolve tree and all its descendants, and the ancestors of tree if they have not been
+     * resolved. Elements resolved already are kept, but ancestors' children are not visited, so
+     * a subtree can be resolved once it is parsed, while the rest of the tree is still growing.
+     */
+    public void resolve(@NonNull HNDomTree tree) {
+        List<HNDomTree> ancestors = new ArrayList<>();
+        for (HNDomTree p = tree.getParent(); p != null; p = p.getParent()) {
+            ancestors.add(p);
+        }
+
+        ComputedStyle parentStyle = null;
+        for (int i = ancestors.size() - 1; i >= 0; i--) {
+            HNDomTree ancestor = ancestors.get(i);
+            parentStyle = resolveElement(ancestor, parentStyle);
+            push(ancestor);
+        }
+
+        resolveSubtree(tree, parentStyle);
+
+        mAncestorFilter.clear();
+        mStyleCache.clear();
+    }
+
+    private void resolveSubtree(HNDomTree tree, ComputedStyle parentStyle) {
+        ComputedStyle style = resolveElement(tree, parentStyle);
+        if (!tree.isLeaf()) {
+            push(tree);
+            for (HNDomTree child : tree.children()) {
+                resolveSubtree(child, style);
+            }
+            mAncestorFilter.pop();
+            mStyleCache.pop();
+        }
+    }
+
+    private void push(HNDomTree tree) {
+        mAncestorFilter.push(tree);
+        mStyleCache.push(tree);
+    }
+
+    @NonNull
+    private ComputedStyle resolveElement(@NonNull HNDomTree tree, @Nullable ComputedStyle
+            parentStyle) {
+        ComputedStyle style = mOut.get(tree);
+        if (style != null) {
+            return style;
+        }
+
+        mCount = 0;
+        addAll(mInlineStyles.cursor(tree, mCursor));
+        if (mStyleSheet != null) {
+            for (CssSelector selector : mStyleCache.resolve(mStyleSheet, tree, mAncestorFilter)) {
+                addAll(mStyleSheet.cursor(selector, mCursor));
+            }
+        }
+
+        int[] inheritedNames = parentStyle == null ? ComputedStyle.EMPTY_NAMES : parentStyle
+                .mChildInheritedNames;
+        Object[] inheritedValues = parentStyle == null ? ComputedStyle.EMPTY_VALUES :
+                parentStyle.mChildInheritedValues;
+
+        int[] names = Arrays.copyOf(mNames, mCount);
+        Object[] values = Arrays.copyOf(mValues, mCount);
+
+        // what children inherit is only needed by elements having children, and is shared
+        // with the parent if nothing is added
+        int[] childNames = inheritedNames;
+        Object[] childValues = inheritedValues;
+        if (!tree.isLeaf()) {
+            int inheritCount = 0;
+            for (int name : names) {
+                if (InheritStylesRegistry.isInherit(name)) {
+                    inheritCount++;
+                }
+            }
+
+            if (inheritCount > 0) {
+                childNames = Arrays.copyOf(inheritedNames, inheritedNames.length + inheritCount);
+                childValues = Arrays.copyOf(inheritedValues, inheritedValues.length +
+                        inheritCount);
+                int index = inheritedNames.length;
+                for (int i = 0; i < names.length; i++) {
+                    if (InheritStylesRegistry.isInherit(names[i])) {
+                        childNames[index] = names[i];
+                        childValues[index] = values[i];
+                        index++;
+                    }
+                }
+            }
+        }
+
+        style = new ComputedStyle(inheritedNames, inheritedValues, names, values, childNames,
+                childValues);
+        mOut.put(tree, style);
+        return style;
+    }
+
+    private void addAll(AttrsSet.Cursor cursor) {
+        while (cursor.moveToNext()) {
+            if (mCount == mNames.length) {
+                mNames = Arrays.copyOf(mNames, mCount << 1);
+                mValues = Arrays.copyOf(mValues, mCount << 1);
+            }
+            mNames[mCount] = cursor.getStyleId();
+            mValues[mCount] = cursor.getStyle();
+            mCount++;
+        }
+    }
+}
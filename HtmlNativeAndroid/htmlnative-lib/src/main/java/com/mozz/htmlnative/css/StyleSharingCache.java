@@ -0,0 +1,231 @@
+package com.mozz.htmlnative.css;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mozz.htmlnative.common.Symbols;
+import com.mozz.htmlnative.css.selector.AncestorFilter;
+import com.mozz.htmlnative.css.selector.CssSelector;
+import com.mozz.htmlnative.dom.DomElement;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Selectors of a {@link StyleSheet} which match an element, shared by the elements which look
+ * the same to selectors, e.g. hundreds of items of a list.
+ * <p>
+ * What a selector looks at is the type, id and classes of the element and of its ancestors, so
+ * two elements are the same to selectors if they are the same in these, and so are their
+ * ancestor chains. Each distinct ancestor chain is given an id when pushed, by the chain of its
+ * parent and the type, id and classes of the element pushed, so elements under different
+ * parents which look the same still share.
+ * <p>
+ * Elements are pushed before their children are rendered and popped after, the same as
+ * {@link AncestorFilter}. Selectors are matched again if the StyleSheet is changed.
+ *
+ * @author Yang Tao, 17/6/20.
+ */
+
+public final class StyleSharingCache {
+
+    private static final CssSelector[] EMPTY = new CssSelector[0];
+
+    /**
+     * id of the ancestor chains, 0 is the chain with no ancestor
+     */
+    private final Map<Key, Integer> mChainIds = new HashMap<>();
+    private int mLastChain = 0;
+    private int[] mChains = new int[16];
+    private int mDepth = 0;
+
+    private final Map<Key, CssSelector[]> mResolved = new HashMap<>();
+    private StyleSheet mStyleSheet;
+    private int mSelectorCount;
+
+    private final MatchedSelectors mMatched = new MatchedSelectors();
+    private final Key mProbe = new Key();
+
+    private int mHits;
+    private int mMisses;
+
+    public void push(@NonNull DomElement element) {
+        int chain;
+        if (hasHashedClass(element)) {
+            // a chain of its own, not shared, see resolve
+            chain = ++mLastChain;
+        } else {
+            Integer id = mChainIds.get(mProbe.set(currentChain(), element));
+            if (id == null) {
+                id = ++mLastChain;
+                mChainIds.put(mProbe.copy(), id);
+            }
+            chain = id;
+        }
+
+        if (mDepth == mChains.length) {
+            mChains = Arrays.copyOf(mChains, mDepth << 1);
+        }
+        mChains[mDepth++] = chain;
+    }
+
+    public void pop() {
+        if (mDepth == 0) {
+            throw new IllegalStateException("pop more than push");
+        }
+        mDepth--;
+    }
+
+    public void clear() {
+        mChainIds.clear();
+        mLastChain = 0;
+        mDepth = 0;
+        mResolved.clear();
+        mStyleSheet = null;
+        mHits = 0;
+        mMisses = 0;
+    }
+
+    /**
+     * Selectors in styleSheet which match element as a whole, in the order to apply.
+     *
+     * @param element        element being rendered, whose ancestors have been pushed
+     * @param ancestorFilter holding the ancestors of element, or null
+     */
+    @NonNull
+    public CssSelector[] resolve(@NonNull StyleSheet styleSheet, @NonNull DomElement element,
+                                 @Nullable AncestorFilter ancestorFilter) {
+        if (styleSheet != mStyleSheet || styleSheet.selectorCount() != mSelectorCount) {
+            mResolved.clear();
+            mStyleSheet = styleSheet;
+            mSelectorCount = styleSheet.selectorCount();
+        }
+
+        if (hasHashedClass(element)) {
+            // hashed class ids of different names may be the same, which can't be a key
+            mMisses++;
+            return match(styleSheet, element, ancestorFilter, mMatched);
+        }
+
+        CssSelector[] resolved = mResolved.get(mProbe.set(currentChain(), element));
+        if (resolved != null) {
+            mHits++;
+            return resolved;
+        }
+
+        mMisses++;
+        resolved = match(styleSheet, element, ancestorFilter, mMatched);
+        mResolved.put(mProbe.copy(), resolved);
+        return resolved;
+    }
+
+    public int hits() {
+        return mHits;
+    }
+
+    public int misses() {
+        return mMisses;
+    }
+
+    @Override
+    public String toString() {
+        return "StyleSharingCache hit " + mHits + ", miss " + mMisses + ", " + mChainIds.size()
+                + " ancestor chains";
+    }
+
+    /**
+     * Same as {@link #resolve(StyleSheet, DomElement, AncestorFilter)}, but no sharing.
+     */
+    @NonNull
+    public static CssSelector[] match(@NonNull StyleSheet styleSheet, @NonNull DomElement
+            element, @Nullable AncestorFilter ancestorFilter, @NonNull MatchedSelectors matched) {
+        styleSheet.matchedSelector(element.getTypeId(), element.getId(), element.getClazzIds(),
+                matched);
+
+        int count = 0;
+        CssSelector[] resolved = null;
+        for (int i = 0, size = matched.size(); i < size; i++) {
+            CssSelector selector = matched.get(i);
+            if (selector.matchWhole(element, ancestorFilter)) {
+                if (resolved == null) {
+                    resolved = new CssSelector[size - i];
+                }
+                resolved[count++] = selector;
+            }
+        }
+
+        if (resolved == null) {
+            return EMPTY;
+        }
+        return count == resolved.length ? resolved : Arrays.copyOf(resolved, count);
+    }
+
+    private static boolean hasHashedClass(DomElement element) {
+        if (element.hasClazz()) {
+            for (int c : element.getClazzIds()) {
+                if (Symbols.isHashedClass(c)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int currentChain() {
+        return mDepth == 0 ? 0 : mChains[mDepth - 1];
+    }
+
+    /**
+     * What selectors look at of an element, under the ancestor chain.
+     */
+    private static final class Key {
+        private int mChain;
+        private int mType;
+        private String mId;
+        private int[] mClazz;
+        private int mHash;
+
+        Key set(int chain, DomElement element) {
+            mChain = chain;
+            mType = element.getTypeId();
+            mId = element.getId();
+            mClazz = element.hasClazz() ? element.getClazzIds() : null;
+
+            int hash = 31 * chain + mType;
+            hash = 31 * hash + (mId == null ? 0 : mId.hashCode());
+            mHash = 31 * hash + Arrays.hashCode(mClazz);
+            return this;
+        }
+
+        Key copy() {
+            Key key = new Key();
+            key.mChain = mChain;
+            key.mType = mType;
+            key.mId = mId;
+            // element may be changed later by script
+            key.mClazz = mClazz == null ? null : mClazz.clone();
+            key.mHash = mHash;
+            return key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return mHash == key.mHash && mChain == key.mChain && mType == key.mType && (mId ==
+                    null ? key.mId == null : mId.equals(key.mId)) && Arrays.equals(mClazz, key
+                    .mClazz);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+    }
+}
@@ -1,5 +1,11 @@
 package com.mozz.htmlnative.css;
 
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import com.mozz.htmlnative.common.Symbols;
 import com.mozz.htmlnative.css.selector.AnySelector;
 import com.mozz.htmlnative.css.selector.ClassSelector;
 import com.mozz.htmlnative.css.selector.CssSelector;
@@ -7,59 +13,328 @@ import com.mozz.htmlnative.css.selector.IdSelector;
 import com.mozz.htmlnative.css.selector.TypeSelector;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * @author Yang Tao, 17/3/27.
+ *         <p>
+ *         A StyleSheet may link other StyleSheets, e.g. those of &lt;link&gt;, whose rules come
+ *         before its own ones. Linked StyleSheets are not copied, so one shared by many pages
+ *         must be {@link #seal() sealed}, after which it can't be changed and can be read by
+ *         many threads.
  */
 
 public final class StyleSheet extends AttrsSet {
 
-    private StringSelectorHolder mClassSelectors;
-    private StringSelectorHolder mIdSelectors;
-    private StringSelectorHolder mTypeSelectors;
-    private AnySelectorHolder mAnySelectors;
+    private static final StyleSheet[] NO_LINKED = new StyleSheet[0];
+
+    /**
+     * Flags of {@link #classInvalidation(int)} and {@link #idInvalidation(String)}: the element
+     * whose class or id is changed must be matched again.
+     */
+    public static final int INVALIDATE_SELF = 1;
+
+    /**
+     * The descendants of the element whose class or id is changed must be matched again.
+     */
+    public static final int INVALIDATE_DESCENDANTS = 1 << 1;
+
+    /**
+     * selectors which always apply
+     */
+    private final SelectorIndex mIndex = new SelectorIndex();
 
     /**
-     * used to store the css selector order in file
+     * selectors of &#64;media rules matching the screen bound, null if none, see
+     * {@link #bindScreen(int, int, float)}. Replaced instead of changed in place.
      */
-    private Map<CssSelector, Integer> mSelectorOrderMap = new HashMap<>();
+    @Nullable
+    private volatile SelectorIndex mMediaIndex;
+
+    private boolean mHasMedia;
+
+    /**
+     * screen the &#64;media rules are evaluated against, width is -1 if not bound yet
+     */
+    private int mBoundWidth = -1;
+    private int mBoundHeight;
+    private float mBoundDensity;
+
+    /**
+     * selectors in the order in file, indexed by {@link CssSelector#order()}
+     */
+    private CssSelector[] mSelectorsInOrder = new CssSelector[16];
 
     private int mInsertOrderSave = 0;
 
+    /**
+     * What to match again if an element gets or loses a class or id, keyed by class symbol id
+     * and by id, see {@link #INVALIDATE_SELF}
+     */
+    private final SparseIntArray mClassInvalidation = new SparseIntArray();
+    private final Map<String, Integer> mIdInvalidation = new HashMap<>();
+
+    /**
+     * StyleSheets linked, in the order they are linked. Replaced instead of changed in place.
+     */
+    private volatile StyleSheet[] mLinked = NO_LINKED;
+
+    @Nullable
+    private final String mHref;
+
+    private volatile boolean mSealed;
+
     public StyleSheet() {
+        this(null);
+    }
+
+    /**
+     * @param href where the StyleSheet is loaded from, null for the one of a page
+     */
+    public StyleSheet(@Nullable String href) {
         super("StyleSheet");
+        mHref = href;
+    }
+
+    @Nullable
+    public String getHref() {
+        return mHref;
+    }
+
+    /**
+     * Make it unchangeable, so that it can be shared by pages and read by many threads.
+     */
+    public void seal() {
+        trimToSize();
+        mSealed = true;
+    }
+
+    public boolean isSealed() {
+        return mSealed;
+    }
 
-        mClassSelectors = new StringSelectorHolder();
-        mIdSelectors = new StringSelectorHolder();
-        mTypeSelectors = new StringSelectorHolder();
-        mAnySelectors = new AnySelectorHolder();
+    private void checkNotSealed() {
+        if (mSealed) {
+            throw new IllegalStateException("StyleSheet " + mHref + " is sealed, can't be " +
+                    "changed");
+        }
+    }
+
+    /**
+     * Link a StyleSheet, whose rules come after those linked before, and before the ones of
+     * this StyleSheet.
+     */
+    public void link(@NonNull StyleSheet styleSheet) {
+        checkNotSealed();
+        if (styleSheet == this) {
+            throw new IllegalArgumentException("StyleSheet can't link itself");
+        }
+        StyleSheet[] linked = Arrays.copyOf(mLinked, mLinked.length + 1);
+        linked[mLinked.length] = styleSheet;
+        mLinked = linked;
+    }
+
+    @NonNull
+    public List<StyleSheet> linkedStyleSheets() {
+        return Arrays.asList(mLinked.clone());
+    }
+
+    @Override
+    public void register(@NonNull AttrsOwner tree) {
+        checkNotSealed();
+        super.register(tree);
+    }
+
+    @Override
+    public void put(@NonNull AttrsOwner tree, int paramsKey, @NonNull Object value) {
+        checkNotSealed();
+        super.put(tree, paramsKey, value);
+    }
+
+    /**
+     * Attrs of a selector are kept by the StyleSheet it is put into, which may be a linked one.
+     */
+    @NonNull
+    @Override
+    public Cursor cursor(@NonNull AttrsOwner owner, @NonNull Cursor cursor) {
+        StyleSheet holder = holderOf(owner);
+        return holder == this ? super.cursor(owner, cursor) : holder.cursor(owner, cursor);
+    }
+
+    @Override
+    public Object getStyle(AttrsOwner owner, int styleId) {
+        StyleSheet holder = holderOf(owner);
+        return holder == this ? super.getStyle(owner, styleId) : holder.getStyle(owner,
+                styleId);
+    }
+
+    private StyleSheet holderOf(AttrsOwner owner) {
+        if (owner instanceof CssSelector) {
+            StyleSheet holder = ((CssSelector) owner).getStyleSheet();
+            if (holder != null) {
+                return holder;
+            }
+        }
+        return this;
     }
 
     public void putSelector(CssSelector cssSelector) {
-        putSingleSelector(cssSelector.tail());
+        putSelector(cssSelector, null);
+    }
+
+    /**
+     * Put a selector of a &#64;media rule, which is kept out of matching until the StyleSheet is
+     * bound to a screen the media matches, see {@link #bindScreen(int, int, float)}.
+     *
+     * @param media null if the selector always applies
+     */
+    public void putSelector(CssSelector cssSelector, @Nullable MediaQuery media) {
+        checkNotSealed();
+        CssSelector tail = cssSelector.tail();
+        tail.setMedia(media);
+        putSingleSelector(tail);
     }
 
     private void putSingleSelector(CssSelector cssSelector) {
 
-        mSelectorOrderMap.put(cssSelector, mInsertOrderSave++);
+        // put again, the later order takes effect
+        int oldOrder = cssSelector.order();
+        boolean putBefore = oldOrder >= 0 && oldOrder < mInsertOrderSave &&
+                mSelectorsInOrder[oldOrder] == cssSelector;
+        if (putBefore) {
+            mSelectorsInOrder[oldOrder] = null;
+        }
+
+        if (mInsertOrderSave == mSelectorsInOrder.length) {
+            mSelectorsInOrder = Arrays.copyOf(mSelectorsInOrder, mInsertOrderSave << 1);
+        }
+        cssSelector.setOrder(mInsertOrderSave);
+        cssSelector.setStyleSheet(this);
+        mSelectorsInOrder[mInsertOrderSave++] = cssSelector;
+
+        addInvalidation(cssSelector);
+
+        if (cssSelector.getMedia() == null) {
+            mIndex.put(cssSelector, putBefore);
+        } else {
+            // evaluated again at next bind
+            mHasMedia = true;
+            mBoundWidth = -1;
+        }
+    }
+
+    /**
+     * Evaluate the &#64;media rules of this StyleSheet and linked ones against the screen, so
+     * that selectors of the matched rules are found by
+     * {@link #matchedSelector(int, String, int[], MatchedSelectors)} and the others cost nothing
+     * in matching. Nothing is done if bound to the same screen. Sealed StyleSheets can be bound
+     * too, as the screen is the same for all pages sharing them.
+     *
+     * @param width   width of screen in pixel
+     * @param height  height of screen in pixel
+     * @param density see {@link com.mozz.htmlnative.utils.ParametersUtils#getScreenDensity()}
+     */
+    public synchronized void bindScreen(int width, int height, float density) {
+        for (StyleSheet linked : mLinked) {
+            linked.bindScreen(width, height, density);
+        }
+
+        if (!mHasMedia || (width == mBoundWidth && height == mBoundHeight && density ==
+                mBoundDensity)) {
+            return;
+        }
+
+        SelectorIndex index = new SelectorIndex();
+        boolean empty = true;
 
-        if (cssSelector.getClass().equals(ClassSelector.class)) {
-            ClassSelector classSelector = (ClassSelector) cssSelector;
-            mClassSelectors.put(classSelector.getName(), classSelector);
-        } else if (cssSelector.getClass().equals(IdSelector.class)) {
-            IdSelector idSelector = (IdSelector) cssSelector;
-            mIdSelectors.put(idSelector.getName(), idSelector);
-        } else if (cssSelector.getClass().equals(TypeSelector.class)) {
-            TypeSelector typeSelector = (TypeSelector) cssSelector;
-            mTypeSelectors.put(typeSelector.getName(), typeSelector);
-        } else if (cssSelector.getClass().equals(AnySelector.class)) {
-            mAnySelectors.put((AnySelector) cssSelector);
+        // selectors of one rule share the same MediaQuery, evaluate once for them
+        MediaQuery media = null;
+        boolean matches = false;
+        for (int i = 0; i < mInsertOrderSave; i++) {
+            CssSelector selector = mSelectorsInOrder[i];
+            if (selector == null || selector.getMedia() == null) {
+                continue;
+            }
+
+            if (selector.getMedia() != media) {
+                media = selector.getMedia();
+                matches = media.matches(width, height, density);
+            }
+            if (matches) {
+                index.put(selector, false);
+                empty = false;
+            }
         }
+
+        mMediaIndex = empty ? null : index;
+        mBoundWidth = width;
+        mBoundHeight = height;
+        mBoundDensity = density;
+    }
+
+    /**
+     * Whether this StyleSheet or a linked one has &#64;media rules, whose result depends on the
+     * screen bound.
+     */
+    public boolean hasMediaRules() {
+        if (mHasMedia) {
+            return true;
+        }
+        for (StyleSheet linked : mLinked) {
+            if (linked.hasMediaRules()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The tail of a chain looks at the element matched, the rest at its ancestors.
+     */
+    private void addInvalidation(CssSelector tail) {
+        for (CssSelector s = tail; s != null; s = s.preChild()) {
+            int flag = s == tail ? INVALIDATE_SELF : INVALIDATE_DESCENDANTS;
+
+            if (s.getClass().equals(ClassSelector.class)) {
+                int classId = ((ClassSelector) s).getNameId();
+                mClassInvalidation.put(classId, mClassInvalidation.get(classId) | flag);
+            } else if (s.getClass().equals(IdSelector.class)) {
+                String id = ((IdSelector) s).getName();
+                Integer old = mIdInvalidation.get(id);
+                mIdInvalidation.put(id, old == null ? flag : old | flag);
+            }
+        }
+    }
+
+    /**
+     * What must be matched again if an element gets or loses the class, computed when selectors
+     * are put, including those of linked StyleSheets.
+     *
+     * @param classId symbol id of class name, see {@link Symbols}
+     * @return {@link #INVALIDATE_SELF} and {@link #INVALIDATE_DESCENDANTS}, 0 if no selector
+     * looks at the class
+     */
+    public int classInvalidation(int classId) {
+        int flags = mClassInvalidation.get(classId);
+        for (StyleSheet linked : mLinked) {
+            flags |= linked.classInvalidation(classId);
+        }
+        return flags;
+    }
+
+    /**
+     * Same as {@link #classInvalidation(int)}, for id.
+     */
+    public int idInvalidation(@NonNull String id) {
+        Integer own = mIdInvalidation.get(id);
+        int flags = own == null ? 0 : own;
+        for (StyleSheet linked : mLinked) {
+            flags |= linked.idInvalidation(id);
+        }
+        return flags;
     }
 
     /**
@@ -69,60 +344,188 @@ public final class StyleSheet extends AttrsSet {
      * @param type  type of element
      * @param id    id of element if have
      * @param clazz class name of element if have
-     * @return List containing all the selectors matched in insert order.
+     * @return Array containing all the selectors matched in insert order.
      */
     public CssSelector[] matchedSelector(String type, String id, String[] clazz) {
+        int[] classIds = null;
+        if (clazz != null) {
+            classIds = new int[clazz.length];
+            for (int i = 0; i < clazz.length; i++) {
+                classIds[i] = Symbols.lookupClass(clazz[i]);
+            }
+        }
+        MatchedSelectors matched = new MatchedSelectors();
+        matchedSelector(Symbols.lookup(type), id, classIds, matched);
+        return matched.toArray();
+    }
+
+    /**
+     * Same as {@link #matchedSelector(String, String, String[])}, with type and class names as
+     * symbol ids, see {@link Symbols}, and the selectors found are put into outMatched, which is
+     * cleared first.
+     */
+    public void matchedSelector(int type, String id, int[] clazz, @NonNull MatchedSelectors
+            outMatched) {
+        outMatched.clear();
+        addMatched(type, id, clazz, outMatched);
+    }
+
+    /**
+     * Selectors of linked StyleSheets go first, each sorted in its own StyleSheet.
+     */
+    private void addMatched(int type, String id, int[] clazz, @NonNull MatchedSelectors
+            outMatched) {
+        for (StyleSheet linked : mLinked) {
+            linked.addMatched(type, id, clazz, outMatched);
+        }
+
+        int from = outMatched.size();
+        mIndex.matches(type, id, clazz, outMatched);
+        SelectorIndex mediaIndex = mMediaIndex;
+        if (mediaIndex != null) {
+            mediaIndex.matches(type, id, clazz, outMatched);
+        }
+        outMatched.sort(from);
+    }
+
+    /**
+     * Number of selectors which have been put, including those of linked StyleSheets, grows each
+     * time {@link #putSelector(CssSelector)} or {@link #link(StyleSheet)} is called.
+     */
+    public int selectorCount() {
+        int count = mInsertOrderSave;
+        for (StyleSheet linked : mLinked) {
+            count += linked.selectorCount();
+        }
+        return count;
+    }
 
-        // Pass mSelectorOrderMap.size() to make sure that matchedSelector is big enough to hold
-        // all the selectors found.
-        CssSelector[] matchedSelector = new CssSelector[mSelectorOrderMap.size()];
+    /**
+     * Selectors which have been put into this StyleSheet, in insert order, not including those
+     * of linked StyleSheets, whether their &#64;media rules match or not. Each item is the tail
+     * of a selector chain, see {@link CssSelector#tail()}.
+     */
+    public CssSelector[] selectorsInOrder() {
+        return Arrays.copyOf(mSelectorsInOrder, mInsertOrderSave);
+    }
 
-        mClassSelectors.matches(clazz, matchedSelector);
-        mIdSelectors.matches(id, matchedSelector);
-        mTypeSelectors.matches(type, matchedSelector);
-        mAnySelectors.matches(matchedSelector);
-        return matchedSelector;
+    private String[] hrefs() {
+        StyleSheet[] linked = mLinked;
+        String[] hrefs = new String[linked.length];
+        for (int i = 0; i < linked.length; i++) {
+            hrefs[i] = linked[i].mHref;
+        }
+        return hrefs;
     }
 
     @Override
     public String toString() {
-        return "AttrSet=" + super.toString() + "\n, class=" + mClassSelectors + "\n, id=" +
-                mIdSelectors + "\n, type=" + mTypeSelectors;
+        return "AttrSet=" + super.toString() + mIndex + "\n, media=" + mMediaIndex + "\n, " +
+                "linked=" + Arrays.toString(hrefs());
+    }
+
+    /**
+     * Selectors keyed by what their tail looks at.
+     */
+    private static final class SelectorIndex {
+        private final SymbolSelectorHolder mClassSelectors = new SymbolSelectorHolder();
+        private final StringSelectorHolder mIdSelectors = new StringSelectorHolder();
+        private final SymbolSelectorHolder mTypeSelectors = new SymbolSelectorHolder();
+        private final AnySelectorHolder mAnySelectors = new AnySelectorHolder();
+
+        /**
+         * @param putBefore whether cssSelector may have been put already, which is moved to the
+         *                  end then
+         */
+        void put(CssSelector cssSelector, boolean putBefore) {
+            if (cssSelector.getClass().equals(ClassSelector.class)) {
+                ClassSelector classSelector = (ClassSelector) cssSelector;
+                mClassSelectors.put(classSelector.getNameId(), classSelector, putBefore);
+            } else if (cssSelector.getClass().equals(IdSelector.class)) {
+                IdSelector idSelector = (IdSelector) cssSelector;
+                mIdSelectors.put(idSelector.getName(), idSelector, putBefore);
+            } else if (cssSelector.getClass().equals(TypeSelector.class)) {
+                TypeSelector typeSelector = (TypeSelector) cssSelector;
+                mTypeSelectors.put(typeSelector.getNameId(), typeSelector, putBefore);
+            } else if (cssSelector.getClass().equals(AnySelector.class)) {
+                mAnySelectors.put((AnySelector) cssSelector, putBefore);
+            }
+        }
+
+        void matches(int type, String id, int[] clazz, MatchedSelectors outMatched) {
+            mClassSelectors.matches(clazz, outMatched);
+            mIdSelectors.matches(id, outMatched);
+            mTypeSelectors.matches(type, outMatched);
+            mAnySelectors.matches(outMatched);
+        }
+
+        @Override
+        public String toString() {
+            return "\n, class=" + mClassSelectors + "\n, id=" + mIdSelectors + "\n, type=" +
+                    mTypeSelectors;
+        }
     }
 
     /**
      * @author Yang Tao, 17/3/30.
      */
 
-    private final class StringSelectorHolder {
-        private Map<String, Set<CssSelector>> mSelectors = new HashMap<>();
+    private static final class StringSelectorHolder {
+        private Map<String, List<CssSelector>> mSelectors = new HashMap<>();
 
-        public void put(String key, CssSelector selector) {
-            Set<CssSelector> sets = mSelectors.get(key);
-            if (sets == null) {
-                sets = new HashSet<>();
-                mSelectors.put(key, sets);
+        public void put(String key, CssSelector selector, boolean putBefore) {
+            List<CssSelector> list = mSelectors.get(key);
+            if (list == null) {
+                list = new ArrayList<>(1);
+                mSelectors.put(key, list);
             }
 
-            sets.add(selector);
+            putInOrder(list, selector, putBefore);
         }
 
-        void matches(String key, CssSelector[] outSelectors) {
-            Set<CssSelector> sets = mSelectors.get(key);
+        void matches(String key, MatchedSelectors outMatched) {
+            List<CssSelector> list = mSelectors.get(key);
 
-            if (sets != null) {
-                for (CssSelector selector : sets) {
-                    Integer index = mSelectorOrderMap.get(selector);
-                    outSelectors[index] = selector;
-                }
+            if (list != null) {
+                addAll(list, outMatched);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return mSelectors.toString();
+        }
+    }
+
+    /**
+     * Same as {@link StringSelectorHolder}, keyed by symbol id.
+     */
+    private static final class SymbolSelectorHolder {
+        private SparseArray<List<CssSelector>> mSelectors = new SparseArray<>();
+
+        public void put(int key, CssSelector selector, boolean putBefore) {
+            List<CssSelector> list = mSelectors.get(key);
+            if (list == null) {
+                list = new ArrayList<>(1);
+                mSelectors.put(key, list);
+            }
+
+            putInOrder(list, selector, putBefore);
+        }
+
+        void matches(int key, MatchedSelectors outMatched) {
+            List<CssSelector> list = mSelectors.get(key);
+
+            if (list != null) {
+                addAll(list, outMatched);
             }
         }
 
-        void matches(String[] key, CssSelector[] outSelectors) {
+        void matches(int[] key, MatchedSelectors outMatched) {
             if (key != null && key.length > 0) {
-                for (String k : key) {
-                    if (k != null) {
-                        matches(k, outSelectors);
+                for (int k : key) {
+                    if (k != Symbols.NONE) {
+                        matches(k, outMatched);
                     }
                 }
             }
@@ -134,18 +537,15 @@ public final class StyleSheet extends AttrsSet {
         }
     }
 
-    private final class AnySelectorHolder {
+    private static final class AnySelectorHolder {
         private List<CssSelector> mSelectors = new ArrayList<>();
 
-        public void put(AnySelector selector) {
-            mSelectors.add(selector);
+        public void put(AnySelector selector, boolean putBefore) {
+            putInOrder(mSelectors, selector, putBefore);
         }
 
-        void matches(CssSelector[] outSelectors) {
-            for (CssSelector selector : mSelectors) {
-                Integer index = mSelectorOrderMap.get(selector);
-                outSelectors[index] = selector;
-            }
+        void matches(MatchedSelectors outMatched) {
+            addAll(mSelectors, outMatched);
         }
 
         @Override
@@ -153,4 +553,23 @@ public final class StyleSheet extends AttrsSet {
             return mSelectors.toString();
         }
     }
+
+    /**
+     * Keep each list of holders in {@link CssSelector#order()}, so that
+     * {@link MatchedSelectors#sort()} has little to do. A selector put again is moved to the
+     * end, the list is only searched then, so that putting n new selectors costs O(n).
+     */
+    private static void putInOrder(List<CssSelector> list, CssSelector selector, boolean
+            putBefore) {
+        if (putBefore) {
+            list.remove(selector);
+        }
+        list.add(selector);
+    }
+
+    private static void addAll(List<CssSelector> list, MatchedSelectors outMatched) {
+        for (int i = 0, size = list.size(); i < size; i++) {
+            outMatched.add(list.get(i));
+        }
+    }
 }
@@ -3,6 +3,7 @@ package com.mozz.htmlnative.css;
 import android.content.Context;
 import android.graphics.Matrix;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.text.TextUtils;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,18 +13,20 @@ import com.mozz.htmlnative.HNLog;
 import com.mozz.htmlnative.HNSandBoxContext;
 import com.mozz.htmlnative.HNativeEngine;
 import com.mozz.htmlnative.InheritStyleStack;
-import com.mozz.htmlnative.stylehandler.LayoutStyleHandler;
-import com.mozz.htmlnative.stylehandler.StyleHandler;
-import com.mozz.htmlnative.stylehandler.StyleHelper;
+import com.mozz.htmlnative.MainThreadCalls;
+import com.mozz.htmlnative.common.BoxEdges;
 import com.mozz.htmlnative.common.PixelValue;
+import com.mozz.htmlnative.common.Symbols;
 import com.mozz.htmlnative.dom.DomElement;
 import com.mozz.htmlnative.exception.AttrApplyException;
+import com.mozz.htmlnative.stylehandler.LayoutStyleHandler;
+import com.mozz.htmlnative.stylehandler.StyleHandler;
+import com.mozz.htmlnative.stylehandler.StyleHelper;
 import com.mozz.htmlnative.utils.ParametersUtils;
 import com.mozz.htmlnative.view.BackgroundViewDelegate;
 import com.mozz.htmlnative.view.IBackgroundView;
 import com.mozz.htmlnative.view.LayoutParamsLazyCreator;
 
-import java.util.Iterator;
 
 /**
  * @author Yang Tao, 17/3/30.
@@ -61,13 +64,140 @@ public final class Styles {
 
     public static final String VAL_FILL_PARENT = "100%";
 
+    public static final String VAL_NORMAL = "normal";
+
     public static final String VAL_DISPLAY_FLEX = "flex";
     public static final String VAL_DISPLAY_BOX = "box";
     public static final String VAL_DISPLAY_ABSOLUTE = "absolute";
 
+    public static final String VAL_VISIBLE = "visible";
+    public static final String VAL_INVISIBLE = "invisible";
+
+    public static final String VAL_DIRECTION_LTR = "ltr";
+    public static final String VAL_DIRECTION_RTL = "rtl";
+
+    /**
+     * Typed value of display, parsed once by StyleItemParser. toString() is the keyword.
+     */
+    public enum Display {
+        FLEX(VAL_DISPLAY_FLEX), BOX(VAL_DISPLAY_BOX), ABSOLUTE(VAL_DISPLAY_ABSOLUTE);
+
+        private static final Display[] VALUES = values();
+
+        private final String mKeyword;
+
+        Display(String keyword) {
+            mKeyword = keyword;
+        }
+
+        /**
+         * @return value itself if it is a Display, the one of keyword value.toString(), or null
+         */
+        @Nullable
+        public static Display of(Object value) {
+            if (value instanceof Display) {
+                return (Display) value;
+            }
+            if (value != null) {
+                String keyword = value.toString();
+                for (Display display : VALUES) {
+                    if (display.mKeyword.equals(keyword)) {
+                        return display;
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return mKeyword;
+        }
+    }
+
+    /**
+     * Typed value of visibility, see {@link Display}.
+     */
+    public enum Visibility {
+        VISIBLE(VAL_VISIBLE), INVISIBLE(VAL_INVISIBLE);
+
+        private static final Visibility[] VALUES = values();
+
+        private final String mKeyword;
+
+        Visibility(String keyword) {
+            mKeyword = keyword;
+        }
+
+        @Nullable
+        public static Visibility of(Object value) {
+            if (value instanceof Visibility) {
+                return (Visibility) value;
+            }
+            if (value != null) {
+                String keyword = value.toString();
+                for (Visibility visibility : VALUES) {
+                    if (visibility.mKeyword.equals(keyword)) {
+                        return visibility;
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return mKeyword;
+        }
+    }
+
+    /**
+     * Typed value of direction, see {@link Display}.
+     */
+    public enum Direction {
+        LTR(VAL_DIRECTION_LTR), RTL(VAL_DIRECTION_RTL);
+
+        private static final Direction[] VALUES = values();
+
+        private final String mKeyword;
+
+        Direction(String keyword) {
+            mKeyword = keyword;
+        }
+
+        @Nullable
+        public static Direction of(Object value) {
+            if (value instanceof Direction) {
+                return (Direction) value;
+            }
+            if (value != null) {
+                String keyword = value.toString();
+                for (Direction direction : VALUES) {
+                    if (direction.mKeyword.equals(keyword)) {
+                        return direction;
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return mKeyword;
+        }
+    }
+
     static {
-        InheritStylesRegistry.register(ATTR_VISIBLE);
-        InheritStylesRegistry.register(ATTR_DIRECTION);
+        registerInheritStyles();
+    }
+
+    /**
+     * Register the inherited styles of Styles. Also called by {@link StyleResolver}, which may
+     * resolve styles before any view is rendered, registering again does nothing.
+     */
+    static void registerInheritStyles() {
+        InheritStylesRegistry.register(Symbols.VISIBILITY);
+        InheritStylesRegistry.register(Symbols.DIRECTION);
     }
 
 
@@ -79,10 +209,22 @@ public final class Styles {
                                           isParent, InheritStyleStack outStack) throws
             AttrApplyException {
         applyStyle(context, sandBoxContext, v, domElement, layoutCreator, parent,
-                viewStyleHandler, extraStyleHandler, parentAttr, entry.getStyleName(), entry
+                viewStyleHandler, extraStyleHandler, parentAttr, entry.getStyleId(), entry
                         .getStyle(), isParent, outStack);
     }
 
+    public static void applyStyle(Context context, final HNSandBoxContext sandBoxContext, View v,
+                                  DomElement domElement, @NonNull LayoutParamsLazyCreator
+                                          layoutCreator, @NonNull ViewGroup parent, StyleHandler
+                                          viewStyleHandler, StyleHandler extraStyleHandler,
+                                  LayoutStyleHandler parentAttr, String styleName, Object style,
+                                  boolean isParent, InheritStyleStack outStack) throws
+            AttrApplyException {
+        applyStyle(context, sandBoxContext, v, domElement, layoutCreator, parent,
+                viewStyleHandler, extraStyleHandler, parentAttr, Symbols.intern(styleName),
+                style, isParent, outStack);
+    }
+
     /**
      * Apply a params with value to a view
      *
@@ -93,20 +235,20 @@ public final class Styles {
      * @param layoutCreator  {@link ViewGroup.LayoutParams}, layoutParams for parent
      *                       when add this view to parent
      * @param parent         {@link ViewGroup}, parent of the view
-     * @param styleName      parameter name
+     * @param styleName      symbol id of parameter name, see {@link Symbols}
      * @param style          parameter value     @throws AttrApplyException
      */
     public static void applyStyle(Context context, final HNSandBoxContext sandBoxContext, View v,
                                   DomElement domElement, @NonNull LayoutParamsLazyCreator
                                           layoutCreator, @NonNull ViewGroup parent, StyleHandler
                                           viewStyleHandler, StyleHandler extraStyleHandler,
-                                  LayoutStyleHandler parentAttr, String styleName, Object style,
+                                  LayoutStyleHandler parentAttr, int styleName, Object style,
                                   boolean isParent, InheritStyleStack outStack) throws
             AttrApplyException {
 
-        if (domElement != null) {
-            HNLog.d(HNLog.STYLE, "set style \"" + styleName + ": " + style + "\"  to " +
-                    domElement.getType());
+        if (domElement != null && HNLog.isLoggable(HNLog.STYLE)) {
+            HNLog.d(HNLog.STYLE, "set style \"" + Symbols.name(styleName) + ": " + style +
+                    "\"  to " + domElement.getType());
         }
 
         if (isParent) {
@@ -116,35 +258,22 @@ public final class Styles {
         }
 
         switch (styleName) {
-            case ATTR_WIDTH: {
-                if (style.toString().equalsIgnoreCase(VAL_FILL_PARENT)) {
-                    layoutCreator.width = ViewGroup.LayoutParams.MATCH_PARENT;
-                } else {
-                    PixelValue pixel = ParametersUtils.toPixel(style);
-                    layoutCreator.width = (int) pixel.getPxValue();
-                }
-            }
-            break;
+            case Symbols.WIDTH:
+                layoutCreator.width = toLayoutSize(style);
+                break;
 
-            case ATTR_HEIGHT: {
-                if (style.toString().equalsIgnoreCase(VAL_FILL_PARENT)) {
-                    layoutCreator.height = ViewGroup.LayoutParams.MATCH_PARENT;
-                } else {
-                    PixelValue pixel = ParametersUtils.toPixel(style);
-                    layoutCreator.height = (int) pixel.getPxValue();
-                }
-            }
-            break;
+            case Symbols.HEIGHT:
+                layoutCreator.height = toLayoutSize(style);
+                break;
 
-            case ATTR_BACKGROUND:
+            case Symbols.BACKGROUND:
                 if (style instanceof Background) {
                     Background background = (Background) style;
 
                     if (!TextUtils.isEmpty(background.getUrl()) && v instanceof IBackgroundView) {
                         Matrix matrix = Background.createBitmapMatrix(background);
-                        HNativeEngine.getImageViewAdapter().setImage(background.getUrl(), new
-                                BackgroundViewDelegate(v, matrix, background.getColor(),
-                                background));
+                        setImage(background.getUrl(), new BackgroundViewDelegate(v, matrix,
+                                background.getColor(), background));
                     } else if (background.isColorSet()) {
                         if (v instanceof IBackgroundView) {
                             ((IBackgroundView) v).setHtmlBackground(null, background);
@@ -158,122 +287,105 @@ public final class Styles {
 
                 break;
 
-            case ATTR_MARGIN: {
-                PixelValue[] pixelValues = ParametersUtils.toPixels(style.toString());
-                int top = -1;
-                int bottom = -1;
-                int left = -1;
-                int right = -1;
-                if (pixelValues.length == 1) {
-                    top = bottom = left = right = (int) pixelValues[0].getPxValue();
-                } else if (pixelValues.length == 2) {
-                    top = bottom = (int) pixelValues[0].getPxValue();
-                    left = right = (int) pixelValues[1].getPxValue();
-                } else if (pixelValues.length == 4) {
-                    top = (int) pixelValues[0].getPxValue();
-                    bottom = (int) pixelValues[2].getPxValue();
-                    left = (int) pixelValues[3].getPxValue();
-                    right = (int) pixelValues[1].getPxValue();
-                }
-                if (top != -1 && bottom != -1 && left != -1 && right != -1) {
-                    layoutCreator.setMargins(left, top, right, bottom);
+            case Symbols.MARGIN: {
+                BoxEdges margin = ParametersUtils.toBoxEdges(style);
+                if (margin != null) {
+                    int top = (int) margin.getTop().getPxValue();
+                    int bottom = (int) margin.getBottom().getPxValue();
+                    int left = (int) margin.getLeft().getPxValue();
+                    int right = (int) margin.getRight().getPxValue();
+                    if (top != -1 && bottom != -1 && left != -1 && right != -1) {
+                        layoutCreator.setMargins(left, top, right, bottom);
+                    }
                 }
-
             }
             break;
 
-            case ATTR_MARGIN_RIGHT:
+            case Symbols.MARGIN_RIGHT:
                 layoutCreator.marginRight = (int) ParametersUtils.toPixel(style).getPxValue();
                 break;
 
-            case ATTR_MARGIN_LEFT:
+            case Symbols.MARGIN_LEFT:
                 layoutCreator.marginLeft = (int) ParametersUtils.toPixel(style).getPxValue();
                 break;
 
-            case ATTR_MARGIN_TOP:
+            case Symbols.MARGIN_TOP:
                 layoutCreator.marginTop = (int) ParametersUtils.toPixel(style).getPxValue();
                 break;
 
-            case ATTR_MARGIN_BOTTOM:
+            case Symbols.MARGIN_BOTTOM:
                 layoutCreator.marginBottom = (int) ParametersUtils.toPixel(style).getPxValue();
                 break;
 
-            case ATTR_PADDING: {
-                PixelValue[] pixelValues = ParametersUtils.toPixels(style.toString());
-                int top = -1;
-                int bottom = -1;
-                int left = -1;
-                int right = -1;
-                if (pixelValues.length == 1) {
-                    top = bottom = left = right = (int) pixelValues[0].getValue();
-                } else if (pixelValues.length == 2) {
-                    top = bottom = (int) pixelValues[0].getValue();
-                    left = right = (int) pixelValues[1].getValue();
-                } else if (pixelValues.length == 4) {
-                    top = (int) pixelValues[0].getValue();
-                    bottom = (int) pixelValues[2].getValue();
-                    left = (int) pixelValues[3].getValue();
-                    right = (int) pixelValues[1].getValue();
-                }
-                if (top != -1 && bottom != -1 && left != -1 && right != -1) {
-                    v.setPadding(left, top, right, bottom);
+            case Symbols.PADDING: {
+                BoxEdges padding = ParametersUtils.toBoxEdges(style);
+                if (padding != null) {
+                    // -1 of any edge leaves padding unset, in pixels the same as padding-left
+                    // and others
+                    if ((int) padding.getTop().getValue() != -1 && (int) padding.getBottom()
+                            .getValue() != -1 && (int) padding.getLeft().getValue() != -1 &&
+                            (int) padding.getRight().getValue() != -1) {
+                        v.setPadding((int) padding.getLeft().getPxValue(), (int) padding
+                                .getTop().getPxValue(), (int) padding.getRight().getPxValue(),
+                                (int) padding.getBottom().getPxValue());
+                    }
                 }
             }
             break;
 
-            case ATTR_PADDING_LEFT:
-                int paddingLeft = ParametersUtils.toInt(style);
+            case Symbols.PADDING_LEFT:
+                int paddingLeft = (int) ParametersUtils.toPixel(style).getPxValue();
                 StyleHelper.setLeftPadding(v, paddingLeft);
                 break;
 
-            case ATTR_PADDING_RIGHT:
-                int paddingRight = ParametersUtils.toInt(style);
+            case Symbols.PADDING_RIGHT:
+                int paddingRight = (int) ParametersUtils.toPixel(style).getPxValue();
                 StyleHelper.setRightPadding(v, paddingRight);
                 break;
 
-            case ATTR_PADDING_TOP:
-                int paddingTop = ParametersUtils.toInt(style);
+            case Symbols.PADDING_TOP:
+                int paddingTop = (int) ParametersUtils.toPixel(style).getPxValue();
                 StyleHelper.setTopPadding(v, paddingTop);
                 break;
 
-            case ATTR_PADDING_BOTTOM:
-                int paddingBottom = ParametersUtils.toInt(style);
+            case Symbols.PADDING_BOTTOM:
+                int paddingBottom = (int) ParametersUtils.toPixel(style).getPxValue();
                 StyleHelper.setBottomPadding(v, paddingBottom);
                 break;
 
-            case ATTR_LEFT:
+            case Symbols.LEFT:
                 layoutCreator.left = (int) ParametersUtils.toPixel(style).getPxValue();
                 break;
 
-            case ATTR_TOP:
+            case Symbols.TOP:
                 layoutCreator.top = (int) ParametersUtils.toPixel(style).getPxValue();
                 break;
 
-            case ATTR_ALPHA:
+            case Symbols.ALPHA:
                 float alpha = ParametersUtils.toFloat(style);
                 v.setAlpha(alpha);
                 break;
 
-            case ATTR_VISIBLE:
-                String visible = style.toString();
+            case Symbols.VISIBILITY:
+                Visibility visible = Visibility.of(style);
 
-                if (visible.equals("visible")) {
+                if (visible == Visibility.VISIBLE) {
                     v.setVisibility(View.VISIBLE);
-                } else if (visible.equals("invisible")) {
+                } else if (visible == Visibility.INVISIBLE) {
                     v.setVisibility(View.INVISIBLE);
                 }
                 break;
 
-            case ATTR_DIRECTION:
-                String direction = style.toString();
-                if (direction.equals("ltr")) {
+            case Symbols.DIRECTION:
+                Direction direction = Direction.of(style);
+                if (direction == Direction.LTR) {
                     v.setTextDirection(View.TEXT_DIRECTION_LTR);
-                } else if (direction.equals("rtl")) {
+                } else if (direction == Direction.RTL) {
                     v.setTextDirection(View.TEXT_DIRECTION_RTL);
                 }
                 break;
 
-            case ATTR_ONCLICK:
+            case Symbols.ONCLICK:
                 if (style instanceof String) {
                     final String functionName = (String) style;
                     v.setOnClickListener(new View.OnClickListener() {
@@ -319,10 +431,21 @@ public final class Styles {
         }
     }
 
+    /**
+     * @return {@link ViewGroup.LayoutParams#MATCH_PARENT} for 100%, otherwise pixels
+     */
+    private static int toLayoutSize(Object style) throws IllegalArgumentException {
+        if (!(style instanceof PixelValue) && style.toString().equalsIgnoreCase
+                (VAL_FILL_PARENT)) {
+            return ViewGroup.LayoutParams.MATCH_PARENT;
+        }
+        return (int) ParametersUtils.toPixel(style).getPxValue();
+    }
+
     /**
      * Apply a default style to view
      */
-    private static void applyDefaultStyle(Context context, final HNSandBoxContext sandBoxContext,
+    public static void applyDefaultStyle(Context context, final HNSandBoxContext sandBoxContext,
                                           View v, DomElement domElement, @NonNull ViewGroup
                                                   parent, StyleHandler viewStyleHandler,
                                           StyleHandler extraStyleHandler, LayoutStyleHandler
@@ -374,20 +497,76 @@ public final class Styles {
                     extraStyleHandler, parentAttrHandler, paramsLazyCreator);
         }
 
-        Iterator<StyleEntry> itr = source.iterator(tree);
-        while (itr.hasNext()) {
-            StyleEntry styleEntry = itr.next();
-
+        AttrsSet.Cursor cursor = source.cursor(tree, new AttrsSet.Cursor());
+        while (cursor.moveToNext()) {
             applyStyle(context, sandBoxContext, v, domElement, paramsLazyCreator, parent,
-                    viewStyleHandler, extraStyleHandler, parentAttrHandler, styleEntry.getStyleName
-                            (), styleEntry.getStyle(), isParent, stack);
+                    viewStyleHandler, extraStyleHandler, parentAttrHandler, cursor.getStyleId(),
+                    cursor.getStyle(), isParent, stack);
+        }
+    }
+
+    /**
+     * Apply the styles resolved by {@link StyleResolver} to the view: the inherited ones, the
+     * default styles, then its own. A wrong style is skipped instead of failing the styles after
+     * it.
+     *
+     * @param stack own inherited styles are put into it, for children rendered without {@link
+     *              ComputedStyle}
+     */
+    public static void applyComputed(Context context, @NonNull final HNSandBoxContext
+            sandBoxContext, @NonNull ComputedStyle style, View v, DomElement domElement,
+                                     @NonNull ViewGroup parent, @NonNull LayoutParamsLazyCreator
+                                             paramsLazyCreator, StyleHandler viewStyleHandler,
+                                     StyleHandler extraStyleHandler, LayoutStyleHandler
+                                             parentAttrHandler, InheritStyleStack stack) {
+
+        for (int i = 0; i < style.mInheritedNames.length; i++) {
+            applyComputedStyle(context, sandBoxContext, v, domElement, paramsLazyCreator,
+                    parent, viewStyleHandler, extraStyleHandler, parentAttrHandler, style
+                            .mInheritedNames[i], style.mInheritedValues[i], null);
+        }
+
+        try {
+            applyDefaultStyle(context, sandBoxContext, v, domElement, parent, viewStyleHandler,
+                    extraStyleHandler, parentAttrHandler, paramsLazyCreator);
+        } catch (AttrApplyException e) {
+            HNLog.e(HNLog.STYLE, "wrong when apply default style to " + domElement.getType());
+        }
+
+        for (int i = 0; i < style.mNames.length; i++) {
+            applyComputedStyle(context, sandBoxContext, v, domElement, paramsLazyCreator,
+                    parent, viewStyleHandler, extraStyleHandler, parentAttrHandler, style
+                            .mNames[i], style.mValues[i], stack);
+        }
+    }
 
+    private static void applyComputedStyle(Context context, final HNSandBoxContext
+            sandBoxContext, View v, DomElement domElement, @NonNull LayoutParamsLazyCreator
+            layoutCreator, @NonNull ViewGroup parent, StyleHandler viewStyleHandler, StyleHandler
+            extraStyleHandler, LayoutStyleHandler parentAttr, int styleName, Object style,
+                                           InheritStyleStack outStack) {
+        try {
+            applyStyle(context, sandBoxContext, v, domElement, layoutCreator, parent,
+                    viewStyleHandler, extraStyleHandler, parentAttr, styleName, style, false,
+                    outStack);
+        } catch (AttrApplyException e) {
+            HNLog.e(HNLog.STYLE, "wrong when apply \"" + Symbols.name(styleName) + ": " + style +
+                    "\" to " + domElement.getType());
         }
     }
 
     public static Object getStyle(View v, String styleName, StyleHandler styleHandler, StyleHandler extraStyleHandler, LayoutStyleHandler parentHandler) {
+        return getStyle(v, Symbols.intern(styleName), styleHandler, extraStyleHandler,
+                parentHandler);
+    }
+
+    /**
+     * @param styleName symbol id of style name, see {@link Symbols}
+     */
+    public static Object getStyle(View v, int styleName, StyleHandler styleHandler, StyleHandler
+            extraStyleHandler, LayoutStyleHandler parentHandler) {
         switch (styleName) {
-            case ATTR_WIDTH:
+            case Symbols.WIDTH:
                 int width = v.getLayoutParams().width;
                 if (width == ViewGroup.LayoutParams.MATCH_PARENT) {
                     return VAL_FILL_PARENT;
@@ -395,7 +574,7 @@ public final class Styles {
                     return v.getLayoutParams().width + "px";
                 }
 
-            case ATTR_HEIGHT:
+            case Symbols.HEIGHT:
                 int height = v.getLayoutParams().height;
                 if (height == ViewGroup.LayoutParams.MATCH_PARENT) {
                     return VAL_FILL_PARENT;
@@ -403,76 +582,76 @@ public final class Styles {
                     return v.getLayoutParams().height + "px";
                 }
 
-            case ATTR_BACKGROUND:
+            case Symbols.BACKGROUND:
                 if (v instanceof IBackgroundView) {
                     return ((IBackgroundView) v).getHtmlBackground();
                 }
                 return null;
 
-            case ATTR_MARGIN_RIGHT:
+            case Symbols.MARGIN_RIGHT:
                 if (v.getLayoutParams() instanceof ViewGroup.MarginLayoutParams) {
                     return ((ViewGroup.MarginLayoutParams) v.getLayoutParams()).rightMargin + "px";
                 }
                 return null;
 
-            case ATTR_MARGIN_LEFT:
+            case Symbols.MARGIN_LEFT:
                 if (v.getLayoutParams() instanceof ViewGroup.MarginLayoutParams) {
                     return ((ViewGroup.MarginLayoutParams) v.getLayoutParams()).leftMargin + "px";
                 }
                 return null;
 
-            case ATTR_MARGIN_TOP:
+            case Symbols.MARGIN_TOP:
                 if (v.getLayoutParams() instanceof ViewGroup.MarginLayoutParams) {
                     return ((ViewGroup.MarginLayoutParams) v.getLayoutParams()).topMargin + "px";
                 }
                 return null;
 
-            case ATTR_MARGIN_BOTTOM:
+            case Symbols.MARGIN_BOTTOM:
                 if (v.getLayoutParams() instanceof ViewGroup.MarginLayoutParams) {
                     return ((ViewGroup.MarginLayoutParams) v.getLayoutParams()).bottomMargin + "px";
                 }
                 return null;
-            case ATTR_PADDING_TOP:
+            case Symbols.PADDING_TOP:
                 return v.getPaddingTop() + "px";
-            case ATTR_PADDING_LEFT:
+            case Symbols.PADDING_LEFT:
                 return v.getPaddingLeft() + "px";
-            case ATTR_PADDING_BOTTOM:
+            case Symbols.PADDING_BOTTOM:
                 return v.getPaddingBottom() + "px";
-            case ATTR_PADDING_RIGHT:
+            case Symbols.PADDING_RIGHT:
                 return v.getPaddingRight() + "px";
 
-            case ATTR_LEFT:
+            case Symbols.LEFT:
                 if (v.getLayoutParams() instanceof AbsoluteLayout.LayoutParams) {
                     return ((AbsoluteLayout.LayoutParams) v.getLayoutParams()).x + "px";
                 } else {
                     return null;
                 }
 
-            case ATTR_TOP:
+            case Symbols.TOP:
                 if (v.getLayoutParams() instanceof AbsoluteLayout.LayoutParams) {
                     return ((AbsoluteLayout.LayoutParams) v.getLayoutParams()).y + "px";
                 } else {
                     return null;
                 }
 
-            case ATTR_ALPHA:
+            case Symbols.ALPHA:
                 return v.getAlpha();
 
-            case ATTR_VISIBLE:
+            case Symbols.VISIBILITY:
                 int visibility = v.getVisibility();
                 if (visibility == View.VISIBLE) {
-                    return "visible";
+                    return VAL_VISIBLE;
                 } else if (visibility == View.INVISIBLE) {
-                    return "invisible";
+                    return VAL_INVISIBLE;
                 }
 
-            case ATTR_DIRECTION:
+            case Symbols.DIRECTION:
                 int textDirection = v.getTextDirection();
 
                 if (textDirection == View.TEXT_DIRECTION_LTR) {
-                    return "ltr";
+                    return VAL_DIRECTION_LTR;
                 } else if (textDirection == View.TEXT_DIRECTION_RTL) {
-                    return "rtl";
+                    return VAL_DIRECTION_RTL;
                 }
                 return null;
 
@@ -500,16 +679,27 @@ public final class Styles {
      */
     public static class StyleEntry {
 
-        private String mStyleName;
+        private int mStyleId;
         private Object mStyleValue;
 
         public StyleEntry(String param, Object value) {
-            this.mStyleName = param;
+            this(Symbols.intern(param), value);
+        }
+
+        /**
+         * @param param symbol id of style name, see {@link Symbols}
+         */
+        public StyleEntry(int param, Object value) {
+            this.mStyleId = param;
             this.mStyleValue = value;
         }
 
         public String getStyleName() {
-            return mStyleName;
+            return Symbols.name(mStyleId);
+        }
+
+        public int getStyleId() {
+            return mStyleId;
         }
 
         public Object getStyle() {
@@ -524,9 +714,19 @@ public final class Styles {
 
         @Override
         public String toString() {
-            return mStyleName + "=" + mStyleValue;
+            return getStyleName() + "=" + mStyleValue;
         }
     }
-}
-
 
+    /**
+     * Image loaders bind the request to the view on main thread, see {@link MainThreadCalls}.
+     */
+    private static void setImage(final String url, final BackgroundViewDelegate delegate) {
+        MainThreadCalls.run(new Runnable() {
+            @Override
+            public void run() {
+                HNativeEngine.getImageViewAdapter().setImage(url, delegate);
+            }
+        });
+    }
+}
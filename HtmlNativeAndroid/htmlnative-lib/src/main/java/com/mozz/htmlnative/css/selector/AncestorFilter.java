@@ -0,0 +1,153 @@
+package com.mozz.htmlnative.css.selector;
+
+import android.support.annotation.NonNull;
+
+import com.mozz.htmlnative.dom.DomElement;
+
+import java.util.Arrays;
+
+/**
+ * Counting bloom filter of the type, id and classes of the elements from root down to the
+ * parent of the element being matched. Elements are pushed before their children are rendered
+ * and popped after, see {@link CssSelector#matchWhole(DomElement, AncestorFilter)}.
+ * <p>
+ * A selector such as ".a .b .c" is rejected without walking up the parents if any of ".a" and
+ * ".b" is definitely not on the path. It never rejects a selector which would match, but may
+ * let one through which then fails in the walk.
+ *
+ * @author Yang Tao, 17/6/20.
+ */
+
+public final class AncestorFilter {
+
+    /**
+     * Means the selector has nothing to look for in ancestors, e.g. *
+     */
+    static final int NO_HASH = 0;
+
+    private static final int BITS = 12;
+    private static final int SIZE = 1 << BITS;
+    private static final int MASK = SIZE - 1;
+
+    /**
+     * Counter which is full stays full, so the filter may have false positives but never false
+     * negatives.
+     */
+    private static final int FULL = 0xFF;
+
+    private static final int SALT_TYPE = 0x1B873593;
+    private static final int SALT_ID = 0x38B34AE5;
+    private static final int SALT_CLASS = 0x5BD1E995;
+
+    private final byte[] mCounters = new byte[SIZE];
+
+    /**
+     * Hashes pushed, and the number of hashes of each element, for {@link #pop()}
+     */
+    private int[] mHashes = new int[64];
+    private int mHashCount = 0;
+    private int[] mFrames = new int[16];
+    private int mDepth = 0;
+
+    public void push(@NonNull DomElement element) {
+        int start = mHashCount;
+
+        add(typeHash(element.getTypeId()));
+        if (element.hasId()) {
+            add(idHash(element.getId()));
+        }
+        if (element.hasClazz()) {
+            for (int clazz : element.getClazzIds()) {
+                add(classHash(clazz));
+            }
+        }
+
+        if (mDepth == mFrames.length) {
+            mFrames = Arrays.copyOf(mFrames, mDepth << 1);
+        }
+        mFrames[mDepth++] = mHashCount - start;
+    }
+
+    public void pop() {
+        if (mDepth == 0) {
+            throw new IllegalStateException("pop more than push");
+        }
+
+        int count = mFrames[--mDepth];
+        for (int i = 0; i < count; i++) {
+            int hash = mHashes[--mHashCount];
+            decrease(hash & MASK);
+            decrease((hash >>> BITS) & MASK);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(mCounters, (byte) 0);
+        mHashCount = 0;
+        mDepth = 0;
+    }
+
+    public int depth() {
+        return mDepth;
+    }
+
+    /**
+     * @return false if some of hashes is definitely not pushed
+     */
+    boolean mayContainAll(@NonNull int[] hashes) {
+        for (int hash : hashes) {
+            if (mCounters[hash & MASK] == 0 || mCounters[(hash >>> BITS) & MASK] == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(int hash) {
+        if (mHashCount == mHashes.length) {
+            mHashes = Arrays.copyOf(mHashes, mHashCount << 1);
+        }
+        mHashes[mHashCount++] = hash;
+        increase(hash & MASK);
+        increase((hash >>> BITS) & MASK);
+    }
+
+    private void increase(int index) {
+        int count = mCounters[index] & 0xFF;
+        if (count != FULL) {
+            mCounters[index] = (byte) (count + 1);
+        }
+    }
+
+    private void decrease(int index) {
+        int count = mCounters[index] & 0xFF;
+        if (count != FULL) {
+            mCounters[index] = (byte) (count - 1);
+        }
+    }
+
+    static int typeHash(int typeId) {
+        return hash(typeId, SALT_TYPE);
+    }
+
+    static int idHash(@NonNull String id) {
+        return hash(id.hashCode(), SALT_ID);
+    }
+
+    static int classHash(int classId) {
+        return hash(classId, SALT_CLASS);
+    }
+
+    /**
+     * Finalizer of MurmurHash3, two indexes of the filter are taken from the low bits.
+     */
+    private static int hash(int key, int salt) {
+        int h = key ^ salt;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h == NO_HASH ? 1 : h;
+    }
+}
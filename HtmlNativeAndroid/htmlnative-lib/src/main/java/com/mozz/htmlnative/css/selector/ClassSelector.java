@@ -1,5 +1,6 @@
 package com.mozz.htmlnative.css.selector;
 
+import com.mozz.htmlnative.common.Symbols;
 import com.mozz.htmlnative.dom.DomElement;
 
 /**
@@ -8,7 +9,12 @@ import com.mozz.htmlnative.dom.DomElement;
 
 public class ClassSelector extends TypeSelector {
     public ClassSelector(String classN) {
-        super(classN);
+        super(classN, Symbols.internClass(classN));
+    }
+
+    @Override
+    int filterHash() {
+        return AncestorFilter.classHash(mTagId);
     }
 
     @Override
@@ -19,9 +25,10 @@ public class ClassSelector extends TypeSelector {
     @Override
     public boolean matchThis(DomElement element) {
         if (element.hasClazz()) {
-            String[] classes = element.getClazz();
-            for (String c : classes) {
-                if (c.equals(mTag)) {
+            int[] classes = element.getClazzIds();
+            for (int i = 0; i < classes.length; i++) {
+                if (classes[i] == mTagId && (!Symbols.isHashedClass(mTagId) || mTag.equals
+                        (element.getClazz()[i]))) {
                     return true;
                 }
             }
@@ -1,10 +1,15 @@
 package com.mozz.htmlnative.css.selector;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.mozz.htmlnative.css.AttrsSet;
+import com.mozz.htmlnative.css.MediaQuery;
+import com.mozz.htmlnative.css.StyleSheet;
 import com.mozz.htmlnative.dom.DomElement;
 
+import java.util.Arrays;
+
 /**
  * @author Yang Tao, 17/3/27.
  */
@@ -31,9 +36,35 @@ public abstract class CssSelector implements AttrsSet.AttrsOwner {
      */
     private boolean mMatchDirect = false;
 
+    /**
+     * {@link #filterHash()} of the selectors before this one in chain, which must be found in
+     * ancestors, see {@link AncestorFilter}
+     */
+    @NonNull
+    private int[] mAncestorHashes = EMPTY_HASHES;
+
+    private static final int[] EMPTY_HASHES = new int[0];
+
 
     private int mAttrIndex;
 
+    /**
+     * index in order of the {@link com.mozz.htmlnative.css.StyleSheet} which it is put into, -1
+     * if not put yet.
+     */
+    private int mOrder = -1;
+
+    /**
+     * the {@link StyleSheet} which it is put into, holding its attrs
+     */
+    private StyleSheet mStyleSheet;
+
+    /**
+     * condition of the &#64;media rule it is put under, null if it always applies
+     */
+    @Nullable
+    private MediaQuery mMedia;
+
     public final void chainGroup(CssSelector st) {
         st.mAttrIndex = this.mAttrIndex;
         if (mGroupTail == null) {
@@ -57,6 +88,7 @@ public abstract class CssSelector implements AttrsSet.AttrsOwner {
         st.mHead = this.mHead;
 
         st.mPre = mTail;
+        st.mAncestorHashes = appendHash(mTail.mAncestorHashes, mTail.filterHash());
         mTail.mNext = st;
         mTail = st;
 
@@ -82,12 +114,44 @@ public abstract class CssSelector implements AttrsSet.AttrsOwner {
         return sb.toString();
     }
 
+    @NonNull
+    private static int[] appendHash(@NonNull int[] hashes, int hash) {
+        if (hash == AncestorFilter.NO_HASH) {
+            return hashes;
+        }
+        int[] appended = Arrays.copyOf(hashes, hashes.length + 1);
+        appended[hashes.length] = hash;
+        return appended;
+    }
+
     public abstract boolean matchThis(DomElement element);
 
+    /**
+     * Hash of what this selector looks for, for {@link AncestorFilter}, or
+     * {@link AncestorFilter#NO_HASH} if it matches any element.
+     */
+    int filterHash() {
+        return AncestorFilter.NO_HASH;
+    }
+
     public final boolean matchWhole(DomElement element) {
         return this.matchBackward(element);
     }
 
+    /**
+     * Same as {@link #matchWhole(DomElement)}, but returns false at once if ancestorFilter tells
+     * some selector before this one can not be found in ancestors.
+     *
+     * @param ancestorFilter holding all the ancestors of element, or null to always walk up
+     */
+    public final boolean matchWhole(DomElement element, @Nullable AncestorFilter
+            ancestorFilter) {
+        if (ancestorFilter != null && !ancestorFilter.mayContainAll(mAncestorHashes)) {
+            return false;
+        }
+        return this.matchBackward(element);
+    }
+
     private boolean matchBackward(DomElement element) {
         DomElement curE = element;
         CssSelector curS = this;
@@ -162,6 +226,31 @@ public abstract class CssSelector implements AttrsSet.AttrsOwner {
         mAttrIndex = newIndex;
     }
 
+    public final StyleSheet getStyleSheet() {
+        return mStyleSheet;
+    }
+
+    public final void setStyleSheet(StyleSheet styleSheet) {
+        mStyleSheet = styleSheet;
+    }
+
+    @Nullable
+    public final MediaQuery getMedia() {
+        return mMedia;
+    }
+
+    public final void setMedia(@Nullable MediaQuery media) {
+        mMedia = media;
+    }
+
+    public final int order() {
+        return mOrder;
+    }
+
+    public final void setOrder(int order) {
+        mOrder = order;
+    }
+
     public boolean matchDescendant() {
         return !mMatchDirect;
     }
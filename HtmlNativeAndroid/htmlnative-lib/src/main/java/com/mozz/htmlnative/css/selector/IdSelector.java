@@ -1,5 +1,6 @@
 package com.mozz.htmlnative.css.selector;
 
+import com.mozz.htmlnative.common.Symbols;
 import com.mozz.htmlnative.dom.DomElement;
 
 /**
@@ -8,7 +9,13 @@ import com.mozz.htmlnative.dom.DomElement;
 
 public class IdSelector extends TypeSelector {
     public IdSelector(String Id) {
-        super(Id);
+        // matched by the name, which is not interned, ids are made up by every page
+        super(Id, Symbols.NONE);
+    }
+
+    @Override
+    int filterHash() {
+        return AncestorFilter.idHash(mTag);
     }
 
     @Override
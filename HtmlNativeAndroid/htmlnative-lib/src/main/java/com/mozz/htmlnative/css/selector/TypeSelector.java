@@ -1,5 +1,6 @@
 package com.mozz.htmlnative.css.selector;
 
+import com.mozz.htmlnative.common.Symbols;
 import com.mozz.htmlnative.dom.DomElement;
 
 /**
@@ -10,18 +11,39 @@ public class TypeSelector extends CssSelector {
 
     protected String mTag;
 
+    /**
+     * Symbol id of {@link #mTag}, see {@link Symbols}
+     */
+    protected int mTagId;
+
     public TypeSelector(String tag) {
         super();
-        mTag = tag;
+        mTagId = Symbols.intern(tag);
+        mTag = Symbols.name(mTagId);
+    }
+
+    protected TypeSelector(String name, int nameId) {
+        super();
+        mTag = name;
+        mTagId = nameId;
     }
 
     public String getName() {
         return mTag;
     }
 
+    public int getNameId() {
+        return mTagId;
+    }
+
     @Override
     public boolean matchThis(DomElement element) {
-        return element.getType().equals(mTag);
+        return element.getTypeId() == mTagId;
+    }
+
+    @Override
+    int filterHash() {
+        return AncestorFilter.typeHash(mTagId);
     }
 
     @Override
@@ -2,7 +2,12 @@ package com.mozz.htmlnative.dom;
 
 import android.text.TextUtils;
 
+import com.mozz.htmlnative.common.Symbols;
+import com.mozz.htmlnative.css.AttrsSet;
+
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Yang Tao, 17/5/12.
@@ -11,20 +16,42 @@ import java.util.List;
 public class AttachedElement implements DomElement {
 
     private String mType;
+    private int mTypeId = Symbols.NONE;
     private String[] mClazz;
+    private int[] mClazzIds;
     private String mId;
     private DomElement mParent;
 
+    /**
+     * owner of the inline styles in segment, null if the element is created by script
+     */
+    private AttrsSet.AttrsOwner mOwner;
+
+    /**
+     * styles set by script, applied after inline styles and selectors
+     */
+    private Map<String, Object> mScriptStyles;
+
     @Override
     public String getType() {
         return mType;
     }
 
+    @Override
+    public int getTypeId() {
+        return mTypeId;
+    }
+
     @Override
     public String[] getClazz() {
         return mClazz;
     }
 
+    @Override
+    public int[] getClazzIds() {
+        return mClazzIds;
+    }
+
     @Override
     public String getId() {
         return mId;
@@ -58,11 +85,13 @@ public class AttachedElement implements DomElement {
     @Override
     public void setType(String type) {
         mType = type;
+        mTypeId = Symbols.intern(type);
     }
 
     @Override
     public void setClazz(String[] clazz) {
         mClazz = clazz;
+        mClazzIds = Symbols.internAllClasses(clazz);
     }
 
     @Override
@@ -75,6 +104,32 @@ public class AttachedElement implements DomElement {
         mParent = parent;
     }
 
+    public AttrsSet.AttrsOwner getOwner() {
+        return mOwner;
+    }
+
+    public void setOwner(AttrsSet.AttrsOwner owner) {
+        mOwner = owner;
+    }
+
+    /**
+     * @return styles set by script in the order set, or null if none
+     */
+    public Map<String, Object> getScriptStyles() {
+        return mScriptStyles;
+    }
+
+    public void putScriptStyles(Map<String, Object> styles) {
+        if (mScriptStyles == null) {
+            mScriptStyles = new LinkedHashMap<>();
+        }
+        for (Map.Entry<String, Object> entry : styles.entrySet()) {
+            // set again, the later order takes effect
+            mScriptStyles.remove(entry.getKey());
+            mScriptStyles.put(entry.getKey(), entry.getValue());
+        }
+    }
+
     /**
      * Only clone when domElement is not {@link AttachedElement}
      *
@@ -8,8 +8,18 @@ import java.util.List;
 public interface DomElement {
     String getType();
 
+    /**
+     * @return symbol id of type, see {@link com.mozz.htmlnative.common.Symbols}
+     */
+    int getTypeId();
+
     String[] getClazz();
 
+    /**
+     * @return symbol ids of classes, in the same order as {@link #getClazz()}
+     */
+    int[] getClazzIds();
+
     String getId();
 
     DomElement getParent();
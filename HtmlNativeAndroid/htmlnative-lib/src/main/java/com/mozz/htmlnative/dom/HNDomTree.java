@@ -5,6 +5,7 @@ import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
 import com.mozz.htmlnative.HNLog;
+import com.mozz.htmlnative.common.Symbols;
 import com.mozz.htmlnative.css.AttrsSet;
 import com.mozz.htmlnative.parser.ParseCallback;
 import com.mozz.htmlnative.utils.ParametersUtils;
@@ -18,8 +19,6 @@ import java.util.List;
 
 public final class HNDomTree implements ParseCallback, AttrsSet.AttrsOwner, DomElement {
 
-    private static final String TREE_ORDER_PARAMETER = "order";
-
     private int mDepth;
 
     private HNDomTree mParent;
@@ -35,6 +34,11 @@ public final class HNDomTree implements ParseCallback, AttrsSet.AttrsOwner, DomE
     @Nullable
     private String mType;
 
+    /**
+     * Symbol id of {@link #mType}, see {@link Symbols}
+     */
+    private int mTypeId = Symbols.NONE;
+
     private AttrsSet mInlineStyle;
 
     @Nullable
@@ -50,6 +54,8 @@ public final class HNDomTree implements ParseCallback, AttrsSet.AttrsOwner, DomE
      */
     private String[] mClass = null;
 
+    private int[] mClassIds = null;
+
     private int mAttrIndex;
 
     private int mOrder = -1;
@@ -61,13 +67,14 @@ public final class HNDomTree implements ParseCallback, AttrsSet.AttrsOwner, DomE
     private boolean mIsInOrder = true;
 
     public HNDomTree(@NonNull AttrsSet inlineStyle, HNDomTree parent, int depth, int index) {
-        this(inlineStyle, null, parent, depth, index);
+        this(inlineStyle, Symbols.NONE, parent, depth, index);
     }
 
-    private HNDomTree(@NonNull AttrsSet inlineStyle, String tag, HNDomTree parent, int depth, int
+    private HNDomTree(@NonNull AttrsSet inlineStyle, int tag, HNDomTree parent, int depth, int
             index) {
         mInlineStyle = inlineStyle;
-        mType = tag;
+        mTypeId = tag;
+        mType = Symbols.name(tag);
         mDepth = depth;
         mParent = parent;
         mIndex = index;
@@ -77,11 +84,25 @@ public final class HNDomTree implements ParseCallback, AttrsSet.AttrsOwner, DomE
     }
 
     public HNDomTree(@NonNull HNDomTree parent, String nodeName, int index) {
+        this(parent, Symbols.intern(nodeName), index);
+    }
+
+    /**
+     * @param nodeName symbol id of tag, see {@link Symbols}
+     */
+    public HNDomTree(@NonNull HNDomTree parent, int nodeName, int index) {
         this(parent.mInlineStyle, nodeName, parent, parent.mDepth + 1, index);
     }
 
     public void addInlineStyle(String styleName, @NonNull Object style) {
-        if (TREE_ORDER_PARAMETER.equalsIgnoreCase(styleName)) {
+        addInlineStyle(Symbols.intern(styleName), style);
+    }
+
+    /**
+     * @param styleName symbol id of style name, see {@link Symbols}
+     */
+    public void addInlineStyle(int styleName, @NonNull Object style) {
+        if (Symbols.lowerCase(styleName) == Symbols.ORDER) {
             try {
                 mOrder = ParametersUtils.toInt(style);
                 if (mParent != null && mOrder != -1) {
@@ -169,6 +190,11 @@ public final class HNDomTree implements ParseCallback, AttrsSet.AttrsOwner, DomE
         return mType;
     }
 
+    @Override
+    public int getTypeId() {
+        return mTypeId;
+    }
+
     @Nullable
     @Override
     public String getInner() {
@@ -177,13 +203,18 @@ public final class HNDomTree implements ParseCallback, AttrsSet.AttrsOwner, DomE
 
     @Override
     public void setType(String type) {
-        this.mType = type;
+        this.mTypeId = Symbols.intern(type);
+        this.mType = Symbols.name(mTypeId);
     }
 
     public int getDepth() {
         return mDepth;
     }
 
+    public int getIndex() {
+        return mIndex;
+    }
+
     public HNDomTree last() {
         return mChildren.getLast();
     }
@@ -213,7 +244,7 @@ public final class HNDomTree implements ParseCallback, AttrsSet.AttrsOwner, DomE
     @Override
     public void onLeaveParse() {
         if (mInnerText != null) {
-            mInlineStyle.put(this, "text", mInnerText);
+            mInlineStyle.put(this, Symbols.TEXT, mInnerText);
         }
     }
 
@@ -266,8 +297,14 @@ public final class HNDomTree implements ParseCallback, AttrsSet.AttrsOwner, DomE
         return mClass;
     }
 
+    @Override
+    public int[] getClazzIds() {
+        return mClassIds;
+    }
+
     public void setClazz(String[] clazz) {
         this.mClass = clazz;
+        this.mClassIds = Symbols.internAllClasses(clazz);
     }
 
     interface WalkAction {
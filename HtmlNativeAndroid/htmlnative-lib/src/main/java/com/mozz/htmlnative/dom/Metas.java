@@ -1,7 +1,7 @@
 package com.mozz.htmlnative.dom;
 
-import android.util.ArrayMap;
-
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -12,7 +12,8 @@ final class Metas {
     private Map<String, Meta> metaMap;
 
     public Metas() {
-        metaMap = new ArrayMap<>(4);
+        // plain java map, so that head can also be parsed by HNCompiler at build time
+        metaMap = new LinkedHashMap<>(4);
     }
 
     public boolean contains(Meta key) {
@@ -35,6 +36,10 @@ final class Metas {
         metaMap.clear();
     }
 
+    public Collection<Meta> values() {
+        return metaMap.values();
+    }
+
     @Override
     public String toString() {
         return metaMap.toString();
@@ -0,0 +1,17 @@
+package com.mozz.htmlnative.exception;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a precompiled segment can not be read, e.g. it is corrupted or was produced by
+ * another version of the compiler.
+ *
+ * @author Yang Tao, 17/6/12.
+ */
+
+public class HNFormatError extends IOException {
+
+    public HNFormatError(String msg) {
+        super(msg);
+    }
+}
@@ -4,7 +4,7 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import com.mozz.htmlnative.HNLog;
-import com.mozz.htmlnative.HNSegment;
+import com.mozz.htmlnative.css.MediaQuery;
 import com.mozz.htmlnative.css.StyleSheet;
 import com.mozz.htmlnative.css.selector.AnySelector;
 import com.mozz.htmlnative.css.selector.ClassSelector;
@@ -12,10 +12,12 @@ import com.mozz.htmlnative.css.selector.CssSelector;
 import com.mozz.htmlnative.css.selector.IdSelector;
 import com.mozz.htmlnative.css.selector.TypeSelector;
 import com.mozz.htmlnative.exception.HNSyntaxError;
+import com.mozz.htmlnative.reader.TextReader;
 import com.mozz.htmlnative.token.Token;
 import com.mozz.htmlnative.token.TokenType;
 
 import java.io.EOFException;
+import java.util.HashMap;
 import java.util.Map;
 
 import static com.mozz.htmlnative.parser.StyleItemParser.parseKey;
@@ -64,11 +66,46 @@ public final class CssParser {
 
     private final CssLexer lexer;
 
+    private final StyleHolder mStyleHolder = new StyleHolder();
+
     private Map<String, Object> styleCache;
 
+    /**
+     * condition of the &#64;media rule being parsed, null if outside
+     */
+    @Nullable
+    private MediaQuery mMedia;
+
     public CssParser(Lexer lexer, Parser parentParser) {
+        this(lexer, parentParser.getStyleCache());
+    }
+
+    CssParser(Lexer lexer, Map<String, Object> styleCache) {
         this.lexer = new CssLexer(lexer);
-        this.styleCache = parentParser.getStyleCache();
+        this.styleCache = styleCache;
+    }
+
+    /**
+     * Parse a stand-alone css file, such as the one of &lt;link&gt;.
+     *
+     * @param href where the file is loaded from, see {@link StyleSheet#getHref()}
+     * @return StyleSheet sealed, see {@link StyleSheet#seal()}
+     */
+    @NonNull
+    public static StyleSheet parseStyleSheet(@NonNull TextReader reader, @Nullable String href)
+            throws HNSyntaxError {
+        StyleSheet styleSheet = new StyleSheet(href);
+        Lexer lexer = new Lexer(reader);
+        try {
+            new CssParser(lexer, new HashMap<String, Object>()).process(styleSheet);
+        } catch (EOFException ignored) {
+            // css file ends
+        } finally {
+            lexer.close();
+        }
+
+        styleSheet.seal();
+        return styleSheet;
     }
 
     /**
@@ -83,6 +120,7 @@ public final class CssParser {
         bufferToUse.setLength(0);
 
         String key = null;
+        StyleHolder holder = new StyleHolder();
 
         out.clear();
 
@@ -100,9 +138,9 @@ public final class CssParser {
                 Object value = out.get(parseKey(key));
                 StyleHolder parsedStyle;
                 if (value != null) {
-                    parsedStyle = parseStyleSingle(key, bufferToUse.toString(), value);
+                    parsedStyle = parseStyleSingle(key, bufferToUse.toString(), value, holder);
                 } else {
-                    parsedStyle = parseStyleSingle(key, bufferToUse.toString(), null);
+                    parsedStyle = parseStyleSingle(key, bufferToUse.toString(), null, holder);
                 }
                 out.put(parsedStyle.key, parsedStyle.obj);
                 bufferToUse.setLength(0);
@@ -121,9 +159,9 @@ public final class CssParser {
             Object value = out.get(parseKey(key));
             StyleHolder parsedStyle;
             if (value != null) {
-                parsedStyle = parseStyleSingle(key, bufferToUse.toString(), value);
+                parsedStyle = parseStyleSingle(key, bufferToUse.toString(), value, holder);
             } else {
-                parsedStyle = parseStyleSingle(key, bufferToUse.toString(), null);
+                parsedStyle = parseStyleSingle(key, bufferToUse.toString(), null, holder);
             }
             out.put(parsedStyle.key, parsedStyle.obj);
         }
@@ -131,10 +169,10 @@ public final class CssParser {
         bufferToUse.setLength(0);
     }
 
-    void process(HNSegment segment) throws EOFException, HNSyntaxError {
-        StyleSheet styleSheet = segment.getStyleSheet();
+    void process(StyleSheet styleSheet) throws EOFException, HNSyntaxError {
 
         lookFor(SELECTOR_START);
+        mMedia = null;
 
         CssSelector cssSelector = null;
 
@@ -173,7 +211,7 @@ public final class CssParser {
                         } else {
                             CssSelector groupOne = new TypeSelector(idValue);
                             if (chain(cssSelector, groupOne, chainType)) {
-                                styleSheet.putSelector(cssSelector);
+                                styleSheet.putSelector(cssSelector, mMedia);
                                 cssSelector = groupOne;
                             }
                         }
@@ -187,7 +225,7 @@ public final class CssParser {
 
                             CssSelector groupOne = new ClassSelector(idValue);
                             if (chain(cssSelector, groupOne, chainType)) {
-                                styleSheet.putSelector(cssSelector);
+                                styleSheet.putSelector(cssSelector, mMedia);
                                 cssSelector = groupOne;
                             }
 
@@ -202,7 +240,7 @@ public final class CssParser {
 
                             CssSelector groupOne = new IdSelector(idValue);
                             if (chain(cssSelector, groupOne, chainType)) {
-                                styleSheet.putSelector(cssSelector);
+                                styleSheet.putSelector(cssSelector, mMedia);
                                 cssSelector = groupOne;
                             }
                         }
@@ -229,7 +267,7 @@ public final class CssParser {
                     } else {
                         CssSelector groupOne = new AnySelector();
                         if (chain(cssSelector, groupOne, chainType)) {
-                            styleSheet.putSelector(cssSelector);
+                            styleSheet.putSelector(cssSelector, mMedia);
                             cssSelector = groupOne;
                         }
                     }
@@ -247,10 +285,37 @@ public final class CssParser {
                     lookFor(KEY | END_BRACE);
                     break;
 
+                case AtRule:
+                    check(SELECTOR_START);
+                    if (mMedia != null) {
+                        throw new HNSyntaxError("nested at-rule is not supported", lexer.line(),
+                                lexer.column());
+                    }
+                    mMedia = parseMedia(mCurToken.stringValue());
+
+                    // the { of media rule
+                    scan();
+                    if (mCurToken.type() != TokenType.StartBrace) {
+                        throw new HNSyntaxError("expecting { after @media", lexer.line(),
+                                lexer.column());
+                    }
+                    lookFor(SELECTOR_START | END_BRACE);
+                    break;
+
                 case EndBrace:
                     check(END_BRACE);
-                    lookFor(SELECTOR_START);
-                    styleSheet.putSelector(cssSelector);
+                    if (cssSelector == null) {
+                        // the } of media rule
+                        if (mMedia == null) {
+                            throw new HNSyntaxError("unexpected }", lexer.line(), lexer.column());
+                        }
+                        mMedia = null;
+                        lookFor(SELECTOR_START);
+                        break;
+                    }
+
+                    lookFor(mMedia == null ? SELECTOR_START : SELECTOR_START | END_BRACE);
+                    styleSheet.putSelector(cssSelector, mMedia);
                     // put all the attr in styleSheet
                     for (Map.Entry<String, Object> entry : styleCache.entrySet()) {
                         styleSheet.put(cssSelector, entry.getKey(), entry.getValue());
@@ -267,9 +332,11 @@ public final class CssParser {
                     Object value = styleCache.get(parseKey(keyCache));
                     StyleHolder parsedStyle;
                     if (value != null) {
-                        parsedStyle = parseStyleSingle(keyCache, mCurToken.stringValue(), value);
+                        parsedStyle = parseStyleSingle(keyCache, mCurToken.stringValue(), value,
+                                mStyleHolder);
                     } else {
-                        parsedStyle = parseStyleSingle(keyCache, mCurToken.stringValue(), null);
+                        parsedStyle = parseStyleSingle(keyCache, mCurToken.stringValue(), null,
+                                mStyleHolder);
                     }
                     styleCache.put(parsedStyle.key, parsedStyle.obj);
                     lookFor(VALUE | END_BRACE | SEMICOLON);
@@ -300,7 +367,7 @@ public final class CssParser {
                         } else {
                             CssSelector groupOne = new ClassSelector(mCurToken.stringValue());
                             if (chain(cssSelector, groupOne, chainType)) {
-                                styleSheet.putSelector(cssSelector);
+                                styleSheet.putSelector(cssSelector, mMedia);
                                 cssSelector = groupOne;
                             }
                         }
@@ -311,7 +378,7 @@ public final class CssParser {
                         } else {
                             CssSelector groupOne = new IdSelector(mCurToken.stringValue());
                             if (chain(cssSelector, groupOne, chainType)) {
-                                styleSheet.putSelector(cssSelector);
+                                styleSheet.putSelector(cssSelector, mMedia);
                                 cssSelector = groupOne;
                             }
                         }
@@ -322,7 +389,7 @@ public final class CssParser {
                         } else {
                             CssSelector groupOne = new TypeSelector(mCurToken.stringValue());
                             if (chain(cssSelector, groupOne, chainType)) {
-                                styleSheet.putSelector(cssSelector);
+                                styleSheet.putSelector(cssSelector, mMedia);
                                 cssSelector = groupOne;
                             }
                         }
@@ -334,7 +401,13 @@ public final class CssParser {
                     check(SELECTOR_START);
                     scan();
                     if (mCurToken.type() == TokenType.Slash) {
-                        HNLog.d(HNLog.CSS_PARSER, styleSheet.toString());
+                        if (mMedia != null) {
+                            throw new HNSyntaxError("@media is not closed", lexer.line(),
+                                    lexer.column());
+                        }
+                        if (HNLog.isLoggable(HNLog.CSS_PARSER)) {
+                            HNLog.d(HNLog.CSS_PARSER, styleSheet.toString());
+                        }
 
                         return;
                     }
@@ -348,6 +421,32 @@ public final class CssParser {
         }
     }
 
+    /**
+     * @param atRule text of at-rule after @, such as media screen and (min-width: 600dp)
+     */
+    private MediaQuery parseMedia(String atRule) throws HNSyntaxError {
+        String name = atRule.trim();
+        String condition = "";
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isWhitespace(c) || c == '(') {
+                condition = name.substring(i);
+                name = name.substring(0, i);
+                break;
+            }
+        }
+
+        if (!name.equals("media")) {
+            throw new HNSyntaxError("unsupported at-rule @" + name, lexer.line(), lexer.column());
+        }
+
+        try {
+            return MediaQuery.parse(condition);
+        } catch (IllegalArgumentException e) {
+            throw new HNSyntaxError(e.getMessage(), lexer.line(), lexer.column());
+        }
+    }
+
     private boolean isLookingFor(int status) {
         return (lookFor & status) != 0;
     }
@@ -363,7 +462,9 @@ public final class CssParser {
         }
         mCurToken = lexer.scan();
 
-        HNLog.d(HNLog.CSS_PARSER, "StyleSheet -> next is " + mCurToken.toString());
+        if (HNLog.isLoggable(HNLog.CSS_PARSER)) {
+            HNLog.d(HNLog.CSS_PARSER, "StyleSheet -> next is " + mCurToken.toString());
+        }
     }
 
     private boolean shouldScanValue = false;
@@ -372,8 +473,6 @@ public final class CssParser {
 
         private Lexer lexer;
 
-        private StringBuilder buffer = new StringBuilder();
-
         CssLexer(Lexer lexer) {
             super();
             this.lexer = lexer;
@@ -388,6 +487,8 @@ public final class CssParser {
             } else if (peek() == '-') {
                 // hook the - case, to handle the style name such as -webkit-**.
                 return scanIdWithMinus();
+            } else if (peek() == '@') {
+                return scanAtRule();
             } else {
                 return lexer.scan();
             }
@@ -403,15 +504,15 @@ public final class CssParser {
 
             lexer.skipWhiteSpace();
 
-            buffer.setLength(0);
+            lexer.clearBuf();
 
             if (peek() == ';') {
                 lexer.next();
-                return Token.obtainToken(TokenType.Value, "", line, startColumn);
+                return lexer.tokenPool().obtainToken(TokenType.Value, "", line, startColumn);
             }
 
             do {
-                buffer.append(peek());
+                lexer.appendBuf(peek());
                 lexer.next();
 
                 if (peek() == ';' || peek() == '}') {
@@ -421,27 +522,41 @@ public final class CssParser {
 
             shouldScanValue = false;
 
-            return Token.obtainToken(TokenType.Value, buffer.toString(), line, startColumn);
+            return lexer.obtainBufToken(TokenType.Value, line, startColumn);
+        }
+
+        /**
+         * Scan the name and condition of an at-rule until {, which is left to be scanned next.
+         */
+        Token scanAtRule() throws EOFException {
+            long startColumn = lexer.column();
+            long line = lexer.line();
+
+            // consume the @
+            lexer.next();
+            lexer.clearBuf();
+            while (peek() != '{' && peek() != ';' && peek() != '}') {
+                lexer.appendBuf(peek());
+                lexer.next();
+            }
+
+            return lexer.obtainBufToken(TokenType.AtRule, line, startColumn);
         }
 
         Token scanIdWithMinus() throws EOFException {
             long startColumn = lexer.column();
             long line = lexer.line();
 
-            buffer.setLength(0);
+            lexer.clearBuf();
 
             do {
-                buffer.append(peek());
+                lexer.appendBuf(peek());
                 lexer.next();
             }
             while (Lexer.isLetter(peek()) || Lexer.isDigit(peek()) || peek() == '.' || peek() ==
                     '-' || peek() == '_');
 
-            String idStr = buffer.toString();
-
-            TokenType type = TokenType.Id;
-
-            return Token.obtainToken(type, buffer.toString(), line, startColumn);
+            return lexer.obtainBufToken(TokenType.Id, line, startColumn);
         }
 
         public long line() {
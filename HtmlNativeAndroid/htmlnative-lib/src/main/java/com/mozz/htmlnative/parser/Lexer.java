@@ -6,9 +6,12 @@ import android.support.annotation.Nullable;
 import com.mozz.htmlnative.HNLog;
 import com.mozz.htmlnative.HNSegment;
 import com.mozz.htmlnative.common.CharQueue;
+import com.mozz.htmlnative.common.CharSlice;
+import com.mozz.htmlnative.common.Symbols;
 import com.mozz.htmlnative.exception.HNSyntaxError;
 import com.mozz.htmlnative.reader.TextReader;
 import com.mozz.htmlnative.token.Token;
+import com.mozz.htmlnative.token.TokenPool;
 import com.mozz.htmlnative.token.TokenType;
 
 import java.io.EOFException;
@@ -20,14 +23,27 @@ class Lexer {
 
     private TextReader mReader;
 
+    /**
+     * Chars of the token being scanned. Tokens of text are slices over it, so it is reused
+     * rather than being turned into a String for every token.
+     */
     @NonNull
-    private StringBuilder mBuffer = new StringBuilder();
+    private char[] mBuffer = new char[256];
+
+    private int mBufferLength = 0;
+
+    private final CharSlice mBufferSlice = new CharSlice();
 
     private int mLookFor = 0;
 
     private static final int LK_NOTHING = 1;
     private static final int LK_INNER = 1 << 1;
 
+    /**
+     * Tokens of this Lexer only, so Lexers on different threads share nothing.
+     */
+    private final TokenPool mTokenPool = new TokenPool();
+
     private CharQueue mCacheQueue;
     private static final int CACHE_SIZE = 7;
 
@@ -60,6 +76,11 @@ class Lexer {
         lookFor(LK_NOTHING);
     }
 
+    @NonNull
+    TokenPool tokenPool() {
+        return mTokenPool;
+    }
+
     @Nullable
     public Token scan() throws EOFException, HNSyntaxError {
         this.skipWhiteSpace();
@@ -69,7 +90,7 @@ class Lexer {
                 mLookForScript = 1;
                 lookFor(LK_NOTHING);
                 next();
-                return Token.obtainToken(TokenType.StartAngleBracket, mReader.line(), mReader
+                return mTokenPool.obtainToken(TokenType.StartAngleBracket, mReader.line(), mReader
                         .column());
 
             case '"':
@@ -80,73 +101,77 @@ class Lexer {
                 mLookForScript++;
                 lookFor(LK_INNER);
                 next();
-                return Token.obtainToken(TokenType.EndAngleBracket, mReader.line(), mReader
+                return mTokenPool.obtainToken(TokenType.EndAngleBracket, mReader.line(), mReader
                         .column());
 
             case '/':
                 mLookForScript = 0;
                 next();
-                return Token.obtainToken(TokenType.Slash, mReader.line(), mReader.column());
+                return mTokenPool.obtainToken(TokenType.Slash, mReader.line(), mReader.column());
 
             case '=':
                 mLookForScript = 0;
                 next();
-                return Token.obtainToken(TokenType.Equal, mReader.line(), mReader.column());
+                return mTokenPool.obtainToken(TokenType.Equal, mReader.line(), mReader.column());
 
             case '{':
                 mLookForScript = 0;
                 next();
-                return Token.obtainToken(TokenType.StartBrace, mReader.line(), mReader.column());
+                return mTokenPool.obtainToken(TokenType.StartBrace, mReader.line(), mReader
+                        .column());
 
             case '}':
                 mLookForScript = 0;
                 next();
-                return Token.obtainToken(TokenType.EndBrace, mReader.line(), mReader.column());
+                return mTokenPool.obtainToken(TokenType.EndBrace, mReader.line(), mReader.column());
 
             case '#':
                 mLookForScript = 0;
                 next();
-                return Token.obtainToken(TokenType.Hash, mReader.line(), mReader.column());
+                return mTokenPool.obtainToken(TokenType.Hash, mReader.line(), mReader.column());
 
             case '*':
                 mLookForScript = 0;
                 next();
-                return Token.obtainToken(TokenType.Star, mReader.line(), mReader.column());
+                return mTokenPool.obtainToken(TokenType.Star, mReader.line(), mReader.column());
 
             case ',':
                 mLookForScript = 0;
                 next();
-                return Token.obtainToken(TokenType.Comma, mReader.line(), mReader.column());
+                return mTokenPool.obtainToken(TokenType.Comma, mReader.line(), mReader.column());
 
             case '.':
                 mLookForScript = 0;
                 next();
-                return Token.obtainToken(TokenType.Dot, mReader.line(), mReader.column());
+                return mTokenPool.obtainToken(TokenType.Dot, mReader.line(), mReader.column());
 
             case ':':
                 mLookForScript = 0;
                 next();
-                return Token.obtainToken(TokenType.Colon, mReader.line(), mReader.column());
+                return mTokenPool.obtainToken(TokenType.Colon, mReader.line(), mReader.column());
 
             case ';':
                 mLookForScript = 0;
                 next();
-                return Token.obtainToken(TokenType.Semicolon, mReader.line(), mReader.column());
+                return mTokenPool.obtainToken(TokenType.Semicolon, mReader.line(), mReader
+                        .column());
 
             case '(':
                 mLookForScript = 0;
                 next();
-                return Token.obtainToken(TokenType.StartParen, mReader.line(), mReader.column());
+                return mTokenPool.obtainToken(TokenType.StartParen, mReader.line(), mReader
+                        .column());
 
             case ')':
                 mLookForScript = 0;
                 next();
-                return Token.obtainToken(TokenType.EndParen, mReader.line(), mReader.column());
+                return mTokenPool.obtainToken(TokenType.EndParen, mReader.line(), mReader.column());
 
             case '!':
                 mLookForScript = 0;
                 next();
-                return Token.obtainToken(TokenType.Exclamation, mReader.line(), mReader.column());
+                return mTokenPool.obtainToken(TokenType.Exclamation, mReader.line(), mReader
+                        .column());
 
         }
 
@@ -200,12 +225,12 @@ class Lexer {
         } while (isDigit(peek()));
 
         if (peek() != '.' && peek() != 'E' && peek() != 'e' && peek() != '%') {
-            return Token.obtainToken(TokenType.Int, negative ? -v : v, line, startColumn);
+            return mTokenPool.obtainToken(TokenType.Int, negative ? -v : v, line, startColumn);
         }
 
         if (peek() == '%') {
             next();
-            return Token.obtainToken(TokenType.Double, negative ? -v / 100.f : v / 100.f, line,
+            return mTokenPool.obtainToken(TokenType.Double, negative ? -v / 100.f : v / 100.f, line,
                     startColumn, Token.EXTRA_NUMBER_PERCENTAGE);
         }
 
@@ -224,7 +249,7 @@ class Lexer {
 
         if (peek() == '%') {
             next();
-            return Token.obtainToken(TokenType.Double, negative ? -x / 100.f : x / 100.f, line,
+            return mTokenPool.obtainToken(TokenType.Double, negative ? -x / 100.f : x / 100.f, line,
                     startColumn, Token.EXTRA_NUMBER_PERCENTAGE);
         }
 
@@ -237,7 +262,8 @@ class Lexer {
             next();
 
             if (!Lexer.isDigit(peek()) && peek() != '-') {
-                return Token.obtainToken(TokenType.Double, negative ? -x : x, line, startColumn);
+                return mTokenPool.obtainToken(TokenType.Double, negative ? -x : x, line,
+                        startColumn);
             }
             boolean expIsNegative = false;
             if (peek() == '-') {
@@ -254,11 +280,11 @@ class Lexer {
             n = expIsNegative ? -n : n;
 
             double exp = Math.pow(10, n);
-            return Token.obtainToken(TokenType.Double, negative ? (-x * exp) : (x * exp), line,
+            return mTokenPool.obtainToken(TokenType.Double, negative ? (-x * exp) : (x * exp), line,
                     startColumn);
 
         } else {
-            return Token.obtainToken(TokenType.Double, negative ? -x : x, line, startColumn);
+            return mTokenPool.obtainToken(TokenType.Double, negative ? -x : x, line, startColumn);
         }
     }
 
@@ -270,67 +296,61 @@ class Lexer {
         clearBuf();
 
         do {
-            mBuffer.append(peek());
+            appendBuf(peek());
             next();
         }
         while (isLetter(peek()) || isDigit(peek()) || peek() == '.' || peek() == '-' || peek() ==
                 '_');
 
-        String idStr = mBuffer.toString();
-
         TokenType type = TokenType.Id;
-        String tokenContent;
-
-        if (idStr.equalsIgnoreCase(TokenType.Template.toString()) || idStr.equalsIgnoreCase
-                (TokenType.Body.toString())) {
-
-            type = TokenType.Template;
-            tokenContent = idStr;
 
-        } else if (idStr.equalsIgnoreCase(TokenType.Script.toString())) {
-            mLookForScript++;
-
-            type = TokenType.Script;
-            tokenContent = idStr;
-
-        } else if (idStr.equalsIgnoreCase(TokenType.Head.toString())) {
-
-            type = TokenType.Head;
-            tokenContent = idStr;
+        mBufferSlice.set(mBuffer, 0, mBufferLength);
+        switch (Symbols.lookupIgnoreCase(mBufferSlice)) {
+            case Symbols.TEMPLATE:
+            case Symbols.BODY:
+                type = TokenType.Template;
+                break;
 
-        } else if (idStr.equalsIgnoreCase(TokenType.Meta.toString())) {
+            case Symbols.SCRIPT:
+                mLookForScript++;
+                type = TokenType.Script;
+                break;
 
-            type = TokenType.Meta;
-            tokenContent = idStr;
+            case Symbols.HEAD:
+                type = TokenType.Head;
+                break;
 
-        } else if (idStr.equalsIgnoreCase(TokenType.Link.toString())) {
+            case Symbols.META:
+                type = TokenType.Meta;
+                break;
 
-            type = TokenType.Link;
-            tokenContent = idStr;
-        } else if (idStr.equalsIgnoreCase(TokenType.Html.toString())) {
+            case Symbols.LINK:
+                type = TokenType.Link;
+                break;
 
-            type = TokenType.Html;
-            tokenContent = idStr;
+            case Symbols.HTML:
+                type = TokenType.Html;
+                break;
 
-        } else if (idStr.equalsIgnoreCase(TokenType.Title.toString())) {
+            case Symbols.TITLE:
+                type = TokenType.Title;
+                break;
 
-            type = TokenType.Title;
-            tokenContent = idStr;
-        } else if (idStr.equalsIgnoreCase(TokenType.Style.toString())) {
-            type = TokenType.Style;
-            tokenContent = idStr;
+            case Symbols.STYLE:
+                type = TokenType.Style;
 
-            if (!mIsInStyle && peekHistory(6) == '<') {
-                mIsInStyle = true;
-            } else {
-                mIsInStyle = false;
-            }
+                if (!mIsInStyle && peekHistory(6) == '<') {
+                    mIsInStyle = true;
+                } else {
+                    mIsInStyle = false;
+                }
+                break;
 
-        } else {
-            tokenContent = idStr;
+            default:
+                break;
         }
 
-        return Token.obtainToken(type, tokenContent, line, startColumn);
+        return obtainBufToken(type, line, startColumn);
 
     }
 
@@ -343,18 +363,18 @@ class Lexer {
 
         if (peek() == '"') {
             next();
-            return Token.obtainToken(TokenType.Value, "", line, startColumn);
+            return mTokenPool.obtainToken(TokenType.Value, "", line, startColumn);
         }
 
         do {
-            mBuffer.append(peek());
+            appendBuf(peek());
             next();
 
             // handling the '\"' case
             if (peek() == '\\') {
                 next();
                 if (peek() != '"') {
-                    mBuffer.append('\\');
+                    appendBuf('\\');
                 }
             } else if (peek() == '"') {
                 break;
@@ -363,7 +383,7 @@ class Lexer {
 
         next();
 
-        return Token.obtainToken(TokenType.Value, mBuffer.toString(), line, startColumn);
+        return obtainBufToken(TokenType.Value, line, startColumn);
 
     }
 
@@ -375,13 +395,13 @@ class Lexer {
         clearBuf();
 
         do {
-            mBuffer.append(peek());
+            appendBuf(peek());
             next();
 
             if (peek() == '\\') {
                 next();
                 if (peek() != '<') {
-                    mBuffer.append('\\');
+                    appendBuf('\\');
                 }
             } else if (peek() == '<') {
                 break;
@@ -389,18 +409,18 @@ class Lexer {
 
             //TODO 考虑其他的情况，这里只会添加一个空格
             if (skipWhiteSpaceInner()) {
-                mBuffer.append(' ');
+                appendBuf(' ');
             }
 
         } while (peek() != '<');
 
         lookFor(LK_NOTHING);
 
-        char lastChar = mBuffer.charAt(mBuffer.length() - 1);
+        char lastChar = mBuffer[mBufferLength - 1];
         if (lastChar == '\n' || lastChar == '\r') {
-            mBuffer.deleteCharAt(mBuffer.length() - 1);
+            mBufferLength--;
         }
-        return Token.obtainToken(TokenType.Inner, mBuffer.toString(), line, startColumn);
+        return obtainBufToken(TokenType.Inner, line, startColumn);
     }
 
     /**
@@ -446,7 +466,7 @@ class Lexer {
         if (meetEndTagFirst == 2) {
             mReserved = 2;
             next();
-            return Token.obtainToken(TokenType.ScriptCode, "", line, startColumn);
+            return mTokenPool.obtainToken(TokenType.ScriptCode, "", line, startColumn);
         }
 
         next();
@@ -479,11 +499,11 @@ class Lexer {
                 }
             }
 
-            mBuffer.append(ch);
+            appendBuf(ch);
             next();
         }
 
-        return Token.obtainToken(TokenType.ScriptCode, mBuffer.toString(), line, startColumn);
+        return obtainBufToken(TokenType.ScriptCode, line, startColumn);
     }
 
 
@@ -561,7 +581,9 @@ class Lexer {
         this.mReader.nextCh();
         mCurrent = this.mReader.current();
         mCacheQueue.push(peek());
-        HNLog.d(LEXER, "next-> " + peek());
+        if (HNLog.isLoggable(LEXER)) {
+            HNLog.d(LEXER, "next-> " + peek());
+        }
     }
 
     private void lookFor(int status) {
@@ -582,6 +604,29 @@ class Lexer {
     }
 
     public void clearBuf() {
-        mBuffer.setLength(0);
+        mBufferLength = 0;
+    }
+
+    void appendBuf(char c) {
+        if (mBufferLength == mBuffer.length) {
+            char[] buffer = new char[mBuffer.length << 1];
+            System.arraycopy(mBuffer, 0, buffer, 0, mBufferLength);
+            mBuffer = buffer;
+        }
+        mBuffer[mBufferLength++] = c;
+    }
+
+    /**
+     * Token whose text is the chars in buffer, valid until buffer is cleared. Names get their
+     * symbol id here, see {@link Symbols}.
+     */
+    Token obtainBufToken(TokenType type, long line, long column) {
+        int symbol = Symbols.NONE;
+        if (type != TokenType.Value && type != TokenType.Inner && type != TokenType.ScriptCode
+                && type != TokenType.AtRule) {
+            mBufferSlice.set(mBuffer, 0, mBufferLength);
+            symbol = Symbols.lookup(mBufferSlice);
+        }
+        return mTokenPool.obtainToken(type, mBuffer, 0, mBufferLength, symbol, line, column);
     }
 }
@@ -1,5 +1,8 @@
 package com.mozz.htmlnative.parser;
 
+import com.mozz.htmlnative.HNSegment;
+import com.mozz.htmlnative.dom.HNDomTree;
+
 /**
  * @author Yang Tao, 17/5/5.
  */
@@ -7,4 +10,31 @@ public interface ParseCallback {
     void onStartParse();
 
     void onLeaveParse();
+
+    /**
+     * Events of a whole segment, emitted by {@link Parser} on the parsing thread as soon as each
+     * part is complete, so that the segment can be consumed before the parsing ends. Parts
+     * reported will not be modified by the parser any more.
+     *
+     * @author Yang Tao, 17/6/16.
+     */
+    interface SegmentCallback {
+
+        /**
+         * {@link HNSegment#getHead()} is complete.
+         */
+        void onHeadParsed(HNSegment segment);
+
+        /**
+         * A &lt;style&gt; in head is parsed into {@link HNSegment#getStyleSheet()}.
+         */
+        void onStyleSheetParsed(HNSegment segment);
+
+        /**
+         * A direct child of the root of {@link HNSegment#getDom()} is complete, together with
+         * all its descendants. Subtrees are reported in the order of the source, which may
+         * differ from the order of {@link HNDomTree#children()}.
+         */
+        void onSubtreeParsed(HNSegment segment, HNDomTree subtree);
+    }
 }
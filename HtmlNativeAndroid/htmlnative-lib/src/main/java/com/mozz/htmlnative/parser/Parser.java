@@ -7,9 +7,9 @@ import android.util.Log;
 
 import com.mozz.htmlnative.HNLog;
 import com.mozz.htmlnative.HNSegment;
-import com.mozz.htmlnative.HtmlTag;
+import com.mozz.htmlnative.StyleSheetCache;
 import com.mozz.htmlnative.Tracker;
-import com.mozz.htmlnative.css.Styles;
+import com.mozz.htmlnative.common.Symbols;
 import com.mozz.htmlnative.dom.HNDomTree;
 import com.mozz.htmlnative.dom.Meta;
 import com.mozz.htmlnative.exception.HNSyntaxError;
@@ -32,6 +32,7 @@ import static com.mozz.htmlnative.token.TokenType.Head;
 import static com.mozz.htmlnative.token.TokenType.Html;
 import static com.mozz.htmlnative.token.TokenType.Id;
 import static com.mozz.htmlnative.token.TokenType.Inner;
+import static com.mozz.htmlnative.token.TokenType.Link;
 import static com.mozz.htmlnative.token.TokenType.Meta;
 import static com.mozz.htmlnative.token.TokenType.Script;
 import static com.mozz.htmlnative.token.TokenType.Slash;
@@ -45,8 +46,6 @@ import static com.mozz.htmlnative.token.TokenType.Title;
  */
 public final class Parser {
 
-    private static final String ID = "id";
-    private static final String CLAZZ = "class";
     private static final String TAG = Parser.class.getSimpleName();
 
     @NonNull
@@ -68,6 +67,19 @@ public final class Parser {
 
     private Tracker mTracker;
 
+    @Nullable
+    private ParseCallback.SegmentCallback mSegmentCallback;
+
+    @Nullable
+    private HNSegment mSegment;
+
+    /**
+     * The last direct child of root, which is not reported to {@link #mSegmentCallback} yet
+     * because a following &lt;br/&gt; may still append text to it.
+     */
+    @Nullable
+    private HNDomTree mPendingSubtree;
+
     private static final int LK_StartArrowBracket = 1;
     private static final int LK_EndArrowBracket = 1 << 1;
     private static final int LK_ID = 1 << 2;
@@ -80,6 +92,10 @@ public final class Parser {
     private static final int LK_INNER = 1 << 9;
     private static final int LK_NUMBER = LK_INT | LK_DOUBLE;
 
+    private static final String ATTR_REL = "rel";
+    private static final String ATTR_HREF = "href";
+    private static final String REL_STYLESHEET = "stylesheet";
+
 
     public Parser(TextReader reader) {
         mLexer = new Lexer(reader);
@@ -88,12 +104,20 @@ public final class Parser {
         mTracker = new Tracker();
     }
 
+    /**
+     * Set the callback to receive parts of the segment while {@link #process()} goes on.
+     */
+    public void setSegmentCallback(@Nullable ParseCallback.SegmentCallback callback) {
+        mSegmentCallback = callback;
+    }
+
     public HNSegment process() throws HNSyntaxError {
 
         long processStartTime = SystemClock.currentThreadTimeMillis();
 
         HNSegment segment = new HNSegment();
         segment.setDom(new HNDomTree(segment.getInlineStyles(), null, 0, 0));
+        mSegment = segment;
 
         try {
             scanFor(StartAngleBracket);
@@ -129,8 +153,11 @@ public final class Parser {
             mTracker.record("Parse Css + Html", SystemClock.currentThreadTimeMillis() -
                     processStartTime);
             Log.i(PERFORMANCE_TAG, mTracker.dump());
-            return segment;
         }
+
+        segment.getInlineStyles().trimToSize();
+        segment.getStyleSheet().trimToSize();
+        return segment;
     }
 
     @NonNull
@@ -148,6 +175,9 @@ public final class Parser {
 
             case Head:
                 processHead(segment);
+                if (mSegmentCallback != null) {
+                    mSegmentCallback.onHeadParsed(segment);
+                }
                 scanFor(StartAngleBracket, Template);
                 processTemplateThenScript(currentTree, segment);
                 return;
@@ -166,11 +196,12 @@ public final class Parser {
         scanFor(StartAngleBracket);
         scan(true);
         if (mCurToken.type() == Script) {
+            // the closing </html> is consumed by process()
             processScript(segment);
         } else {
             scanFor(Slash, Html, EndAngleBracket);
+            scan();
         }
-        scan();
     }
 
     private void processScript(HNSegment segment) throws HNSyntaxError, EOFException {
@@ -245,9 +276,17 @@ public final class Parser {
             } else if (mCurToken.type() == Style) {
 
                 processStyle(segment);
+                if (mSegmentCallback != null) {
+                    mSegmentCallback.onStyleSheetParsed(segment);
+                }
                 scanFor(Style, EndAngleBracket);
             } else if (mCurToken.type() == Meta) {
                 processMeta(segment);
+            } else if (mCurToken.type() == Link) {
+                processLink(segment);
+                if (mSegmentCallback != null) {
+                    mSegmentCallback.onStyleSheetParsed(segment);
+                }
             } else if (mCurToken.type() == StartAngleBracket) {
                 scan(true);
 
@@ -286,7 +325,7 @@ public final class Parser {
             }
         }
         try {
-            mCssParser.process(segment);
+            mCssParser.process(segment.getStyleSheet());
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -294,6 +333,74 @@ public final class Parser {
         mTracker.record("Parse Css", SystemClock.currentThreadTimeMillis() - timeStart);
     }
 
+    /**
+     * Handle &lt;link rel="stylesheet" href="..."&gt;, the StyleSheet is loaded by
+     * {@link StyleSheetCache} and shared with other pages linking it.
+     */
+    private void processLink(HNSegment segment) throws HNSyntaxError, EOFException {
+        long timeStart = SystemClock.currentThreadTimeMillis();
+
+        String rel = null;
+        String href = null;
+        String idCache = null;
+
+        lookFor(LK_ID | LK_SLASH | LK_EndArrowBracket);
+
+        while (true) {
+            scan();
+
+            switch (mCurToken.type()) {
+                case Id:
+                    check(LK_ID);
+                    idCache = mCurToken.stringValue();
+                    scanFor(Equal);
+                    lookFor(LK_VALUE);
+                    break;
+
+                case Value:
+                    check(LK_VALUE);
+                    if (ATTR_REL.equalsIgnoreCase(idCache)) {
+                        rel = mCurToken.stringValue();
+                    } else if (ATTR_HREF.equalsIgnoreCase(idCache)) {
+                        href = mCurToken.stringValue();
+                    }
+                    lookFor(LK_ID | LK_SLASH | LK_EndArrowBracket);
+                    break;
+
+                case Slash:
+                    check(LK_SLASH);
+                    scanFor(EndAngleBracket);
+                    linkStyleSheet(segment, rel, href);
+                    mTracker.record("Link Css", SystemClock.currentThreadTimeMillis() - timeStart);
+                    return;
+
+                case EndAngleBracket:
+                    check(LK_EndArrowBracket);
+                    linkStyleSheet(segment, rel, href);
+                    mTracker.record("Link Css", SystemClock.currentThreadTimeMillis() - timeStart);
+                    return;
+
+                default:
+                    Log.e(TAG, "Unknown token " + mCurToken.toString() + " when parsing <link>");
+                    throw new HNSyntaxError("Unknown token " + mCurToken.toString() + " when " +
+                            "parsing <link>", mLexer.line(), mLexer.column());
+            }
+        }
+    }
+
+    private static void linkStyleSheet(HNSegment segment, String rel, String href) {
+        if (href == null || !REL_STYLESHEET.equalsIgnoreCase(rel)) {
+            return;
+        }
+
+        try {
+            segment.getStyleSheet().link(StyleSheetCache.get(href));
+        } catch (Exception e) {
+            // page is rendered without it, as a wrong <style> is
+            HNLog.e(HNLog.PARSER, "can't link style sheet " + href + ", " + e);
+        }
+    }
+
     private void processTitle(HNSegment segment) throws HNSyntaxError, EOFException {
         if (mCurToken.type() != Title) {
             Log.e(TAG, "Look for head, but " + mCurToken.toString());
@@ -374,6 +481,7 @@ public final class Parser {
 
         tree.setType(mCurToken.stringValue());
         processInternal(tree);
+        onSubtreeStart(null);
 
         mTracker.record("Parse Html", SystemClock.currentThreadTimeMillis() - timeStart);
     }
@@ -389,14 +497,16 @@ public final class Parser {
      */
     private void processInternal(@NonNull HNDomTree tree, @NonNull ParseCallback callback) throws
             HNSyntaxError {
-        HNLog.d(HNLog.PARSER, "init to parse tree " + tree.getType());
+        if (HNLog.isLoggable(HNLog.PARSER)) {
+            HNLog.d(HNLog.PARSER, "init to parse tree " + tree.getType());
+        }
         int index = 0;
 
         int bracketPair = 1;
 
         lookFor(LK_ID | LK_EndArrowBracket | LK_SLASH);
 
-        String attrName = null;
+        int attrName = Symbols.NONE;
 
         boolean meetEndTag = false;
 
@@ -422,8 +532,8 @@ public final class Parser {
                             check(LK_SLASH);
                             scan();
 
-                            // compare the tag string with tree.nodeName
-                            if (!tree.getType().equals(mCurToken.value())) {
+                            // compare the tag with tree.nodeName
+                            if (mCurToken.symbol() != tree.getTypeId()) {
                                 Log.e(TAG, "View tag should be in pairs, current " +
                                         "is<" + tree.getType() + "></" + mCurToken.value() +
                                         ">");
@@ -458,11 +568,11 @@ public final class Parser {
 
                             check(LK_ID);
 
-                            String tag = mCurToken.stringValue();
+                            int tag = internCurToken();
 
                             // handle the <br/> tag
-                            if (HtmlTag.BR.equalsIgnoreCase(tag)) {
-                                if (isSwallowInnerTag(tree.getType())) {
+                            if (Symbols.lowerCase(tag) == Symbols.BR) {
+                                if (isSwallowInnerTag(tree.getTypeId())) {
                                     tree.appendText("\n");
                                 } else {
                                     tree.last().appendText("\n");
@@ -473,6 +583,9 @@ public final class Parser {
                             } else {
                                 HNDomTree child = new HNDomTree(tree, tag, index++);
                                 tree.addChild(child);
+                                if (tree.getParent() == null) {
+                                    onSubtreeStart(child);
+                                }
                                 processInternal(child);
                                 lookFor(LK_StartArrowBracket);
                             }
@@ -490,13 +603,13 @@ public final class Parser {
                     case Id:
                     case Style:
                         check(LK_ID);
-                        attrName = mCurToken.stringValue();
+                        attrName = internCurToken();
                         lookFor(LK_EQUAL);
                         break;
 
                     case Equal:
                         check(LK_EQUAL);
-                        if (attrName == null) {
+                        if (attrName == Symbols.NONE) {
                             Log.e(TAG, "attrName is null, please check the state");
                             throw new HNSyntaxError("attrName is null, please check the state",
                                     mLexer.line(), mLexer.column());
@@ -524,13 +637,16 @@ public final class Parser {
 
                     case Inner:
                         check(LK_INNER);
-                        if (isSwallowInnerTag(tree.getType())) {
+                        if (isSwallowInnerTag(tree.getTypeId())) {
                             tree.appendText(mCurToken.stringValue());
                         } else {
-                            HNDomTree innerChild = new HNDomTree(tree, HtmlTag.INNER_TREE_TAG,
+                            HNDomTree innerChild = new HNDomTree(tree, Symbols.INNER,
                                     innerCount++);
                             tree.addChild(innerChild);
                             innerChild.appendText(mCurToken.stringValue());
+                            if (tree.getParent() == null) {
+                                onSubtreeStart(innerChild);
+                            }
                         }
 
                         lookFor(LK_StartArrowBracket);
@@ -583,6 +699,21 @@ public final class Parser {
     }
 
 
+    /**
+     * Called when a new direct child of root starts, or with null when root ends. The previous
+     * child is complete then.
+     */
+    private void onSubtreeStart(@Nullable HNDomTree subtree) {
+        if (mSegmentCallback == null) {
+            return;
+        }
+
+        if (mPendingSubtree != null) {
+            mSegmentCallback.onSubtreeParsed(mSegment, mPendingSubtree);
+        }
+        mPendingSubtree = subtree;
+    }
+
     private StringBuilder mStyleKeyCache = new StringBuilder();
 
     private void parseStyle(@NonNull HNDomTree tree, @NonNull String styleString) {
@@ -604,7 +735,9 @@ public final class Parser {
 
     private void scan() throws EOFException, HNSyntaxError {
         if (mReserved) {
-            HNLog.d(HNLog.PARSER, "Reprocess token ->" + mCurToken);
+            if (HNLog.isLoggable(HNLog.PARSER)) {
+                HNLog.d(HNLog.PARSER, "Reprocess token ->" + mCurToken);
+            }
             mReserved = false;
             return;
         }
@@ -613,7 +746,9 @@ public final class Parser {
         }
         mCurToken = mLexer.scan();
 
-        HNLog.d(HNLog.PARSER, "Process token ->" + mCurToken);
+        if (HNLog.isLoggable(HNLog.PARSER)) {
+            HNLog.d(HNLog.PARSER, "Process token ->" + mCurToken);
+        }
 
     }
 
@@ -650,15 +785,23 @@ public final class Parser {
         }
     }
 
-    private void parseValue(HNDomTree tree, String parameterName, String valueStr) {
+    /**
+     * Symbol id of the current token, a tag or an attribute name, which is interned if it is new.
+     */
+    private int internCurToken() {
+        int symbol = mCurToken.symbol();
+        return symbol != Symbols.NONE ? symbol : Symbols.intern(mCurToken.text());
+    }
+
+    private void parseValue(HNDomTree tree, int parameterName, String valueStr) {
         switch (parameterName) {
-            case Styles.ATTR_STYLE:
+            case Symbols.STYLE:
                 parseStyle(tree, valueStr);
                 break;
-            case ID:
+            case Symbols.ID:
                 tree.setId(valueStr);
                 break;
-            case CLAZZ:
+            case Symbols.CLASS:
                 tree.setClazz(ParametersUtils.splitByEmpty(valueStr));
                 break;
             default:
@@ -0,0 +1,77 @@
+package com.mozz.htmlnative.parser;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Constants and helpers shared by {@link SegmentWriter} and {@link SegmentReader}.
+ * <p>
+ * Layout of a precompiled segment:
+ * <pre>
+ * magic(int) version(short) density(float, -1 if not depend on density)
+ * string table : count(varint) [length(varint) utf-8 bytes]...
+ * head         : title meta-count [name content]...
+ * script       : type(varint, 0 means no script) code bytecode-length(varint) bytecode
+ * dom          : pre-order nodes, see {@link SegmentWriter}
+ * stylesheet   : hrefs of linked ones, then rules in insert order, see {@link SegmentWriter}
+ * </pre>
+ * Every string is written as a reference to the string table, 0 stands for null.
+ *
+ * @author Yang Tao, 17/6/12.
+ */
+
+final class SegmentFormat {
+
+    private SegmentFormat() {
+    }
+
+    static final int MAGIC = 0x484E5342;
+
+    /**
+     * Must be increased whenever the layout changes, so that stale blobs are rejected instead of
+     * being read wrongly.
+     */
+    static final short VERSION = 6;
+
+    static final int NULL_REF = 0;
+
+    static final byte VALUE_STRING = 1;
+    static final byte VALUE_INT = 2;
+    static final byte VALUE_DOUBLE = 3;
+    static final byte VALUE_FLOAT = 4;
+    static final byte VALUE_BACKGROUND = 5;
+    static final byte VALUE_PIXEL = 6;
+    static final byte VALUE_BOX_EDGES = 7;
+    static final byte VALUE_DISPLAY = 8;
+    static final byte VALUE_VISIBILITY = 9;
+    static final byte VALUE_DIRECTION = 10;
+
+    static final byte SELECTOR_TYPE = 1;
+    static final byte SELECTOR_CLASS = 2;
+    static final byte SELECTOR_ID = 3;
+    static final byte SELECTOR_ANY = 4;
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28) {
+                throw new IOException("malformed varint");
+            }
+            b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
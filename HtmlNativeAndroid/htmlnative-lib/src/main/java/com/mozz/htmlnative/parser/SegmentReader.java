@@ -0,0 +1,329 @@
+package com.mozz.htmlnative.parser;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mozz.htmlnative.HNLog;
+import com.mozz.htmlnative.HNSegment;
+import com.mozz.htmlnative.StyleSheetCache;
+import com.mozz.htmlnative.common.BoxEdges;
+import com.mozz.htmlnative.common.PixelValue;
+import com.mozz.htmlnative.css.Background;
+import com.mozz.htmlnative.css.MediaQuery;
+import com.mozz.htmlnative.css.StyleSheet;
+import com.mozz.htmlnative.css.Styles;
+import com.mozz.htmlnative.css.selector.AnySelector;
+import com.mozz.htmlnative.css.selector.ClassSelector;
+import com.mozz.htmlnative.css.selector.CssSelector;
+import com.mozz.htmlnative.css.selector.IdSelector;
+import com.mozz.htmlnative.css.selector.TypeSelector;
+import com.mozz.htmlnative.dom.HNDomTree;
+import com.mozz.htmlnative.dom.HNHead;
+import com.mozz.htmlnative.dom.Meta;
+import com.mozz.htmlnative.exception.HNFormatError;
+import com.mozz.htmlnative.exception.HNSyntaxError;
+import com.mozz.htmlnative.script.ScriptInfo;
+import com.mozz.htmlnative.utils.ParametersUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.mozz.htmlnative.parser.SegmentFormat.readVarInt;
+
+/**
+ * Rebuild a {@link HNSegment} from the binary format written by {@link SegmentWriter}. The DOM,
+ * inline styles and StyleSheet are replayed through the same api the {@link Parser} uses, so
+ * the result is identical to parsing the source again.
+ *
+ * @author Yang Tao, 17/6/12.
+ */
+
+public final class SegmentReader {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final DataInputStream mIn;
+    private String[] mStrings;
+
+    private SegmentReader(InputStream in) {
+        mIn = new DataInputStream(in);
+    }
+
+    @NonNull
+    public static HNSegment read(@NonNull InputStream in) throws IOException {
+        return new SegmentReader(in).read();
+    }
+
+    @NonNull
+    public static HNSegment read(@NonNull byte[] bytes) throws IOException {
+        return read(new ByteArrayInputStream(bytes));
+    }
+
+    private HNSegment read() throws IOException {
+        readHeader();
+        readStringTable();
+
+        HNSegment segment = new HNSegment();
+        readHead(segment.getHead());
+        readScript(segment);
+
+        HNDomTree root = new HNDomTree(segment.getInlineStyles(), null, 0, readVarInt(mIn));
+        readTree(root);
+        segment.setDom(root);
+
+        readStyleSheet(segment.getStyleSheet());
+        segment.getInlineStyles().trimToSize();
+        segment.getStyleSheet().trimToSize();
+        return segment;
+    }
+
+    private void readHeader() throws IOException {
+        if (mIn.readInt() != SegmentFormat.MAGIC) {
+            throw new HNFormatError("not a precompiled segment");
+        }
+
+        short version = mIn.readShort();
+        if (version != SegmentFormat.VERSION) {
+            throw new HNFormatError("precompiled segment version is " + version + ", " +
+                    "expecting " + SegmentFormat.VERSION);
+        }
+
+        // length in styles like background has been converted into pixel while parsing. Segment
+        // compiled at build time has no density, and HNCompiler only emits it if no length
+        // needs the density.
+        float density = mIn.readFloat();
+        if (density > 0 && density != ParametersUtils.getScreenDensity()) {
+            throw new HNFormatError("precompiled segment is for density " + density + ", " +
+                    "while current is " + ParametersUtils.getScreenDensity());
+        }
+    }
+
+    private void readStringTable() throws IOException {
+        int count = readVarInt(mIn);
+        mStrings = new String[count];
+        byte[] buffer = new byte[64];
+        for (int i = 0; i < count; i++) {
+            int length = readVarInt(mIn);
+            if (length > buffer.length) {
+                buffer = new byte[length];
+            }
+            mIn.readFully(buffer, 0, length);
+            mStrings[i] = new String(buffer, 0, length, UTF_8);
+        }
+    }
+
+    private String readString() throws IOException {
+        int ref = readVarInt(mIn);
+        if (ref == SegmentFormat.NULL_REF) {
+            return null;
+        }
+        if (ref > mStrings.length) {
+            throw new HNFormatError("string reference out of range " + ref);
+        }
+        return mStrings[ref - 1];
+    }
+
+    private void readHead(HNHead head) throws IOException {
+        head.setTitle(readString());
+        int metaCount = readVarInt(mIn);
+        for (int i = 0; i < metaCount; i++) {
+            Meta meta = new Meta();
+            meta.setName(readString());
+            meta.setContent(readString());
+            head.putMeta(meta);
+        }
+    }
+
+    private void readScript(HNSegment segment) throws IOException {
+        int type = readVarInt(mIn);
+        if (type != 0) {
+            String code = readString();
+            byte[] bytecode = null;
+            int length = readVarInt(mIn);
+            if (length > 0) {
+                bytecode = new byte[length];
+                mIn.readFully(bytecode);
+            }
+            segment.setScriptInfo(new ScriptInfo(code, type, bytecode));
+        }
+    }
+
+    /**
+     * Read a node whose index has already been consumed, as it is needed by the constructor.
+     */
+    private void readTree(HNDomTree tree) throws IOException {
+        tree.setType(readString());
+        tree.setId(readString());
+
+        int classCount = readVarInt(mIn);
+        if (classCount > 0) {
+            String[] clazz = new String[classCount - 1];
+            for (int i = 0; i < clazz.length; i++) {
+                clazz[i] = readString();
+            }
+            tree.setClazz(clazz);
+        }
+
+        String inner = readString();
+        if (inner != null) {
+            tree.appendText(inner);
+        }
+
+        int attrCount = readVarInt(mIn);
+        for (int i = 0; i < attrCount; i++) {
+            tree.addInlineStyle(readString(), readValue());
+        }
+
+        int childCount = readVarInt(mIn);
+        for (int i = 0; i < childCount; i++) {
+            HNDomTree child = new HNDomTree(tree, null, readVarInt(mIn));
+            readTree(child);
+            tree.addChild(child);
+        }
+    }
+
+    private void readStyleSheet(StyleSheet styleSheet) throws IOException {
+        int linkedCount = readVarInt(mIn);
+        for (int i = 0; i < linkedCount; i++) {
+            String href = readString();
+            try {
+                styleSheet.link(StyleSheetCache.get(href));
+            } catch (IOException | HNSyntaxError e) {
+                // same as parsing the source
+                HNLog.e(HNLog.PARSER, "can't link style sheet " + href + ", " + e);
+            }
+        }
+
+        // rules of one @media share the same MediaQuery, as if parsed from source
+        Map<String, MediaQuery> medias = new HashMap<>();
+
+        int ruleCount = readVarInt(mIn);
+        for (int i = 0; i < ruleCount; i++) {
+            MediaQuery media = readMedia(medias);
+            int groupCount = readVarInt(mIn);
+            CssSelector first = null;
+            CssSelector pre = null;
+            for (int j = 0; j < groupCount; j++) {
+                CssSelector head = readSelectorChain(styleSheet, pre);
+                if (first == null) {
+                    first = head;
+                }
+                styleSheet.putSelector(head, media);
+                pre = head;
+            }
+
+            if (first == null) {
+                throw new HNFormatError("empty css rule");
+            }
+
+            int attrCount = readVarInt(mIn);
+            for (int j = 0; j < attrCount; j++) {
+                styleSheet.put(first, readString(), readValue());
+            }
+        }
+    }
+
+    @Nullable
+    private MediaQuery readMedia(Map<String, MediaQuery> medias) throws IOException {
+        String text = readString();
+        if (text == null) {
+            return null;
+        }
+
+        MediaQuery media = medias.get(text);
+        if (media == null) {
+            try {
+                media = MediaQuery.parse(text);
+            } catch (IllegalArgumentException e) {
+                throw new HNFormatError("wrong media query " + text);
+            }
+            medias.put(text, media);
+        }
+        return media;
+    }
+
+    /**
+     * The head must get its attr index, by register or chainGroup, before the rest of the chain
+     * is chained to it, the same order as {@link CssParser}.
+     */
+    private CssSelector readSelectorChain(StyleSheet styleSheet, CssSelector groupPre) throws
+            IOException {
+        int count = readVarInt(mIn);
+        if (count == 0) {
+            throw new HNFormatError("empty selector");
+        }
+
+        CssSelector head = readSelector();
+        if (groupPre == null) {
+            styleSheet.register(head);
+        } else {
+            groupPre.chainGroup(head);
+        }
+
+        boolean preMatchDirect = mIn.readBoolean();
+        for (int i = 1; i < count; i++) {
+            head.chainChild(readSelector(), !preMatchDirect);
+            preMatchDirect = mIn.readBoolean();
+        }
+        return head;
+    }
+
+    private CssSelector readSelector() throws IOException {
+        byte kind = mIn.readByte();
+        String name = readString();
+        switch (kind) {
+            case SegmentFormat.SELECTOR_TYPE:
+                return new TypeSelector(name);
+            case SegmentFormat.SELECTOR_CLASS:
+                return new ClassSelector(name);
+            case SegmentFormat.SELECTOR_ID:
+                return new IdSelector(name);
+            case SegmentFormat.SELECTOR_ANY:
+                return new AnySelector();
+            default:
+                throw new HNFormatError("unknown selector kind " + kind);
+        }
+    }
+
+    private Object readValue() throws IOException {
+        byte tag = mIn.readByte();
+        switch (tag) {
+            case SegmentFormat.VALUE_STRING:
+                return readString();
+            case SegmentFormat.VALUE_INT:
+                return mIn.readInt();
+            case SegmentFormat.VALUE_DOUBLE:
+                return mIn.readDouble();
+            case SegmentFormat.VALUE_FLOAT:
+                return mIn.readFloat();
+            case SegmentFormat.VALUE_BACKGROUND:
+                return Background.readFrom(mIn);
+            case SegmentFormat.VALUE_PIXEL:
+                return PixelValue.readFrom(mIn);
+            case SegmentFormat.VALUE_BOX_EDGES:
+                return BoxEdges.readFrom(mIn);
+            case SegmentFormat.VALUE_DISPLAY:
+                return readEnum(Styles.Display.values());
+            case SegmentFormat.VALUE_VISIBILITY:
+                return readEnum(Styles.Visibility.values());
+            case SegmentFormat.VALUE_DIRECTION:
+                return readEnum(Styles.Direction.values());
+            default:
+                throw new HNFormatError("unknown value tag " + tag);
+        }
+    }
+
+    private <E extends Enum<E>> E readEnum(E[] values) throws IOException {
+        int ordinal = mIn.readUnsignedByte();
+        if (ordinal >= values.length) {
+            throw new HNFormatError("unknown " + values[0].getDeclaringClass().getSimpleName() +
+                    " " + ordinal);
+        }
+        return values[ordinal];
+    }
+}
@@ -0,0 +1,284 @@
+package com.mozz.htmlnative.parser;
+
+import android.support.annotation.NonNull;
+
+import com.mozz.htmlnative.HNSegment;
+import com.mozz.htmlnative.common.BoxEdges;
+import com.mozz.htmlnative.common.PixelValue;
+import com.mozz.htmlnative.common.Symbols;
+import com.mozz.htmlnative.css.AttrsSet;
+import com.mozz.htmlnative.css.Background;
+import com.mozz.htmlnative.css.MediaQuery;
+import com.mozz.htmlnative.css.StyleSheet;
+import com.mozz.htmlnative.css.Styles;
+import com.mozz.htmlnative.css.selector.AnySelector;
+import com.mozz.htmlnative.css.selector.ClassSelector;
+import com.mozz.htmlnative.css.selector.CssSelector;
+import com.mozz.htmlnative.css.selector.IdSelector;
+import com.mozz.htmlnative.css.selector.TypeSelector;
+import com.mozz.htmlnative.dom.HNDomTree;
+import com.mozz.htmlnative.dom.HNHead;
+import com.mozz.htmlnative.dom.Meta;
+import com.mozz.htmlnative.script.ScriptInfo;
+import com.mozz.htmlnative.utils.ParametersUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.mozz.htmlnative.parser.SegmentFormat.writeVarInt;
+
+/**
+ * Write a parsed {@link HNSegment} into the precompiled binary format, which can be loaded by
+ * {@link SegmentReader} without running the {@link Parser} again.
+ * <p>
+ * DOM node: index type id class-count(varint, 0 means null, otherwise count + 1) [class]...
+ * inner attr-count [key value]... child-count [child]...<br/>
+ * StyleSheet rule: media group-count [part-count [kind name match-direct]...]... attr-count
+ * [key value]..., media is the condition of &#64;media, null if none. It is kept as is and
+ * evaluated when the segment is bound to a screen.
+ *
+ * @author Yang Tao, 17/6/12.
+ */
+
+public final class SegmentWriter {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final List<String> mStrings = new ArrayList<>();
+    private final Map<String, Integer> mStringRefs = new HashMap<>();
+
+    private final DataOutputStream mBody;
+
+    private final AttrsSet.Cursor mCursor = new AttrsSet.Cursor();
+
+    private SegmentWriter(OutputStream body) {
+        mBody = new DataOutputStream(body);
+    }
+
+    public static void write(@NonNull HNSegment segment, @NonNull OutputStream out) throws
+            IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+        SegmentWriter writer = new SegmentWriter(body);
+
+        writer.writeHead(segment.getHead());
+        writer.writeScript(segment.getScriptInfo());
+        writer.writeTree(segment.getDom(), segment.getInlineStyles());
+        writer.writeStyleSheet(segment.getStyleSheet());
+        writer.mBody.flush();
+
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeInt(SegmentFormat.MAGIC);
+        dataOut.writeShort(SegmentFormat.VERSION);
+        dataOut.writeFloat(ParametersUtils.getScreenDensity());
+        writer.writeStringTable(dataOut);
+        body.writeTo(dataOut);
+        dataOut.flush();
+    }
+
+    public static byte[] write(@NonNull HNSegment segment) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        write(segment, out);
+        return out.toByteArray();
+    }
+
+    private void writeStringTable(DataOutputStream out) throws IOException {
+        writeVarInt(out, mStrings.size());
+        for (String s : mStrings) {
+            byte[] bytes = s.getBytes(UTF_8);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private void writeString(String s) throws IOException {
+        if (s == null) {
+            writeVarInt(mBody, SegmentFormat.NULL_REF);
+            return;
+        }
+
+        Integer ref = mStringRefs.get(s);
+        if (ref == null) {
+            mStrings.add(s);
+            ref = mStrings.size();
+            mStringRefs.put(s, ref);
+        }
+        writeVarInt(mBody, ref);
+    }
+
+    private void writeHead(HNHead head) throws IOException {
+        writeString(head.getTitle());
+        writeVarInt(mBody, head.getMetas().size());
+        for (Meta meta : head.getMetas()) {
+            writeString(meta.getName());
+            writeString(meta.getContent());
+        }
+    }
+
+    private void writeScript(ScriptInfo scriptInfo) throws IOException {
+        if (scriptInfo == null) {
+            writeVarInt(mBody, 0);
+            return;
+        }
+        writeVarInt(mBody, scriptInfo.type());
+        writeString(scriptInfo.code());
+
+        byte[] bytecode = scriptInfo.bytecode();
+        if (bytecode == null) {
+            writeVarInt(mBody, 0);
+        } else {
+            writeVarInt(mBody, bytecode.length);
+            mBody.write(bytecode);
+        }
+    }
+
+    private void writeTree(HNDomTree tree, AttrsSet inlineStyles) throws IOException {
+        writeVarInt(mBody, tree.getIndex());
+        writeString(tree.getType());
+        writeString(tree.getId());
+
+        String[] clazz = tree.getClazz();
+        if (clazz == null) {
+            writeVarInt(mBody, 0);
+        } else {
+            writeVarInt(mBody, clazz.length + 1);
+            for (String c : clazz) {
+                writeString(c);
+            }
+        }
+
+        writeString(tree.getInner());
+        writeAttrs(inlineStyles, tree);
+
+        List<HNDomTree> children = tree.children();
+        writeVarInt(mBody, children.size());
+        for (HNDomTree child : children) {
+            writeTree(child, inlineStyles);
+        }
+    }
+
+    private void writeStyleSheet(StyleSheet styleSheet) throws IOException {
+        // linked ones are shared, only where they are loaded from is kept
+        List<StyleSheet> linked = styleSheet.linkedStyleSheets();
+        writeVarInt(mBody, linked.size());
+        for (StyleSheet l : linked) {
+            if (l.getHref() == null) {
+                throw new IllegalArgumentException("can't compile linked style sheet without " +
+                        "href");
+            }
+            writeString(l.getHref());
+        }
+
+        CssSelector[] selectors = styleSheet.selectorsInOrder();
+
+        // selectors in one group (a, b {...}) are put consecutively and share the same attrs.
+        List<int[]> rules = new ArrayList<>();
+        int start = 0;
+        while (start < selectors.length) {
+            int end = start + 1;
+            while (end < selectors.length && selectors[end].attrIndex() == selectors[start]
+                    .attrIndex()) {
+                end++;
+            }
+            rules.add(new int[]{start, end});
+            start = end;
+        }
+
+        writeVarInt(mBody, rules.size());
+        for (int[] rule : rules) {
+            MediaQuery media = selectors[rule[0]].getMedia();
+            writeString(media == null ? null : media.toString());
+            writeVarInt(mBody, rule[1] - rule[0]);
+            for (int i = rule[0]; i < rule[1]; i++) {
+                writeSelectorChain(selectors[i]);
+            }
+            writeAttrs(styleSheet, selectors[rule[0]]);
+        }
+    }
+
+    private void writeSelectorChain(CssSelector tail) throws IOException {
+        int count = 0;
+        for (CssSelector s = tail.head(); s != null; s = s.nextChild()) {
+            count++;
+        }
+
+        writeVarInt(mBody, count);
+        for (CssSelector s = tail.head(); s != null; s = s.nextChild()) {
+            Class<?> clazz = s.getClass();
+            if (clazz.equals(ClassSelector.class)) {
+                mBody.writeByte(SegmentFormat.SELECTOR_CLASS);
+                writeString(((ClassSelector) s).getName());
+            } else if (clazz.equals(IdSelector.class)) {
+                mBody.writeByte(SegmentFormat.SELECTOR_ID);
+                writeString(((IdSelector) s).getName());
+            } else if (clazz.equals(TypeSelector.class)) {
+                mBody.writeByte(SegmentFormat.SELECTOR_TYPE);
+                writeString(((TypeSelector) s).getName());
+            } else if (clazz.equals(AnySelector.class)) {
+                mBody.writeByte(SegmentFormat.SELECTOR_ANY);
+                writeString(null);
+            } else {
+                throw new IllegalArgumentException("can't compile selector " + clazz.getName());
+            }
+            mBody.writeBoolean(s.matchDirectChild());
+        }
+    }
+
+    private void writeAttrs(AttrsSet attrsSet, AttrsSet.AttrsOwner owner) throws IOException {
+        AttrsSet.Cursor cursor = attrsSet.cursor(owner, mCursor);
+        int count = 0;
+        while (cursor.moveToNext()) {
+            count++;
+        }
+
+        writeVarInt(mBody, count);
+        cursor = attrsSet.cursor(owner, mCursor);
+        while (cursor.moveToNext()) {
+            writeString(Symbols.name(cursor.getStyleId()));
+            writeValue(cursor.getStyle());
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value instanceof String) {
+            mBody.writeByte(SegmentFormat.VALUE_STRING);
+            writeString((String) value);
+        } else if (value instanceof Integer) {
+            mBody.writeByte(SegmentFormat.VALUE_INT);
+            mBody.writeInt((Integer) value);
+        } else if (value instanceof Double) {
+            mBody.writeByte(SegmentFormat.VALUE_DOUBLE);
+            mBody.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            mBody.writeByte(SegmentFormat.VALUE_FLOAT);
+            mBody.writeFloat((Float) value);
+        } else if (value instanceof Background) {
+            mBody.writeByte(SegmentFormat.VALUE_BACKGROUND);
+            ((Background) value).writeTo(mBody);
+        } else if (value instanceof PixelValue) {
+            mBody.writeByte(SegmentFormat.VALUE_PIXEL);
+            ((PixelValue) value).writeTo(mBody);
+        } else if (value instanceof BoxEdges) {
+            mBody.writeByte(SegmentFormat.VALUE_BOX_EDGES);
+            ((BoxEdges) value).writeTo(mBody);
+        } else if (value instanceof Styles.Display) {
+            mBody.writeByte(SegmentFormat.VALUE_DISPLAY);
+            mBody.writeByte(((Styles.Display) value).ordinal());
+        } else if (value instanceof Styles.Visibility) {
+            mBody.writeByte(SegmentFormat.VALUE_VISIBILITY);
+            mBody.writeByte(((Styles.Visibility) value).ordinal());
+        } else if (value instanceof Styles.Direction) {
+            mBody.writeByte(SegmentFormat.VALUE_DIRECTION);
+            mBody.writeByte(((Styles.Direction) value).ordinal());
+        } else {
+            throw new IllegalArgumentException("can't compile style value " + value + (value ==
+                    null ? "" : " of " + value.getClass().getName()));
+        }
+    }
+}
@@ -1,15 +1,16 @@
 package com.mozz.htmlnative.parser;
 
+import com.mozz.htmlnative.common.BoxEdges;
+import com.mozz.htmlnative.common.Symbols;
 import com.mozz.htmlnative.css.Background;
 import com.mozz.htmlnative.css.Styles;
+import com.mozz.htmlnative.utils.ParametersUtils;
 
 /**
  * @author Yang Tao, 17/5/10.
  */
 public final class StyleItemParser {
 
-    private static final CssParser.StyleHolder STYLE_HOLDER = new CssParser.StyleHolder();
-
     /**
      * to parse single style string into {@link CssParser.StyleHolder}. For example, 'background:url
      * (http://www.abc.com/efg.jpg)' will become :<br/>
@@ -19,26 +20,117 @@ public final class StyleItemParser {
      * @param styleName,      raw style name
      * @param styleValue,     raw style string
      * @param oldStyleObject, old style object, if you have one; or null.
-     * @return StyleHolder
+     * @return a new StyleHolder
      */
     public static CssParser.StyleHolder parseStyleSingle(String styleName, String styleValue,
                                                          Object oldStyleObject) {
-        STYLE_HOLDER.key = null;
-        STYLE_HOLDER.obj = null;
+        return parseStyleSingle(styleName, styleValue, oldStyleObject, new CssParser
+                .StyleHolder());
+    }
+
+    /**
+     * Same as {@link #parseStyleSingle(String, String, Object)}, result is put into out, which
+     * must not be shared between threads.
+     *
+     * @return out
+     */
+    public static CssParser.StyleHolder parseStyleSingle(String styleName, String styleValue,
+                                                         Object oldStyleObject, CssParser
+                                                                 .StyleHolder out) {
+        out.key = null;
+        out.obj = null;
 
         if (styleName.startsWith(Styles.ATTR_BACKGROUND) || styleName.startsWith(Styles
                 .ATTR_HN_BACKGROUND)) {
             Object val = Background.createOrChange(styleName, styleValue, oldStyleObject);
-            STYLE_HOLDER.key = Styles.ATTR_BACKGROUND;
-            STYLE_HOLDER.obj = val;
-            return STYLE_HOLDER;
+            out.key = Styles.ATTR_BACKGROUND;
+            out.obj = val;
+            return out;
         } else {
-            STYLE_HOLDER.key = styleName;
-            STYLE_HOLDER.obj = styleValue.trim();
-            return STYLE_HOLDER;
+            out.key = styleName;
+            out.obj = parseValue(Symbols.lookup(styleName), styleValue.trim());
+            return out;
         }
     }
 
+    /**
+     * Convert value of the styles applied to every element into the typed value that
+     * {@link Styles} and StyleHandlers use, once when parsing instead of each time it is
+     * applied. Lengths keep their unit, as dp is converted by the density of device when
+     * applied.
+     *
+     * @param styleName symbol id of style name, see {@link Symbols}
+     * @param value     trimmed style value
+     * @return typed value, or value itself if style is not typed or value can't be converted, so
+     * that it fails the same way as before when applied
+     */
+    static Object parseValue(int styleName, String value) {
+        try {
+            switch (styleName) {
+                case Symbols.WIDTH:
+                case Symbols.HEIGHT:
+                    if (value.equalsIgnoreCase(Styles.VAL_FILL_PARENT)) {
+                        return Styles.VAL_FILL_PARENT;
+                    }
+                    return ParametersUtils.toPixel(value);
+
+                case Symbols.MARGIN_LEFT:
+                case Symbols.MARGIN_RIGHT:
+                case Symbols.MARGIN_TOP:
+                case Symbols.MARGIN_BOTTOM:
+                case Symbols.LEFT:
+                case Symbols.TOP:
+                case Symbols.FONT_SIZE:
+                case Symbols.LINE_HEIGHT:
+                case Symbols.PADDING_LEFT:
+                case Symbols.PADDING_RIGHT:
+                case Symbols.PADDING_TOP:
+                case Symbols.PADDING_BOTTOM:
+                    return ParametersUtils.toPixel(value);
+
+                case Symbols.WORD_SPACING:
+                    if (value.equals(Styles.VAL_NORMAL)) {
+                        return Styles.VAL_NORMAL;
+                    }
+                    return ParametersUtils.toPixel(value);
+
+                case Symbols.MARGIN:
+                case Symbols.PADDING: {
+                    BoxEdges edges = ParametersUtils.toBoxEdges(value);
+                    return edges != null ? edges : value;
+                }
+
+
+                case Symbols.ALPHA:
+                    return ParametersUtils.toFloat(value);
+
+                case Symbols.COLOR:
+                    return ParametersUtils.toColor(value);
+
+                case Symbols.DISPLAY:
+                    return keyword(Styles.Display.of(value), value);
+
+                case Symbols.VISIBILITY:
+                    return keyword(Styles.Visibility.of(value), value);
+
+                case Symbols.DIRECTION:
+                    return keyword(Styles.Direction.of(value), value);
+
+                default:
+                    return value;
+            }
+        } catch (IllegalArgumentException e) {
+            return value;
+        }
+    }
+
+    /**
+     * @return the enum constant of the keyword, or value if it is not a known keyword
+     */
+    private static Object keyword(Enum<?> constant, String value) {
+        return constant != null ? constant : value;
+    }
+
     public static String parseKey(String key) {
         if (key.startsWith(Styles.ATTR_BACKGROUND) || key.startsWith(Styles.ATTR_HN_BACKGROUND)) {
             return Styles.ATTR_BACKGROUND;
@@ -0,0 +1,182 @@
+package com.mozz.htmlnative.reader;
+
+import android.support.annotation.NonNull;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+
+/**
+ * TextReader which decodes UTF-8 (or ASCII) directly from bytes held in memory, e.g. a page
+ * downloaded from network. Unlike {@link StreamReader}, there is no intermediate char buffer nor
+ * {@link java.io.InputStreamReader}, and the document is never copied.
+ * <p>
+ * Chars, line, column and countOfRead are reported exactly the same as {@link StreamReader}
+ * over the same bytes: a ' ' is returned at the end before {@link EOFException} is thrown,
+ * malformed input is replaced by U+FFFD and chars out of BMP are returned as surrogate pairs.
+ * <p>
+ * The buffer must not be modified while reading, its position and limit are left untouched.
+ *
+ * @author Yang Tao, 17/6/17.
+ */
+
+public class ByteBufferTextReader implements TextReader {
+
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private final ByteBuffer mBuffer;
+
+    private int mPos;
+
+    private final int mLimit;
+
+    /**
+     * Low surrogate to be returned on next {@link #nextCh()}, 0 if none.
+     */
+    private char mPendingLow = 0;
+
+    private boolean mMeetEof = false;
+
+    private int column = 1;
+
+    private int line = 1;
+
+    private char ch = INIT_CHAR;
+
+    private long countOfRead = 0;
+
+    public ByteBufferTextReader(@NonNull byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+    public ByteBufferTextReader(@NonNull byte[] bytes, int offset, int length) {
+        this(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    /**
+     * Read from position to limit of buffer.
+     */
+    public ByteBufferTextReader(@NonNull ByteBuffer buffer) {
+        mBuffer = buffer;
+        mPos = buffer.position();
+        mLimit = buffer.limit();
+    }
+
+    @Override
+    public char nextCh() throws EOFException {
+        if (mPendingLow != 0) {
+            ch = mPendingLow;
+            mPendingLow = 0;
+        } else if (mPos < mLimit) {
+            ch = decode();
+        } else if (!mMeetEof) {
+            // same as StreamReader, an ' ' is added to the end for lexer to handle
+            mMeetEof = true;
+            ch = ' ';
+        } else {
+            close();
+            throw new EOFException("Reach the end of stream!");
+        }
+
+        column++;
+
+        if (ch == '\n' || ch == '\r') {
+            this.line++;
+            column = 1;
+        }
+
+        countOfRead++;
+        return ch;
+    }
+
+    private char decode() {
+        final ByteBuffer buffer = mBuffer;
+        int b0 = buffer.get(mPos++);
+
+        if (b0 >= 0) {
+            return (char) b0;
+        }
+
+        b0 &= 0xFF;
+        int count;
+        int code;
+        if (b0 >= 0xC2 && b0 <= 0xDF) {
+            count = 1;
+            code = b0 & 0x1F;
+        } else if (b0 >= 0xE0 && b0 <= 0xEF) {
+            count = 2;
+            code = b0 & 0x0F;
+        } else if (b0 >= 0xF0 && b0 <= 0xF4) {
+            count = 3;
+            code = b0 & 0x07;
+        } else {
+            return REPLACEMENT;
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (mPos >= mLimit) {
+                return REPLACEMENT;
+            }
+
+            int b = buffer.get(mPos) & 0xFF;
+            if ((b & 0xC0) != 0x80 || (i == 0 && !isValidSecond(b0, b))) {
+                // the byte is not consumed, it will be decoded as the start of next char
+                return REPLACEMENT;
+            }
+            mPos++;
+            code = (code << 6) | (b & 0x3F);
+        }
+
+        if (code >= 0xD800 && code <= 0xDFFF) {
+            return REPLACEMENT;
+        }
+
+        if (code >= 0x10000) {
+            code -= 0x10000;
+            mPendingLow = (char) (0xDC00 + (code & 0x3FF));
+            return (char) (0xD800 + (code >>> 10));
+        }
+        return (char) code;
+    }
+
+    /**
+     * Reject overlong forms and code points above U+10FFFF by the second byte, as the UTF-8
+     * decoder of java does. Encoded surrogates are rejected after the whole sequence is read.
+     */
+    private static boolean isValidSecond(int b0, int b1) {
+        switch (b0) {
+            case 0xE0:
+                return b1 >= 0xA0;
+            case 0xF0:
+                return b1 >= 0x90;
+            case 0xF4:
+                return b1 <= 0x8F;
+            default:
+                return true;
+        }
+    }
+
+    @Override
+    public long line() {
+        return line;
+    }
+
+    @Override
+    public long column() {
+        return column;
+    }
+
+    @Override
+    public char current() {
+        return ch;
+    }
+
+    @Override
+    public void close() {
+        // the buffer belongs to the caller
+    }
+
+    @Override
+    public long countOfRead() {
+        return countOfRead;
+    }
+}
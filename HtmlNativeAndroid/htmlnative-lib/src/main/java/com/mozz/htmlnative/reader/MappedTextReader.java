@@ -0,0 +1,70 @@
+package com.mozz.htmlnative.reader;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.support.annotation.NonNull;
+
+import com.mozz.htmlnative.utils.IOUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * TextReader which lexes a file mapped into memory, so that the file is neither read into a
+ * buffer nor decoded by {@link java.io.InputStreamReader} first. See {@link ByteBufferTextReader}.
+ *
+ * @author Yang Tao, 17/6/17.
+ */
+
+public class MappedTextReader extends ByteBufferTextReader {
+
+    private FileInputStream mFileStream;
+
+    public MappedTextReader(@NonNull File file) throws IOException {
+        this(new FileInputStream(file), 0, file.length());
+    }
+
+    private MappedTextReader(FileInputStream stream, long offset, long length) throws
+            IOException {
+        super(map(stream, offset, length));
+        mFileStream = stream;
+    }
+
+    /**
+     * Map a file in assets. Only assets stored uncompressed in apk can be mapped, e.g. the ones
+     * listed in aaptOptions.noCompress.
+     *
+     * @throws java.io.FileNotFoundException if asset does not exist, or is compressed
+     */
+    @NonNull
+    public static MappedTextReader openAsset(@NonNull AssetManager assets, @NonNull String
+            fileName) throws IOException {
+        AssetFileDescriptor fd = assets.openFd(fileName);
+        try {
+            return new MappedTextReader(fd.createInputStream(), fd.getStartOffset(), fd
+                    .getLength());
+        } catch (IOException e) {
+            IOUtils.closeQuietly(fd);
+            throw e;
+        }
+    }
+
+    private static MappedByteBuffer map(FileInputStream stream, long offset, long length) throws
+            IOException {
+        try {
+            return stream.getChannel().map(FileChannel.MapMode.READ_ONLY, offset, length);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(stream);
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        // the mapping stays valid after the channel is closed, until it is collected
+        IOUtils.closeQuietly(mFileStream);
+    }
+}
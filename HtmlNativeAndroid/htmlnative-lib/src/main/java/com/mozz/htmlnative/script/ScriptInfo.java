@@ -11,12 +11,27 @@ public class ScriptInfo {
     public static final int SCRIPT_JAVASCRIPT = 0x01;
     public static final int SCRIPT_LUA = 0x02;
 
-    private final Token token;
+    private final String code;
     private final int type;
 
+    /**
+     * Lua bytecode produced by HNCompiler at build time, null if script need to be compiled at
+     * runtime.
+     */
+    private final byte[] bytecode;
+
     public ScriptInfo(Token scriptToken, String type) {
-        token = scriptToken;
-        this.type = parseType(type);
+        this(scriptToken.stringValue(), parseType(type));
+    }
+
+    public ScriptInfo(String code, int type) {
+        this(code, type, null);
+    }
+
+    public ScriptInfo(String code, int type, byte[] bytecode) {
+        this.code = code;
+        this.type = type;
+        this.bytecode = bytecode;
     }
 
     public int type() {
@@ -24,7 +39,11 @@ public class ScriptInfo {
     }
 
     public String code() {
-        return token.stringValue();
+        return code;
+    }
+
+    public byte[] bytecode() {
+        return bytecode;
     }
 
 
@@ -45,7 +64,6 @@ public class ScriptInfo {
 
     @Override
     public String toString() {
-        return "[" + (type == SCRIPT_JAVASCRIPT ? "javascript" : "lua") + ":" + token.stringValue
-                () + "]";
+        return "[" + (type == SCRIPT_JAVASCRIPT ? "javascript" : "lua") + ":" + code + "]";
     }
 }
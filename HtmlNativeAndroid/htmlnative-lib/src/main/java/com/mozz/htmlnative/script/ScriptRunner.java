@@ -15,6 +15,14 @@ public abstract class ScriptRunner {
 
     public abstract void run(String script);
 
+    /**
+     * Run the script of a segment. Runners which can use the precompiled {@link
+     * ScriptInfo#bytecode()} should override this.
+     */
+    public void run(ScriptInfo scriptInfo) {
+        run(scriptInfo.code());
+    }
+
     public abstract void runFunction(String functionName);
 
 }
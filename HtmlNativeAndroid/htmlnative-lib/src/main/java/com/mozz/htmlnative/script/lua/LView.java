@@ -6,6 +6,8 @@ import android.view.ViewGroup;
 import com.mozz.htmlnative.HNRenderer;
 import com.mozz.htmlnative.HNSandBoxContext;
 import com.mozz.htmlnative.InheritStyleStack;
+import com.mozz.htmlnative.Restyler;
+import com.mozz.htmlnative.dom.AttachedElement;
 import com.mozz.htmlnative.dom.DomElement;
 import com.mozz.htmlnative.exception.AttrApplyException;
 import com.mozz.htmlnative.parser.CssParser;
@@ -18,7 +20,10 @@ import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.ZeroArgFunction;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -71,29 +76,9 @@ class LView extends LuaTable {
             public LuaValue call(LuaValue arg) {
                 if (mCreated) {
                     String style = arg.tojstring();
-                    final Map<String, Object> styleMaps = new HashMap<>();
+                    Map<String, Object> styleMaps = new HashMap<>();
                     CssParser.parseInlineStyle(style, sParserBuffer, styleMaps);
-
-                    MainHandlerUtils.instance().post(new Runnable() {
-                        @Override
-                        public void run() {
-                            LayoutParamsLazyCreator tempCreator = new LayoutParamsLazyCreator();
-                            ViewGroup parent = (mView.getParent() != null && mView.getParent()
-                                    instanceof ViewGroup) ? (ViewGroup) mView.getParent() : null;
-                            try {
-                                HNRenderer.renderStyle(mView.getContext(), mContext, mView,
-                                        mDomElement, tempCreator, parent, styleMaps, false, null);
-                                LayoutParamsLazyCreator.createLayoutParams(tempCreator, mView
-                                        .getLayoutParams());
-                                mView.requestLayout();
-
-                            } catch (AttrApplyException e) {
-                                e.printStackTrace();
-                            }
-                        }
-                    });
-
-
+                    Restyler.instance().setStyle(mView, mContext, styleMaps);
                 } else {
                     Map<String, Object> newStyle = new HashMap<>();
                     CssParser.parseInlineStyle(arg.tojstring(), sParserBuffer, newStyle);
@@ -104,6 +89,45 @@ class LView extends LuaTable {
 
         });
 
+        set("setClass", new OneArgFunction() {
+            @Override
+            public LuaValue call(LuaValue arg) {
+                String[] clazz = splitClass(arg);
+                if (mCreated) {
+                    Restyler.instance().setClass(mView, mContext, clazz);
+                } else {
+                    mDomElement.setClazz(clazz);
+                }
+                return NIL;
+            }
+        });
+
+        set("addClass", new OneArgFunction() {
+            @Override
+            public LuaValue call(LuaValue arg) {
+                if (mCreated) {
+                    Restyler.instance().addClass(mView, mContext, splitClass(arg));
+                } else {
+                    mDomElement.setClazz(concatClass(mDomElement.getClazz(), splitClass(arg)));
+                }
+                return NIL;
+            }
+        });
+
+        set("removeClass", new OneArgFunction() {
+            @Override
+            public LuaValue call(LuaValue arg) {
+                if (mCreated) {
+                    Restyler.instance().removeClass(mView, mContext, splitClass(arg));
+                } else if (mDomElement.getClazz() != null) {
+                    List<String> clazz = new ArrayList<>(Arrays.asList(mDomElement.getClazz()));
+                    clazz.removeAll(Arrays.asList(splitClass(arg)));
+                    mDomElement.setClazz(clazz.toArray(new String[clazz.size()]));
+                }
+                return NIL;
+            }
+        });
+
         set("getId", new ZeroArgFunction() {
             @Override
             public LuaValue call() {
@@ -156,6 +180,13 @@ class LView extends LuaTable {
                                         child.mCreated = true;
                                         child.mAdded = true;
 
+                                        // kept for restyle, as styles set by script
+                                        if (child.mDomElement instanceof AttachedElement &&
+                                                child.mInlineStyleRaw != null) {
+                                            ((AttachedElement) child.mDomElement)
+                                                    .putScriptStyles(child.mInlineStyleRaw);
+                                        }
+
                                         // consume the inline style
                                         child.mInlineStyleRaw = null;
                                         ((ViewGroup) mView).addView(child.mView,
@@ -174,6 +205,19 @@ class LView extends LuaTable {
         });
     }
 
+    private static String[] splitClass(LuaValue arg) {
+        String clazz = arg.tojstring().trim();
+        return clazz.isEmpty() ? new String[0] : clazz.split("\\s+");
+    }
+
+    private static String[] concatClass(String[] clazz, String[] added) {
+        if (clazz == null) {
+            return added;
+        }
+        String[] result = Arrays.copyOf(clazz, clazz.length + added.length);
+        System.arraycopy(added, 0, result, clazz.length, added.length);
+        return result;
+    }
 
     @Override
     public int type() {
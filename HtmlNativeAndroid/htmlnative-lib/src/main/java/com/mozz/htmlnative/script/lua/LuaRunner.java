@@ -7,6 +7,7 @@ import android.util.Log;
 
 import com.mozz.htmlnative.HNLog;
 import com.mozz.htmlnative.HNSandBoxContext;
+import com.mozz.htmlnative.script.ScriptInfo;
 import com.mozz.htmlnative.script.ScriptRunner;
 import com.mozz.htmlnative.utils.MainHandlerUtils;
 
@@ -15,6 +16,7 @@ import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.lib.jse.JsePlatform;
 
+import java.io.ByteArrayInputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -57,28 +59,54 @@ public class LuaRunner extends ScriptRunner {
             LuaValue l = mGlobals.load(script);
             l.call();
         } catch (final LuaError e) {
-            // make sure that lua script dose not crash the whole app
-            e.printStackTrace();
-            Log.e(TAG, "LuaScriptRun");
+            onLuaError(e);
+        }
+    }
 
-            MainHandlerUtils.instance().post(new Runnable() {
-                @Override
-                public void run() {
-                    new AlertDialog.Builder(mSandbox.getAndroidContext()).setMessage("LuaScript " +
-                            "Wrong:\n" + e.getMessage()).setTitle("LuaSyntaxError")
-                            .setPositiveButton("OK", new DialogInterface.OnClickListener() {
+    /**
+     * Run the bytecode compiled by HNCompiler through {@link org.luaj.vm2.LoadState} if there
+     * is, so that LuaC is skipped.
+     */
+    @Override
+    public void run(ScriptInfo scriptInfo) {
+        byte[] bytecode = scriptInfo.bytecode();
+        if (bytecode == null) {
+            run(scriptInfo.code());
+            return;
+        }
 
+        HNLog.d(HNLog.SANDBOX, "Execute precompiled script.");
+        try {
+            LuaValue l = mGlobals.load(new ByteArrayInputStream(bytecode), "script", "b",
+                    mGlobals);
+            l.call();
+        } catch (final LuaError e) {
+            onLuaError(e);
+        }
+    }
 
-                        @Override
-                        public void onClick(DialogInterface dialog, int which) {
-                            dialog.dismiss();
-                        }
-                    }).show();
+    private void onLuaError(final LuaError e) {
+        // make sure that lua script dose not crash the whole app
+        e.printStackTrace();
+        Log.e(TAG, "LuaScriptRun");
 
-                }
-            });
+        MainHandlerUtils.instance().post(new Runnable() {
+            @Override
+            public void run() {
+                new AlertDialog.Builder(mSandbox.getAndroidContext()).setMessage("LuaScript " +
+                        "Wrong:\n" + e.getMessage()).setTitle("LuaSyntaxError")
+                        .setPositiveButton("OK", new DialogInterface.OnClickListener() {
+
+
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        dialog.dismiss();
+                    }
+                }).show();
+
+            }
+        });
 
-        }
     }
 
     @Override
@@ -13,7 +13,7 @@ import com.mozz.htmlnative.view.LayoutParamsLazyCreator;
 
 public class AbsoluteStyleHandler extends StyleHandler {
     @Override
-    public void apply(Context context, View v, DomElement domElement, View parent, LayoutParamsLazyCreator paramsLazyCreator, String params, Object value, boolean isParent) throws
+    public void apply(Context context, View v, DomElement domElement, View parent, LayoutParamsLazyCreator paramsLazyCreator, int params, Object value, boolean isParent) throws
             AttrApplyException {
 
     }
@@ -6,6 +6,7 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import com.google.android.flexbox.FlexboxLayout;
+import com.mozz.htmlnative.common.Symbols;
 import com.mozz.htmlnative.dom.DomElement;
 import com.mozz.htmlnative.exception.AttrApplyException;
 import com.mozz.htmlnative.view.LayoutParamsLazyCreator;
@@ -16,7 +17,7 @@ import com.mozz.htmlnative.view.LayoutParamsLazyCreator;
 
 class FlexBoxLayoutStyleHandler extends LayoutStyleHandler {
     @Override
-    public void apply(Context context, View v, DomElement domElement, View parent, LayoutParamsLazyCreator paramsLazyCreator, String params, Object value, boolean isParent) throws
+    public void apply(Context context, View v, DomElement domElement, View parent, LayoutParamsLazyCreator paramsLazyCreator, int params, Object value, boolean isParent) throws
             AttrApplyException {
         FlexboxLayout flexboxLayout = (FlexboxLayout) v;
 
@@ -25,17 +26,17 @@ class FlexBoxLayoutStyleHandler extends LayoutStyleHandler {
         }
 
         switch (params) {
-            case "flex-direction": {
+            case Symbols.FLEX_DIRECTION: {
                 String val = value.toString();
                 flexboxLayout.setFlexDirection(flexDirection(val));
                 break;
             }
-            case "flex-wrap": {
+            case Symbols.FLEX_WRAP: {
                 String val = value.toString();
                 flexboxLayout.setFlexWrap(flexWrap(val));
                 break;
             }
-            case "justify-content": {
+            case Symbols.JUSTIFY_CONTENT: {
                 String val = value.toString();
                 flexboxLayout.setJustifyContent(justContent(val));
                 break;
@@ -44,7 +45,7 @@ class FlexBoxLayoutStyleHandler extends LayoutStyleHandler {
     }
 
     @Override
-    public void applyToChild(Context context, View v, DomElement domElement, View parent, LayoutParamsLazyCreator paramsLazyCreator, String params, Object value, boolean isParent) throws AttrApplyException {
+    public void applyToChild(Context context, View v, DomElement domElement, View parent, LayoutParamsLazyCreator paramsLazyCreator, int params, Object value, boolean isParent) throws AttrApplyException {
 
     }
 
@@ -13,7 +13,7 @@ import com.mozz.htmlnative.view.LayoutParamsLazyCreator;
 class HtmlLayoutStyleHandler extends StyleHandler {
     @Override
     public void apply(Context context, View v, DomElement domElement, View parent,
-                      LayoutParamsLazyCreator paramsLazyCreator, String params, Object value,
+                      LayoutParamsLazyCreator paramsLazyCreator, int params, Object value,
                       boolean isParent) throws AttrApplyException {
 
         if (InheritStylesRegistry.isInherit(params)) {
@@ -31,7 +31,7 @@ class HtmlLayoutStyleHandler extends StyleHandler {
     }
 
     @Override
-    public Object getStyle(View v, String styleName) {
+    public Object getStyle(View v, int styleName) {
         return ((HNDiv) v).getInheritStyle(styleName);
     }
 }
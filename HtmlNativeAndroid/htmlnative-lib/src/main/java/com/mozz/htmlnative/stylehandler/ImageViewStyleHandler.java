@@ -7,6 +7,8 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import com.mozz.htmlnative.HNativeEngine;
+import com.mozz.htmlnative.MainThreadCalls;
+import com.mozz.htmlnative.common.Symbols;
 import com.mozz.htmlnative.css.Background;
 import com.mozz.htmlnative.dom.DomElement;
 import com.mozz.htmlnative.exception.AttrApplyException;
@@ -16,9 +18,9 @@ import com.mozz.htmlnative.view.LayoutParamsLazyCreator;
 class ImageViewStyleHandler extends StyleHandler {
 
     @Override
-    public void apply(Context context, View v, DomElement domElement, View parent, LayoutParamsLazyCreator paramsLazyCreator, String params, Object value, boolean isParent) throws
+    public void apply(Context context, View v, DomElement domElement, View parent, LayoutParamsLazyCreator paramsLazyCreator, int params, Object value, boolean isParent) throws
             AttrApplyException {
-        if (params.equals("src") && HNativeEngine.getImageViewAdapter() != null && !isParent) {
+        if (params == Symbols.SRC && HNativeEngine.getImageViewAdapter() != null && !isParent) {
             Matrix matrix = null;
             String url = value.toString();
             int color = Color.WHITE;
@@ -30,8 +32,15 @@ class ImageViewStyleHandler extends StyleHandler {
                 background = (Background) value;
             }
 
-            HNativeEngine.getImageViewAdapter().setImage(url, new BackgroundViewDelegate(v,
-                    matrix, color, background));
+            final String src = url;
+            final BackgroundViewDelegate delegate = new BackgroundViewDelegate(v, matrix, color,
+                    background);
+            MainThreadCalls.run(new Runnable() {
+                @Override
+                public void run() {
+                    HNativeEngine.getImageViewAdapter().setImage(src, delegate);
+                }
+            });
         }
     }
 
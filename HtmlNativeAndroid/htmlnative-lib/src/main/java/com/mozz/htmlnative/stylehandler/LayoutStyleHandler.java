@@ -13,7 +13,7 @@ import com.mozz.htmlnative.view.LayoutParamsLazyCreator;
 
 public abstract class LayoutStyleHandler extends StyleHandler {
     public abstract void applyToChild(Context context, View v, DomElement domElement, View
-            parent, LayoutParamsLazyCreator paramsLazyCreator, String params, Object value,
+            parent, LayoutParamsLazyCreator paramsLazyCreator, int params, Object value,
                                       boolean isParent) throws AttrApplyException;
 
     public void setDefaultToChild(Context context, View v, DomElement domElement, View parent,
@@ -3,17 +3,21 @@ package com.mozz.htmlnative.stylehandler;
 import android.content.Context;
 import android.view.View;
 
+import com.mozz.htmlnative.common.Symbols;
 import com.mozz.htmlnative.dom.DomElement;
 import com.mozz.htmlnative.exception.AttrApplyException;
 import com.mozz.htmlnative.view.LayoutParamsLazyCreator;
 
 /**
+ * Style names are passed as symbol ids, see {@link Symbols}. Use {@link Symbols#name(int)} to
+ * get the name.
+ *
  * @author Yang Tao, 17/2/22.
  */
 
 public abstract class StyleHandler {
     public abstract void apply(Context context, View v, DomElement domElement, View parent,
-                               LayoutParamsLazyCreator paramsLazyCreator, String params, Object
+                               LayoutParamsLazyCreator paramsLazyCreator, int params, Object
                                        value, boolean isParent) throws AttrApplyException;
 
     public void setDefault(Context context, View v, DomElement domElement,
@@ -22,7 +26,7 @@ public abstract class StyleHandler {
 
     }
 
-    public Object getStyle(View v, String styleName) {
+    public Object getStyle(View v, int styleName) {
         return null;
     }
 }
@@ -13,8 +13,8 @@ import android.widget.TextView;
 import com.google.android.flexbox.FlexboxLayout;
 import com.mozz.htmlnative.view.HNDiv;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Yang Tao, 17/4/17.
@@ -28,15 +28,27 @@ public final class StyleHandlerFactory {
     private static FlexBoxLayoutStyleHandler sFlex = new FlexBoxLayoutStyleHandler();
     private static WebViewStyleHandler sWebview = new WebViewStyleHandler();
     private static AbsoluteStyleHandler sAbsolute = new AbsoluteStyleHandler();
+    /**
+     * Read by main thread and the render thread, where views may be rendered detached
+     */
     @NonNull
-    private static Map<Class<? extends View>, StyleHandler> sAttrHandlerCache = new HashMap<>();
+    private static Map<Class<? extends View>, StyleHandler> sAttrHandlerCache = new
+            ConcurrentHashMap<>();
     private static Map<Class<? extends View>, StyleHandler> sExtraAttrHandlerCache = new
-            HashMap<>();
+            ConcurrentHashMap<>();
 
     private StyleHandlerFactory() {
 
     }
 
+    /**
+     * Register the inherited styles of the built-in StyleHandlers to
+     * {@link com.mozz.htmlnative.css.InheritStylesRegistry}, registering again does nothing.
+     */
+    public static void registerInheritStyles() {
+        TextViewStyleHandler.registerInheritStyles();
+    }
+
     //TODO there is much can be done when dealing with the StyleHandler
     public static StyleHandler byClass(@NonNull Class<? extends View> clazz) {
 
@@ -97,8 +109,19 @@ public final class StyleHandlerFactory {
         return sExtraAttrHandlerCache.get(view.getClass());
     }
 
-    public static StyleHandler registerExtraAttrHandler(Class<? extends View> viewClass,
-                                                        StyleHandler styleHandler) {
+    /**
+     * @param viewClass    null to register nothing
+     * @param styleHandler null to remove the handler of viewClass
+     */
+    public static StyleHandler registerExtraAttrHandler(@Nullable Class<? extends View>
+            viewClass, @Nullable StyleHandler styleHandler) {
+        // the cache takes no null, as it's read by render thread as well
+        if (viewClass == null) {
+            return null;
+        }
+        if (styleHandler == null) {
+            return sExtraAttrHandlerCache.remove(viewClass);
+        }
         return sExtraAttrHandlerCache.put(viewClass, styleHandler);
     }
 
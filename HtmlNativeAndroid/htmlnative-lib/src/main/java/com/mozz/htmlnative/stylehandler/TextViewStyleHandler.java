@@ -10,9 +10,10 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import com.mozz.htmlnative.HNativeEngine;
-import com.mozz.htmlnative.HtmlTag;
 import com.mozz.htmlnative.common.PixelValue;
+import com.mozz.htmlnative.common.Symbols;
 import com.mozz.htmlnative.css.InheritStylesRegistry;
+import com.mozz.htmlnative.css.Styles;
 import com.mozz.htmlnative.dom.DomElement;
 import com.mozz.htmlnative.exception.AttrApplyException;
 import com.mozz.htmlnative.utils.ParametersUtils;
@@ -20,17 +21,17 @@ import com.mozz.htmlnative.view.LayoutParamsLazyCreator;
 
 class TextViewStyleHandler extends StyleHandler {
 
-    private static final String FONT_SIZE = "font-size";
-    private static final String COLOR = "color";
-    private static final String TEXT = "text";
-    private static final String LINE_HEIGHT = "line-height";
-    private static final String FONT_STYLE = "font-style";
-    private static final String FONT_WEIGHT = "font-weight";
-    private static final String TEXT_ALIGN = "text-align";
-    private static final String HREF = "href";
-    private static final String TEXT_WORD_SPACING = "word-spacing";
-    private static final String TEXT_OVER_FLOW = "text-overflow";
-    private static final String TEXT_TRANSFORM = "text-transform";
+    private static final int FONT_SIZE = Symbols.FONT_SIZE;
+    private static final int COLOR = Symbols.COLOR;
+    private static final int TEXT = Symbols.TEXT;
+    private static final int LINE_HEIGHT = Symbols.LINE_HEIGHT;
+    private static final int FONT_STYLE = Symbols.FONT_STYLE;
+    private static final int FONT_WEIGHT = Symbols.FONT_WEIGHT;
+    private static final int TEXT_ALIGN = Symbols.TEXT_ALIGN;
+    private static final int HREF = Symbols.HREF;
+    private static final int TEXT_WORD_SPACING = Symbols.WORD_SPACING;
+    private static final int TEXT_OVER_FLOW = Symbols.TEXT_OVERFLOW;
+    private static final int TEXT_TRANSFORM = Symbols.TEXT_TRANSFORM;
 
     private static final int DEFAULT_SIZE = 14;
     private static final int DEFAULT_H1_SIZE = ParametersUtils.emToPx(2);
@@ -51,9 +52,21 @@ class TextViewStyleHandler extends StyleHandler {
     private static final int DEFAULT_H6_SIZE = (int) ParametersUtils.emToPx(.6f);
     private static final int DEFAULT_H6_PADDING = (int) ParametersUtils.emToPx(1.12f);
 
-    private static final int DEFAULT_P_PADDING = (int) ParametersUtils.dpToPx(5);
+    private static final float DEFAULT_P_PADDING_DP = 5;
+
+    /**
+     * padding of &lt;p&gt; in pixels, computed with the screen density of
+     * {@link ParametersUtils#densityGeneration()}, so that it follows a new density. The em
+     * based defaults above don't depend on density.
+     */
+    private static int sPPadding;
+    private static int sPPaddingGeneration = -1;
 
     static {
+        registerInheritStyles();
+    }
+
+    static void registerInheritStyles() {
         InheritStylesRegistry.register(FONT_SIZE);
         InheritStylesRegistry.register(COLOR);
         InheritStylesRegistry.register(LINE_HEIGHT);
@@ -65,7 +78,7 @@ class TextViewStyleHandler extends StyleHandler {
 
     @Override
     public void apply(Context context, View v, DomElement domElement, View parent,
-                      LayoutParamsLazyCreator paramsLazyCreator, String params, final Object
+                      LayoutParamsLazyCreator paramsLazyCreator, int params, final Object
                                   value, boolean isParent) throws AttrApplyException {
 
         final TextView textView = (TextView) v;
@@ -131,7 +144,7 @@ class TextViewStyleHandler extends StyleHandler {
                 break;
 
             case HREF:
-                if (domElement.getType().equals(HtmlTag.A)) {
+                if (domElement.getTypeId() == Symbols.A) {
                     textView.setOnClickListener(new View.OnClickListener() {
                         @Override
                         public void onClick(View v) {
@@ -161,8 +174,7 @@ class TextViewStyleHandler extends StyleHandler {
                 break;
 
             case TEXT_WORD_SPACING: {
-                String ss = value.toString();
-                if (ss.equals("normal")) {
+                if (!(value instanceof PixelValue) && value.toString().equals(Styles.VAL_NORMAL)) {
                     textView.setLetterSpacing(textView.getLetterSpacing());
                 } else {
                     PixelValue f = ParametersUtils.toPixel(value);
@@ -208,8 +220,8 @@ class TextViewStyleHandler extends StyleHandler {
 
         textView.setTextSize(DEFAULT_SIZE);
 
-        switch (domElement.getType()) {
-            case HtmlTag.H1:
+        switch (domElement.getTypeId()) {
+            case Symbols.H1:
                 textView.setTextSize(DEFAULT_H1_SIZE);
                 paramsLazyCreator.width = ViewGroup.LayoutParams.MATCH_PARENT;
                 StyleHelper.setPadding(textView, DEFAULT_H1_PADDING, textView.getPaddingLeft(),
@@ -217,7 +229,7 @@ class TextViewStyleHandler extends StyleHandler {
                 StyleHelper.setBold(textView);
                 break;
 
-            case HtmlTag.H2:
+            case Symbols.H2:
                 textView.setTextSize(DEFAULT_H2_SIZE);
                 paramsLazyCreator.width = ViewGroup.LayoutParams.MATCH_PARENT;
                 StyleHelper.setPadding(textView, DEFAULT_H2_PADDING, textView.getPaddingLeft(),
@@ -225,7 +237,7 @@ class TextViewStyleHandler extends StyleHandler {
                 StyleHelper.setBold(textView);
                 break;
 
-            case HtmlTag.H3:
+            case Symbols.H3:
                 textView.setTextSize(DEFAULT_H3_SIZE);
                 paramsLazyCreator.width = ViewGroup.LayoutParams.MATCH_PARENT;
                 StyleHelper.setPadding(textView, DEFAULT_H3_PADDING, textView.getPaddingLeft(),
@@ -233,7 +245,7 @@ class TextViewStyleHandler extends StyleHandler {
                 StyleHelper.setBold(textView);
                 break;
 
-            case HtmlTag.H4:
+            case Symbols.H4:
                 textView.setTextSize(DEFAULT_H4_SIZE);
                 paramsLazyCreator.width = ViewGroup.LayoutParams.MATCH_PARENT;
                 StyleHelper.setPadding(textView, DEFAULT_H4_PADDING, textView.getPaddingLeft(),
@@ -241,7 +253,7 @@ class TextViewStyleHandler extends StyleHandler {
                 StyleHelper.setBold(textView);
                 break;
 
-            case HtmlTag.H5:
+            case Symbols.H5:
                 textView.setTextSize(DEFAULT_H5_SIZE);
                 paramsLazyCreator.width = ViewGroup.LayoutParams.MATCH_PARENT;
                 StyleHelper.setPadding(textView, DEFAULT_H5_PADDING, textView.getPaddingLeft(),
@@ -249,7 +261,7 @@ class TextViewStyleHandler extends StyleHandler {
                 StyleHelper.setBold(textView);
                 break;
 
-            case HtmlTag.H6:
+            case Symbols.H6:
                 textView.setTextSize(DEFAULT_H6_SIZE);
                 paramsLazyCreator.width = ViewGroup.LayoutParams.MATCH_PARENT;
                 StyleHelper.setPadding(textView, DEFAULT_H6_PADDING, textView.getPaddingLeft(),
@@ -257,20 +269,31 @@ class TextViewStyleHandler extends StyleHandler {
                 StyleHelper.setBold(textView);
                 break;
 
-            case HtmlTag.P:
-                StyleHelper.setTopPadding(textView, DEFAULT_P_PADDING);
-                StyleHelper.setBottomPadding(textView, DEFAULT_P_PADDING);
+            case Symbols.P:
+                int pPadding = pPadding();
+                StyleHelper.setTopPadding(textView, pPadding);
+                StyleHelper.setBottomPadding(textView, pPadding);
                 paramsLazyCreator.width = ViewGroup.LayoutParams.MATCH_PARENT;
                 break;
-            case HtmlTag.A:
+            case Symbols.A:
                 StyleHelper.setUnderLine(textView);
                 paramsLazyCreator.width = ViewGroup.LayoutParams.WRAP_CONTENT;
                 break;
         }
     }
 
+    private static int pPadding() {
+        // called on main thread only
+        int generation = ParametersUtils.densityGeneration();
+        if (sPPaddingGeneration != generation) {
+            sPPadding = (int) ParametersUtils.dpToPx(DEFAULT_P_PADDING_DP);
+            sPPaddingGeneration = generation;
+        }
+        return sPPadding;
+    }
+
     @Override
-    public Object getStyle(View v, String styleName) {
+    public Object getStyle(View v, int styleName) {
         final TextView textView = (TextView) v;
         switch (styleName) {
             case COLOR:
@@ -4,6 +4,7 @@ import android.content.Context;
 import android.view.View;
 import android.webkit.WebView;
 
+import com.mozz.htmlnative.common.Symbols;
 import com.mozz.htmlnative.dom.DomElement;
 import com.mozz.htmlnative.exception.AttrApplyException;
 import com.mozz.htmlnative.view.LayoutParamsLazyCreator;
@@ -14,15 +15,13 @@ import com.mozz.htmlnative.view.LayoutParamsLazyCreator;
 
 class WebViewStyleHandler extends StyleHandler {
 
-    private static final String ATTR_SRC = "src";
-
     @Override
     public void apply(Context context, View v, DomElement domElement, View parent,
-                      LayoutParamsLazyCreator paramsLazyCreator, String params, Object value,
+                      LayoutParamsLazyCreator paramsLazyCreator, int params, Object value,
                       boolean isParent) throws AttrApplyException {
         final WebView webView = (WebView) v;
 
-        if (params.equals(ATTR_SRC) && !isParent) {
+        if (params == Symbols.SRC && !isParent) {
             webView.loadUrl(value.toString());
         }
     }
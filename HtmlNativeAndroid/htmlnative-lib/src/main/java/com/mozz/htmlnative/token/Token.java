@@ -4,6 +4,14 @@ package com.mozz.htmlnative.token;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.mozz.htmlnative.common.CharSlice;
+import com.mozz.htmlnative.common.Symbols;
+
+/**
+ * Token produced by Lexer. Numbers are held in primitive fields, and text is held as a
+ * {@link CharSlice} over the buffer of Lexer, which is only valid until the Lexer scans the next
+ * token. A String is made by {@link #stringValue()} only when the value is kept.
+ */
 public final class Token {
 
     public static final int EXTRA_NUMBER_EM = 1;
@@ -15,29 +23,51 @@ public final class Token {
 
     private TokenType mTokenType;
 
+    private static final int VALUE_NONE = 0;
+    private static final int VALUE_OBJECT = 1;
+    private static final int VALUE_TEXT = 2;
+    private static final int VALUE_INT = 3;
+    private static final int VALUE_DOUBLE = 4;
+
+    private int mValueType = VALUE_NONE;
+
+    /**
+     * Value set as object, or the String made from {@link #mText}
+     */
     @Nullable
     private Object mValue;
 
+    private final CharSlice mText = new CharSlice();
+
+    private int mIntValue;
+
+    private double mDoubleValue;
+
     private int mExtra = -1;
 
-    @Nullable
-    private Token next;
+    /**
+     * Id of text in {@link Symbols}, or {@link Symbols#NONE} if text is not a known name.
+     */
+    private int mSymbol = Symbols.NONE;
 
-    // for token pool
+    /**
+     * Next token in the free list of {@link #mPool}
+     */
     @Nullable
-    private static Token sPool;
-    private static int sPoolSize = 0;
-    private static final int MAX_POOL_SIZE = 20;
+    Token next;
 
-    private Token(@NonNull TokenType tokenType, Object value) {
-        mTokenType = tokenType;
-        mValue = value;
+    @NonNull
+    private final TokenPool mPool;
+
+    Token(@NonNull TokenPool pool) {
+        mPool = pool;
     }
 
     @NonNull
     @Override
     public String toString() {
-        String value = mValue == null ? "" : ":" + mValue;
+        Object v = value();
+        String value = v == null ? "" : ":" + v;
         return "[" + mTokenType.toString() + "]" + value;
     }
 
@@ -46,22 +76,77 @@ public final class Token {
         return mTokenType;
     }
 
+    /**
+     * Value as an object, numbers are boxed and text is made into String. Prefer the typed
+     * accessors.
+     */
     @Nullable
     public Object value() {
-        return mValue;
+        switch (mValueType) {
+            case VALUE_TEXT:
+                return stringValue();
+            case VALUE_INT:
+                return mIntValue;
+            case VALUE_DOUBLE:
+                return mDoubleValue;
+            default:
+                return mValue;
+        }
     }
 
     public void setValue(Object value) {
+        mValueType = VALUE_OBJECT;
         mValue = value;
+        mText.clear();
     }
 
+    /**
+     * Make the text into String, which is kept by this token, so call it only once when the value
+     * is kept, see {@link #text()}.
+     */
     @Nullable
     public String stringValue() {
-        return (String) mValue;
+        if (mValueType == VALUE_TEXT) {
+            if (mValue == null) {
+                mValue = mSymbol != Symbols.NONE ? Symbols.name(mSymbol) : mText.toString();
+            }
+            return (String) mValue;
+        }
+        return (String) value();
+    }
+
+    public int symbol() {
+        return mSymbol;
+    }
+
+    /**
+     * Text of the token without making a String. The content is only valid until the Lexer
+     * scans the next token.
+     */
+    @Nullable
+    public CharSequence text() {
+        if (mValueType == VALUE_TEXT) {
+            return mValue != null ? (String) mValue : mText;
+        } else if (mValue instanceof CharSequence) {
+            return (CharSequence) mValue;
+        }
+        return null;
+    }
+
+    public boolean textEquals(@Nullable String str) {
+        if (str == null) {
+            return false;
+        }
+        if (mValueType == VALUE_TEXT && mValue == null) {
+            return mText.contentEquals(str);
+        }
+        return str.equals(value());
     }
 
     public int intValue() {
-        if (mValue instanceof Integer) {
+        if (mValueType == VALUE_INT) {
+            return mIntValue;
+        } else if (mValue instanceof Integer) {
             return (int) mValue;
         } else {
             return 0;
@@ -69,7 +154,9 @@ public final class Token {
     }
 
     public double doubleValue() {
-        if (mValue instanceof Double) {
+        if (mValueType == VALUE_DOUBLE) {
+            return mDoubleValue;
+        } else if (mValue instanceof Double) {
             return (double) mValue;
         } else if (mValue instanceof Float) {
             return (float) mValue;
@@ -86,57 +173,83 @@ public final class Token {
         }
     }
 
-    @Nullable
-    public static Token obtainToken(TokenType tokenType, Object value, long line, long column) {
-        if (sPool != null) {
-            Token t = sPool;
-            sPool = t.next;
-            t.next = null;
-            sPoolSize--;
-
-            t.mTokenType = tokenType;
-            t.mValue = value;
-            t.line = line;
-            t.startColumn = column;
-            return t;
-        }
+    void set(TokenType tokenType, long line, long column) {
+        mTokenType = tokenType;
+        this.line = line;
+        this.startColumn = column;
+    }
 
-        return new Token(tokenType, value);
+    void setInt(int value) {
+        mValueType = VALUE_INT;
+        mIntValue = value;
+    }
 
+    void setDouble(double value) {
+        mValueType = VALUE_DOUBLE;
+        mDoubleValue = value;
     }
 
-    @Nullable
+    void setText(char[] chars, int start, int length, int symbol) {
+        mValueType = VALUE_TEXT;
+        mText.set(chars, start, length);
+        mSymbol = symbol;
+    }
+
+    void setExtra(int extra) {
+        mExtra = extra;
+    }
+
+    /*
+     * The static obtainToken methods make tokens which are never pooled, for tokens made outside
+     * of a Lexer. Lexer obtains tokens from its own TokenPool.
+     */
+
+    @NonNull
+    public static Token obtainToken(TokenType tokenType, Object value, long line, long column) {
+        return TokenPool.UNPOOLED.obtainToken(tokenType, value, line, column);
+    }
+
+    @NonNull
     public static Token obtainToken(TokenType tokenType, long line, long column) {
-        return obtainToken(tokenType, null, line, column);
+        return TokenPool.UNPOOLED.obtainToken(tokenType, line, column);
     }
 
+    @NonNull
     public static Token obtainToken(TokenType tokenType, Object value, long line, long column,
                                     int extra) {
-        Token t = obtainToken(tokenType, value, line, column);
-        t.mExtra = extra;
-        return t;
+        return TokenPool.UNPOOLED.obtainToken(tokenType, value, line, column, extra);
     }
 
-    static void recycleAll() {
-        sPoolSize = 0;
-        sPool = null;
+    @NonNull
+    public static Token obtainToken(TokenType tokenType, int value, long line, long column) {
+        return TokenPool.UNPOOLED.obtainToken(tokenType, value, line, column);
     }
 
-    public void recycle() {
-        recycleUnchecked();
+    @NonNull
+    public static Token obtainToken(TokenType tokenType, double value, long line, long column) {
+        return TokenPool.UNPOOLED.obtainToken(tokenType, value, line, column);
     }
 
-    private void recycleUnchecked() {
+    @NonNull
+    public static Token obtainToken(TokenType tokenType, double value, long line, long column,
+                                    int extra) {
+        return TokenPool.UNPOOLED.obtainToken(tokenType, value, line, column, extra);
+    }
+
+    /**
+     * Put back to the pool it is obtained from. The token must not be used any more.
+     */
+    public void recycle() {
         mTokenType = TokenType.Unknown;
+        mValueType = VALUE_NONE;
         mValue = null;
+        mText.clear();
+        mExtra = -1;
+        mSymbol = Symbols.NONE;
         startColumn = -1;
         line = -1;
 
-        if (sPoolSize < MAX_POOL_SIZE) {
-            next = sPool;
-            sPool = this;
-            sPoolSize++;
-        }
+        mPool.release(this);
     }
 
     @Override
@@ -144,7 +257,7 @@ public final class Token {
         if (obj instanceof Token) {
             Token compare = (Token) obj;
 
-            return compare.mValue.equals(mValue) && compare.mTokenType.equals(mTokenType) &&
+            return compare.value().equals(value()) && compare.mTokenType.equals(mTokenType) &&
                     compare.line == line && compare.startColumn == startColumn;
         }
         return false;
@@ -155,7 +268,7 @@ public final class Token {
         int r = 17;
         r = 31 * r + (int) startColumn;
         r = 31 * r + (int) line;
-        r = 31 * r + mValue.hashCode();
+        r = 31 * r + value().hashCode();
         r = 31 * r + mTokenType.hashCode();
         return r;
     }
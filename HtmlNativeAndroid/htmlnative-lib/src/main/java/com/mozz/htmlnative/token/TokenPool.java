@@ -0,0 +1,135 @@
+package com.mozz.htmlnative.token;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mozz.htmlnative.common.Symbols;
+
+/**
+ * Free list of recycled {@link Token}s, owned by one Lexer and used by one thread. Each document
+ * is parsed by its own Lexer, so documents can be parsed at the same time on different threads
+ * without sharing any token.
+ * <p>
+ * A token remembers the pool it comes from, {@link Token#recycle()} puts it back there.
+ *
+ * @author Yang Tao, 17/6/19.
+ */
+
+public final class TokenPool {
+
+    private static final int MAX_POOL_SIZE = 20;
+
+    /**
+     * Pool which never keeps a token, used by the static obtainToken methods of {@link Token}.
+     * It has no state to share, so it is safe on any thread.
+     */
+    static final TokenPool UNPOOLED = new TokenPool(0);
+
+    @Nullable
+    private Token mPool;
+    private int mPoolSize = 0;
+    private final int mMaxPoolSize;
+
+    public TokenPool() {
+        this(MAX_POOL_SIZE);
+    }
+
+    private TokenPool(int maxPoolSize) {
+        mMaxPoolSize = maxPoolSize;
+    }
+
+    @NonNull
+    private Token obtain(TokenType tokenType, long line, long column) {
+        Token t;
+        if (mPool != null) {
+            t = mPool;
+            mPool = t.next;
+            t.next = null;
+            mPoolSize--;
+        } else {
+            t = new Token(this);
+        }
+
+        t.set(tokenType, line, column);
+        return t;
+    }
+
+    void release(@NonNull Token token) {
+        if (mPoolSize < mMaxPoolSize) {
+            token.next = mPool;
+            mPool = token;
+            mPoolSize++;
+        }
+    }
+
+    /**
+     * Drop all recycled tokens.
+     */
+    public void clear() {
+        mPoolSize = 0;
+        mPool = null;
+    }
+
+    @NonNull
+    public Token obtainToken(TokenType tokenType, Object value, long line, long column) {
+        Token t = obtain(tokenType, line, column);
+        t.setValue(value);
+        return t;
+    }
+
+    @NonNull
+    public Token obtainToken(TokenType tokenType, long line, long column) {
+        return obtain(tokenType, line, column);
+    }
+
+    @NonNull
+    public Token obtainToken(TokenType tokenType, Object value, long line, long column, int
+            extra) {
+        Token t = obtainToken(tokenType, value, line, column);
+        t.setExtra(extra);
+        return t;
+    }
+
+    @NonNull
+    public Token obtainToken(TokenType tokenType, int value, long line, long column) {
+        Token t = obtain(tokenType, line, column);
+        t.setInt(value);
+        return t;
+    }
+
+    @NonNull
+    public Token obtainToken(TokenType tokenType, double value, long line, long column) {
+        Token t = obtain(tokenType, line, column);
+        t.setDouble(value);
+        return t;
+    }
+
+    @NonNull
+    public Token obtainToken(TokenType tokenType, double value, long line, long column, int
+            extra) {
+        Token t = obtainToken(tokenType, value, line, column);
+        t.setExtra(extra);
+        return t;
+    }
+
+    /**
+     * Obtain a token whose text is a slice of chars, which are not copied.
+     */
+    @NonNull
+    public Token obtainToken(TokenType tokenType, char[] chars, int start, int length, long
+            line, long column) {
+        return obtainToken(tokenType, chars, start, length, Symbols.NONE, line, column);
+    }
+
+    /**
+     * Same as {@link #obtainToken(TokenType, char[], int, int, long, long)}, with the id of the
+     * text in {@link Symbols}. The String of a symbol is never made again.
+     */
+    @NonNull
+    public Token obtainToken(TokenType tokenType, char[] chars, int start, int length, int
+            symbol, long line, long column) {
+        Token t = obtain(tokenType, line, column);
+        t.setText(chars, start, length, symbol);
+        return t;
+    }
+}
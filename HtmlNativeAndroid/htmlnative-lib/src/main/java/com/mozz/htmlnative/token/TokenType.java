@@ -64,7 +64,10 @@ public enum TokenType {
 
     Star("*"),
 
-    Exclamation("!");
+    Exclamation("!"),
+
+    // at-rule of css, such as @media, with the condition before {
+    AtRule("@");
 
     private String value;
 
@@ -1,11 +1,13 @@
 package com.mozz.htmlnative.utils;
 
 import android.content.Context;
-import android.graphics.Color;
 import android.support.annotation.NonNull;
+import android.util.DisplayMetrics;
 import android.util.TypedValue;
 
+import com.mozz.htmlnative.common.BoxEdges;
 import com.mozz.htmlnative.common.PixelValue;
+import com.mozz.htmlnative.common.ValueCache;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -21,15 +23,66 @@ public final class ParametersUtils {
     private ParametersUtils() {
     }
 
-    private static float screenDensity = -1.f;
-
+    private static volatile float screenDensity = -1.f;
+
+    /**
+     * Changed each time a new screen density is set, see {@link #densityGeneration()}
+     */
+    private static volatile int sDensityGeneration = 0;
+
+    /**
+     * Parsed values keyed by the raw string. Lengths and colors do not depend on density, which
+     * is applied when their pixels are asked for.
+     */
+    private static final ValueCache<String, PixelValue> sPixelCache = new ValueCache<>(256);
+    private static final ValueCache<String, Integer> sColorCache = new ValueCache<>(128);
+
+    /**
+     * Size of screen in pixel, changes when screen rotates, see {@link #init(Context)}
+     */
+    private static volatile int sScreenWidth = -1;
+    private static volatile int sScreenHeight = -1;
+
+    /**
+     * Read the metrics of screen, may be called again to refresh them, e.g. after screen
+     * rotates.
+     */
     public static void init(Context context) {
-        float density = context.getResources().getDisplayMetrics().density;
-        updateScreenDensity(density);
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        updateScreenDensity(metrics.density);
+        updateScreenSize(metrics.widthPixels, metrics.heightPixels);
+    }
+
+    static void updateScreenSize(int width, int height) {
+        sScreenWidth = width;
+        sScreenHeight = height;
+    }
+
+    public static int getScreenWidth() {
+        return sScreenWidth;
+    }
+
+    public static int getScreenHeight() {
+        return sScreenHeight;
+    }
+
+    static synchronized void updateScreenDensity(float density) {
+        if (density != screenDensity) {
+            screenDensity = density;
+            sDensityGeneration++;
+        }
+    }
+
+    public static float getScreenDensity() {
+        return screenDensity;
     }
 
-    private static void updateScreenDensity(float density) {
-        screenDensity = density;
+    /**
+     * Values derived from screen density, cached with the generation they are computed in, must
+     * be computed again once it changes.
+     */
+    public static int densityGeneration() {
+        return sDensityGeneration;
     }
 
     public static int toInt(Object object) throws IllegalArgumentException {
@@ -43,6 +96,8 @@ public final class ParametersUtils {
     public static float toFloat(Object object) throws IllegalArgumentException {
         if (object instanceof Float) {
             return (float) object;
+        } else if (object instanceof Number) {
+            return ((Number) object).floatValue();
         } else {
             String fStr = object.toString();
             boolean isPercentage = false;
@@ -59,8 +114,15 @@ public final class ParametersUtils {
 
     public static PixelValue toPixel(Object object) throws IllegalArgumentException {
         int unit = TypedValue.COMPLEX_UNIT_PX;
-        if (object instanceof String) {
+        if (object instanceof PixelValue) {
+            // converted when parsing
+            return (PixelValue) object;
+        } else if (object instanceof String) {
             String string = (String) object;
+            PixelValue cached = sPixelCache.get(string);
+            if (cached != null) {
+                return cached;
+            }
 
             StringBuilder unitString = new StringBuilder();
             int i = string.length() - 1;
@@ -76,7 +138,9 @@ public final class ParametersUtils {
             unit = getUnit(unitString.reverse().toString());
 
             float value = toFloat(string.substring(0, i + 1));
-            return new PixelValue(value, unit);
+            PixelValue pixel = new PixelValue(value, unit);
+            sPixelCache.put(string, pixel);
+            return pixel;
 
         } else {
             return new PixelValue(toFloat(object), unit);
@@ -125,6 +189,17 @@ public final class ParametersUtils {
         return pixelValues;
     }
 
+    /**
+     * @return edges of margin or padding, or null if the count of values is not 1, 2 or 4
+     */
+    public static BoxEdges toBoxEdges(Object object) throws IllegalArgumentException {
+        if (object instanceof BoxEdges) {
+            return (BoxEdges) object;
+        } else {
+            return BoxEdges.expand(toPixels(object.toString()));
+        }
+    }
+
 
     public static boolean toBoolean(Object object) throws IllegalArgumentException {
         if (object instanceof Boolean) {
@@ -135,7 +210,23 @@ public final class ParametersUtils {
     }
 
     public static int toColor(@NonNull Object colorObj) throws IllegalArgumentException {
-        String colorString = colorObj.toString().trim();
+        if (colorObj instanceof Integer) {
+            // packed when parsing
+            return (int) colorObj;
+        }
+
+        String raw = colorObj.toString();
+        Integer cached = sColorCache.get(raw);
+        if (cached != null) {
+            return cached;
+        }
+
+        int color = parseColorString(raw.trim());
+        sColorCache.put(raw, color);
+        return color;
+    }
+
+    private static int parseColorString(String colorString) throws IllegalArgumentException {
         if (colorString.length() == 0) {
             throw new IllegalArgumentException("empty color string for parse");
         }
@@ -145,7 +236,7 @@ public final class ParametersUtils {
 
             // handle the #000000 like color string
             if (colorString.length() > 4) {
-                return Color.parseColor(colorString);
+                return parseColor(colorString);
             } else if (colorString.length() == 4) {
                 long color = 0;
                 for (int i = 0; i < 3; i++) {
@@ -175,11 +266,60 @@ public final class ParametersUtils {
             .html#tokenization}
              */
 
-            return Color.parseColor(colorString);
+            return parseColor(colorString);
 
         }
     }
 
+    /**
+     * Same as {@link android.graphics.Color#parseColor(String)}. Colors are parsed with plain java
+     * so that layouts can also be parsed by HNCompiler on JVM at build time.
+     */
+    private static int parseColor(@NonNull String colorString) throws IllegalArgumentException {
+        if (colorString.charAt(0) == '#') {
+            long color = Long.parseLong(colorString.substring(1), 16);
+            if (colorString.length() == 7) {
+                color |= 0x00000000ff000000;
+            } else if (colorString.length() != 9) {
+                throw new IllegalArgumentException("Unknown color");
+            }
+            return (int) color;
+        } else {
+            Integer color = sColorNameMap.get(colorString.toLowerCase());
+            if (color != null) {
+                return color;
+            }
+        }
+        throw new IllegalArgumentException("Unknown color");
+    }
+
+    private static final Map<String, Integer> sColorNameMap = new HashMap<>();
+
+    static {
+        sColorNameMap.put("black", 0xFF000000);
+        sColorNameMap.put("darkgray", 0xFF444444);
+        sColorNameMap.put("gray", 0xFF888888);
+        sColorNameMap.put("lightgray", 0xFFCCCCCC);
+        sColorNameMap.put("white", 0xFFFFFFFF);
+        sColorNameMap.put("red", 0xFFFF0000);
+        sColorNameMap.put("green", 0xFF00FF00);
+        sColorNameMap.put("blue", 0xFF0000FF);
+        sColorNameMap.put("yellow", 0xFFFFFF00);
+        sColorNameMap.put("cyan", 0xFF00FFFF);
+        sColorNameMap.put("magenta", 0xFFFF00FF);
+        sColorNameMap.put("aqua", 0xFF00FFFF);
+        sColorNameMap.put("fuchsia", 0xFFFF00FF);
+        sColorNameMap.put("darkgrey", 0xFF444444);
+        sColorNameMap.put("grey", 0xFF888888);
+        sColorNameMap.put("lightgrey", 0xFFCCCCCC);
+        sColorNameMap.put("lime", 0xFF00FF00);
+        sColorNameMap.put("maroon", 0xFF800000);
+        sColorNameMap.put("navy", 0xFF000080);
+        sColorNameMap.put("olive", 0xFF808000);
+        sColorNameMap.put("purple", 0xFF800080);
+        sColorNameMap.put("silver", 0xFFC0C0C0);
+        sColorNameMap.put("teal", 0xFF008080);
+    }
 
     public static Map<String, String> parseStyle(@NonNull String styleString) {
         Map<String, String> pas = new HashMap<>();
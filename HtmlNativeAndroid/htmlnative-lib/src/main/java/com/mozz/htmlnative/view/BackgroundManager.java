@@ -52,6 +52,22 @@ class BackgroundManager implements IBackgroundManager {
         return mBackground;
     }
 
+    /**
+     * Clear the html background, see {@link Recyclable#onRecycle()}
+     */
+    void reset() {
+        mBackgroundBitmap = null;
+        mColor = Color.TRANSPARENT;
+        mBackground = null;
+        mSetBackgroundCount = 0;
+        mMeasureBackgroundCount = 0;
+
+        if (mHost instanceof ViewGroup) {
+            mHost.setWillNotDraw(true);
+        }
+        mHost.invalidate();
+    }
+
     /**
      * Should be called at last in {@link View#onDraw(Canvas)}
      *
@@ -4,8 +4,8 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.drawable.Drawable;
-import android.util.ArrayMap;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.view.View;
 import android.view.ViewGroup;
 
@@ -13,13 +13,12 @@ import com.mozz.htmlnative.css.Background;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * @author Yang Tao, 17/4/18.
  */
 
-public class HNDiv extends ViewGroup implements IBackgroundView {
+public class HNDiv extends ViewGroup implements IBackgroundView, Recyclable {
 
     private static final String TAG = HNDiv.class.getSimpleName();
 
@@ -28,7 +27,10 @@ public class HNDiv extends ViewGroup implements IBackgroundView {
 
     private BackgroundManager mBackgroundMgr;
 
-    private Map<String, Object> mSavedInheritStyles = new ArrayMap<>();
+    /**
+     * Keyed by symbol id of style name
+     */
+    private SparseArray<Object> mSavedInheritStyles = new SparseArray<>();
 
     public HNDiv(Context context) {
         super(context);
@@ -190,11 +192,11 @@ public class HNDiv extends ViewGroup implements IBackgroundView {
         }
     }
 
-    public void saveInheritStyles(String styleName, Object style) {
+    public void saveInheritStyles(int styleName, Object style) {
         mSavedInheritStyles.put(styleName, style);
     }
 
-    public Object getInheritStyle(String styleName) {
+    public Object getInheritStyle(int styleName) {
         return mSavedInheritStyles.get(styleName);
     }
 
@@ -225,6 +227,12 @@ public class HNDiv extends ViewGroup implements IBackgroundView {
 
     }
 
+    @Override
+    public void onRecycle() {
+        mSavedInheritStyles.clear();
+        mBackgroundMgr.reset();
+    }
+
     @Override
     protected ViewGroup.LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
         return new MarginLayoutParams(p);
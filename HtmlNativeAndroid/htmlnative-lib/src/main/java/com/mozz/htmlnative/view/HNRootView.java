@@ -1,6 +1,7 @@
 package com.mozz.htmlnative.view;
 
 import android.content.Context;
+import android.support.annotation.MainThread;
 import android.support.annotation.NonNull;
 import android.util.ArrayMap;
 import android.util.Log;
@@ -69,6 +70,19 @@ public final class HNRootView extends ScrollView {
         }
     }
 
+    /**
+     * Called when the page is closed and won't be shown again. Views are returned to
+     * {@link ViewPool} and the root is left empty. It's up to the app to call it, e.g. before the
+     * page is replaced by another, as a root detached from window may be attached again.
+     */
+    @MainThread
+    public void recycle() {
+        for (int i = mContentView.getChildCount() - 1; i >= 0; i--) {
+            ViewPool.recycle(mContentView.getChildAt(i));
+        }
+        mViewWithId.clear();
+    }
+
     public View findViewById(@NonNull String id) {
         return mViewWithId.get(id);
     }
@@ -1,9 +1,13 @@
 package com.mozz.htmlnative.view;
 
 import android.content.Context;
+import android.content.res.ColorStateList;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Typeface;
+import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.util.TypedValue;
 import android.widget.TextView;
 
 import com.mozz.htmlnative.css.Background;
@@ -11,27 +15,54 @@ import com.mozz.htmlnative.css.Background;
 /**
  * @author Yang Tao, 17/5/9.
  */
-public class HNText extends TextView implements IBackgroundView {
+public class HNText extends TextView implements IBackgroundView, Recyclable {
     private BackgroundManager mBackgroundMgr;
 
+    /**
+     * Text styles of a view just created, restored when recycled
+     */
+    private ColorStateList mDefaultTextColors;
+    private float mDefaultTextSize;
+    private Typeface mDefaultTypeface;
+    private int mDefaultGravity;
+    private int mDefaultPaintFlags;
+    private float mDefaultLetterSpacing;
+    private float mDefaultLineSpacingExtra;
+    private float mDefaultLineSpacingMultiplier;
+    private TextUtils.TruncateAt mDefaultEllipsize;
+
     public HNText(Context context) {
         super(context);
-        mBackgroundMgr = new BackgroundManager(this);
+        init();
     }
 
     public HNText(Context context, AttributeSet attrs) {
         super(context, attrs);
-        mBackgroundMgr = new BackgroundManager(this);
+        init();
     }
 
     public HNText(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
-        mBackgroundMgr = new BackgroundManager(this);
+        init();
     }
 
     public HNText(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
         super(context, attrs, defStyleAttr, defStyleRes);
+        init();
+    }
+
+    private void init() {
         mBackgroundMgr = new BackgroundManager(this);
+
+        mDefaultTextColors = getTextColors();
+        mDefaultTextSize = getTextSize();
+        mDefaultTypeface = getTypeface();
+        mDefaultGravity = getGravity();
+        mDefaultPaintFlags = getPaint().getFlags();
+        mDefaultLetterSpacing = getLetterSpacing();
+        mDefaultLineSpacingExtra = getLineSpacingExtra();
+        mDefaultLineSpacingMultiplier = getLineSpacingMultiplier();
+        mDefaultEllipsize = getEllipsize();
     }
 
     @Override
@@ -50,4 +81,25 @@ public class HNText extends TextView implements IBackgroundView {
     public Background getHtmlBackground() {
         return mBackgroundMgr.getHtmlBackground();
     }
+
+    @Override
+    public void onRecycle() {
+        mBackgroundMgr.reset();
+
+        setText(null);
+        setTextColor(mDefaultTextColors);
+        setTextSize(TypedValue.COMPLEX_UNIT_PX, mDefaultTextSize);
+        setTypeface(mDefaultTypeface);
+        setGravity(mDefaultGravity);
+        // bold and underline are set on paint, see StyleHelper
+        getPaint().setFlags(mDefaultPaintFlags);
+        getPaint().setFakeBoldText(false);
+        setLetterSpacing(mDefaultLetterSpacing);
+        setLineSpacing(mDefaultLineSpacingExtra, mDefaultLineSpacingMultiplier);
+        setEllipsize(mDefaultEllipsize);
+        setAllCaps(false);
+        // set for links of inline text merged, see HNativeEngine#setMergeInlineText
+        setMovementMethod(null);
+        setFocusable(false);
+    }
 }
@@ -69,6 +69,29 @@ public class LayoutParamsLazyCreator {
         return "width=" + width + ", height=" + height;
     }
 
+    /**
+     * @return creator holding what params has, so that only the styles changed need applying
+     * before {@link #createLayoutParams(LayoutParamsLazyCreator, ViewGroup.LayoutParams)}
+     */
+    public static LayoutParamsLazyCreator from(ViewGroup.LayoutParams params) {
+        LayoutParamsLazyCreator creator = new LayoutParamsLazyCreator();
+        if (params == null) {
+            return creator;
+        }
+
+        creator.width = params.width;
+        creator.height = params.height;
+        if (params instanceof AbsoluteLayout.LayoutParams) {
+            creator.left = ((AbsoluteLayout.LayoutParams) params).x;
+            creator.top = ((AbsoluteLayout.LayoutParams) params).y;
+        } else if (params instanceof ViewGroup.MarginLayoutParams) {
+            ViewGroup.MarginLayoutParams marginParams = (ViewGroup.MarginLayoutParams) params;
+            creator.setMargins(marginParams.leftMargin, marginParams.topMargin, marginParams
+                    .rightMargin, marginParams.bottomMargin);
+        }
+        return creator;
+    }
+
     public static ViewGroup.LayoutParams createLayoutParams(View parent, LayoutParamsLazyCreator
             creator) {
         if (parent instanceof AbsoluteLayout) {
@@ -0,0 +1,16 @@
+package com.mozz.htmlnative.view;
+
+/**
+ * View which keeps state of its own beyond what {@link ViewPool} resets, such as the html
+ * background. Views implementing it are pooled.
+ *
+ * @author Yang Tao, 17/6/21.
+ */
+public interface Recyclable {
+
+    /**
+     * Called when the view is returned to {@link ViewPool}, to clear what the page rendered
+     * before has set, so that the view looks as if it is just created.
+     */
+    void onRecycle();
+}
@@ -0,0 +1,272 @@
+package com.mozz.htmlnative.view;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsoluteLayout;
+import android.widget.ImageView;
+
+import com.google.android.flexbox.FlexboxLayout;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Views of pages closed by {@link HNRootView#recycle()}, kept per Context and view class, and
+ * reused by the pages rendered later with the same Context, rather than being created again,
+ * e.g. when switching between tabs.
+ * <p>
+ * Only views which can be reset to look as if they are just created are pooled: those
+ * implementing {@link Recyclable}, and {@link ImageView}, {@link FlexboxLayout} and
+ * {@link AbsoluteLayout} exactly. When returned, a view loses its tag, id, listeners,
+ * background, padding and transformations.
+ * <p>
+ * Pools are held strongly, a weak key wouldn't help as the views pooled hold their Context. The
+ * pools of an Activity are dropped by {@link #clear(Context)} when it is destroyed, see
+ * {@link com.mozz.htmlnative.HNativeEngine#init(Context)}, and views of a finishing or destroyed
+ * Activity are not pooled.
+ * <p>
+ * Disabled until {@link #setMaxSize(int)}, trimmed under memory pressure, see
+ * {@link #trim(int)}.
+ *
+ * @author Yang Tao, 17/6/21.
+ */
+public final class ViewPool {
+
+    /**
+     * Keyed by Context and then class name, guarded by itself, as views may be created on main
+     * thread and render thread at the same time.
+     */
+    private static final Map<Context, Map<String, ArrayDeque<View>>> sPools = new HashMap<>();
+
+    /**
+     * Max views kept for each class of a Context, 0 to disable the pool
+     */
+    private static volatile int sMaxSize = 0;
+
+    private ViewPool() {
+    }
+
+    public static void setMaxSize(int maxSize) {
+        sMaxSize = Math.max(0, maxSize);
+        synchronized (sPools) {
+            for (Map<String, ArrayDeque<View>> pool : sPools.values()) {
+                for (ArrayDeque<View> views : pool.values()) {
+                    trimTo(views, sMaxSize);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a view of class created with context before, or null if there is none
+     */
+    @Nullable
+    public static View obtain(@NonNull Context context, @NonNull String className) {
+        if (sMaxSize == 0) {
+            return null;
+        }
+
+        synchronized (sPools) {
+            Map<String, ArrayDeque<View>> pool = sPools.get(context);
+            if (pool == null) {
+                return null;
+            }
+
+            ArrayDeque<View> views = pool.get(className);
+            return views == null ? null : views.poll();
+        }
+    }
+
+    /**
+     * Reset v and its descendants and put those can be pooled into the pool. v is removed from
+     * its parent.
+     */
+    @MainThread
+    public static void recycle(@NonNull View v) {
+        ViewGroup parent = (ViewGroup) v.getParent();
+        if (parent != null) {
+            parent.removeView(v);
+        }
+        recycleDetached(v);
+    }
+
+    private static void recycleDetached(@NonNull View v) {
+        if (v instanceof ViewGroup) {
+            ViewGroup viewGroup = (ViewGroup) v;
+            for (int i = viewGroup.getChildCount() - 1; i >= 0; i--) {
+                View child = viewGroup.getChildAt(i);
+                viewGroup.removeViewAt(i);
+                recycleDetached(child);
+            }
+        }
+
+        int maxSize = sMaxSize;
+        if (maxSize == 0 || !canPool(v) || isFinishing(v.getContext())) {
+            return;
+        }
+
+        reset(v);
+
+        String className = v.getClass().getName();
+        synchronized (sPools) {
+            Map<String, ArrayDeque<View>> pool = sPools.get(v.getContext());
+            if (pool == null) {
+                pool = new HashMap<>();
+                sPools.put(v.getContext(), pool);
+            }
+
+            ArrayDeque<View> views = pool.get(className);
+            if (views == null) {
+                views = new ArrayDeque<>();
+                pool.put(className, views);
+            }
+
+            if (views.size() < maxSize) {
+                views.push(v);
+            }
+        }
+    }
+
+    /**
+     * Called with the level of {@link ComponentCallbacks2#onTrimMemory(int)}. Half of the views
+     * are dropped if memory is getting low while app is running, all of them if it's critical or
+     * the UI is hidden, as pages won't be opened again before it's shown.
+     */
+    public static void trim(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            clear();
+            return;
+        }
+
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            synchronized (sPools) {
+                for (Map<String, ArrayDeque<View>> pool : sPools.values()) {
+                    for (ArrayDeque<View> views : pool.values()) {
+                        trimTo(views, views.size() / 2);
+                    }
+                }
+            }
+        }
+    }
+
+    public static void clear() {
+        synchronized (sPools) {
+            sPools.clear();
+        }
+    }
+
+    /**
+     * Drop the views created with context, or with a ContextWrapper of it, e.g. when an
+     * Activity is destroyed.
+     */
+    public static void clear(@NonNull Context context) {
+        synchronized (sPools) {
+            Iterator<Context> itr = sPools.keySet().iterator();
+            while (itr.hasNext()) {
+                if (wraps(itr.next(), context)) {
+                    itr.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return views kept for class of context
+     */
+    public static int size(@NonNull Context context, @NonNull String className) {
+        synchronized (sPools) {
+            Map<String, ArrayDeque<View>> pool = sPools.get(context);
+            ArrayDeque<View> views = pool == null ? null : pool.get(className);
+            return views == null ? 0 : views.size();
+        }
+    }
+
+    private static void trimTo(ArrayDeque<View> views, int size) {
+        // the least recently returned are at the end
+        while (views.size() > size) {
+            views.removeLast();
+        }
+    }
+
+    private static boolean wraps(Context context, Context base) {
+        while (context != base && context instanceof ContextWrapper) {
+            Context next = ((ContextWrapper) context).getBaseContext();
+            if (next == context) {
+                break;
+            }
+            context = next;
+        }
+        return context == base;
+    }
+
+    private static boolean canPool(View v) {
+        Class<?> clazz = v.getClass();
+        return v instanceof Recyclable || clazz == ImageView.class || clazz == FlexboxLayout
+                .class || clazz == AbsoluteLayout.class;
+    }
+
+    /**
+     * Whether context is, or wraps, an Activity finishing or destroyed, whose pools are already
+     * dropped or are about to be, so its views must not be pooled again.
+     */
+    private static boolean isFinishing(Context context) {
+        while (!(context instanceof Activity) && context instanceof ContextWrapper) {
+            Context next = ((ContextWrapper) context).getBaseContext();
+            if (next == context) {
+                break;
+            }
+            context = next;
+        }
+
+        if (!(context instanceof Activity)) {
+            return false;
+        }
+        Activity activity = (Activity) context;
+        return activity.isFinishing() || activity.isDestroyed();
+    }
+
+    private static void reset(View v) {
+        v.setTag(null);
+        v.setId(View.NO_ID);
+
+        // setting listener makes view clickable
+        v.setOnClickListener(null);
+        v.setClickable(false);
+        v.setOnLongClickListener(null);
+        v.setLongClickable(false);
+        v.setOnTouchListener(null);
+
+        v.setBackground(null);
+        v.setPadding(0, 0, 0, 0);
+        v.setVisibility(View.VISIBLE);
+        v.setAlpha(1.f);
+        v.setTranslationX(0);
+        v.setTranslationY(0);
+        v.setScaleX(1.f);
+        v.setScaleY(1.f);
+        v.setRotation(0);
+        v.setTextDirection(View.TEXT_DIRECTION_INHERIT);
+
+        if (v instanceof ImageView) {
+            ((ImageView) v).setImageDrawable(null);
+        } else if (v instanceof FlexboxLayout) {
+            FlexboxLayout flexboxLayout = (FlexboxLayout) v;
+            flexboxLayout.setFlexDirection(FlexboxLayout.FLEX_DIRECTION_ROW);
+            flexboxLayout.setFlexWrap(FlexboxLayout.FLEX_WRAP_NOWRAP);
+            flexboxLayout.setJustifyContent(FlexboxLayout.JUSTIFY_CONTENT_FLEX_START);
+        }
+
+        if (v instanceof Recyclable) {
+            ((Recyclable) v).onRecycle();
+        }
+    }
+}
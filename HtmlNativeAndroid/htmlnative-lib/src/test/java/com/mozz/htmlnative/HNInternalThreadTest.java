@@ -0,0 +1,169 @@
+package com.mozz.htmlnative;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Yang Tao, 17/6/20.
+ */
+public class HNInternalThreadTest {
+
+    private static Runnable record(final List<String> out, final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                out.add(name);
+            }
+        };
+    }
+
+    @Test
+    public void priorityOrder() throws Exception {
+        ThreadPoolExecutor executor = HNInternalThread.newDefaultExecutor(1);
+        final CountDownLatch block = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        // keep the only worker busy, so that the rest are queued
+        executor.execute(new HNInternalThread.Task(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    block.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }, HNativeEngine.PRIORITY_NORMAL));
+
+        executor.execute(new HNInternalThread.Task(record(order, "low"), HNativeEngine
+                .PRIORITY_LOW));
+        executor.execute(new HNInternalThread.Task(record(order, "normal1"), HNativeEngine
+                .PRIORITY_NORMAL));
+        executor.execute(new HNInternalThread.Task(record(order, "high"), HNativeEngine
+                .PRIORITY_HIGH));
+        executor.execute(new HNInternalThread.Task(record(order, "normal2"), HNativeEngine
+                .PRIORITY_NORMAL));
+
+        block.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        Assert.assertEquals(Arrays.asList("high", "normal1", "normal2", "low"), order);
+    }
+
+    @Test
+    public void changePriorityAndRemove() throws Exception {
+        ThreadPoolExecutor executor = HNInternalThread.newDefaultExecutor(1);
+        HNInternalThread.setExecutor(executor);
+        final CountDownLatch block = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        try {
+            HNInternalThread.run(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        block.await();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            }, HNativeEngine.PRIORITY_NORMAL);
+
+            HNInternalThread.Task normal = HNInternalThread.run(record(order, "normal"),
+                    HNativeEngine.PRIORITY_NORMAL);
+            HNInternalThread.Task prefetch = HNInternalThread.run(record(order, "prefetch"),
+                    HNativeEngine.PRIORITY_LOW);
+            HNInternalThread.Task cancelled = HNInternalThread.run(record(order, "cancelled"),
+                    HNativeEngine.PRIORITY_HIGH);
+
+            // the prefetched page is scrolled into screen
+            Assert.assertTrue(HNInternalThread.setPriority(prefetch, HNativeEngine
+                    .PRIORITY_HIGH));
+            Assert.assertTrue(HNInternalThread.remove(cancelled));
+            Assert.assertFalse(HNInternalThread.remove(cancelled));
+
+            block.countDown();
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+            Assert.assertEquals(Arrays.asList("prefetch", "normal"), order);
+            Assert.assertFalse(HNInternalThread.setPriority(normal, HNativeEngine.PRIORITY_LOW));
+        } finally {
+            HNInternalThread.quit();
+        }
+    }
+
+    @Test
+    public void removedTaskIsDiscarded() throws Exception {
+        ThreadPoolExecutor executor = HNInternalThread.newDefaultExecutor(1);
+        HNInternalThread.setExecutor(executor);
+        final CountDownLatch block = new CountDownLatch(1);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        try {
+            HNInternalThread.run(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        block.await();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            }, HNativeEngine.PRIORITY_NORMAL);
+
+            HNInternalThread.Task removed = HNInternalThread.run(new HNInternalThread
+                    .Discardable() {
+                @Override
+                public void discard() {
+                    order.add("discarded");
+                }
+
+                @Override
+                public void run() {
+                    order.add("run");
+                }
+            }, HNativeEngine.PRIORITY_NORMAL);
+
+            Assert.assertTrue(HNInternalThread.remove(removed));
+            Assert.assertFalse(HNInternalThread.remove(removed));
+
+            block.countDown();
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+            Assert.assertEquals(Arrays.asList("discarded"), order);
+        } finally {
+            HNInternalThread.quit();
+        }
+    }
+
+    @Test
+    public void parallel() throws Exception {
+        ThreadPoolExecutor executor = HNInternalThread.newDefaultExecutor(4);
+        final CountDownLatch all = new CountDownLatch(4);
+
+        for (int i = 0; i < 4; i++) {
+            executor.execute(new HNInternalThread.Task(new Runnable() {
+                @Override
+                public void run() {
+                    // every task waits for the others, so they must run at the same time
+                    all.countDown();
+                    try {
+                        all.await();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            }, HNativeEngine.PRIORITY_NORMAL));
+        }
+
+        Assert.assertTrue(all.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+}
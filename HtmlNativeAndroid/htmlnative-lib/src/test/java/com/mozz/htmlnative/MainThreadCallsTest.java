@@ -0,0 +1,69 @@
+package com.mozz.htmlnative;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Yang Tao, 17/6/21.
+ */
+public class MainThreadCallsTest {
+
+    private static Runnable record(final List<String> calls, final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                calls.add(name);
+            }
+        };
+    }
+
+    @Test
+    public void madeAtOnceIfNotDeferring() {
+        List<String> calls = new ArrayList<>();
+        MainThreadCalls.run(record(calls, "a"));
+        Assert.assertEquals(1, calls.size());
+        Assert.assertTrue(MainThreadCalls.endDeferring().isEmpty());
+    }
+
+    @Test
+    public void heldInOrder() {
+        List<String> calls = new ArrayList<>();
+        MainThreadCalls.beginDeferring();
+        MainThreadCalls.run(record(calls, "a"));
+        MainThreadCalls.run(record(calls, "b"));
+        Assert.assertTrue(calls.isEmpty());
+
+        List<Runnable> held = MainThreadCalls.endDeferring();
+        Assert.assertEquals(2, held.size());
+        for (Runnable call : held) {
+            call.run();
+        }
+        Assert.assertEquals("[a, b]", calls.toString());
+
+        // not held any more
+        MainThreadCalls.run(record(calls, "c"));
+        Assert.assertEquals(3, calls.size());
+    }
+
+    @Test
+    public void onlyCurrentThread() throws InterruptedException {
+        final List<String> calls = new ArrayList<>();
+        MainThreadCalls.beginDeferring();
+        try {
+            Thread other = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    MainThreadCalls.run(record(calls, "other"));
+                }
+            });
+            other.start();
+            other.join();
+            Assert.assertEquals("[other]", calls.toString());
+        } finally {
+            MainThreadCalls.endDeferring();
+        }
+    }
+}
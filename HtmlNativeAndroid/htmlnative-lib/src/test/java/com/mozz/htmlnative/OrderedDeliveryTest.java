@@ -0,0 +1,93 @@
+package com.mozz.htmlnative;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * @author Yang Tao, 17/6/20.
+ */
+public class OrderedDeliveryTest {
+
+    private final List<String> mDelivered = new ArrayList<>();
+
+    private final Executor mDirect = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private Runnable record(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                mDelivered.add(name);
+            }
+        };
+    }
+
+    @Test
+    public void inOrderOfOpen() {
+        OrderedDelivery delivery = new OrderedDelivery(mDirect);
+        delivery.setOrdered(true);
+        OrderedDelivery.Channel first = delivery.open();
+        OrderedDelivery.Channel second = delivery.open();
+        OrderedDelivery.Channel third = delivery.open();
+
+        // the later ones finish first
+        third.post(record("third"));
+        third.finish();
+        second.post(record("second-head"));
+        first.post(record("first-head"));
+        second.post(record("second-view"));
+        Assert.assertEquals(Arrays.asList("first-head"), mDelivered);
+
+        first.post(record("first-view"));
+        first.finish();
+        Assert.assertEquals(Arrays.asList("first-head", "first-view", "second-head",
+                "second-view"), mDelivered);
+
+        // second is delivering now, so it is posted at once
+        second.post(record("second-script"));
+        second.finish();
+        Assert.assertEquals(Arrays.asList("first-head", "first-view", "second-head",
+                "second-view", "second-script", "third"), mDelivered);
+
+        OrderedDelivery.Channel fourth = delivery.open();
+        fourth.post(record("fourth"));
+        Assert.assertEquals("fourth", mDelivered.get(mDelivered.size() - 1));
+    }
+
+    @Test
+    public void unorderedByDefault() {
+        OrderedDelivery delivery = new OrderedDelivery(mDirect);
+        OrderedDelivery.Channel first = delivery.open();
+        OrderedDelivery.Channel second = delivery.open();
+
+        second.post(record("second"));
+        first.post(record("first"));
+        Assert.assertEquals(Arrays.asList("second", "first"), mDelivered);
+    }
+
+    @Test
+    public void unordered() {
+        OrderedDelivery delivery = new OrderedDelivery(mDirect);
+        delivery.setOrdered(true);
+        OrderedDelivery.Channel first = delivery.open();
+
+        delivery.setOrdered(false);
+        OrderedDelivery.Channel second = delivery.open();
+        second.post(record("second"));
+        second.finish();
+        Assert.assertEquals(Arrays.asList("second"), mDelivered);
+
+        first.post(record("first"));
+        first.finish();
+        Assert.assertEquals(Arrays.asList("second", "first"), mDelivered);
+    }
+}
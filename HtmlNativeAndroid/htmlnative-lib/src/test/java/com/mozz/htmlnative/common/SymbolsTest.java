@@ -0,0 +1,140 @@
+package com.mozz.htmlnative.common;
+
+import com.mozz.htmlnative.HtmlTag;
+import com.mozz.htmlnative.css.Styles;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author Yang Tao, 17/6/19.
+ */
+public class SymbolsTest {
+
+    @Test
+    public void predefined() {
+        Assert.assertEquals(Symbols.DIV, Symbols.lookup(HtmlTag.DIV));
+        Assert.assertEquals(Symbols.INNER, Symbols.lookup(HtmlTag.INNER_TREE_TAG));
+        Assert.assertEquals(Symbols.SPAN, Symbols.lookup(HtmlTag.SPAN));
+        Assert.assertEquals(Symbols.FLEXBOX, Symbols.lookup("flexbox"));
+        Assert.assertEquals(Symbols.WIDTH, Symbols.lookup(Styles.ATTR_WIDTH));
+        Assert.assertEquals(Symbols.VISIBILITY, Symbols.lookup(Styles.ATTR_VISIBLE));
+        Assert.assertEquals(Symbols.HN_BACKGROUND, Symbols.lookup(Styles.ATTR_HN_BACKGROUND));
+        Assert.assertEquals(Symbols.JUSTIFY_CONTENT, Symbols.lookup("justify-content"));
+        Assert.assertEquals("padding-bottom", Symbols.name(Symbols.PADDING_BOTTOM));
+    }
+
+    @Test
+    public void intern() {
+        String name = "symbols-test-intern";
+        Assert.assertEquals(Symbols.NONE, Symbols.lookup(name));
+
+        int id = Symbols.intern(name);
+        Assert.assertEquals(id, Symbols.intern(new StringBuilder(name)));
+        Assert.assertEquals(id, Symbols.lookup(name));
+        Assert.assertEquals(name, Symbols.name(id));
+        Assert.assertEquals(id, Symbols.lowerCase(id));
+
+        Assert.assertEquals(Symbols.NONE, Symbols.intern((String) null));
+        Assert.assertNull(Symbols.name(Symbols.NONE));
+    }
+
+    @Test
+    public void caseSensitive() {
+        int upper = Symbols.intern("SymbolsTest-Case");
+        Assert.assertEquals(Symbols.NONE, Symbols.lookup("symbolstest-CASE"));
+
+        int lower = Symbols.lookup("symbolstest-case");
+        Assert.assertNotEquals(Symbols.NONE, lower);
+        Assert.assertNotEquals(upper, lower);
+        Assert.assertEquals(lower, Symbols.lowerCase(upper));
+        Assert.assertEquals(lower, Symbols.lookupIgnoreCase("SYMBOLSTEST-case"));
+
+        Assert.assertEquals(Symbols.BODY, Symbols.lookupIgnoreCase("Body"));
+        Assert.assertEquals(Symbols.BODY, Symbols.lowerCase(Symbols.intern("BODY")));
+    }
+
+    @Test
+    public void lookupSlice() {
+        char[] chars = "<font-size:".toCharArray();
+        CharSlice slice = new CharSlice();
+        slice.set(chars, 1, 9);
+        Assert.assertEquals(Symbols.FONT_SIZE, Symbols.lookup(slice));
+    }
+
+    @Test
+    public void classesAreCapped() {
+        String early = "symbols-test-class";
+        int id = Symbols.internClass(early);
+        for (int i = 0; i <= Symbols.MAX_CLASSES; i++) {
+            Symbols.internClass(early + i);
+        }
+
+        // interned before the cap keeps its id
+        Assert.assertFalse(Symbols.isHashedClass(id));
+        Assert.assertEquals(id, Symbols.internClass(early));
+        Assert.assertEquals(id, Symbols.lookupClass(early));
+
+        String late = "symbols-test-late-class";
+        int hashed = Symbols.internClass(late);
+        Assert.assertTrue(Symbols.isHashedClass(hashed));
+        Assert.assertEquals(hashed, Symbols.internClass(new StringBuilder(late)));
+        Assert.assertEquals(hashed, Symbols.lookupClass(late));
+        Assert.assertEquals(Symbols.NONE, Symbols.lookup(late));
+        Assert.assertNull(Symbols.name(hashed));
+
+        // still the same hashed id as a class, after the name is interned as a tag
+        int tag = Symbols.intern(late);
+        Assert.assertNotEquals(hashed, tag);
+        Assert.assertEquals(hashed, Symbols.internClass(late));
+    }
+
+    @Test
+    public void growAndConcurrentIntern() throws Exception {
+        final int threads = 4;
+        final int count = 2000;
+        final int[][] ids = new int[threads][count];
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            workers[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < count; i++) {
+                            // threads intern the same names in different orders
+                            int n = thread % 2 == 0 ? i : count - 1 - i;
+                            ids[thread][n] = Symbols.intern("grow-Class" + n);
+                        }
+                    } catch (Throwable e) {
+                        error.set(e);
+                    }
+                }
+            };
+            workers[t].start();
+        }
+
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Assert.assertNull(error.get());
+
+        for (int i = 0; i < count; i++) {
+            int id = ids[0][i];
+            Assert.assertEquals("grow-Class" + i, Symbols.name(id));
+            Assert.assertEquals(id, Symbols.lookup("grow-Class" + i));
+            Assert.assertEquals(Symbols.lookup("grow-class" + i), Symbols.lowerCase(id));
+            for (int t = 1; t < threads; t++) {
+                Assert.assertEquals(id, ids[t][i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.mozz.htmlnative.css;
+
+import com.mozz.htmlnative.common.Symbols;
+
+import org.junit.Test;
+
+/**
+ * Prints bytes taken by AttrsSet per attr, for inline styles of a list page.
+ *
+ * @author Yang Tao, 17/6/21.
+ */
+public class AttrsSetBenchmark {
+
+    private static final int ITEMS = 400;
+
+    private static class Owner implements AttrsSet.AttrsOwner {
+        private int mIndex;
+
+        @Override
+        public int attrIndex() {
+            return mIndex;
+        }
+
+        @Override
+        public void setAttrIndex(int newIndex) {
+            mIndex = newIndex;
+        }
+    }
+
+    @Test
+    public void bytesPerAttr() {
+        AttrsSet set = new AttrsSet("Inline-Style");
+        set.register(new Owner());
+        for (int i = 0; i < ITEMS; i++) {
+            // <div class="item" style="width: 100px; height: 20px">
+            Owner div = new Owner();
+            set.register(div);
+            set.put(div, Symbols.WIDTH, "100px");
+            set.put(div, Symbols.HEIGHT, "20px");
+
+            // <p>text</p>, text is put when p is closed
+            Owner p = new Owner();
+            set.register(p);
+            set.put(p, Symbols.TEXT, "text");
+
+            // <img src="..." width=100 height=20>
+            Owner img = new Owner();
+            set.register(img);
+            set.put(img, Symbols.SRC, "http://a.com/a.png");
+            set.put(img, Symbols.WIDTH, 100);
+            set.put(img, Symbols.HEIGHT, 20);
+        }
+
+        int attrs = set.size();
+        System.out.println(String.format("%d attrs of %d owners, %.1f bytes/attr while " +
+                "parsing", attrs, set.ownerSize(), set.footprint() / (double) attrs));
+        set.trimToSize();
+        System.out.println(String.format("%d attrs of %d owners, %.1f bytes/attr trimmed",
+                attrs, set.ownerSize(), set.footprint() / (double) attrs));
+    }
+}
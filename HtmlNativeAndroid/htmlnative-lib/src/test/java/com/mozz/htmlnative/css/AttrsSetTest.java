@@ -0,0 +1,123 @@
+package com.mozz.htmlnative.css;
+
+import com.mozz.htmlnative.common.Symbols;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+/**
+ * @author Yang Tao, 17/6/21.
+ */
+public class AttrsSetTest {
+
+    private static class Owner implements AttrsSet.AttrsOwner {
+        private int mIndex;
+
+        @Override
+        public int attrIndex() {
+            return mIndex;
+        }
+
+        @Override
+        public void setAttrIndex(int newIndex) {
+            mIndex = newIndex;
+        }
+    }
+
+    private static Owner register(AttrsSet set) {
+        Owner owner = new Owner();
+        set.register(owner);
+        return owner;
+    }
+
+    @Test
+    public void lookup() {
+        AttrsSet set = new AttrsSet("test", 1);
+        Owner a = register(set);
+        set.put(a, Symbols.WIDTH, "10px");
+        set.put(a, Symbols.COLOR, "red");
+        set.put(a, Symbols.WIDTH, "20px");
+        Owner empty = register(set);
+        Owner b = register(set);
+        set.put(b, Symbols.DISPLAY, "flex");
+
+        // the first one put is found, as before
+        Assert.assertEquals("10px", set.getStyle(a, Symbols.WIDTH));
+        Assert.assertEquals("red", set.getStyle(a, "color"));
+        Assert.assertEquals("flex", set.getStyle(b, Symbols.DISPLAY));
+
+        Assert.assertNull(set.getStyle(a, Symbols.DISPLAY));
+        Assert.assertNull(set.getStyle(empty, Symbols.WIDTH));
+        // same bit in filter as width, but not put
+        Assert.assertNull(set.getStyle(a, Symbols.WIDTH + 16));
+        Assert.assertNull(set.getStyle(a, "no-such-style"));
+    }
+
+    @Test
+    public void putAfterLaterOwner() {
+        AttrsSet set = new AttrsSet("test");
+        Owner parent = register(set);
+        set.put(parent, Symbols.WIDTH, "10px");
+        Owner child = register(set);
+        set.put(child, Symbols.COLOR, "red");
+
+        // e.g. text of parent is put when it is closed
+        set.put(parent, Symbols.TEXT, "text");
+
+        AttrsSet.Cursor cursor = set.cursor(parent, new AttrsSet.Cursor());
+        Assert.assertTrue(cursor.moveToNext());
+        Assert.assertEquals(Symbols.WIDTH, cursor.getStyleId());
+        Assert.assertTrue(cursor.moveToNext());
+        Assert.assertEquals("text", cursor.getStyle());
+        Assert.assertFalse(cursor.moveToNext());
+
+        Assert.assertEquals("red", set.getStyle(child, Symbols.COLOR));
+        Assert.assertNull(set.getStyle(child, Symbols.WIDTH));
+    }
+
+    @Test
+    public void cursorSameAsIterator() {
+        AttrsSet set = new AttrsSet("test", 2);
+        Owner[] owners = new Owner[20];
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = register(set);
+            for (int j = 0; j < i % 4; j++) {
+                set.put(owners[i], Symbols.PADDING + j, i * 10 + j);
+            }
+        }
+        set.trimToSize();
+
+        AttrsSet.Cursor cursor = new AttrsSet.Cursor();
+        for (Owner owner : owners) {
+            set.cursor(owner, cursor);
+            Iterator<Styles.StyleEntry> itr = set.iterator(owner);
+            while (itr.hasNext()) {
+                Styles.StyleEntry entry = itr.next();
+                Assert.assertTrue(cursor.moveToNext());
+                Assert.assertEquals(entry.getStyleId(), cursor.getStyleId());
+                Assert.assertEquals(entry.getStyle(), cursor.getStyle());
+            }
+            Assert.assertFalse(cursor.moveToNext());
+        }
+    }
+
+    @Test
+    public void putAfterTrim() {
+        AttrsSet set = new AttrsSet("test");
+        Owner a = register(set);
+        set.put(a, Symbols.WIDTH, "10px");
+        set.trimToSize();
+        Assert.assertEquals(16, set.footprint());
+
+        Owner b = register(set);
+        set.put(b, Symbols.HEIGHT, "20px");
+        set.put(a, Symbols.HEIGHT, "30px");
+        Assert.assertEquals("30px", set.getStyle(a, Symbols.HEIGHT));
+        Assert.assertEquals("20px", set.getStyle(b, Symbols.HEIGHT));
+        // slot of the attr of a moved is left
+        Assert.assertEquals(4, set.size());
+        Assert.assertEquals(2, set.ownerSize());
+    }
+}
@@ -0,0 +1,80 @@
+package com.mozz.htmlnative.css;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Yang Tao, 17/6/21.
+ */
+public class MediaQueryTest {
+
+    private static final int PHONE_WIDTH = 1080;
+    private static final int PHONE_HEIGHT = 1920;
+    private static final float PHONE_DENSITY = 3.f;
+
+    private static boolean onPhone(String media) {
+        return MediaQuery.parse(media).matches(PHONE_WIDTH, PHONE_HEIGHT, PHONE_DENSITY);
+    }
+
+    private static boolean onTablet(String media) {
+        return MediaQuery.parse(media).matches(2048, 1536, 2.f);
+    }
+
+    @Test
+    public void width() {
+        // 1080px is 360dp on phone, 2048px is 1024dp on tablet
+        Assert.assertFalse(onPhone("(min-width: 600dp)"));
+        Assert.assertTrue(onTablet("screen and (min-width: 600dp)"));
+        Assert.assertTrue(onPhone("(max-width: 1080px)"));
+        Assert.assertFalse(onPhone("(max-width: 1079px)"));
+        Assert.assertTrue(onPhone("(width: 360dp)"));
+        Assert.assertTrue(onPhone("(min-height: 1920px) and (max-height: 640dp)"));
+    }
+
+    @Test
+    public void orientationAndResolution() {
+        Assert.assertTrue(onPhone("(orientation: portrait)"));
+        Assert.assertTrue(onTablet("(orientation: landscape)"));
+        Assert.assertTrue(onPhone("(orientation)"));
+
+        Assert.assertTrue(onPhone("(min-resolution: 2dppx)"));
+        Assert.assertFalse(onTablet("(min-resolution: 480dpi)"));
+        Assert.assertTrue(onTablet("(-webkit-max-device-pixel-ratio: 2)"));
+    }
+
+    @Test
+    public void typesAndLists() {
+        Assert.assertTrue(onPhone(""));
+        Assert.assertTrue(onPhone("all"));
+        Assert.assertFalse(onPhone("print"));
+        Assert.assertTrue(onPhone("not print"));
+        Assert.assertTrue(onPhone("only screen and (orientation: portrait)"));
+        Assert.assertFalse(onPhone("not screen and (orientation: portrait)"));
+        Assert.assertTrue(onPhone("print, (max-width: 400dp)"));
+
+        // unknown feature never matches
+        Assert.assertFalse(onPhone("(hover: hover)"));
+        Assert.assertTrue(onPhone("(hover: hover), screen"));
+    }
+
+    @Test
+    public void normalized() {
+        MediaQuery media = MediaQuery.parse("  screen   and\n(min-width:600dp) ");
+        Assert.assertEquals("screen and (min-width:600dp)", media.toString());
+        Assert.assertEquals(media.toString(), MediaQuery.parse(media.toString()).toString());
+    }
+
+    @Test
+    public void malformed() {
+        String[] wrong = {"screen (min-width: 1px)", "screen and", "not", "(min-width)",
+                "(orientation: up)", "(min-width: wide)", "(width: 1px"};
+        for (String media : wrong) {
+            try {
+                MediaQuery.parse(media);
+                Assert.fail(media);
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+}
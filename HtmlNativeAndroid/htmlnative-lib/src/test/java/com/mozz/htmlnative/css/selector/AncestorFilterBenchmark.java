@@ -0,0 +1,223 @@
+package com.mozz.htmlnative.css.selector;
+
+import com.mozz.htmlnative.common.Symbols;
+import com.mozz.htmlnative.dom.DomElement;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts the steps of walking up parents when matching a deep tree against a stylesheet full of
+ * descendant selectors, with and without {@link AncestorFilter}. Results of matching must be the
+ * same.
+ *
+ * @author Yang Tao, 17/6/20.
+ */
+public class AncestorFilterBenchmark {
+
+    private static final int DEPTH = 40;
+    private static final int LEAVES = 3;
+    private static final int RULES = 100;
+
+    private static long sParentSteps;
+
+    private static final class Node implements DomElement {
+        private final String mType;
+        private final int mTypeId;
+        private final String[] mClazz;
+        private final int[] mClazzIds;
+        private final String mId;
+        private final Node mParent;
+        private final List<Node> mChildren = new ArrayList<>();
+
+        Node(Node parent, String type, String id, String... clazz) {
+            mParent = parent;
+            mType = type;
+            mTypeId = Symbols.intern(type);
+            mId = id;
+            mClazz = clazz;
+            mClazzIds = Symbols.internAll(clazz);
+            if (parent != null) {
+                parent.mChildren.add(this);
+            }
+        }
+
+        @Override
+        public String getType() {
+            return mType;
+        }
+
+        @Override
+        public int getTypeId() {
+            return mTypeId;
+        }
+
+        @Override
+        public String[] getClazz() {
+            return mClazz;
+        }
+
+        @Override
+        public int[] getClazzIds() {
+            return mClazzIds;
+        }
+
+        @Override
+        public String getId() {
+            return mId;
+        }
+
+        @Override
+        public DomElement getParent() {
+            sParentSteps++;
+            return mParent;
+        }
+
+        @Override
+        public List children() {
+            return mChildren;
+        }
+
+        @Override
+        public boolean hasClazz() {
+            return mClazz.length > 0;
+        }
+
+        @Override
+        public boolean hasId() {
+            return mId != null;
+        }
+
+        @Override
+        public CharSequence getInner() {
+            return null;
+        }
+
+        @Override
+        public void setType(String type) {
+        }
+
+        @Override
+        public void setClazz(String[] clazz) {
+        }
+
+        @Override
+        public void setId(String id) {
+        }
+
+        @Override
+        public void setParent(DomElement parent) {
+        }
+    }
+
+    /**
+     * A chain of divs, each has some leaves of p and span.
+     */
+    private static Node tree() {
+        Node root = new Node(null, "body", "root");
+        Node parent = root;
+        for (int d = 0; d < DEPTH; d++) {
+            Node div = new Node(parent, "div", d % 10 == 0 ? "section" + d : null, "level" + d,
+                    "group" + d % 4);
+            for (int i = 0; i < LEAVES; i++) {
+                new Node(div, i % 2 == 0 ? "p" : "span", null, "item", "item" + i);
+            }
+            parent = div;
+        }
+        return root;
+    }
+
+    private static CssSelector chain(CssSelector... selectors) {
+        CssSelector head = selectors[0];
+        for (int i = 1; i < selectors.length; i++) {
+            head.chainChild(selectors[i], true);
+        }
+        return head.tail();
+    }
+
+    /**
+     * Mostly rules whose ancestors are not in tree, like those of other pages sharing the
+     * stylesheet, and some that match.
+     */
+    private static List<CssSelector> rules() {
+        List<CssSelector> rules = new ArrayList<>();
+        for (int i = 0; i < RULES; i++) {
+            switch (i % 5) {
+                case 0:
+                    rules.add(chain(new ClassSelector("other" + i), new ClassSelector("item")));
+                    break;
+                case 1:
+                    rules.add(chain(new IdSelector("page" + i), new TypeSelector("div"), new
+                            TypeSelector("p")));
+                    break;
+                case 2:
+                    rules.add(chain(new ClassSelector("level" + i % DEPTH), new ClassSelector
+                            ("group" + i % 4), new TypeSelector("span")));
+                    break;
+                case 3:
+                    rules.add(chain(new TypeSelector("header"), new AnySelector(), new
+                            ClassSelector("item" + i % LEAVES)));
+                    break;
+                default:
+                    rules.add(chain(new IdSelector("section" + (i % 4) * 10), new ClassSelector
+                            ("level" + i % DEPTH)));
+                    break;
+            }
+        }
+        return rules;
+    }
+
+    private long mMatched;
+    private long mFilteredSteps;
+    private long mWalkSteps;
+
+    private void match(Node node, List<CssSelector> rules, AncestorFilter filter) {
+        for (CssSelector rule : rules) {
+            // StyleSheet only gives the rules whose last part matches node
+            if (!rule.matchThis(node)) {
+                continue;
+            }
+
+            sParentSteps = 0;
+            boolean expected = rule.matchWhole(node);
+            mWalkSteps += sParentSteps;
+
+            sParentSteps = 0;
+            boolean filtered = rule.matchWhole(node, filter);
+            mFilteredSteps += sParentSteps;
+
+            Assert.assertEquals(rule + " on " + node.getType(), expected, filtered);
+            if (expected) {
+                mMatched++;
+            }
+        }
+
+        if (!node.mChildren.isEmpty()) {
+            filter.push(node);
+            for (Node child : node.mChildren) {
+                match(child, rules, filter);
+            }
+            filter.pop();
+        }
+    }
+
+    @Test
+    public void parentWalkSteps() {
+        Node root = tree();
+        List<CssSelector> rules = rules();
+        AncestorFilter filter = new AncestorFilter();
+
+        match(root, rules, filter);
+
+        Assert.assertEquals(0, filter.depth());
+        Assert.assertTrue(mMatched > 0);
+        Assert.assertTrue(mFilteredSteps < mWalkSteps);
+
+        System.out.println(String.format("depth %d, %d rules, %d matched, parent steps %d " +
+                "without filter, %d with filter", DEPTH, RULES, mMatched, mWalkSteps,
+                mFilteredSteps));
+    }
+}
@@ -0,0 +1,105 @@
+package com.mozz.htmlnative.parser;
+
+import com.mozz.htmlnative.reader.StringTextReader;
+import com.mozz.htmlnative.token.Token;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Lexes hundreds of documents at the same time on a thread pool, recycling tokens as Parser
+ * does, and checks every token stream is the same as lexing the document alone. Runs on JVM, the
+ * whole parse is checked by the instrumented ConcurrentParseTest.
+ *
+ * @author Yang Tao, 17/6/19.
+ */
+public class ConcurrentLexTest {
+
+    private static final int DOCUMENTS = 300;
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 3;
+
+    private static String document(int n) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<html>\n<head>\n<title>doc ").append(n).append("</title>\n</head>\n");
+        sb.append("<body id=\"main").append(n).append("\">\n");
+        for (int i = 0; i < 5 + n % 11; i++) {
+            sb.append("<div class=\"item title").append((n + i) % 7).append("\" id=\"item").append
+                    (i).append("\" style=\"width: ").append(i * 10).append("px; height: ")
+                    .append(n % 13).append(".5px\">\n");
+            sb.append("    <p>text ").append(n).append(" of item ").append(i).append("<br/>" +
+                    "next line</p>\n");
+            sb.append("    <span order=").append(i).append(">").append(i).append("</span>\n");
+            sb.append("    <img src=\"http://a.com/").append(n).append('/').append(i).append("" +
+                    ".png\" height=20 width=-1.5e2></img>\n");
+            sb.append("</div>\n");
+        }
+        sb.append("<Custom").append(n % 3).append(" extra").append(n).append("=\"x\"/>\n");
+        sb.append("</body>\n<script type=\"lua\">\nprint(").append(n).append(")\n</script>\n");
+        sb.append("</html>");
+        return sb.toString();
+    }
+
+    private static String lex(String document) throws Exception {
+        Lexer lexer = new Lexer(new StringTextReader(document));
+        StringBuilder sb = new StringBuilder();
+        Token last = null;
+        try {
+            while (true) {
+                if (last != null) {
+                    last.recycle();
+                }
+                last = lexer.scan();
+                sb.append(last).append('@').append(last.getLine()).append(':').append(last
+                        .getColumn()).append('\n');
+            }
+        } catch (EOFException ignored) {
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void lexConcurrently() throws Exception {
+        final String[] documents = new String[DOCUMENTS];
+        String[] expected = new String[DOCUMENTS];
+        for (int i = 0; i < DOCUMENTS; i++) {
+            documents[i] = document(i);
+            expected[i] = lex(documents[i]);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (int r = 0; r < ROUNDS; r++) {
+                for (int i = 0; i < DOCUMENTS; i++) {
+                    final String document = documents[i];
+                    results.add(executor.submit(new Callable<String>() {
+                        @Override
+                        public String call() throws Exception {
+                            start.await();
+                            return lex(document);
+                        }
+                    }));
+                }
+            }
+
+            start.countDown();
+            for (int i = 0; i < results.size(); i++) {
+                Assert.assertEquals("document " + i % DOCUMENTS, expected[i % DOCUMENTS], results
+                        .get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
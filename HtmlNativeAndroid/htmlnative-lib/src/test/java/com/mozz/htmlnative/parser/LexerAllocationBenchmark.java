@@ -0,0 +1,146 @@
+package com.mozz.htmlnative.parser;
+
+import com.mozz.htmlnative.reader.ByteBufferTextReader;
+import com.mozz.htmlnative.token.Token;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures bytes allocated per KB of input by lexing and by parsing a large layout. Runs on
+ * HotSpot, which can count allocations of a thread.
+ * <p>
+ * Lexing is compared with lexing that takes {@link Token#value()} of every token, which is the
+ * boxed number or String every token held before values were kept as primitives and slices.
+ *
+ * @author Yang Tao, 17/6/18.
+ */
+public class LexerAllocationBenchmark {
+
+    private static final int ROUNDS = 20;
+
+    /**
+     * Upper bounds of bytes per KB of input, a few times of the measured ones, while the values
+     * before tokens kept primitives were about 29000 for lexing and 116000 for parsing.
+     */
+    private static final long MAX_LEX_BYTES_PER_KB = 1024;
+    private static final long MAX_PARSE_BYTES_PER_KB = 40 * 1024;
+
+    private static byte[] layout() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<html>\n<head>\n<style>\n");
+        sb.append(".title { font-size: 18px; color: #333333 }\n");
+        sb.append("#main p { padding: 1.5em; line-height: 120% }\n");
+        sb.append("</style>\n<title>benchmark</title>\n</head>\n<body>\n");
+        for (int i = 0; i < 400; i++) {
+            sb.append("<div class=\"item title\" id=\"item").append(i).append("\" style=\"width: " +
+                    "100px; height: 20.5px\">\n");
+            sb.append("    <p>some text of item ").append(i).append(", with more words</p>\n");
+            sb.append("    <img src=\"http://a.com/").append(i).append(".png\" height=20 " +
+                    "width=100></img>\n");
+            sb.append("</div>\n");
+        }
+        sb.append("</body>\n</html>");
+        return sb.toString().getBytes("UTF-8");
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(counter.isThreadAllocatedMemorySupported());
+        counter.setThreadAllocatedMemoryEnabled(true);
+        return counter;
+    }
+
+    private static void lex(byte[] input, boolean takeValue) throws Exception {
+        Lexer lexer = new Lexer(new ByteBufferTextReader(input));
+        Token last = null;
+        try {
+            while (true) {
+                // recycle as Parser does
+                if (last != null) {
+                    last.recycle();
+                }
+                last = lexer.scan();
+                if (takeValue) {
+                    last.value();
+                }
+            }
+        } catch (EOFException ignored) {
+        }
+    }
+
+    private static long lexBytes(com.sun.management.ThreadMXBean counter, byte[] input, boolean
+            takeValue) throws Exception {
+        long threadId = Thread.currentThread().getId();
+
+        // warm up
+        for (int i = 0; i < ROUNDS; i++) {
+            lex(input, takeValue);
+        }
+
+        long start = counter.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ROUNDS; i++) {
+            lex(input, takeValue);
+        }
+        return (counter.getThreadAllocatedBytes(threadId) - start) / ROUNDS;
+    }
+
+    private static void parse(byte[] input) throws Exception {
+        new Parser(new ByteBufferTextReader(input)).process();
+    }
+
+    @Test
+    public void lexAllocationPerKB() throws Exception {
+        com.sun.management.ThreadMXBean counter = allocationCounter();
+        byte[] input = layout();
+        double kb = input.length / 1024d;
+
+        long lexBytes = lexBytes(counter, input, false);
+        long valueBytes = lexBytes(counter, input, true);
+
+        System.out.println(String.format("input %.1f KB, lex %d bytes/KB, lex with values %d " +
+                "bytes/KB", kb, (long) (lexBytes / kb), (long) (valueBytes / kb)));
+
+        Assert.assertTrue(lexBytes / kb < MAX_LEX_BYTES_PER_KB);
+        Assert.assertTrue(lexBytes * 10 < valueBytes);
+    }
+
+    @Test
+    public void parseAllocationPerKB() throws Exception {
+        com.sun.management.ThreadMXBean counter = allocationCounter();
+        long threadId = Thread.currentThread().getId();
+        byte[] input = layout();
+        double kb = input.length / 1024d;
+
+        // Parser logs and measures time by android classes, which are only stubs in local unit
+        // tests unless a working android.jar is on class path
+        try {
+            parse(input);
+        } catch (RuntimeException e) {
+            Assume.assumeNoException(e);
+        }
+
+        // warm up
+        for (int i = 0; i < ROUNDS; i++) {
+            parse(input);
+        }
+
+        long start = counter.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ROUNDS; i++) {
+            parse(input);
+        }
+        long parseBytes = (counter.getThreadAllocatedBytes(threadId) - start) / ROUNDS;
+
+        System.out.println(String.format("input %.1f KB, parse %d bytes/KB", kb, (long)
+                (parseBytes / kb)));
+
+        Assert.assertTrue(parseBytes / kb < MAX_PARSE_BYTES_PER_KB);
+    }
+}
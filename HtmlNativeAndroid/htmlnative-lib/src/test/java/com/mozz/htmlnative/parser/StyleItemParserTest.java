@@ -0,0 +1,71 @@
+package com.mozz.htmlnative.parser;
+
+import com.mozz.htmlnative.common.BoxEdges;
+import com.mozz.htmlnative.common.PixelValue;
+import com.mozz.htmlnative.css.Styles;
+import com.mozz.htmlnative.utils.ParametersUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Yang Tao, 17/6/20.
+ */
+public class StyleItemParserTest {
+
+    private static Object parse(String name, String value) {
+        return StyleItemParser.parseStyleSingle(name, value, null).obj;
+    }
+
+    private static void assertPixel(double value, int unit, Object pixel) {
+        Assert.assertTrue(String.valueOf(pixel), pixel instanceof PixelValue);
+        Assert.assertEquals(value, ((PixelValue) pixel).getValue(), 1e-6);
+        Assert.assertEquals(unit, ((PixelValue) pixel).getUnit());
+    }
+
+    @Test
+    public void typedValues() {
+        // same as what was converted from string each time applied
+        PixelValue expected = ParametersUtils.toPixel("12px");
+        assertPixel(expected.getValue(), expected.getUnit(), parse("width", " 12px "));
+        assertPixel(32, ParametersUtils.toPixel("2em").getUnit(), parse("font-size", "2em"));
+        assertPixel(10, PixelValue.UNSET, parse("margin-left", "10"));
+
+        Assert.assertSame(Styles.VAL_FILL_PARENT, parse("height", "100%"));
+        Assert.assertEquals(0xFFFF0000, parse("color", "#f00"));
+        Assert.assertEquals(0.5f, parse("alpha", "0.5"));
+        assertPixel(3, PixelValue.UNSET, parse("padding-top", "3"));
+        assertPixel(expected.getValue(), expected.getUnit(), parse("padding-left", "12px"));
+        Assert.assertSame(Styles.Display.FLEX, parse("display", "flex"));
+        Assert.assertSame(Styles.Visibility.INVISIBLE, parse("visibility", "invisible"));
+        Assert.assertSame(Styles.Direction.RTL, parse("direction", "rtl"));
+        Assert.assertSame(Styles.VAL_NORMAL, parse("word-spacing", "normal"));
+    }
+
+    @Test
+    public void shorthandExpanded() {
+        BoxEdges edges = (BoxEdges) parse("margin", "1px 2px");
+        Assert.assertEquals(1, edges.getTop().getValue(), 0);
+        Assert.assertEquals(2, edges.getRight().getValue(), 0);
+        Assert.assertEquals(1, edges.getBottom().getValue(), 0);
+        Assert.assertEquals(2, edges.getLeft().getValue(), 0);
+
+        edges = (BoxEdges) parse("padding", "1 2 3 4");
+        Assert.assertEquals(1, edges.getTop().getValue(), 0);
+        Assert.assertEquals(2, edges.getRight().getValue(), 0);
+        Assert.assertEquals(3, edges.getBottom().getValue(), 0);
+        Assert.assertEquals(4, edges.getLeft().getValue(), 0);
+
+        // three values are not supported, kept as they are
+        Assert.assertEquals("1 2 3", parse("padding", "1 2 3"));
+    }
+
+    @Test
+    public void keptIfNotConverted() {
+        Assert.assertEquals("auto", parse("width", "auto"));
+        Assert.assertEquals("notacolor", parse("color", "notacolor"));
+        Assert.assertEquals("wide", parse("padding-left", "wide"));
+        Assert.assertEquals("inline", parse("display", "inline"));
+        Assert.assertEquals("bold", parse("font-weight", "bold"));
+    }
+}
@@ -0,0 +1,113 @@
+package com.mozz.htmlnative.reader;
+
+import com.mozz.htmlnative.CodeToTest;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+
+/**
+ * @author Yang Tao, 17/6/17.
+ */
+public class ByteBufferTextReaderTest {
+
+    private static byte[] utf8(String str) throws Exception {
+        return str.getBytes("UTF-8");
+    }
+
+    /**
+     * Read all chars with their position, the same way as Lexer does.
+     */
+    private static String trace(TextReader reader) {
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            try {
+                char c = reader.nextCh();
+                sb.append((int) c).append('@').append(reader.line()).append(':').append(reader
+                        .column()).append('#').append(reader.countOfRead()).append(' ');
+            } catch (EOFException e) {
+                sb.append("EOF current=").append((int) reader.current());
+                break;
+            }
+        }
+        reader.close();
+        return sb.toString();
+    }
+
+    /**
+     * Same as FileTextReader, with the charset which is the default on Android
+     */
+    private static StreamReader streamReader(InputStream stream) throws Exception {
+        return new StreamReader(new InputStreamReader(stream, "UTF-8"));
+    }
+
+    private static void assertSameAsStreamReader(byte[] bytes) throws Exception {
+        String expected = trace(streamReader(new ByteArrayInputStream(bytes)));
+        Assert.assertEquals(expected, trace(new ByteBufferTextReader(bytes)));
+    }
+
+    @Test
+    public void sameAsStreamReader() throws Exception {
+        assertSameAsStreamReader(utf8(CodeToTest.codeScriptFirst));
+        assertSameAsStreamReader(utf8("<a>\r\nline\rnext\n\n</a>"));
+        assertSameAsStreamReader(utf8("<p>中文 text, été, emoji 😀 end</p>"));
+        assertSameAsStreamReader(new byte[0]);
+    }
+
+    @Test
+    public void largerThanStreamBuffer() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < StreamReader.CACHE_SIZE * 3) {
+            sb.append("<div class=\"a\">文字 😀\n</div>\r\n");
+        }
+        assertSameAsStreamReader(utf8(sb.toString()));
+    }
+
+    @Test
+    public void malformedInput() throws Exception {
+        assertSameAsStreamReader(new byte[]{'a', (byte) 0xFF, 'b', (byte) 0xC3, 'c', (byte)
+                0xE4, (byte) 0xB8, 'd', (byte) 0xC0, (byte) 0x80, (byte) 0xED, (byte) 0xA0,
+                (byte) 0x80, (byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80, (byte) 0xE4});
+    }
+
+    @Test
+    public void readSliceOfBuffer() throws Exception {
+        byte[] page = utf8("<p>hello</p>");
+        byte[] bytes = new byte[page.length + 4];
+        System.arraycopy(page, 0, bytes, 2, page.length);
+
+        String expected = trace(new ByteBufferTextReader(page));
+        Assert.assertEquals(expected, trace(new ByteBufferTextReader(bytes, 2, page.length)));
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.position(2);
+        buffer.limit(2 + page.length);
+        Assert.assertEquals(expected, trace(new ByteBufferTextReader(buffer)));
+        Assert.assertEquals(2, buffer.position());
+    }
+
+    @Test
+    public void mappedFile() throws Exception {
+        byte[] bytes = utf8(CodeToTest.codeScriptFirst + "中文\r\n");
+        File file = File.createTempFile("mapped", ".html");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(bytes);
+            out.close();
+
+            Assert.assertEquals(trace(streamReader(new FileInputStream(file))), trace(new
+                    MappedTextReader(file)));
+        } finally {
+            file.delete();
+        }
+    }
+}
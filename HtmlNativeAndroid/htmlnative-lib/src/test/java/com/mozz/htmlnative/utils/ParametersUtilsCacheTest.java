@@ -0,0 +1,55 @@
+package com.mozz.htmlnative.utils;
+
+import android.util.TypedValue;
+
+import com.mozz.htmlnative.common.PixelValue;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Yang Tao, 17/6/21.
+ */
+public class ParametersUtilsCacheTest {
+
+    @Test
+    public void sameStringSameValue() {
+        PixelValue first = ParametersUtils.toPixel("12dp");
+        Assert.assertSame(first, ParametersUtils.toPixel(new String("12dp")));
+        Assert.assertEquals(TypedValue.COMPLEX_UNIT_DIP, first.getUnit());
+        Assert.assertNotSame(first, ParametersUtils.toPixel("13dp"));
+
+        Assert.assertEquals(0xFFFFFFFF, ParametersUtils.toColor("#ffffff"));
+        Assert.assertEquals(0xFFFFFFFF, ParametersUtils.toColor(new String("#ffffff")));
+        Assert.assertEquals(0xFFFF0000, ParametersUtils.toColor(" red "));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongColorNotCached() {
+        try {
+            ParametersUtils.toColor("#zz");
+        } catch (IllegalArgumentException e) {
+            // thrown again
+        }
+        ParametersUtils.toColor("#zz");
+    }
+
+    @Test
+    public void pixelsFollowDensity() {
+        PixelValue pixel = ParametersUtils.toPixel("30dp");
+
+        ParametersUtils.updateScreenDensity(2);
+        int generation = ParametersUtils.densityGeneration();
+        double before = pixel.getPxValue();
+        Assert.assertEquals(ParametersUtils.pxToDp(30), before, 1e-6);
+
+        // same density, nothing changes
+        ParametersUtils.updateScreenDensity(2);
+        Assert.assertEquals(generation, ParametersUtils.densityGeneration());
+
+        ParametersUtils.updateScreenDensity(3);
+        Assert.assertEquals(generation + 1, ParametersUtils.densityGeneration());
+        Assert.assertEquals(ParametersUtils.pxToDp(30), pixel.getPxValue(), 1e-6);
+        Assert.assertTrue(Math.abs(before - pixel.getPxValue()) > 1e-6);
+    }
+}